@@ -10,7 +10,11 @@ import chat.giga.springai.api.auth.bearer.NoopGigaAuthToken;
 import chat.giga.springai.api.auth.bearer.SimpleGigaAuthToken;
 import chat.giga.springai.api.chat.GigaChatApi;
 import chat.giga.springai.image.GigaChatImageModel;
+import chat.giga.springai.media.GigaChatMediaCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import io.micrometer.observation.ObservationRegistry;
+import java.util.Optional;
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.TrustManagerFactory;
 import lombok.SneakyThrows;
@@ -30,6 +34,7 @@ import org.springframework.ai.model.tool.ToolExecutionEligibilityPredicate;
 import org.springframework.ai.model.tool.autoconfigure.ToolCallingAutoConfiguration;
 import org.springframework.ai.retry.RetryUtils;
 import org.springframework.ai.retry.autoconfigure.SpringAiRetryAutoConfiguration;
+import org.springframework.ai.retry.autoconfigure.SpringAiRetryProperties;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
@@ -46,6 +51,7 @@ import org.springframework.retry.support.RetryTemplate;
 import org.springframework.web.client.ResponseErrorHandler;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.util.retry.RetryBackoffSpec;
 
 @AutoConfiguration(
         after = {
@@ -74,7 +80,8 @@ public class GigaChatAutoConfiguration {
             ObjectProvider<RestClient.Builder> restClientBuilderProvider,
             ObjectProvider<WebClient.Builder> webClientBuilderProvider,
             ObjectProvider<ResponseErrorHandler> responseErrorHandlerProvider,
-            ObjectProvider<SslBundles> sslBundlesProvider) {
+            ObjectProvider<SslBundles> sslBundlesProvider,
+            ObjectProvider<MeterRegistry> meterRegistry) {
         KeyManagerFactory keyManagerFactory = null;
         TrustManagerFactory trustManagerFactory = null;
         GigaChatAuthProperties auth = gigaChatApiProperties.getAuth();
@@ -106,7 +113,8 @@ public class GigaChatAutoConfiguration {
                 webClientBuilderProvider.getIfAvailable(WebClient::builder),
                 responseErrorHandlerProvider.getIfAvailable(() -> RetryUtils.DEFAULT_RESPONSE_ERROR_HANDLER),
                 keyManagerFactory,
-                trustManagerFactory);
+                trustManagerFactory,
+                meterRegistry.getIfUnique(() -> Metrics.globalRegistry));
     }
 
     @Bean
@@ -119,7 +127,12 @@ public class GigaChatAutoConfiguration {
             ObjectProvider<ObservationRegistry> observationRegistry,
             ObjectProvider<ChatModelObservationConvention> observationConvention,
             ObjectProvider<ToolExecutionEligibilityPredicate> toolExecutionEligibilityPredicate,
+            ObjectProvider<MeterRegistry> meterRegistry,
+            ObjectProvider<SpringAiRetryProperties> retryProperties,
             GigaChatInternalProperties internalProperties) {
+        GigaChatChatProperties.MediaUpload mediaUpload = chatProperties.getMediaUpload();
+        GigaChatChatProperties.Cache mediaCache = mediaUpload.getCache();
+        MeterRegistry registry = meterRegistry.getIfUnique(() -> Metrics.globalRegistry);
         final GigaChatModel gigaChatModel = GigaChatModel.builder()
                 .gigaChatApi(gigaChatApi)
                 .defaultOptions(chatProperties.getOptions())
@@ -130,6 +143,15 @@ public class GigaChatAutoConfiguration {
                 .toolExecutionEligibilityPredicate(
                         toolExecutionEligibilityPredicate.getIfUnique(DefaultToolExecutionEligibilityPredicate::new))
                 .internalProperties(internalProperties)
+                .mediaCache(
+                        mediaCache.isEnabled()
+                                ? new GigaChatMediaCache(mediaCache.getMaxSize(), mediaCache.getTtl(), registry)
+                                : null)
+                .maxConcurrentMediaUploads(mediaUpload.getMaxConcurrentUploads())
+                .streamRetrySpec(Optional.ofNullable(retryProperties.getIfAvailable())
+                        .map(properties -> retrySpec(GigaChatModel.DEFAULT_STREAM_RETRY_SPEC, properties))
+                        .orElse(GigaChatModel.DEFAULT_STREAM_RETRY_SPEC))
+                .meterRegistry(registry)
                 .build();
 
         observationConvention.ifAvailable(gigaChatModel::setObservationConvention);
@@ -143,12 +165,21 @@ public class GigaChatAutoConfiguration {
             GigaChatEmbeddingProperties gigaChatEmbeddingProperties,
             ObjectProvider<RetryTemplate> retryTemplateProvider,
             ObjectProvider<ObservationRegistry> observationRegistry,
-            ObjectProvider<EmbeddingModelObservationConvention> observationConvention) {
-        GigaChatEmbeddingModel gigaChatEmbeddingModel = new GigaChatEmbeddingModel(
-                gigaChatApi,
-                gigaChatEmbeddingProperties.getOptions(),
-                retryTemplateProvider.getIfAvailable(() -> RetryUtils.DEFAULT_RETRY_TEMPLATE),
-                observationRegistry.getIfUnique(() -> ObservationRegistry.NOOP));
+            ObjectProvider<EmbeddingModelObservationConvention> observationConvention,
+            ObjectProvider<SpringAiRetryProperties> retryProperties) {
+        GigaChatEmbeddingProperties.Batching batching = gigaChatEmbeddingProperties.getBatching();
+        GigaChatEmbeddingModel gigaChatEmbeddingModel = GigaChatEmbeddingModel.builder()
+                .gigaChatApi(gigaChatApi)
+                .defaultOptions(gigaChatEmbeddingProperties.getOptions())
+                .retryTemplate(retryTemplateProvider.getIfAvailable(() -> RetryUtils.DEFAULT_RETRY_TEMPLATE))
+                .observationRegistry(observationRegistry.getIfUnique(() -> ObservationRegistry.NOOP))
+                .maxBatchSize(batching.getMaxBatchSize())
+                .maxBatchTokens(batching.getMaxBatchTokens())
+                .maxConcurrentBatches(batching.getMaxConcurrentBatches())
+                .asyncRetrySpec(Optional.ofNullable(retryProperties.getIfAvailable())
+                        .map(properties -> retrySpec(GigaChatEmbeddingModel.DEFAULT_ASYNC_RETRY_SPEC, properties))
+                        .orElse(GigaChatEmbeddingModel.DEFAULT_ASYNC_RETRY_SPEC))
+                .build();
 
         observationConvention.ifAvailable(gigaChatEmbeddingModel::setObservationConvention);
 
@@ -206,4 +237,13 @@ public class GigaChatAutoConfiguration {
 
         return gigaChatImageModel;
     }
+
+    // Повторы неблокирующих запросов настраиваются теми же свойствами spring.ai.retry, что и RetryTemplate
+    private static RetryBackoffSpec retrySpec(RetryBackoffSpec defaults, SpringAiRetryProperties properties) {
+        SpringAiRetryProperties.Backoff backoff = properties.getBackoff();
+        return defaults.maxAttempts(Math.max(0, properties.getMaxAttempts() - 1))
+                .minBackoff(backoff.getInitialInterval())
+                .multiplier(backoff.getMultiplier())
+                .maxBackoff(backoff.getMaxInterval());
+    }
 }
@@ -2,6 +2,8 @@ package chat.giga.springai.autoconfigure;
 
 import chat.giga.springai.GigaChatModel;
 import chat.giga.springai.GigaChatOptions;
+import chat.giga.springai.media.GigaChatMediaCache;
+import java.time.Duration;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.NestedConfigurationProperty;
 
@@ -14,6 +16,8 @@ public class GigaChatChatProperties {
     private GigaChatOptions options =
             GigaChatOptions.builder().model(GigaChatModel.DEFAULT_MODEL_NAME).build();
 
+    private MediaUpload mediaUpload = new MediaUpload();
+
     public void setOptions(GigaChatOptions options) {
         this.options = options;
     }
@@ -21,4 +25,78 @@ public class GigaChatChatProperties {
     public GigaChatOptions getOptions() {
         return this.options;
     }
+
+    public MediaUpload getMediaUpload() {
+        return this.mediaUpload;
+    }
+
+    public void setMediaUpload(MediaUpload mediaUpload) {
+        this.mediaUpload = mediaUpload;
+    }
+
+    public static class MediaUpload {
+        /**
+         * Max number of concurrently uploaded files of a single prompt.
+         */
+        private int maxConcurrentUploads = GigaChatModel.DEFAULT_MAX_CONCURRENT_MEDIA_UPLOADS;
+
+        private Cache cache = new Cache();
+
+        public int getMaxConcurrentUploads() {
+            return this.maxConcurrentUploads;
+        }
+
+        public void setMaxConcurrentUploads(int maxConcurrentUploads) {
+            this.maxConcurrentUploads = maxConcurrentUploads;
+        }
+
+        public Cache getCache() {
+            return this.cache;
+        }
+
+        public void setCache(Cache cache) {
+            this.cache = cache;
+        }
+    }
+
+    public static class Cache {
+        /**
+         * Reuse ids of already uploaded files with the same content and MIME type.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Max number of cached file ids.
+         */
+        private int maxSize = GigaChatMediaCache.DEFAULT_MAX_SIZE;
+
+        /**
+         * Time after which a cached file id is uploaded again.
+         */
+        private Duration ttl = GigaChatMediaCache.DEFAULT_TTL;
+
+        public boolean isEnabled() {
+            return this.enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxSize() {
+            return this.maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public Duration getTtl() {
+            return this.ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+    }
 }
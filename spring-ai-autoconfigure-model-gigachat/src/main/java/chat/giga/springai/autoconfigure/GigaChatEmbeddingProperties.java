@@ -16,6 +16,7 @@
 
 package chat.giga.springai.autoconfigure;
 
+import chat.giga.springai.GigaChatEmbeddingModel;
 import chat.giga.springai.GigaChatEmbeddingOptions;
 import chat.giga.springai.api.chat.embedding.EmbeddingsModel;
 import org.springframework.ai.document.MetadataMode;
@@ -45,6 +46,8 @@ public class GigaChatEmbeddingProperties {
             .withModel(DEFAULT_EMBEDDING_MODEL)
             .build();
 
+    private Batching batching = new Batching();
+
     public GigaChatEmbeddingOptions getOptions() {
         return this.options;
     }
@@ -76,4 +79,53 @@ public class GigaChatEmbeddingProperties {
     public void setEmbeddingsPath(String embeddingsPath) {
         this.embeddingsPath = embeddingsPath;
     }
+
+    public Batching getBatching() {
+        return this.batching;
+    }
+
+    public void setBatching(Batching batching) {
+        this.batching = batching;
+    }
+
+    public static class Batching {
+        /**
+         * Max number of texts in a single request to the embeddings endpoint.
+         */
+        private int maxBatchSize = GigaChatEmbeddingModel.DEFAULT_MAX_BATCH_SIZE;
+
+        /**
+         * Max estimated number of tokens in a single request to the embeddings endpoint.
+         */
+        private int maxBatchTokens = GigaChatEmbeddingModel.DEFAULT_MAX_BATCH_TOKENS;
+
+        /**
+         * Max number of concurrently executed requests to the embeddings endpoint.
+         */
+        private int maxConcurrentBatches = GigaChatEmbeddingModel.DEFAULT_MAX_CONCURRENT_BATCHES;
+
+        public int getMaxBatchSize() {
+            return this.maxBatchSize;
+        }
+
+        public void setMaxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        public int getMaxBatchTokens() {
+            return this.maxBatchTokens;
+        }
+
+        public void setMaxBatchTokens(int maxBatchTokens) {
+            this.maxBatchTokens = maxBatchTokens;
+        }
+
+        public int getMaxConcurrentBatches() {
+            return this.maxConcurrentBatches;
+        }
+
+        public void setMaxConcurrentBatches(int maxConcurrentBatches) {
+            this.maxConcurrentBatches = maxConcurrentBatches;
+        }
+    }
 }
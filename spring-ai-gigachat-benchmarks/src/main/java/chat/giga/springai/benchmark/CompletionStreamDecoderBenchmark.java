@@ -0,0 +1,127 @@
+package chat.giga.springai.benchmark;
+
+import chat.giga.springai.api.chat.completion.CompletionResponse;
+import chat.giga.springai.api.chat.completion.CompletionStreamDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.model.ModelOptionsUtils;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ReactiveHttpInputMessage;
+import org.springframework.http.codec.ServerSentEventHttpMessageReader;
+import reactor.core.publisher.Flux;
+
+/**
+ * Сравнивает разбор SSE-потока chat completion:
+ * <ul>
+ *   <li>{@code stringDecoding} - прежний путь: {@code bodyToFlux(String.class)} + {@link ModelOptionsUtils#jsonToObject}</li>
+ *   <li>{@code dataBufferDecoding} - {@link CompletionStreamDecoder}, разбор напрямую из {@link DataBuffer}</li>
+ * </ul>
+ *
+ * <p>Количество выделенной памяти на операцию (один поток из {@link #tokens} токенов) смотрите в
+ * {@code gc.alloc.rate.norm}: {@code java -jar target/benchmarks.jar CompletionStreamDecoderBenchmark -prof gc}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompletionStreamDecoderBenchmark {
+
+    private static final Predicate<String> SSE_DONE_PREDICATE = "[DONE]"::equals;
+    private static final String CHUNK =
+            "data: {\"choices\":[{\"delta\":{\"content\":\" токен\",\"role\":\"assistant\"},"
+                    + "\"index\":0}],\"created\":1732000000,\"model\":\"GigaChat-2-Max:2.0.28.2\","
+                    + "\"object\":\"chat.completion\"}\n\n";
+
+    /**
+     * Количество токенов (событий) в одном потоке.
+     */
+    @Param({"256"})
+    public int tokens;
+
+    /**
+     * Размер сетевого буфера, которыми приходит тело ответа.
+     */
+    @Param({"8192"})
+    public int bufferSize;
+
+    private final ServerSentEventHttpMessageReader sseReader = new ServerSentEventHttpMessageReader();
+    private final CompletionStreamDecoder decoder = new CompletionStreamDecoder();
+    private List<byte[]> body;
+
+    @Setup
+    public void setUp() {
+        StringBuilder sse = new StringBuilder();
+        for (int i = 0; i < tokens; i++) {
+            sse.append(CHUNK);
+        }
+        sse.append("data: [DONE]\n\n");
+        byte[] bytes = sse.toString().getBytes(StandardCharsets.UTF_8);
+        body = new ArrayList<>();
+        for (int offset = 0; offset < bytes.length; offset += bufferSize) {
+            body.add(Arrays.copyOfRange(bytes, offset, Math.min(bytes.length, offset + bufferSize)));
+        }
+    }
+
+    @Benchmark
+    public List<CompletionResponse> stringDecoding() {
+        return sseReader
+                .read(ResolvableType.forClass(String.class), new SseInputMessage(buffers()), Map.of())
+                .cast(String.class)
+                .takeUntil(SSE_DONE_PREDICATE)
+                .filter(SSE_DONE_PREDICATE.negate())
+                .map(content -> ModelOptionsUtils.jsonToObject(content, CompletionResponse.class))
+                .collectList()
+                .block();
+    }
+
+    @Benchmark
+    public List<CompletionResponse> dataBufferDecoding() {
+        return decoder.decode(buffers()).collectList().block();
+    }
+
+    private Flux<DataBuffer> buffers() {
+        return Flux.fromIterable(body).map(DefaultDataBufferFactory.sharedInstance::wrap);
+    }
+
+    private record SseInputMessage(Flux<DataBuffer> body) implements ReactiveHttpInputMessage {
+        private static final HttpHeaders HEADERS = HttpHeaders.readOnlyHttpHeaders(headers());
+
+        private static HttpHeaders headers() {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.TEXT_EVENT_STREAM);
+            return headers;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return HEADERS;
+        }
+
+        @Override
+        public Flux<DataBuffer> getBody() {
+            return body;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package chat.giga.springai.benchmark;
+
+import chat.giga.springai.GigaChatOptions;
+import chat.giga.springai.GigaChatOptionsMerger;
+import chat.giga.springai.api.chat.completion.CompletionRequest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.model.ModelOptionsUtils;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+
+/**
+ * Сравнивает подготовку опций запроса chat completion:
+ * <ul>
+ *   <li>{@code reflectiveMerge} - прежний путь: {@link ModelOptionsUtils#copyToTarget} и два
+ *       {@link ModelOptionsUtils#merge} через Jackson и рефлексию</li>
+ *   <li>{@code fieldMerge} - {@link GigaChatOptionsMerger}, копирование полей напрямую</li>
+ * </ul>
+ *
+ * <p>Количество выделенной памяти на операцию смотрите в {@code gc.alloc.rate.norm}:
+ * {@code java -jar target/benchmarks.jar GigaChatOptionsMergerBenchmark -prof gc}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GigaChatOptionsMergerBenchmark {
+
+    /**
+     * Количество сообщений в запросе.
+     */
+    @Param({"2", "20"})
+    public int messageCount;
+
+    private GigaChatOptions defaultOptions;
+    private GigaChatOptions runtimeOptions;
+    private GigaChatOptionsMerger merger;
+    private List<CompletionRequest.Message> messages;
+
+    @Setup
+    public void setUp() {
+        defaultOptions = GigaChatOptions.builder()
+                .model("GigaChat-2")
+                .temperature(0.5)
+                .maxTokens(512)
+                .profanityCheck(false)
+                .functionCallMode(GigaChatOptions.FunctionCallMode.AUTO)
+                .httpHeaders(Map.of("X-Client-ID", "benchmark"))
+                .build();
+        runtimeOptions = GigaChatOptions.builder()
+                .model("GigaChat-2-Max")
+                .topP(0.9)
+                .httpHeaders(Map.of("X-Session-ID", "session"))
+                .build();
+        merger = new GigaChatOptionsMerger(defaultOptions);
+        messages = new ArrayList<>();
+        for (int i = 0; i < messageCount; i++) {
+            messages.add(new CompletionRequest.Message(
+                    i % 2 == 0 ? CompletionRequest.Role.user : CompletionRequest.Role.assistant,
+                    "Сообщение номер " + i));
+        }
+    }
+
+    @Benchmark
+    public CompletionRequest reflectiveMerge() {
+        GigaChatOptions runtime =
+                ModelOptionsUtils.copyToTarget(runtimeOptions, ToolCallingChatOptions.class, GigaChatOptions.class);
+        GigaChatOptions requestOptions = ModelOptionsUtils.merge(runtime, defaultOptions, GigaChatOptions.class);
+        requestOptions.setInternalToolExecutionEnabled(ModelOptionsUtils.mergeOption(
+                runtime.getInternalToolExecutionEnabled(), defaultOptions.getInternalToolExecutionEnabled()));
+        requestOptions.setToolNames(
+                ToolCallingChatOptions.mergeToolNames(runtime.getToolNames(), defaultOptions.getToolNames()));
+        requestOptions.setToolCallbacks(ToolCallingChatOptions.mergeToolCallbacks(
+                runtime.getToolCallbacks(), defaultOptions.getToolCallbacks()));
+        requestOptions.setToolContext(
+                ToolCallingChatOptions.mergeToolContext(runtime.getToolContext(), defaultOptions.getToolContext()));
+
+        CompletionRequest request =
+                CompletionRequest.builder().messages(messages).stream(false).build();
+        return ModelOptionsUtils.merge(requestOptions, request, CompletionRequest.class);
+    }
+
+    @Benchmark
+    public CompletionRequest fieldMerge() {
+        GigaChatOptions requestOptions = merger.merge((ChatOptions) runtimeOptions);
+        return GigaChatOptionsMerger.toRequest(requestOptions, messages, false);
+    }
+}
@@ -0,0 +1,438 @@
+package chat.giga.springai.mock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Локальный эмулятор GigaChat API для нагрузочного тестирования и бенчмарков без обращения к настоящему сервису.
+ *
+ * <p>Поддерживаются:
+ * <ul>
+ *   <li>{@code POST /api/v2/oauth} - выдача токена со сроком жизни {@code tokenExpiry}. Запросы к
+ *   {@code /api/v1} без действующего токена получают 401</li>
+ *   <li>{@code POST /api/v1/chat/completions} - ответ из {@code completionTokens} токенов, в том числе SSE.
+ *   Первый токен отдается через {@code timeToFirstToken}, следующие - со скоростью {@code tokensPerSecond}.
+ *   Если в запросе есть функции и последнее сообщение не результат функции, возвращается вызов функции</li>
+ *   <li>{@code POST /api/v1/embeddings} - детерминированные нормализованные векторы: одинаковый текст и модель
+ *   дают одинаковый вектор</li>
+ *   <li>{@code POST /api/v1/files}, {@code GET /api/v1/files/{id}/content}, {@code POST /api/v1/files/{id}/delete}
+ *   - файлы хранятся в памяти</li>
+ *   <li>{@code GET /api/v1/models}</li>
+ * </ul>
+ *
+ * <p>Ошибки 429/5xx внедряются с заданной вероятностью ({@link Builder#fault(int, double)}) или для следующих
+ * N запросов ({@link #failNext(int, int)}). Случайные величины берутся из генератора с {@code seed}, поэтому
+ * при одинаковой последовательности запросов ошибки повторяются.
+ *
+ * <p>Запуск из командной строки:
+ * <pre>
+ * mvn -P benchmarks -pl spring-ai-gigachat-mock-server -am package -DskipTests
+ * java -jar spring-ai-gigachat-mock-server/target/gigachat-mock-server.jar --port=8080 --tokens-per-second=50 \
+ *     --time-to-first-token-ms=300 --token-expiry-s=1800 --fault=429:0.01 --fault=503:0.005
+ * </pre>
+ */
+public class GigaChatMockServer implements AutoCloseable {
+
+    public static final String OAUTH_PATH = "/api/v2/oauth";
+    public static final String API_PATH = "/api/v1";
+
+    static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final MockCompletions completions;
+    private final MockFiles files = new MockFiles();
+    private final Map<String, Integer> embeddingDimensions;
+    private final Duration tokenExpiry;
+    private final boolean authRequired;
+    private final List<Fault> faults;
+    private final Random random;
+    private final Map<String, Long> tokens = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> requests = new ConcurrentHashMap<>();
+    private final AtomicInteger scheduledFaults = new AtomicInteger();
+    private volatile int scheduledFaultStatus;
+
+    private GigaChatMockServer(Builder builder) throws IOException {
+        if (builder.tokensPerSecond <= 0) {
+            throw new IllegalArgumentException("tokensPerSecond must be greater than 0");
+        }
+        if (builder.completionTokens <= 0) {
+            throw new IllegalArgumentException("completionTokens must be greater than 0");
+        }
+        this.completions =
+                new MockCompletions(builder.completionTokens, builder.tokensPerSecond, builder.timeToFirstToken);
+        this.embeddingDimensions = Map.copyOf(builder.embeddingDimensions);
+        this.tokenExpiry = builder.tokenExpiry;
+        this.authRequired = builder.authRequired;
+        this.faults = List.copyOf(builder.faults);
+        this.random = new Random(builder.seed);
+        AtomicInteger threads = new AtomicInteger();
+        // потоковый ответ занимает поток на все время генерации, поэтому пул не ограничен
+        this.executor = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "gigachat-mock-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress(builder.host, builder.port), builder.backlog);
+        this.server.setExecutor(this.executor);
+        this.server.createContext(OAUTH_PATH, exchange -> handle(exchange, "oauth", this::oauth));
+        this.server.createContext(API_PATH + "/", this::route);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int port() {
+        return this.server.getAddress().getPort();
+    }
+
+    /**
+     * Значение для {@code spring.ai.gigachat.base-url}.
+     */
+    public String baseUrl() {
+        return "http://localhost:" + port() + API_PATH;
+    }
+
+    /**
+     * Значение для {@code spring.ai.gigachat.auth.bearer.url}.
+     */
+    public String authUrl() {
+        return "http://localhost:" + port() + OAUTH_PATH;
+    }
+
+    /**
+     * Следующие {@code count} запросов к API (кроме OAuth) завершатся ошибкой со статусом {@code status}.
+     */
+    public void failNext(int count, int status) {
+        this.scheduledFaultStatus = status;
+        this.scheduledFaults.set(count);
+    }
+
+    /**
+     * Число запросов к эндпоинту: {@code oauth}, {@code completions}, {@code embeddings}, {@code files},
+     * {@code models}. Учитываются и запросы, завершившиеся ошибкой.
+     */
+    public long requests(String endpoint) {
+        LongAdder counter = this.requests.get(endpoint);
+        return counter != null ? counter.sum() : 0;
+    }
+
+    @Override
+    public void close() {
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath().substring(API_PATH.length());
+        String method = exchange.getRequestMethod();
+        if ("POST".equals(method) && path.equals("/chat/completions")) {
+            handle(exchange, "completions", this::chatCompletions);
+        } else if ("POST".equals(method) && path.equals("/embeddings")) {
+            handle(exchange, "embeddings", this::embeddings);
+        } else if ("POST".equals(method) && path.equals("/files")) {
+            handle(exchange, "files", e -> sendJson(e, 200, this.files.upload(e)));
+        } else if ("GET".equals(method) && path.matches("/files/[^/]+/content")) {
+            handle(exchange, "files", e -> this.files.download(e, path.split("/")[2]));
+        } else if ("POST".equals(method) && path.matches("/files/[^/]+/delete")) {
+            handle(exchange, "files", e -> sendJson(e, 200, this.files.delete(path.split("/")[2])));
+        } else if ("GET".equals(method) && path.equals("/models")) {
+            handle(exchange, "models", this::models);
+        } else {
+            sendError(exchange, 404, "Not found: " + method + " " + path);
+            exchange.close();
+        }
+    }
+
+    private void handle(HttpExchange exchange, String endpoint, Handler handler) throws IOException {
+        this.requests.computeIfAbsent(endpoint, e -> new LongAdder()).increment();
+        try {
+            if (!endpoint.equals("oauth")) {
+                if (this.authRequired && !authorized(exchange)) {
+                    sendError(exchange, 401, "Token has expired");
+                    return;
+                }
+                int faultStatus = nextFault();
+                if (faultStatus > 0) {
+                    if (faultStatus == 429) {
+                        exchange.getResponseHeaders().set("Retry-After", "1");
+                    }
+                    sendError(exchange, faultStatus, "Injected fault");
+                    return;
+                }
+            }
+            handler.handle(exchange);
+        } catch (IOException e) {
+            // клиент закрыл соединение, например отменил потоковый запрос
+        } catch (RuntimeException e) {
+            if (exchange.getResponseCode() < 0) {
+                sendError(exchange, 400, String.valueOf(e.getMessage()));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void oauth(HttpExchange exchange) throws IOException {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !authorization.startsWith("Basic ")) {
+            sendError(exchange, 401, "Authorization key is missing");
+            return;
+        }
+        exchange.getRequestBody().readAllBytes();
+        String token = UUID.randomUUID().toString();
+        long expiresAt = System.currentTimeMillis() + this.tokenExpiry.toMillis();
+        this.tokens.put(token, expiresAt);
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("access_token", token);
+        response.put("expires_at", expiresAt);
+        sendJson(exchange, 200, response);
+    }
+
+    private void chatCompletions(HttpExchange exchange) throws IOException {
+        JsonNode request = MAPPER.readTree(exchange.getRequestBody());
+        exchange.getResponseHeaders().set("x-request-id", UUID.randomUUID().toString());
+        if (request.path("stream").asBoolean(false)) {
+            this.completions.stream(exchange, request);
+        } else {
+            sendJson(exchange, 200, this.completions.complete(request));
+        }
+    }
+
+    private void embeddings(HttpExchange exchange) throws IOException {
+        JsonNode request = MAPPER.readTree(exchange.getRequestBody());
+        String model = request.path("model").asText("Embeddings");
+        int dimensions = this.embeddingDimensions.getOrDefault(model, 1024);
+        List<Map<String, Object>> data = new ArrayList<>();
+        JsonNode input = request.path("input");
+        for (int i = 0; i < input.size(); i++) {
+            String text = input.get(i).asText();
+            Map<String, Object> embedding = new LinkedHashMap<>();
+            embedding.put("object", "embedding");
+            embedding.put("embedding", MockEmbeddings.vector(model, text, dimensions));
+            embedding.put("index", i);
+            embedding.put("usage", Map.of("prompt_tokens", MockCompletions.estimateTokens(text)));
+            data.add(embedding);
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("object", "list");
+        response.put("data", data);
+        response.put("model", model);
+        sendJson(exchange, 200, response);
+    }
+
+    private void models(HttpExchange exchange) throws IOException {
+        List<Map<String, Object>> data = new ArrayList<>();
+        for (String model : List.of("GigaChat-2", "GigaChat-2-Pro", "GigaChat-2-Max")) {
+            data.add(Map.of("id", model, "object", "model", "owned_by", "salutedevices", "type", "chat"));
+        }
+        for (String model : this.embeddingDimensions.keySet()) {
+            data.add(Map.of("id", model, "object", "model", "owned_by", "salutedevices", "type", "embedder"));
+        }
+        sendJson(exchange, 200, Map.of("object", "list", "data", data));
+    }
+
+    private boolean authorized(HttpExchange exchange) {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            return false;
+        }
+        Long expiresAt = this.tokens.get(authorization.substring("Bearer ".length()));
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
+    }
+
+    private int nextFault() {
+        if (this.scheduledFaults.getAndUpdate(count -> Math.max(0, count - 1)) > 0) {
+            return this.scheduledFaultStatus;
+        }
+        for (Fault fault : this.faults) {
+            if (this.random.nextDouble() < fault.probability()) {
+                return fault.status();
+            }
+        }
+        return 0;
+    }
+
+    static void sendJson(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = MAPPER.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        sendJson(exchange, status, Map.of("status", status, "message", message));
+    }
+
+    public static void main(String[] args) {
+        Builder builder = builder().port(8080);
+        for (String arg : args) {
+            String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            if (option.length != 2) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            String value = option[1];
+            switch (option[0]) {
+                case "host" -> builder.host(value);
+                case "port" -> builder.port(Integer.parseInt(value));
+                case "tokens-per-second" -> builder.tokensPerSecond(Double.parseDouble(value));
+                case "time-to-first-token-ms" -> builder.timeToFirstToken(Duration.ofMillis(Long.parseLong(value)));
+                case "completion-tokens" -> builder.completionTokens(Integer.parseInt(value));
+                case "token-expiry-s" -> builder.tokenExpiry(Duration.ofSeconds(Long.parseLong(value)));
+                case "auth-required" -> builder.authRequired(Boolean.parseBoolean(value));
+                case "seed" -> builder.seed(Long.parseLong(value));
+                case "fault" -> {
+                    String[] fault = value.split(":", 2);
+                    builder.fault(Integer.parseInt(fault[0]), Double.parseDouble(fault[1]));
+                }
+                default -> throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        GigaChatMockServer mockServer = builder.start();
+        System.out.println(
+                "GigaChat mock server: base-url " + mockServer.baseUrl() + ", auth url " + mockServer.authUrl());
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    /**
+     * @param status HTTP-статус ответа
+     * @param probability вероятность ошибки для каждого запроса
+     */
+    private record Fault(int status, double probability) {}
+
+    public static class Builder {
+        private String host = "localhost";
+        private int port;
+        private int backlog = 1024;
+        private double tokensPerSecond = 50;
+        private Duration timeToFirstToken = Duration.ofMillis(200);
+        private int completionTokens = 32;
+        private Duration tokenExpiry = Duration.ofMinutes(30);
+        private boolean authRequired = true;
+        private final Map<String, Integer> embeddingDimensions =
+                new LinkedHashMap<>(Map.of("Embeddings", 1024, "Embeddings-2", 1024, "EmbeddingsGigaR", 2560));
+        private final List<Fault> faults = new ArrayList<>();
+        private long seed = 42;
+
+        private Builder() {}
+
+        public Builder host(String host) {
+            this.host = host;
+            return this;
+        }
+
+        /**
+         * Порт, по умолчанию 0 - свободный порт, см. {@link GigaChatMockServer#port()}.
+         */
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        public Builder backlog(int backlog) {
+            this.backlog = backlog;
+            return this;
+        }
+
+        /**
+         * Скорость генерации после первого токена, по умолчанию 50 токенов в секунду.
+         */
+        public Builder tokensPerSecond(double tokensPerSecond) {
+            this.tokensPerSecond = tokensPerSecond;
+            return this;
+        }
+
+        /**
+         * Задержка до первого токена, по умолчанию 200 мс.
+         */
+        public Builder timeToFirstToken(Duration timeToFirstToken) {
+            this.timeToFirstToken = timeToFirstToken;
+            return this;
+        }
+
+        /**
+         * Длина ответа в токенах, по умолчанию 32. Если в запросе задан меньший {@code max_tokens}, ответ
+         * обрезается с {@code finish_reason=length}.
+         */
+        public Builder completionTokens(int completionTokens) {
+            this.completionTokens = completionTokens;
+            return this;
+        }
+
+        /**
+         * Время жизни выдаваемого токена доступа, по умолчанию 30 минут.
+         */
+        public Builder tokenExpiry(Duration tokenExpiry) {
+            this.tokenExpiry = tokenExpiry;
+            return this;
+        }
+
+        /**
+         * Проверять токен доступа в запросах к API, по умолчанию {@code true}.
+         */
+        public Builder authRequired(boolean authRequired) {
+            this.authRequired = authRequired;
+            return this;
+        }
+
+        /**
+         * Размерность векторов модели, по умолчанию заданы модели из {@code EmbeddingsModel}, для остальных - 1024.
+         */
+        public Builder embeddingDimensions(String model, int dimensions) {
+            this.embeddingDimensions.put(model, dimensions);
+            return this;
+        }
+
+        /**
+         * Отвечать ошибкой {@code status} с вероятностью {@code probability} на каждый запрос к API.
+         */
+        public Builder fault(int status, double probability) {
+            if (status < 400 || status > 599) {
+                throw new IllegalArgumentException("status must be 4xx or 5xx");
+            }
+            this.faults.add(new Fault(status, probability));
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Создает и запускает сервер.
+         */
+        public GigaChatMockServer start() {
+            try {
+                GigaChatMockServer mockServer = new GigaChatMockServer(this);
+                mockServer.server.start();
+                return mockServer;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to start GigaChat mock server", e);
+            }
+        }
+    }
+}
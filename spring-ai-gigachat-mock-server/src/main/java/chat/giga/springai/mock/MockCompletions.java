@@ -0,0 +1,217 @@
+package chat.giga.springai.mock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sun.net.httpserver.HttpExchange;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ответы {@code /chat/completions}: текст из фиксированного набора слов (одно слово - один токен) или вызов
+ * функции с аргументами, построенными по JSON-схеме ее параметров.
+ */
+final class MockCompletions {
+
+    private static final String MODEL = "GigaChat-2:2.0.28.2";
+    private static final String[] WORDS = {
+        "Это",
+        "ответ",
+        "тестового",
+        "сервера",
+        "GigaChat,",
+        "который",
+        "генерирует",
+        "текст",
+        "с",
+        "заданной",
+        "скоростью."
+    };
+    private static final byte[] DONE = "data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final int completionTokens;
+    private final long tokenIntervalNanos;
+    private final long timeToFirstTokenNanos;
+
+    MockCompletions(int completionTokens, double tokensPerSecond, Duration timeToFirstToken) {
+        this.completionTokens = completionTokens;
+        this.tokenIntervalNanos = (long) (1_000_000_000L / tokensPerSecond);
+        this.timeToFirstTokenNanos = timeToFirstToken.toNanos();
+    }
+
+    /**
+     * Ответ без {@code stream} отдается целиком после "генерации" всех токенов.
+     */
+    Map<String, Object> complete(JsonNode request) throws IOException {
+        long start = System.nanoTime();
+        Reply reply = reply(request);
+        sleepUntil(start + this.timeToFirstTokenNanos + (reply.tokens().size() - 1) * this.tokenIntervalNanos);
+        Map<String, Object> message = message(String.join("", reply.tokens()), reply.functionCall());
+        return response("message", message, reply.finishReason(), reply.usage());
+    }
+
+    void stream(HttpExchange exchange, JsonNode request) throws IOException {
+        long start = System.nanoTime();
+        Reply reply = reply(request);
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        List<String> tokens = reply.tokens();
+        for (int i = 0; i < tokens.size(); i++) {
+            sleepUntil(start + this.timeToFirstTokenNanos + i * this.tokenIntervalNanos);
+            boolean last = i == tokens.size() - 1;
+            Map<String, Object> delta = message(tokens.get(i), last ? reply.functionCall() : null);
+            Map<String, Object> chunk =
+                    response("delta", delta, last ? reply.finishReason() : null, last ? reply.usage() : null);
+            out.write(("data: " + GigaChatMockServer.MAPPER.writeValueAsString(chunk) + "\n\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+        out.write(DONE);
+        out.flush();
+    }
+
+    static int estimateTokens(String text) {
+        return Math.max(1, (text.length() + 3) / 4);
+    }
+
+    private Reply reply(JsonNode request) {
+        int promptTokens = 0;
+        JsonNode messages = request.path("messages");
+        for (JsonNode message : messages) {
+            promptTokens += estimateTokens(message.path("content").asText(""));
+        }
+        JsonNode function = functionToCall(request);
+        if (function != null) {
+            Map<String, Object> functionCall = new LinkedHashMap<>();
+            functionCall.put("name", function.path("name").asText());
+            functionCall.put("arguments", arguments(function.path("parameters")));
+            return new Reply(List.of(""), functionCall, "function_call", usage(promptTokens, 1));
+        }
+        int maxTokens = request.path("max_tokens").asInt(Integer.MAX_VALUE);
+        int count = Math.min(this.completionTokens, Math.max(1, maxTokens));
+        List<String> tokens = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tokens.add((i == 0 ? "" : " ") + WORDS[i % WORDS.length]);
+        }
+        String finishReason = count < this.completionTokens ? "length" : "stop";
+        return new Reply(tokens, null, finishReason, usage(promptTokens, count));
+    }
+
+    /**
+     * Функция для вызова: указанная в {@code function_call} или первая из {@code functions}. Если последнее
+     * сообщение - результат функции или {@code function_call=none}, модель отвечает текстом.
+     */
+    private static JsonNode functionToCall(JsonNode request) {
+        JsonNode functions = request.path("functions");
+        JsonNode messages = request.path("messages");
+        JsonNode mode = request.path("function_call");
+        if (functions.isEmpty()
+                || "none".equals(mode.asText())
+                || (!messages.isEmpty()
+                        && "function"
+                                .equals(messages.get(messages.size() - 1)
+                                        .path("role")
+                                        .asText()))) {
+            return null;
+        }
+        String name = mode.path("name").asText(null);
+        for (JsonNode function : functions) {
+            if (name == null || name.equals(function.path("name").asText())) {
+                return function;
+            }
+        }
+        return functions.get(0);
+    }
+
+    /**
+     * Аргументы со значениями-заглушками для всех свойств схемы.
+     */
+    private static Object arguments(JsonNode schema) {
+        switch (schema.path("type").asText("object")) {
+            case "string":
+                return schema.path("enum").isEmpty()
+                        ? "test"
+                        : schema.path("enum").get(0).asText();
+            case "integer":
+            case "number":
+                return 1;
+            case "boolean":
+                return true;
+            case "array":
+                return List.of(arguments(schema.path("items")));
+            default:
+                Map<String, Object> arguments = new LinkedHashMap<>();
+                Iterator<Map.Entry<String, JsonNode>> properties =
+                        schema.path("properties").fields();
+                while (properties.hasNext()) {
+                    Map.Entry<String, JsonNode> property = properties.next();
+                    arguments.put(property.getKey(), arguments(property.getValue()));
+                }
+                return arguments;
+        }
+    }
+
+    private static Map<String, Object> message(String content, Map<String, Object> functionCall) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("role", "assistant");
+        message.put("content", content);
+        if (functionCall != null) {
+            message.put("function_call", functionCall);
+            message.put("functions_state_id", UUID.randomUUID().toString());
+        }
+        return message;
+    }
+
+    private static Map<String, Object> response(
+            String messageField, Map<String, Object> message, String finishReason, Map<String, Object> usage) {
+        Map<String, Object> choice = new LinkedHashMap<>();
+        choice.put(messageField, message);
+        choice.put("index", 0);
+        if (finishReason != null) {
+            choice.put("finish_reason", finishReason);
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("choices", List.of(choice));
+        response.put("created", System.currentTimeMillis() / 1000);
+        response.put("model", MODEL);
+        response.put("object", "chat.completion");
+        if (usage != null) {
+            response.put("usage", usage);
+        }
+        return response;
+    }
+
+    private static Map<String, Object> usage(int promptTokens, int completionTokens) {
+        Map<String, Object> usage = new LinkedHashMap<>();
+        usage.put("prompt_tokens", promptTokens);
+        usage.put("completion_tokens", completionTokens);
+        usage.put("precached_prompt_tokens", 0);
+        usage.put("total_tokens", promptTokens + completionTokens);
+        return usage;
+    }
+
+    private static void sleepUntil(long deadlineNanos) throws IOException {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedIOException("Mock server is stopping");
+            }
+        }
+    }
+
+    /**
+     * @param tokens токены ответа, для вызова функции - один пустой токен
+     */
+    private record Reply(
+            List<String> tokens, Map<String, Object> functionCall, String finishReason, Map<String, Object> usage) {}
+}
@@ -0,0 +1,115 @@
+package chat.giga.springai.mock;
+
+import com.sun.net.httpserver.HttpExchange;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Файлы {@code /files}, хранятся в памяти до удаления или остановки сервера.
+ */
+final class MockFiles {
+
+    private static final Pattern BOUNDARY = Pattern.compile("boundary=\"?([^\";]+)\"?");
+    private static final Pattern NAME = Pattern.compile("[; ]name=\"([^\"]*)\"");
+    private static final Pattern FILENAME = Pattern.compile("filename=\"([^\"]*)\"");
+
+    private final Map<String, StoredFile> files = new ConcurrentHashMap<>();
+
+    Map<String, Object> upload(HttpExchange exchange) throws IOException {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        Matcher boundary = contentType != null ? BOUNDARY.matcher(contentType) : null;
+        if (boundary == null || !boundary.find()) {
+            throw new IllegalArgumentException("multipart/form-data with boundary is expected");
+        }
+        Part part = filePart(exchange.getRequestBody().readAllBytes(), boundary.group(1));
+        String id = UUID.randomUUID().toString();
+        long createdAt = System.currentTimeMillis() / 1000;
+        this.files.put(id, new StoredFile(part.filename(), part.contentType(), part.content()));
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("bytes", part.content().length);
+        response.put("created_at", createdAt);
+        response.put("filename", part.filename());
+        response.put("id", id);
+        response.put("object", "file");
+        response.put("purpose", "general");
+        response.put("access_policy", "private");
+        return response;
+    }
+
+    void download(HttpExchange exchange, String id) throws IOException {
+        StoredFile file = this.files.get(id);
+        if (file == null) {
+            GigaChatMockServer.sendJson(exchange, 404, Map.of("status", 404, "message", "File not found: " + id));
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", file.contentType());
+        exchange.sendResponseHeaders(200, file.content().length);
+        exchange.getResponseBody().write(file.content());
+    }
+
+    Map<String, Object> delete(String id) {
+        boolean deleted = this.files.remove(id) != null;
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("id", id);
+        response.put("deleted", deleted);
+        response.put("access_policy", "private");
+        return response;
+    }
+
+    /**
+     * Находит часть {@code name="file"} в теле multipart/form-data.
+     */
+    private static Part filePart(byte[] body, String boundary) {
+        byte[] delimiter = ("--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        byte[] headersEnd = "\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+        int position = indexOf(body, delimiter, 0);
+        while (position >= 0) {
+            int partStart = position + delimiter.length + 2;
+            int next = indexOf(body, delimiter, partStart);
+            int contentStart = indexOf(body, headersEnd, partStart);
+            if (next < 0 || contentStart < 0 || contentStart > next) {
+                break;
+            }
+            String headers = new String(body, partStart, contentStart - partStart, StandardCharsets.UTF_8);
+            Matcher name = NAME.matcher(headers);
+            if (name.find() && name.group(1).equals("file")) {
+                Matcher filename = FILENAME.matcher(headers);
+                String contentType = "application/octet-stream";
+                for (String header : headers.split("\r\n")) {
+                    if (header.regionMatches(true, 0, "Content-Type:", 0, "Content-Type:".length())) {
+                        contentType = header.substring("Content-Type:".length()).trim();
+                    }
+                }
+                // содержимое части заканчивается переводом строки перед разделителем
+                byte[] content = Arrays.copyOfRange(body, contentStart + headersEnd.length, next - 2);
+                return new Part(filename.find() ? filename.group(1) : "file", contentType, content);
+            }
+            position = next;
+        }
+        throw new IllegalArgumentException("multipart part 'file' is missing");
+    }
+
+    private static int indexOf(byte[] array, byte[] target, int from) {
+        outer:
+        for (int i = from; i <= array.length - target.length; i++) {
+            for (int j = 0; j < target.length; j++) {
+                if (array[i + j] != target[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private record Part(String filename, String contentType, byte[] content) {}
+
+    private record StoredFile(String filename, String contentType, byte[] content) {}
+}
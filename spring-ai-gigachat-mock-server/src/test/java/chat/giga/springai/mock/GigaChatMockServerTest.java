@@ -0,0 +1,228 @@
+package chat.giga.springai.mock;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import chat.giga.springai.api.GigaChatApiProperties;
+import chat.giga.springai.api.auth.GigaChatApiScope;
+import chat.giga.springai.api.auth.GigaChatAuthProperties;
+import chat.giga.springai.api.chat.GigaChatApi;
+import chat.giga.springai.api.chat.completion.CompletionRequest;
+import chat.giga.springai.api.chat.completion.CompletionResponse;
+import chat.giga.springai.api.chat.embedding.EmbeddingsRequest;
+import chat.giga.springai.api.chat.embedding.EmbeddingsResponse;
+import chat.giga.springai.api.chat.file.UploadFileResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.content.Media;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.util.MimeTypeUtils;
+
+class GigaChatMockServerTest {
+
+    @Test
+    void completionRequiresOAuthToken() {
+        try (GigaChatMockServer mock = GigaChatMockServer.builder()
+                .timeToFirstToken(Duration.ZERO)
+                .tokensPerSecond(1000)
+                .completionTokens(5)
+                .start()) {
+            GigaChatApi api = api(mock);
+
+            CompletionResponse first =
+                    api.chatCompletionEntity(request("Привет")).getBody();
+            api.chatCompletionEntity(request("Как дела?"));
+
+            assertNotNull(first);
+            assertEquals("stop", first.getChoices().get(0).getFinishReason());
+            assertEquals(5, first.getUsage().getCompletionTokens());
+            assertFalse(first.getChoices().get(0).getMessage().getContent().isBlank());
+            assertEquals(1, mock.requests("oauth"));
+            assertEquals(2, mock.requests("completions"));
+        }
+    }
+
+    @Test
+    void streamIsPacedByTimeToFirstTokenAndTokensPerSecond() {
+        try (GigaChatMockServer mock = GigaChatMockServer.builder()
+                .timeToFirstToken(Duration.ofMillis(100))
+                .tokensPerSecond(100)
+                .completionTokens(10)
+                .start()) {
+            GigaChatApi api = api(mock);
+            CompletionRequest request = request("Привет");
+            request.setStream(true);
+
+            long start = System.nanoTime();
+            List<CompletionResponse> chunks =
+                    api.chatCompletionStream(request).collectList().block();
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            assertNotNull(chunks);
+            assertEquals(10, chunks.size());
+            assertEquals("stop", chunks.get(9).getChoices().get(0).getFinishReason());
+            assertNotNull(chunks.get(9).getUsage());
+            // 100 мс до первого токена и еще 9 токенов по 10 мс
+            assertTrue(elapsedMillis >= 180, "elapsed " + elapsedMillis + " ms");
+        }
+    }
+
+    @Test
+    void maxTokensTruncatesAnswer() {
+        try (GigaChatMockServer mock =
+                GigaChatMockServer.builder().timeToFirstToken(Duration.ZERO).start()) {
+            CompletionRequest request = request("Привет");
+            request.setMaxTokens(3);
+
+            CompletionResponse response =
+                    api(mock).chatCompletionEntity(request).getBody();
+
+            assertEquals("length", response.getChoices().get(0).getFinishReason());
+            assertEquals(3, response.getUsage().getCompletionTokens());
+        }
+    }
+
+    @Test
+    void functionCallAndAnswerAfterFunctionResult() {
+        try (GigaChatMockServer mock = GigaChatMockServer.builder()
+                .timeToFirstToken(Duration.ZERO)
+                .tokensPerSecond(1000)
+                .start()) {
+            GigaChatApi api = api(mock);
+            CompletionRequest request = request("Какая погода в Москве?");
+            request.setFunctions(
+                    List.of(new CompletionRequest.FunctionDescription("weather", "Погода в городе", """
+                    {"type": "object", "properties": {"city": {"type": "string"}, "days": {"type": "integer"}}}
+                    """, null, null)));
+
+            CompletionResponse.Choice call =
+                    api.chatCompletionEntity(request).getBody().getChoices().get(0);
+
+            assertEquals("function_call", call.getFinishReason());
+            assertEquals("weather", call.getMessage().getFunctionCall().getName());
+            assertEquals(
+                    "{\"city\":\"test\",\"days\":1}",
+                    call.getMessage().getFunctionCall().getArguments());
+            assertNotNull(call.getMessage().getFunctionsStateId());
+
+            request.setMessages(List.of(
+                    new CompletionRequest.Message(CompletionRequest.Role.user, "Какая погода в Москве?"),
+                    new CompletionRequest.Message(CompletionRequest.Role.function, "{\"temperature\": 20}")));
+            CompletionResponse.Choice answer =
+                    api.chatCompletionEntity(request).getBody().getChoices().get(0);
+
+            assertEquals("stop", answer.getFinishReason());
+            assertNull(answer.getMessage().getFunctionCall());
+        }
+    }
+
+    @Test
+    void embeddingsAreDeterministicAndNormalized() {
+        try (GigaChatMockServer mock =
+                GigaChatMockServer.builder().embeddingDimensions("Custom", 16).start()) {
+            GigaChatApi api = api(mock);
+            EmbeddingsRequest request = EmbeddingsRequest.builder()
+                    .model("Custom")
+                    .input(List.of("первый", "второй", "первый"))
+                    .build();
+
+            List<EmbeddingsResponse.EmbeddingData> data =
+                    api.embeddings(request).getBody().getData();
+            List<EmbeddingsResponse.EmbeddingData> repeated =
+                    api.embeddings(request).getBody().getData();
+
+            assertEquals(3, data.size());
+            assertEquals(16, data.get(0).getEmbedding().length);
+            assertArrayEquals(data.get(0).getEmbedding(), data.get(2).getEmbedding());
+            assertArrayEquals(data.get(1).getEmbedding(), repeated.get(1).getEmbedding());
+            assertFalse(Arrays.equals(data.get(0).getEmbedding(), data.get(1).getEmbedding()));
+            double norm = 0;
+            for (float value : data.get(0).getEmbedding()) {
+                norm += value * value;
+            }
+            assertEquals(1.0, norm, 1e-5);
+        }
+    }
+
+    @Test
+    void uploadDownloadAndDeleteFile() {
+        try (GigaChatMockServer mock = GigaChatMockServer.builder().start()) {
+            GigaChatApi api = api(mock);
+            byte[] content = "содержимое файла".getBytes(StandardCharsets.UTF_8);
+
+            UploadFileResponse uploaded = api.uploadFile(Media.builder()
+                            .data(new ByteArrayResource(content))
+                            .mimeType(MimeTypeUtils.TEXT_PLAIN)
+                            .name("file.txt")
+                            .build())
+                    .getBody();
+
+            assertNotNull(uploaded);
+            String fileId = uploaded.id().toString();
+            assertEquals(content.length, uploaded.bytes());
+            assertArrayEquals(content, api.downloadFile(fileId));
+            assertTrue(api.deleteFile(fileId).getBody().deleted());
+            assertThrows(RuntimeException.class, () -> api.downloadFile(fileId));
+        }
+    }
+
+    @Test
+    void expiredTokenIsRequestedAgain() throws InterruptedException {
+        try (GigaChatMockServer mock = GigaChatMockServer.builder()
+                .tokenExpiry(Duration.ofMillis(500))
+                .timeToFirstToken(Duration.ZERO)
+                .tokensPerSecond(1000)
+                .start()) {
+            GigaChatApi api = api(mock);
+
+            api.chatCompletionEntity(request("Привет"));
+            Thread.sleep(600);
+            api.chatCompletionEntity(request("Привет"));
+
+            assertEquals(2, mock.requests("oauth"));
+        }
+    }
+
+    @Test
+    void failNextInjectsErrors() {
+        try (GigaChatMockServer mock = GigaChatMockServer.builder()
+                .timeToFirstToken(Duration.ZERO)
+                .tokensPerSecond(1000)
+                .start()) {
+            GigaChatApi api = api(mock);
+            mock.failNext(1, 503);
+
+            assertThrows(RuntimeException.class, () -> api.chatCompletionEntity(request("Привет")));
+            assertNotNull(api.chatCompletionEntity(request("Привет")).getBody());
+            assertEquals(2, mock.requests("completions"));
+        }
+    }
+
+    private static CompletionRequest request(String text) {
+        return CompletionRequest.builder()
+                .model("GigaChat-2")
+                .messages(List.of(new CompletionRequest.Message(CompletionRequest.Role.user, text)))
+                .build();
+    }
+
+    private static GigaChatApi api(GigaChatMockServer mock) {
+        return new GigaChatApi(GigaChatApiProperties.builder()
+                .baseUrl(mock.baseUrl())
+                .auth(GigaChatAuthProperties.builder()
+                        .scope(GigaChatApiScope.GIGACHAT_API_PERS)
+                        .bearer(GigaChatAuthProperties.Bearer.builder()
+                                .url(mock.authUrl())
+                                .apiKey("apiKey")
+                                .build())
+                        .build())
+                .build());
+    }
+}
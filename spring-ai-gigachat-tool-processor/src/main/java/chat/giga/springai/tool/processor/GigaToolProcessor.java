@@ -0,0 +1,494 @@
+/*
+ * Copyright 2023-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package chat.giga.springai.tool.processor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates definitions of {@code @GigaTool} methods at build time, so that
+ * {@code GigaMethodToolCallbackProvider} does not have to read annotations and generate JSON schemas at runtime.
+ *
+ * <p>For every class with {@code @GigaTool} methods the processor generates a class implementing
+ * {@code GeneratedGigaToolDefinitions} with the tool name, description, few-shot examples and JSON schemas.
+ * The input schema is generated only for parameters of simple types (strings, numbers, booleans, enums and
+ * arrays or collections of them) and only when {@code @ToolParam} is the only parameter annotation;
+ * schemas of other methods are left to the runtime {@code JsonSchemaGenerator}. The output schema is
+ * resolved at build time only when the method does not need it (strings, primitives, enums, arrays).
+ */
+@SupportedAnnotationTypes(GigaToolProcessor.GIGA_TOOL)
+public class GigaToolProcessor extends AbstractProcessor {
+
+    static final String GIGA_TOOL = "chat.giga.springai.tool.annotation.GigaTool";
+    static final String FEW_SHOT_EXAMPLE = "chat.giga.springai.tool.annotation.FewShotExample";
+    static final String FEW_SHOT_EXAMPLE_LIST = "chat.giga.springai.tool.annotation.FewShotExampleList";
+    static final String TOOL = "org.springframework.ai.tool.annotation.Tool";
+    static final String TOOL_PARAM = "org.springframework.ai.tool.annotation.ToolParam";
+    static final String TOOL_CONTEXT = "org.springframework.ai.chat.model.ToolContext";
+
+    static final String CLASS_NAME_SUFFIX = "_GigaToolDefinitions";
+
+    private static final String SCHEMA_VERSION = "https://json-schema.org/draft/2020-12/schema";
+
+    private static final Set<String> COLLECTION_TYPES =
+            Set.of("java.util.List", "java.util.Set", "java.util.Collection");
+
+    /**
+     * Types without the output schema, see {@code GigaToolUtils.generateJsonSchemaForOutputType}.
+     */
+    private static final Set<String> NO_OUTPUT_SCHEMA_TYPES = Set.of(
+            "java.lang.String",
+            "java.lang.Byte",
+            "java.lang.Integer",
+            "java.lang.Short",
+            "java.lang.Long",
+            "java.lang.Double",
+            "java.lang.Float",
+            "java.lang.Boolean");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Map<TypeElement, List<ExecutableElement>> toolMethods = new LinkedHashMap<>();
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.METHOD
+                        && element.getEnclosingElement() instanceof TypeElement toolClass
+                        && isGeneratedClassSupported(toolClass)
+                        && findAnnotation(element, TOOL).isEmpty()) {
+                    toolMethods
+                            .computeIfAbsent(toolClass, key -> new ArrayList<>())
+                            .add((ExecutableElement) element);
+                }
+            }
+        }
+        toolMethods.forEach(this::writeToolDefinitions);
+        return false;
+    }
+
+    private boolean isGeneratedClassSupported(TypeElement toolClass) {
+        Element element = toolClass;
+        while (element instanceof TypeElement typeElement) {
+            if (typeElement.getNestingKind() == NestingKind.LOCAL
+                    || typeElement.getNestingKind() == NestingKind.ANONYMOUS) {
+                return false;
+            }
+            element = element.getEnclosingElement();
+        }
+        return true;
+    }
+
+    private void writeToolDefinitions(TypeElement toolClass, List<ExecutableElement> methods) {
+        String packageName = processingEnv
+                .getElementUtils()
+                .getPackageOf(toolClass)
+                .getQualifiedName()
+                .toString();
+        String className = generatedSimpleName(toolClass);
+        String qualifiedName = packageName.isEmpty() ? className : packageName + "." + className;
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("import chat.giga.springai.tool.definition.FewShotExample;\n")
+                .append("import chat.giga.springai.tool.definition.GeneratedGigaToolDefinitions;\n")
+                .append("import chat.giga.springai.tool.definition.GeneratedGigaToolMethod;\n")
+                .append("import java.util.List;\n")
+                .append("import java.util.Map;\n")
+                .append("import javax.annotation.processing.Generated;\n\n")
+                .append("@Generated(\"")
+                .append(GigaToolProcessor.class.getName())
+                .append("\")\n")
+                .append("public final class ")
+                .append(className)
+                .append(" implements GeneratedGigaToolDefinitions {\n\n")
+                .append("    private static final Map<String, GeneratedGigaToolMethod> TOOL_METHODS = Map.ofEntries(");
+        for (int i = 0; i < methods.size(); i++) {
+            source.append(i == 0 ? "\n" : ",\n");
+            appendToolMethod(source, methods.get(i));
+        }
+        source.append(");\n\n")
+                .append("    @Override\n")
+                .append("    public Map<String, GeneratedGigaToolMethod> toolMethods() {\n")
+                .append("        return TOOL_METHODS;\n")
+                .append("    }\n")
+                .append("}\n");
+
+        try (Writer writer = processingEnv
+                .getFiler()
+                .createSourceFile(qualifiedName, toolClass)
+                .openWriter()) {
+            writer.write(source.toString());
+        } catch (IOException ex) {
+            processingEnv
+                    .getMessager()
+                    .printMessage(
+                            Diagnostic.Kind.ERROR,
+                            "Failed to write " + qualifiedName + ": " + ex.getMessage(),
+                            toolClass);
+        }
+    }
+
+    private void appendToolMethod(StringBuilder source, ExecutableElement method) {
+        AnnotationMirror gigaTool = findAnnotation(method, GIGA_TOOL).orElseThrow();
+        String methodName = method.getSimpleName().toString();
+        String name = stringValue(gigaTool, "name");
+        String description = stringValue(gigaTool, "description");
+        boolean generateOutputSchema = (Boolean) value(gigaTool, "generateOutputSchema");
+
+        source.append("            Map.entry(\n")
+                .append("                    ")
+                .append(literal(signature(method)))
+                .append(",\n")
+                .append("                    new GeneratedGigaToolMethod(\n")
+                .append("                            ")
+                .append(literal(name.isEmpty() ? methodName : name))
+                .append(",\n")
+                .append("                            ")
+                .append(literal(description.isEmpty() ? methodName : description))
+                .append(",\n")
+                .append("                            ")
+                .append(generateInputSchema(method)
+                        .map(GigaToolProcessor::literal)
+                        .orElse("null"))
+                .append(",\n")
+                .append("                            ")
+                .append(!generateOutputSchema || !isOutputSchemaNeeded(method.getReturnType()))
+                .append(",\n")
+                .append("                            null,\n")
+                .append("                            List.of(");
+        List<AnnotationMirror> fewShotExamples = fewShotExamples(method, gigaTool);
+        for (int i = 0; i < fewShotExamples.size(); i++) {
+            AnnotationMirror example = fewShotExamples.get(i);
+            source.append(i == 0 ? "\n" : ",\n")
+                    .append("                                    FewShotExample.builder()")
+                    .append(".request(")
+                    .append(literal(stringValue(example, "request")))
+                    .append(")")
+                    .append(".paramsSchema(")
+                    .append(literal(stringValue(example, "params")))
+                    .append(")")
+                    .append(".build()");
+        }
+        source.append("),\n")
+                .append("                            ")
+                .append(value(gigaTool, "returnDirect"))
+                .append(",\n")
+                .append("                            ")
+                .append(value(gigaTool, "idempotent"))
+                .append("))");
+    }
+
+    /**
+     * Few-shot examples in the same order as {@code GigaToolUtils.getFewShotExamples}.
+     */
+    private List<AnnotationMirror> fewShotExamples(ExecutableElement method, AnnotationMirror gigaTool) {
+        List<AnnotationMirror> examples = new ArrayList<>();
+        findAnnotation(method, FEW_SHOT_EXAMPLE).ifPresent(examples::add);
+        findAnnotation(method, FEW_SHOT_EXAMPLE_LIST).ifPresent(list -> examples.addAll(annotationsValue(list)));
+        examples.addAll(annotationsValue(gigaTool));
+        return examples;
+    }
+
+    /**
+     * Generates the same input schema as {@code JsonSchemaGenerator.generateForMethodInput}.
+     *
+     * @return the schema or empty if it has to be generated at runtime
+     */
+    private Optional<String> generateInputSchema(ExecutableElement method) {
+        ObjectNode schema = objectMapper.createObjectNode();
+        schema.put("$schema", SCHEMA_VERSION);
+        schema.put("type", "object");
+        ObjectNode properties = schema.putObject("properties");
+        List<String> required = new ArrayList<>();
+        for (VariableElement parameter : method.getParameters()) {
+            if (isType(parameter.asType(), TOOL_CONTEXT)) {
+                continue;
+            }
+            Optional<AnnotationMirror> toolParam = findAnnotation(parameter, TOOL_PARAM);
+            if (parameter.getAnnotationMirrors().size() != (toolParam.isPresent() ? 1 : 0)
+                    || !parameter.asType().getAnnotationMirrors().isEmpty()) {
+                return Optional.empty();
+            }
+            ObjectNode parameterSchema = parameterSchema(parameter.asType());
+            if (parameterSchema == null) {
+                return Optional.empty();
+            }
+            String parameterName = parameter.getSimpleName().toString();
+            if (toolParam
+                    .map(annotation -> (Boolean) value(annotation, "required"))
+                    .orElse(true)) {
+                required.add(parameterName);
+            }
+            String description = toolParam
+                    .map(annotation -> stringValue(annotation, "description"))
+                    .orElse("");
+            if (!description.isBlank()) {
+                parameterSchema.put("description", description);
+            }
+            properties.set(parameterName, parameterSchema);
+        }
+        ArrayNode requiredArray = schema.putArray("required");
+        required.forEach(requiredArray::add);
+        schema.put("additionalProperties", false);
+        return Optional.of(schema.toPrettyString());
+    }
+
+    /**
+     * @return the schema of the method parameter or {@code null} if the type is not supported
+     */
+    private ObjectNode parameterSchema(TypeMirror type) {
+        if (type.getKind() == TypeKind.ARRAY) {
+            ObjectNode items = itemSchema(((ArrayType) type).getComponentType());
+            return items != null ? arraySchema(items) : null;
+        }
+        if (type.getKind() != TypeKind.DECLARED) {
+            return primitiveSchema(type.getKind());
+        }
+        DeclaredType declaredType = (DeclaredType) type;
+        String typeName = qualifiedName(declaredType);
+        if (COLLECTION_TYPES.contains(typeName)) {
+            if (declaredType.getTypeArguments().size() != 1) {
+                return null;
+            }
+            ObjectNode items = itemSchema(declaredType.getTypeArguments().get(0));
+            return items != null ? arraySchema(items) : null;
+        }
+        ObjectNode enumSchema = enumSchema(declaredType);
+        if (enumSchema != null) {
+            return enumSchema;
+        }
+        return switch (typeName) {
+            case "java.lang.String", "java.lang.Character", "java.lang.Byte" -> typeSchema("string");
+            case "java.lang.Integer", "java.lang.Long", "java.lang.Short" -> typeSchema("integer");
+            case "java.lang.Float", "java.lang.Double" -> typeSchema("number");
+            case "java.lang.Boolean" -> typeSchema("boolean");
+            default -> null;
+        };
+    }
+
+    private ObjectNode primitiveSchema(TypeKind kind) {
+        return switch (kind) {
+            case CHAR, BYTE -> typeSchema("string");
+            case INT, LONG, SHORT -> typeSchema("integer");
+            case FLOAT, DOUBLE -> typeSchema("number");
+            case BOOLEAN -> typeSchema("boolean");
+            default -> null;
+        };
+    }
+
+    /**
+     * Array and collection items are described with the number format, unlike method parameters.
+     */
+    private ObjectNode itemSchema(TypeMirror type) {
+        String typeName;
+        if (type.getKind() == TypeKind.DECLARED) {
+            ObjectNode enumSchema = enumSchema((DeclaredType) type);
+            if (enumSchema != null) {
+                return enumSchema;
+            }
+            typeName = qualifiedName((DeclaredType) type);
+        } else if (type.getKind().isPrimitive()) {
+            typeName = processingEnv
+                    .getTypeUtils()
+                    .boxedClass((javax.lang.model.type.PrimitiveType) type)
+                    .getQualifiedName()
+                    .toString();
+        } else {
+            return null;
+        }
+        return switch (typeName) {
+            case "java.lang.String" -> typeSchema("string");
+            case "java.lang.Boolean" -> typeSchema("boolean");
+            case "java.lang.Short" -> typeSchema("integer");
+            case "java.lang.Integer" -> typeSchema("integer").put("format", "int32");
+            case "java.lang.Long" -> typeSchema("integer").put("format", "int64");
+            case "java.lang.Float" -> typeSchema("number").put("format", "float");
+            case "java.lang.Double" -> typeSchema("number").put("format", "double");
+            default -> null;
+        };
+    }
+
+    /**
+     * @return the schema of the enum or {@code null} if the type is not an enum or its constants may be renamed
+     *     with annotations
+     */
+    private ObjectNode enumSchema(DeclaredType type) {
+        TypeElement enumType = (TypeElement) type.asElement();
+        if (enumType.getKind() != ElementKind.ENUM
+                || !enumType.getAnnotationMirrors().isEmpty()
+                || enumType.getEnclosedElements().stream()
+                        .anyMatch(element -> !element.getAnnotationMirrors().isEmpty())) {
+            return null;
+        }
+        ObjectNode schema = typeSchema("string");
+        ArrayNode values = schema.putArray("enum");
+        enumType.getEnclosedElements().stream()
+                .filter(element -> element.getKind() == ElementKind.ENUM_CONSTANT)
+                .forEach(element -> values.add(element.getSimpleName().toString()));
+        return schema;
+    }
+
+    private ObjectNode arraySchema(ObjectNode items) {
+        ObjectNode schema = typeSchema("array");
+        schema.set("items", items);
+        return schema;
+    }
+
+    private ObjectNode typeSchema(String type) {
+        return objectMapper.createObjectNode().put("type", type);
+    }
+
+    private boolean isOutputSchemaNeeded(TypeMirror returnType) {
+        return switch (returnType.getKind()) {
+            case VOID, ARRAY -> false;
+            case DECLARED ->
+                !NO_OUTPUT_SCHEMA_TYPES.contains(qualifiedName((DeclaredType) returnType))
+                        && ((DeclaredType) returnType).asElement().getKind() != ElementKind.ENUM;
+            default ->
+                returnType.getKind() == TypeKind.CHAR || !returnType.getKind().isPrimitive();
+        };
+    }
+
+    /**
+     * Signature of the method in the same form as {@code GeneratedGigaToolDefinitions.signature(Method)}.
+     */
+    private String signature(ExecutableElement method) {
+        return method.getParameters().stream()
+                .map(parameter -> canonicalName(parameter.asType()))
+                .collect(Collectors.joining(",", method.getSimpleName() + "(", ")"));
+    }
+
+    private String canonicalName(TypeMirror type) {
+        TypeMirror erasure = processingEnv.getTypeUtils().erasure(type);
+        return switch (erasure.getKind()) {
+            case ARRAY -> canonicalName(((ArrayType) erasure).getComponentType()) + "[]";
+            case DECLARED -> qualifiedName((DeclaredType) erasure);
+            default -> erasure.getKind().name().toLowerCase();
+        };
+    }
+
+    private static String generatedSimpleName(TypeElement toolClass) {
+        StringBuilder name = new StringBuilder(toolClass.getSimpleName());
+        Element element = toolClass.getEnclosingElement();
+        while (!(element instanceof PackageElement)) {
+            name.insert(0, element.getSimpleName() + "_");
+            element = element.getEnclosingElement();
+        }
+        return name.append(CLASS_NAME_SUFFIX).toString();
+    }
+
+    private static String qualifiedName(DeclaredType type) {
+        return ((TypeElement) type.asElement()).getQualifiedName().toString();
+    }
+
+    private static boolean isType(TypeMirror type, String qualifiedName) {
+        return type.getKind() == TypeKind.DECLARED
+                && qualifiedName((DeclaredType) type).equals(qualifiedName);
+    }
+
+    private static Optional<AnnotationMirror> findAnnotation(Element element, String annotationType) {
+        return element.getAnnotationMirrors().stream()
+                .filter(annotation -> isType(annotation.getAnnotationType(), annotationType))
+                .map(annotation -> (AnnotationMirror) annotation)
+                .findFirst();
+    }
+
+    private Object value(AnnotationMirror annotation, String attribute) {
+        return processingEnv.getElementUtils().getElementValuesWithDefaults(annotation).entrySet().stream()
+                .filter(entry -> entry.getKey().getSimpleName().contentEquals(attribute))
+                .map(entry -> entry.getValue().getValue())
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException(
+                        "No attribute " + attribute + " in " + annotation.getAnnotationType()));
+    }
+
+    private String stringValue(AnnotationMirror annotation, String attribute) {
+        return (String) value(annotation, attribute);
+    }
+
+    /**
+     * Nested annotations of the {@code value} or {@code fewShotExamples} attribute.
+     */
+    @SuppressWarnings("unchecked")
+    private List<AnnotationMirror> annotationsValue(AnnotationMirror annotation) {
+        String attribute = isType(annotation.getAnnotationType(), GIGA_TOOL) ? "fewShotExamples" : "value";
+        return ((List<? extends AnnotationValue>) value(annotation, attribute))
+                .stream()
+                        .map(annotationValue -> (AnnotationMirror) annotationValue.getValue())
+                        .toList();
+    }
+
+    /**
+     * Java string literal; non-ASCII characters are escaped so that the source does not depend on its encoding.
+     */
+    static String literal(String value) {
+        StringBuilder literal = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> literal.append("\\\"");
+                case '\\' -> literal.append("\\\\");
+                case '\n' -> literal.append("\\n");
+                case '\r' -> literal.append("\\r");
+                case '\t' -> literal.append("\\t");
+                default -> {
+                    if (c < 0x20 || c > 0x7e) {
+                        literal.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        literal.append(c);
+                    }
+                }
+            }
+        }
+        return literal.append('"').toString();
+    }
+}
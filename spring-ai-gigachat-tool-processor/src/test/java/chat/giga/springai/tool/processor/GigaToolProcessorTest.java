@@ -0,0 +1,169 @@
+/*
+ * Copyright 2023-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package chat.giga.springai.tool.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import chat.giga.springai.tool.annotation.GigaTool;
+import chat.giga.springai.tool.definition.GeneratedGigaToolDefinitions;
+import chat.giga.springai.tool.definition.GeneratedGigaToolMethod;
+import chat.giga.springai.tool.definition.GigaToolDefinition;
+import chat.giga.springai.tool.metadata.GigaToolMetadata;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.Method;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GigaToolProcessorTest {
+
+    @TempDir
+    static Path classesDir;
+
+    static URLClassLoader classLoader;
+
+    @BeforeAll
+    static void compileSample() throws IOException, URISyntaxException {
+        URL sample = GigaToolProcessorTest.class.getResource("/sample/WeatherTools.java");
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        StringWriter output = new StringWriter();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null)) {
+            JavaCompiler.CompilationTask task = compiler.getTask(
+                    output,
+                    fileManager,
+                    null,
+                    List.of(
+                            "-encoding",
+                            "UTF-8",
+                            "-parameters",
+                            "-classpath",
+                            testClassPath(),
+                            "-d",
+                            classesDir.toString()),
+                    null,
+                    fileManager.getJavaFileObjects(new File(sample.toURI())));
+            task.setProcessors(List.of(new GigaToolProcessor()));
+            assertTrue(task.call(), output::toString);
+        }
+        classLoader = new URLClassLoader(
+                new URL[] {classesDir.toUri().toURL()}, GigaToolProcessorTest.class.getClassLoader());
+    }
+
+    @Test
+    @DisplayName("Сгенерированные определения совпадают с определениями, построенными в runtime")
+    void generatedDefinitionsMatchRuntimeDefinitions() throws ClassNotFoundException {
+        for (String className : List.of("sample.WeatherTools", "sample.WeatherTools$Nested")) {
+            Class<?> toolClass = classLoader.loadClass(className);
+            Map<String, GeneratedGigaToolMethod> generatedMethods =
+                    GeneratedGigaToolDefinitions.find(toolClass).toolMethods();
+
+            for (Method method : toolClass.getDeclaredMethods()) {
+                if (!method.isAnnotationPresent(GigaTool.class)
+                        || method.getName().equals("toolAndGigaTool")) {
+                    continue;
+                }
+                GeneratedGigaToolMethod generatedMethod =
+                        generatedMethods.get(GeneratedGigaToolDefinitions.signature(method));
+                assertNotNull(generatedMethod, method::toString);
+                assertEquals(GigaToolDefinition.from(method), generatedMethod.toToolDefinition(method));
+                assertEquals(GigaToolMetadata.from(method), generatedMethod.toToolMetadata());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Схемы параметров простых типов генерируются при сборке, сложных - в runtime")
+    void generatesInputSchemaOnlyForSupportedTypes() throws ClassNotFoundException {
+        Map<String, GeneratedGigaToolMethod> generatedMethods = GeneratedGigaToolDefinitions.find(
+                        classLoader.loadClass("sample.WeatherTools"))
+                .toolMethods();
+
+        assertNotNull(generatedMethods
+                .get(
+                        "weather(java.lang.String,sample.WeatherTools.Unit,int,org.springframework.ai.chat.model.ToolContext)")
+                .inputSchema());
+        assertNotNull(generatedMethods
+                .get("forecast(java.util.List,long[],java.util.Set,java.util.Collection,boolean[],java.lang.Integer[],"
+                        + "char,java.lang.Byte,java.lang.Float,short,double[])")
+                .inputSchema());
+        assertNotNull(generatedMethods.get("noParams()").inputSchema());
+        assertNull(generatedMethods
+                .get("complexInput(sample.WeatherTools.Forecast)")
+                .inputSchema());
+        assertNull(generatedMethods.get("complexOutput(java.util.Map)").inputSchema());
+    }
+
+    @Test
+    @DisplayName("Схема результата разрешается при сборке, только если она не нужна")
+    void resolvesOutputSchemaOnlyWhenNotNeeded() throws ClassNotFoundException {
+        Map<String, GeneratedGigaToolMethod> generatedMethods = GeneratedGigaToolDefinitions.find(
+                        classLoader.loadClass("sample.WeatherTools"))
+                .toolMethods();
+
+        assertFalse(generatedMethods
+                .get("forecast(java.util.List,long[],java.util.Set,java.util.Collection,"
+                        + "boolean[],java.lang.Integer[],char,java.lang.Byte,java.lang.Float,short,double[])")
+                .outputSchemaResolved());
+        assertFalse(generatedMethods.get("complexOutput(java.util.Map)").outputSchemaResolved());
+        assertTrue(generatedMethods
+                .get("complexInput(sample.WeatherTools.Forecast)")
+                .outputSchemaResolved());
+        assertTrue(generatedMethods.get("noParams()").outputSchemaResolved());
+    }
+
+    @Test
+    @DisplayName("Методы с @Tool и @GigaTool обрабатываются в runtime")
+    void skipsMethodsWithToolAnnotation() throws ClassNotFoundException {
+        Map<String, GeneratedGigaToolMethod> generatedMethods = GeneratedGigaToolDefinitions.find(
+                        classLoader.loadClass("sample.WeatherTools"))
+                .toolMethods();
+
+        assertFalse(generatedMethods.containsKey("toolAndGigaTool()"));
+    }
+
+    @Test
+    void literalEscapesSpecialAndNonAsciiCharacters() {
+        assertEquals("\"\\\"a\\\\b\\n\\u0410\"", GigaToolProcessor.literal("\"a\\b\nА"));
+    }
+
+    /**
+     * Surefire запускает тесты с манифестом вместо полного class path.
+     */
+    private static String testClassPath() {
+        return Stream.of(System.getProperty("surefire.test.class.path"), System.getProperty("java.class.path"))
+                .filter(classPath -> classPath != null && !classPath.isBlank())
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,78 @@
+package sample;
+
+import chat.giga.springai.tool.annotation.FewShotExample;
+import chat.giga.springai.tool.annotation.GigaTool;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.annotation.ToolParam;
+
+public class WeatherTools {
+
+    public enum Unit {
+        CELSIUS,
+        FAHRENHEIT
+    }
+
+    public record Forecast(String city, double temperature) {}
+
+    @GigaTool(
+            description = "Погода в \"городе\"\nна несколько дней",
+            idempotent = true,
+            fewShotExamples = @FewShotExample(request = "Погода в Москве", params = "{\"city\": \"Москва\"}"))
+    @FewShotExample(request = "Погода в Казани", params = "{\"city\": \"Казань\"}")
+    public String weather(
+            @ToolParam(description = "Город") String city,
+            @ToolParam(required = false, description = "Единицы измерения") Unit unit,
+            int days,
+            ToolContext toolContext) {
+        return city;
+    }
+
+    @GigaTool(name = "forecast", returnDirect = true)
+    @FewShotExample(request = "Прогноз для Москвы", params = "{\"cities\": [\"Москва\"]}")
+    @FewShotExample(request = "Прогноз для Казани", params = "{\"cities\": [\"Казань\"]}")
+    public Forecast forecast(
+            List<String> cities,
+            long[] ids,
+            Set<Unit> units,
+            Collection<Double> temperatures,
+            boolean[] flags,
+            Integer[] days,
+            char c,
+            Byte b,
+            Float f,
+            short s,
+            @ToolParam(description = "Дробные значения") double[] values) {
+        return null;
+    }
+
+    @GigaTool(generateOutputSchema = false)
+    public Forecast complexInput(Forecast forecast) {
+        return forecast;
+    }
+
+    @GigaTool
+    public List<Forecast> complexOutput(Map<String, Integer> values) {
+        return List.of();
+    }
+
+    @GigaTool
+    public void noParams() {}
+
+    @Tool(name = "tool")
+    @GigaTool(name = "gigaTool")
+    public String toolAndGigaTool() {
+        return "";
+    }
+
+    public static class Nested {
+        @GigaTool
+        public Unit nested(List<Unit> units, Boolean flag) {
+            return null;
+        }
+    }
+}
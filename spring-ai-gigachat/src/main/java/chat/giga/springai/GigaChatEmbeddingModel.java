@@ -4,16 +4,25 @@ import chat.giga.springai.api.chat.GigaChatApi;
 import chat.giga.springai.api.chat.embedding.EmbeddingsModel;
 import chat.giga.springai.api.chat.embedding.EmbeddingsRequest;
 import chat.giga.springai.api.chat.embedding.EmbeddingsResponse;
+import io.micrometer.observation.Observation;
 import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.embedding.AbstractEmbeddingModel;
+import org.springframework.ai.embedding.BatchingStrategy;
 import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingOptions;
 import org.springframework.ai.embedding.EmbeddingRequest;
 import org.springframework.ai.embedding.EmbeddingResponse;
 import org.springframework.ai.embedding.EmbeddingResponseMetadata;
@@ -21,24 +30,70 @@ import org.springframework.ai.embedding.observation.DefaultEmbeddingModelObserva
 import org.springframework.ai.embedding.observation.EmbeddingModelObservationContext;
 import org.springframework.ai.embedding.observation.EmbeddingModelObservationConvention;
 import org.springframework.ai.embedding.observation.EmbeddingModelObservationDocumentation;
+import org.springframework.ai.retry.RetryUtils;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
 import org.springframework.http.ResponseEntity;
 import org.springframework.retry.support.RetryTemplate;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
 
 @Slf4j
 public class GigaChatEmbeddingModel extends AbstractEmbeddingModel {
+    /**
+     * Максимальное количество текстов в одном запросе к /embeddings.
+     */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+
+    /**
+     * Максимальное (оценочное) количество токенов в одном запросе к /embeddings.
+     */
+    public static final int DEFAULT_MAX_BATCH_TOKENS = 20_000;
+
+    /**
+     * Максимальное количество одновременно выполняющихся запросов к /embeddings.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_BATCHES = 4;
+
+    /**
+     * Повторы неблокирующих запросов к /embeddings: 3 повтора временных ошибок с задержкой от 1 до 10 секунд,
+     * чтобы одна неудачная пачка не останавливала поток документов надолго.
+     */
+    public static final RetryBackoffSpec DEFAULT_ASYNC_RETRY_SPEC = Retry.backoff(3, Duration.ofSeconds(1))
+            .multiplier(2)
+            .maxBackoff(Duration.ofSeconds(10))
+            .filter(GigaChatModel::isTransientStreamError)
+            .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+
     private static final EmbeddingModelObservationConvention DEFAULT_OBSERVATION_CONVENTION =
             new DefaultEmbeddingModelObservationConvention();
 
     private static final Map<String, Integer> KNOWN_EMBEDDING_DIMENSIONS = Stream.of(EmbeddingsModel.values())
-            .collect(Collectors.toMap(EmbeddingsModel::getName, EmbeddingsModel::getDimensions));
+            .collect(Collectors.toUnmodifiableMap(EmbeddingsModel::getName, EmbeddingsModel::getDimensions));
 
     private final GigaChatApi gigaChatApi;
     private final GigaChatEmbeddingOptions defaultOptions;
     private final RetryTemplate retryTemplate;
     private final ObservationRegistry observationRegistry;
 
+    // Размерность векторов моделей, не описанных в EmbeddingsModel, - по первому ответу /embeddings
+    private final Map<String, Integer> learnedDimensions = new ConcurrentHashMap<>();
+
+    // Входные тексты разбиваются на пачки не больше maxBatchSize текстов и не больше maxBatchTokens токенов
+    // (по оценке tokenCountEstimator). Пачки отправляются параллельно, не больше maxConcurrentBatches одновременно.
+    private final int maxBatchSize;
+    private final int maxBatchTokens;
+    private final int maxConcurrentBatches;
+    private final TokenCountEstimator tokenCountEstimator;
+    private final Scheduler batchScheduler;
+    private final RetryBackoffSpec asyncRetrySpec;
+
     private EmbeddingModelObservationConvention observationConvention;
 
     public GigaChatEmbeddingModel(
@@ -46,67 +101,150 @@ public class GigaChatEmbeddingModel extends AbstractEmbeddingModel {
             GigaChatEmbeddingOptions defaultOptions,
             RetryTemplate retryTemplate,
             ObservationRegistry observationRegistry) {
+        this(
+                gigaChatApi,
+                defaultOptions,
+                retryTemplate,
+                observationRegistry,
+                DEFAULT_MAX_BATCH_SIZE,
+                DEFAULT_MAX_BATCH_TOKENS,
+                DEFAULT_MAX_CONCURRENT_BATCHES,
+                new JTokkitTokenCountEstimator(),
+                Schedulers.boundedElastic());
+    }
+
+    public GigaChatEmbeddingModel(
+            GigaChatApi gigaChatApi,
+            GigaChatEmbeddingOptions defaultOptions,
+            RetryTemplate retryTemplate,
+            ObservationRegistry observationRegistry,
+            int maxBatchSize,
+            int maxBatchTokens,
+            int maxConcurrentBatches,
+            TokenCountEstimator tokenCountEstimator,
+            Scheduler batchScheduler) {
+        this(
+                gigaChatApi,
+                defaultOptions,
+                retryTemplate,
+                observationRegistry,
+                maxBatchSize,
+                maxBatchTokens,
+                maxConcurrentBatches,
+                tokenCountEstimator,
+                batchScheduler,
+                DEFAULT_ASYNC_RETRY_SPEC);
+    }
+
+    public GigaChatEmbeddingModel(
+            GigaChatApi gigaChatApi,
+            GigaChatEmbeddingOptions defaultOptions,
+            RetryTemplate retryTemplate,
+            ObservationRegistry observationRegistry,
+            int maxBatchSize,
+            int maxBatchTokens,
+            int maxConcurrentBatches,
+            TokenCountEstimator tokenCountEstimator,
+            Scheduler batchScheduler,
+            RetryBackoffSpec asyncRetrySpec) {
+        Assert.isTrue(maxBatchSize > 0, "maxBatchSize must be positive");
+        Assert.isTrue(maxBatchTokens > 0, "maxBatchTokens must be positive");
+        Assert.isTrue(maxConcurrentBatches > 0, "maxConcurrentBatches must be positive");
+        Assert.notNull(tokenCountEstimator, "tokenCountEstimator cannot be null");
+        Assert.notNull(batchScheduler, "batchScheduler cannot be null");
+        Assert.notNull(asyncRetrySpec, "asyncRetrySpec cannot be null");
         this.gigaChatApi = gigaChatApi;
         this.defaultOptions = defaultOptions;
         this.retryTemplate = retryTemplate;
         this.observationRegistry = observationRegistry;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchTokens = maxBatchTokens;
+        this.maxConcurrentBatches = maxConcurrentBatches;
+        this.tokenCountEstimator = tokenCountEstimator;
+        this.batchScheduler = batchScheduler;
+        this.asyncRetrySpec = asyncRetrySpec;
     }
 
     @Override
     public EmbeddingResponse call(EmbeddingRequest request) {
         log.debug("Embedding call request: {}", String.join("\n", request.getInstructions()));
-        String model = StringUtils.hasText(request.getOptions().getModel())
-                ? request.getOptions().getModel()
-                : defaultOptions.getModel();
-        EmbeddingsRequest embeddingsRequest = new EmbeddingsRequest(model, request.getInstructions());
-
-        var observationContext = EmbeddingModelObservationContext.builder()
-                .embeddingRequest(request)
-                .provider(GigaChatApi.PROVIDER_NAME)
-                .build();
-
-        return EmbeddingModelObservationDocumentation.EMBEDDING_MODEL_OPERATION
-                .observation(
-                        this.observationConvention,
-                        DEFAULT_OBSERVATION_CONVENTION,
-                        () -> observationContext,
-                        this.observationRegistry)
-                .observe(() -> {
-                    ResponseEntity<EmbeddingsResponse> embeddingsResponseResponseEntity =
-                            this.retryTemplate.execute(ctx -> gigaChatApi.embeddings(embeddingsRequest));
-
-                    Optional<EmbeddingsResponse> embeddingsResponseOptional = Optional.ofNullable(
-                                    embeddingsResponseResponseEntity)
-                            .map(ResponseEntity::getBody);
-
-                    if (embeddingsResponseOptional.isEmpty()
-                            || embeddingsResponseOptional
-                                    .map(EmbeddingsResponse::getData)
-                                    .orElseGet(List::of)
-                                    .isEmpty()) {
-                        log.warn("No embeddings returned for request: {}", request);
-                        return new EmbeddingResponse(List.of());
-                    }
-
-                    EmbeddingsResponse apiEmbeddingResponse = embeddingsResponseOptional.get();
-                    EmbeddingsResponse.EmbeddingData embeddingData =
-                            apiEmbeddingResponse.getData().stream().findFirst().orElse(null);
-
-                    Assert.notNull(embeddingData, "Embedding data must not be null");
+        return call(request, batch(request.getInstructions()));
+    }
 
-                    var metadata =
-                            new EmbeddingResponseMetadata(apiEmbeddingResponse.getModel(), embeddingData.getUsage());
+    /**
+     * Отправляет уже сформированные пачки (в сумме - все тексты запроса по порядку) одним уровнем параллелизма,
+     * не больше {@link #maxConcurrentBatches} запросов одновременно.
+     */
+    private EmbeddingResponse call(EmbeddingRequest request, List<List<String>> batches) {
+        String model = resolveModel(request);
+        EmbeddingModelObservationContext observationContext = observationContext(request);
 
-                    List<Embedding> embeddings = apiEmbeddingResponse.getData().stream()
-                            .map(e -> new Embedding(e.getEmbedding(), e.getIndex()))
-                            .toList();
+        return observation(observationContext).observe(() -> {
+            List<EmbeddingsResponse> batchResponses =
+                    executeBatches(batches, batch -> callEmbeddings(new EmbeddingsRequest(model, batch)));
+            return toEmbeddingResponse(request, model, batches, batchResponses, observationContext);
+        });
+    }
 
-                    EmbeddingResponse embeddingResponse = new EmbeddingResponse(embeddings, metadata);
+    /**
+     * Неблокирующий вариант {@link #call(EmbeddingRequest)}: пачки отправляются через
+     * {@link GigaChatApi#embeddingsAsync(EmbeddingsRequest)} (не больше {@link #maxConcurrentBatches} одновременно)
+     * и не занимают поток на время запроса. Ошибки повторяются по {@code asyncRetrySpec}.
+     */
+    public Mono<EmbeddingResponse> callAsync(EmbeddingRequest request) {
+        return Mono.defer(() -> callAsync(request, batch(request.getInstructions())));
+    }
 
-                    observationContext.setResponse(embeddingResponse);
+    /**
+     * Неблокирующий вариант {@link #call(EmbeddingRequest, List)}: уже сформированные пачки отправляются
+     * по одному запросу {@link GigaChatApi#embeddingsAsync(EmbeddingsRequest)} на пачку.
+     */
+    private Mono<EmbeddingResponse> callAsync(EmbeddingRequest request, List<List<String>> batches) {
+        return Mono.defer(() -> {
+            String model = resolveModel(request);
+            EmbeddingModelObservationContext observationContext = observationContext(request);
+            Observation observation = observation(observationContext).start();
+            return Flux.fromIterable(batches)
+                    .flatMapSequential(
+                            batch -> this.gigaChatApi
+                                    .embeddingsAsync(new EmbeddingsRequest(model, batch))
+                                    .retryWhen(this.asyncRetrySpec)
+                                    .map(Optional::of)
+                                    .defaultIfEmpty(Optional.empty()),
+                            this.maxConcurrentBatches)
+                    .map(response -> response.orElse(null))
+                    .collectList()
+                    .map(batchResponses ->
+                            toEmbeddingResponse(request, model, batches, batchResponses, observationContext))
+                    .doOnError(observation::error)
+                    .doFinally(signal -> observation.stop())
+                    .contextWrite(ctx -> ctx.put(ObservationThreadLocalAccessor.KEY, observation));
+        });
+    }
 
-                    return embeddingResponse;
-                });
+    /**
+     * Векторизует поток документов с учетом backpressure. Документы собираются в пачки по тем же ограничениям,
+     * что и в {@link #call(EmbeddingRequest)}, одновременно выполняется не больше {@link #maxConcurrentBatches}
+     * запросов, а из источника запрашивается столько документов, сколько нужно для следующих пачек, поэтому
+     * в памяти находится лишь несколько пачек. Порядок результатов совпадает с порядком документов.
+     */
+    public Flux<EmbeddedDocument> embed(Flux<Document> documents, EmbeddingOptions options) {
+        Assert.notNull(documents, "Documents must not be null");
+        return documents
+                .buffer(this.maxBatchSize)
+                .concatMapIterable(buffer -> batch(buffer, this::getEmbeddingContent), 1)
+                .flatMapSequential(
+                        batch -> {
+                            List<String> texts = batch.stream()
+                                    .map(this::getEmbeddingContent)
+                                    .toList();
+                            // пачка уже сформирована по ограничениям модели и отправляется одним запросом
+                            return callAsync(new EmbeddingRequest(texts, options), List.of(texts))
+                                    .map(response -> toEmbeddedDocuments(batch, response));
+                        },
+                        this.maxConcurrentBatches,
+                        1)
+                .concatMapIterable(Function.identity());
     }
 
     @Override
@@ -118,6 +256,33 @@ public class GigaChatEmbeddingModel extends AbstractEmbeddingModel {
         return embeddingResponse.getResult().getOutput();
     }
 
+    /**
+     * Пачки, сформированные {@link BatchingStrategy}, дополнительно делятся по ограничениям модели и отправляются
+     * параллельно (не больше {@link #maxConcurrentBatches} одновременно), результаты собираются в исходном порядке
+     * документов.
+     */
+    @Override
+    public List<float[]> embed(List<Document> documents, EmbeddingOptions options, BatchingStrategy batchingStrategy) {
+        Assert.notNull(documents, "Documents must not be null");
+        List<String> texts = new ArrayList<>(documents.size());
+        List<List<String>> batches = new ArrayList<>();
+        for (List<Document> strategyBatch : batchingStrategy.batch(documents)) {
+            List<String> batchTexts =
+                    strategyBatch.stream().map(this::getEmbeddingContent).toList();
+            texts.addAll(batchTexts);
+            batches.addAll(batch(batchTexts));
+        }
+
+        List<float[]> embeddings = call(new EmbeddingRequest(texts, options), batches).getResults().stream()
+                .sorted(Comparator.comparing(Embedding::getIndex))
+                .map(Embedding::getOutput)
+                .toList();
+
+        Assert.isTrue(
+                embeddings.size() == documents.size(), "Embeddings must have the same number as that of the documents");
+        return embeddings;
+    }
+
     /**
      * Use the provided convention for reporting observation data
      *
@@ -128,12 +293,304 @@ public class GigaChatEmbeddingModel extends AbstractEmbeddingModel {
         this.observationConvention = observationConvention;
     }
 
+    /**
+     * Размерность векторов модели по умолчанию без обращения к API: из {@link GigaChatEmbeddingOptions#getDimensions()},
+     * для известных моделей - из {@link EmbeddingsModel}, для остальных - по уже полученному ответу /embeddings.
+     * Только если размерность неизвестна, выполняется пробный запрос, его результат запоминается.
+     */
     @Override
     public int dimensions() {
+        if (this.defaultOptions.getDimensions() != null) {
+            return this.defaultOptions.getDimensions();
+        }
         String model = this.defaultOptions.getModel();
-        if (model == null) {
-            return super.dimensions();
+        if (model != null) {
+            Integer dimensions = KNOWN_EMBEDDING_DIMENSIONS.get(model);
+            if (dimensions == null) {
+                dimensions = this.learnedDimensions.get(model);
+            }
+            if (dimensions != null) {
+                return dimensions;
+            }
+        }
+        // пробный запрос идет через call() и сам заполняет learnedDimensions
+        return super.dimensions();
+    }
+
+    List<List<String>> batch(List<String> texts) {
+        return batch(texts, Function.identity());
+    }
+
+    /**
+     * Разбивает элементы на пачки с учетом ограничений на количество текстов и токенов в одном запросе.
+     * Текст, который сам по себе превышает лимит токенов, отправляется отдельной пачкой.
+     */
+    private <T> List<List<T>> batch(List<T> items, Function<T, String> text) {
+        List<List<T>> batches = new ArrayList<>();
+        List<T> currentBatch = new ArrayList<>();
+        int currentTokens = 0;
+        for (T item : items) {
+            int tokens = this.tokenCountEstimator.estimate(text.apply(item));
+            if (!currentBatch.isEmpty()
+                    && (currentBatch.size() >= this.maxBatchSize || currentTokens + tokens > this.maxBatchTokens)) {
+                batches.add(currentBatch);
+                currentBatch = new ArrayList<>();
+                currentTokens = 0;
+            }
+            currentBatch.add(item);
+            currentTokens += tokens;
+        }
+        if (!currentBatch.isEmpty()) {
+            batches.add(currentBatch);
+        }
+        return batches;
+    }
+
+    private String resolveModel(EmbeddingRequest request) {
+        return request.getOptions() != null
+                        && StringUtils.hasText(request.getOptions().getModel())
+                ? request.getOptions().getModel()
+                : this.defaultOptions.getModel();
+    }
+
+    private static EmbeddingModelObservationContext observationContext(EmbeddingRequest request) {
+        return EmbeddingModelObservationContext.builder()
+                .embeddingRequest(request)
+                .provider(GigaChatApi.PROVIDER_NAME)
+                .build();
+    }
+
+    private Observation observation(EmbeddingModelObservationContext observationContext) {
+        return EmbeddingModelObservationDocumentation.EMBEDDING_MODEL_OPERATION.observation(
+                this.observationConvention,
+                DEFAULT_OBSERVATION_CONVENTION,
+                () -> observationContext,
+                this.observationRegistry);
+    }
+
+    /**
+     * Собирает ответы пачек в один {@link EmbeddingResponse}, индексы векторов - позиции текстов во всем запросе.
+     */
+    private EmbeddingResponse toEmbeddingResponse(
+            EmbeddingRequest request,
+            String model,
+            List<List<String>> batches,
+            List<EmbeddingsResponse> batchResponses,
+            EmbeddingModelObservationContext observationContext) {
+        EmbeddingsResponse apiEmbeddingResponse = null;
+        List<Embedding> embeddings = new ArrayList<>(request.getInstructions().size());
+        int offset = 0;
+        for (int i = 0; i < batches.size(); i++) {
+            EmbeddingsResponse batchResponse = batchResponses.get(i);
+            if (batchResponse != null && batchResponse.getData() != null) {
+                if (apiEmbeddingResponse == null && !batchResponse.getData().isEmpty()) {
+                    apiEmbeddingResponse = batchResponse;
+                }
+                // index в ответе - позиция текста внутри пачки, переводим в позицию во всём запросе
+                List<EmbeddingsResponse.EmbeddingData> data = batchResponse.getData().stream()
+                        .sorted(Comparator.comparing(
+                                EmbeddingsResponse.EmbeddingData::getIndex,
+                                Comparator.nullsLast(Comparator.naturalOrder())))
+                        .toList();
+                for (int j = 0; j < data.size(); j++) {
+                    Integer index = data.get(j).getIndex();
+                    embeddings.add(new Embedding(data.get(j).getEmbedding(), offset + (index != null ? index : j)));
+                }
+            }
+            offset += batches.get(i).size();
+        }
+
+        if (apiEmbeddingResponse == null) {
+            log.warn("No embeddings returned for request: {}", request);
+            return new EmbeddingResponse(List.of());
+        }
+        if (embeddings.size() != request.getInstructions().size()) {
+            log.warn(
+                    "Embeddings count {} doesn't match instructions count {}",
+                    embeddings.size(),
+                    request.getInstructions().size());
+        }
+
+        var metadata = new EmbeddingResponseMetadata(apiEmbeddingResponse.getModel(), usage(batchResponses));
+
+        EmbeddingResponse embeddingResponse = new EmbeddingResponse(embeddings, metadata);
+        if (model != null && !embeddings.isEmpty()) {
+            this.learnedDimensions.putIfAbsent(model, embeddings.get(0).getOutput().length);
+        }
+
+        observationContext.setResponse(embeddingResponse);
+
+        return embeddingResponse;
+    }
+
+    /**
+     * Суммарное использование токенов по всем векторам всех пачек.
+     */
+    private static EmbeddingsResponse.GigaChatEmbeddingsUsage usage(List<EmbeddingsResponse> batchResponses) {
+        Integer promptTokens = null;
+        for (EmbeddingsResponse batchResponse : batchResponses) {
+            if (batchResponse == null || batchResponse.getData() == null) {
+                continue;
+            }
+            for (EmbeddingsResponse.EmbeddingData data : batchResponse.getData()) {
+                if (data.getUsage() != null && data.getUsage().getPromptTokens() != null) {
+                    promptTokens = (promptTokens != null ? promptTokens : 0)
+                            + data.getUsage().getPromptTokens();
+                }
+            }
+        }
+        return promptTokens != null ? new EmbeddingsResponse.GigaChatEmbeddingsUsage(promptTokens) : null;
+    }
+
+    private static List<EmbeddedDocument> toEmbeddedDocuments(List<Document> batch, EmbeddingResponse response) {
+        Assert.state(
+                response.getResults().size() == batch.size(),
+                "Embeddings must have the same number as that of the documents");
+        float[][] embeddings = new float[batch.size()][];
+        response.getResults().forEach(embedding -> embeddings[embedding.getIndex()] = embedding.getOutput());
+        List<EmbeddedDocument> embedded = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            embedded.add(new EmbeddedDocument(batch.get(i), embeddings[i]));
+        }
+        return embedded;
+    }
+
+    private EmbeddingsResponse callEmbeddings(EmbeddingsRequest embeddingsRequest) {
+        ResponseEntity<EmbeddingsResponse> embeddingsResponseEntity =
+                this.retryTemplate.execute(ctx -> gigaChatApi.embeddings(embeddingsRequest));
+        return Optional.ofNullable(embeddingsResponseEntity)
+                .map(ResponseEntity::getBody)
+                .orElse(null);
+    }
+
+    /**
+     * Выполняет batchCall для каждой пачки на {@link #batchScheduler} с ограничением параллелизма.
+     * Порядок результатов совпадает с порядком пачек.
+     */
+    private <T, R> List<R> executeBatches(List<T> batches, Function<T, R> batchCall) {
+        // Блокировать non-blocking поток реактора нельзя - в этом случае пачки отправляются последовательно
+        if (batches.size() <= 1 || this.maxConcurrentBatches == 1 || Schedulers.isInNonBlockingThread()) {
+            List<R> results = new ArrayList<>(batches.size());
+            batches.forEach(batch -> results.add(batchCall.apply(batch)));
+            return results;
+        }
+        // текущее наблюдение открывается в потоках пачек, чтобы span HTTP-запросов был дочерним
+        Observation parent = this.observationRegistry.getCurrentObservation();
+        return Flux.fromIterable(batches)
+                .flatMapSequential(
+                        batch -> Mono.fromCallable(() -> Optional.ofNullable(
+                                        parent != null
+                                                ? parent.scoped(() -> batchCall.apply(batch))
+                                                : batchCall.apply(batch)))
+                                .subscribeOn(this.batchScheduler),
+                        this.maxConcurrentBatches)
+                .map(result -> result.orElse(null))
+                .collectList()
+                .contextWrite(ctx -> parent != null ? ctx.put(ObservationThreadLocalAccessor.KEY, parent) : ctx)
+                .block();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Документ и его вектор, результат {@link #embed(Flux, EmbeddingOptions)}.
+     */
+    public record EmbeddedDocument(Document document, float[] embedding) {}
+
+    public static class Builder {
+
+        private GigaChatApi gigaChatApi;
+
+        private GigaChatEmbeddingOptions defaultOptions = GigaChatEmbeddingOptions.builder()
+                .withModel(EmbeddingsModel.EMBEDDINGS.getName())
+                .build();
+
+        private RetryTemplate retryTemplate = RetryUtils.DEFAULT_RETRY_TEMPLATE;
+
+        private ObservationRegistry observationRegistry = ObservationRegistry.NOOP;
+
+        private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+        private int maxBatchTokens = DEFAULT_MAX_BATCH_TOKENS;
+
+        private int maxConcurrentBatches = DEFAULT_MAX_CONCURRENT_BATCHES;
+
+        private TokenCountEstimator tokenCountEstimator;
+
+        private Scheduler batchScheduler;
+
+        private RetryBackoffSpec asyncRetrySpec = DEFAULT_ASYNC_RETRY_SPEC;
+
+        private Builder() {}
+
+        public Builder gigaChatApi(GigaChatApi gigaChatApi) {
+            this.gigaChatApi = gigaChatApi;
+            return this;
+        }
+
+        public Builder defaultOptions(GigaChatEmbeddingOptions defaultOptions) {
+            this.defaultOptions = defaultOptions;
+            return this;
+        }
+
+        public Builder retryTemplate(RetryTemplate retryTemplate) {
+            this.retryTemplate = retryTemplate;
+            return this;
+        }
+
+        public Builder observationRegistry(ObservationRegistry observationRegistry) {
+            this.observationRegistry = observationRegistry;
+            return this;
+        }
+
+        public Builder maxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        public Builder maxBatchTokens(int maxBatchTokens) {
+            this.maxBatchTokens = maxBatchTokens;
+            return this;
+        }
+
+        public Builder maxConcurrentBatches(int maxConcurrentBatches) {
+            this.maxConcurrentBatches = maxConcurrentBatches;
+            return this;
+        }
+
+        public Builder tokenCountEstimator(TokenCountEstimator tokenCountEstimator) {
+            this.tokenCountEstimator = tokenCountEstimator;
+            return this;
+        }
+
+        public Builder batchScheduler(Scheduler batchScheduler) {
+            this.batchScheduler = batchScheduler;
+            return this;
+        }
+
+        /**
+         * Повторы запросов {@link GigaChatEmbeddingModel#callAsync(EmbeddingRequest)} и
+         * {@link GigaChatEmbeddingModel#embed(Flux, EmbeddingOptions)}, по умолчанию {@link #DEFAULT_ASYNC_RETRY_SPEC}.
+         */
+        public Builder asyncRetrySpec(RetryBackoffSpec asyncRetrySpec) {
+            this.asyncRetrySpec = asyncRetrySpec;
+            return this;
+        }
+
+        public GigaChatEmbeddingModel build() {
+            return new GigaChatEmbeddingModel(
+                    gigaChatApi,
+                    defaultOptions,
+                    retryTemplate,
+                    observationRegistry,
+                    maxBatchSize,
+                    maxBatchTokens,
+                    maxConcurrentBatches,
+                    tokenCountEstimator != null ? tokenCountEstimator : new JTokkitTokenCountEstimator(),
+                    batchScheduler != null ? batchScheduler : Schedulers.boundedElastic(),
+                    asyncRetrySpec);
         }
-        return KNOWN_EMBEDDING_DIMENSIONS.computeIfAbsent(model, m -> super.dimensions());
     }
 }
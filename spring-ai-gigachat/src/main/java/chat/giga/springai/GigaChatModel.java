@@ -7,18 +7,25 @@ import chat.giga.springai.api.chat.GigaChatApi;
 import chat.giga.springai.api.chat.completion.CompletionRequest;
 import chat.giga.springai.api.chat.completion.CompletionResponse;
 import chat.giga.springai.api.chat.models.ModelDescription;
+import chat.giga.springai.media.GigaChatMediaCache;
 import chat.giga.springai.tool.definition.GigaToolDefinition;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import io.micrometer.observation.Observation;
 import io.micrometer.observation.ObservationRegistry;
 import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
@@ -43,13 +50,14 @@ import org.springframework.ai.chat.observation.DefaultChatModelObservationConven
 import org.springframework.ai.chat.prompt.ChatOptions;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.content.Media;
-import org.springframework.ai.model.ModelOptionsUtils;
 import org.springframework.ai.model.tool.DefaultToolExecutionEligibilityPredicate;
 import org.springframework.ai.model.tool.ToolCallingChatOptions;
 import org.springframework.ai.model.tool.ToolCallingManager;
 import org.springframework.ai.model.tool.ToolExecutionEligibilityPredicate;
 import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.model.tool.internal.ToolCallReactiveContextHolder;
 import org.springframework.ai.retry.RetryUtils;
+import org.springframework.ai.retry.TransientAiException;
 import org.springframework.ai.support.UsageCalculator;
 import org.springframework.ai.tool.definition.ToolDefinition;
 import org.springframework.http.HttpHeaders;
@@ -58,7 +66,15 @@ import org.springframework.lang.Nullable;
 import org.springframework.retry.support.RetryTemplate;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
 
 @Slf4j
 public class GigaChatModel implements ChatModel {
@@ -69,6 +85,25 @@ public class GigaChatModel implements ChatModel {
     public static final String UPLOADED_MEDIA_IDS = "GigaChatUploadedMediaIds";
     public static final ToolCallingManager DEFAULT_TOOL_CALLING_MANAGER =
             ToolCallingManager.builder().build();
+    public static final int DEFAULT_MAX_CONCURRENT_MEDIA_UPLOADS = 4;
+
+    /**
+     * Событие наблюдения, публикуемое по завершении каждого раунда вызова инструментов.
+     * Контекстное имя события содержит номер раунда и длительность ответа модели и выполнения инструментов.
+     */
+    public static final String TOOL_CALLING_ROUND_EVENT = "gigachat.tool.round";
+
+    /**
+     * Повторы потокового запроса по умолчанию - те же параметры, что и у {@link RetryUtils#DEFAULT_RETRY_TEMPLATE}:
+     * до 10 попыток с экспоненциальной задержкой от 2 секунд до 3 минут.
+     */
+    public static final RetryBackoffSpec DEFAULT_STREAM_RETRY_SPEC = Retry.backoff(9, Duration.ofSeconds(2))
+            .multiplier(5)
+            .maxBackoff(Duration.ofMinutes(3))
+            .filter(GigaChatModel::isTransientStreamError)
+            .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+
+    private static final int FUNCTION_DESCRIPTIONS_CACHE_SIZE = 1024;
 
     /**
      * The lower-level API for the GigaChat service.
@@ -81,7 +116,12 @@ public class GigaChatModel implements ChatModel {
     private final GigaChatOptions defaultOptions;
 
     /**
-     * The retry template used to retry the GigaChat API calls.
+     * Объединяет опции запроса с опциями по умолчанию без преобразований через Jackson.
+     */
+    private final GigaChatOptionsMerger optionsMerger;
+
+    /**
+     * The retry template used to retry the non-streaming GigaChat API calls.
      */
     private final RetryTemplate retryTemplate;
 
@@ -100,6 +140,48 @@ public class GigaChatModel implements ChatModel {
      */
     private final ToolExecutionEligibilityPredicate toolExecutionEligibilityPredicate;
 
+    /**
+     * Кэш id загруженных файлов по содержимому, {@code null} - кэширование отключено.
+     */
+    @Nullable
+    private final GigaChatMediaCache mediaCache;
+
+    /**
+     * Максимальное количество одновременных загрузок файлов одного запроса.
+     */
+    private final int maxConcurrentMediaUploads;
+
+    /**
+     * Повторы потокового запроса. Повторяются только ошибки, возникшие до получения первого чанка ответа.
+     */
+    private final RetryBackoffSpec streamRetrySpec;
+
+    /**
+     * Планировщик, на котором выполняются инструменты при потоковой генерации,
+     * чтобы медленный инструмент не блокировал потоки реактора.
+     */
+    private final Scheduler toolExecutionScheduler;
+
+    /**
+     * Метрики токенов и таймингов ответов.
+     */
+    private final GigaChatModelMetrics metrics;
+
+    /**
+     * Описания функций для запроса по экземплярам определений инструментов. Определения инструментов,
+     * как правило, создаются один раз вместе с {@link org.springframework.ai.tool.ToolCallback}, поэтому
+     * описание строится один раз, а не на каждый запрос. Ключ сравнивается по ссылке, без разбора схемы,
+     * размер ограничен {@link #FUNCTION_DESCRIPTIONS_CACHE_SIZE} последними использованными определениями.
+     */
+    private final Map<ToolDefinitionKey, CompletionRequest.FunctionDescription> functionDescriptions =
+            Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<ToolDefinitionKey, CompletionRequest.FunctionDescription> eldest) {
+                    return size() > FUNCTION_DESCRIPTIONS_CACHE_SIZE;
+                }
+            });
+
     /**
      * Conventions to use for generating observations.
      */
@@ -114,6 +196,37 @@ public class GigaChatModel implements ChatModel {
             ObservationRegistry observationRegistry,
             GigaChatInternalProperties internalProperties,
             ToolExecutionEligibilityPredicate toolExecutionEligibilityPredicate) {
+        this(
+                gigaChatApi,
+                defaultOptions,
+                toolCallingManager,
+                retryTemplate,
+                observationRegistry,
+                internalProperties,
+                toolExecutionEligibilityPredicate,
+                null,
+                DEFAULT_MAX_CONCURRENT_MEDIA_UPLOADS,
+                DEFAULT_STREAM_RETRY_SPEC,
+                Schedulers.boundedElastic(),
+                Metrics.globalRegistry);
+    }
+
+    /**
+     * Остальные параметры задаются только через {@link #builder()}.
+     */
+    private GigaChatModel(
+            GigaChatApi gigaChatApi,
+            GigaChatOptions defaultOptions,
+            ToolCallingManager toolCallingManager,
+            RetryTemplate retryTemplate,
+            ObservationRegistry observationRegistry,
+            GigaChatInternalProperties internalProperties,
+            ToolExecutionEligibilityPredicate toolExecutionEligibilityPredicate,
+            @Nullable GigaChatMediaCache mediaCache,
+            int maxConcurrentMediaUploads,
+            RetryBackoffSpec streamRetrySpec,
+            Scheduler toolExecutionScheduler,
+            MeterRegistry meterRegistry) {
         Assert.notNull(gigaChatApi, "gigaChatApi cannot be null");
         Assert.notNull(defaultOptions, "defaultOptions cannot be null");
         Assert.notNull(toolCallingManager, "toolCallingManager cannot be null");
@@ -121,13 +234,22 @@ public class GigaChatModel implements ChatModel {
         Assert.notNull(observationRegistry, "observationRegistry cannot be null");
         Assert.notNull(internalProperties, "internalProperties must not be null");
         Assert.notNull(toolExecutionEligibilityPredicate, "toolExecutionEligibilityPredicate cannot be null");
+        Assert.isTrue(maxConcurrentMediaUploads > 0, "maxConcurrentMediaUploads must be greater than 0");
+        Assert.notNull(streamRetrySpec, "streamRetrySpec cannot be null");
+        Assert.notNull(toolExecutionScheduler, "toolExecutionScheduler cannot be null");
         this.gigaChatApi = gigaChatApi;
         this.defaultOptions = defaultOptions;
+        this.optionsMerger = new GigaChatOptionsMerger(defaultOptions);
         this.toolCallingManager = toolCallingManager;
         this.retryTemplate = retryTemplate;
         this.observationRegistry = observationRegistry;
         this.internalProperties = internalProperties;
         this.toolExecutionEligibilityPredicate = toolExecutionEligibilityPredicate;
+        this.mediaCache = mediaCache;
+        this.maxConcurrentMediaUploads = maxConcurrentMediaUploads;
+        this.streamRetrySpec = streamRetrySpec;
+        this.toolExecutionScheduler = toolExecutionScheduler;
+        this.metrics = new GigaChatModelMetrics(meterRegistry);
     }
 
     @Override
@@ -138,23 +260,63 @@ public class GigaChatModel implements ChatModel {
         return this.internalCall(requestPrompt, null);
     }
 
+    /**
+     * Выполняет запрос и цикл вызова инструментов. Каждый раунд (ответ модели с вызовом функции и выполнение
+     * инструментов) выполняется в том же цикле, а не рекурсивным вызовом, запрос следующего раунда
+     * дополняется только новыми сообщениями истории.
+     */
     public ChatResponse internalCall(Prompt prompt, ChatResponse previousChatResponse) {
-        CompletionRequest request = createRequest(prompt, false);
+        ToolCallingLoop loop = new ToolCallingLoop(prompt, false, this.observationRegistry.getCurrentObservation());
+        Prompt roundPrompt = prompt;
+        ChatResponse previousResponse = previousChatResponse;
+        while (true) {
+            ChatResponse response = callRound(roundPrompt, loop.request(), previousResponse);
+
+            if (!this.toolExecutionEligibilityPredicate.isToolExecutionRequired(roundPrompt.getOptions(), response)) {
+                return buildChatResponseWithCustomMetadata(roundPrompt, response);
+            }
+
+            loop.startToolExecution();
+            var toolExecutionResult = this.toolCallingManager.executeToolCalls(roundPrompt, response);
+            loop.completeToolExecution();
+            if (toolExecutionResult.returnDirect()) {
+                // Return tool execution result directly to the client.
+                return ChatResponse.builder()
+                        .from(response)
+                        .generations(ToolExecutionResult.buildGenerations(toolExecutionResult))
+                        .build();
+            }
+            // Send the tool execution result back to the model.
+            roundPrompt = new Prompt(toolExecutionResult.conversationHistory(), prompt.getOptions());
+            loop.append(roundPrompt.getInstructions());
+            previousResponse = response;
+        }
+    }
 
+    private ChatResponse callRound(Prompt prompt, CompletionRequest request, ChatResponse previousChatResponse) {
         ChatModelObservationContext observationContext = ChatModelObservationContext.builder()
                 .prompt(prompt)
                 .provider(GigaChatApi.PROVIDER_NAME)
                 .build();
 
-        ChatResponse response = ChatModelObservationDocumentation.CHAT_MODEL_OPERATION
+        return ChatModelObservationDocumentation.CHAT_MODEL_OPERATION
                 .observation(
                         this.observationConvention,
                         DEFAULT_OBSERVATION_CONVENTION,
                         () -> observationContext,
                         this.observationRegistry)
                 .observe(() -> {
-                    ResponseEntity<CompletionResponse> completionEntity = this.retryTemplate.execute(
-                            ctx -> this.gigaChatApi.chatCompletionEntity(request, buildHeaders(prompt.getOptions())));
+                    ResponseEntity<CompletionResponse> completionEntity = this.retryTemplate.execute(ctx -> {
+                        // время только успешной попытки, без повторов и пауз между ними
+                        long startNanos = System.nanoTime();
+                        ResponseEntity<CompletionResponse> entity =
+                                this.gigaChatApi.chatCompletionEntity(request, buildHeaders(prompt.getOptions()));
+                        if (entity.getBody() != null) {
+                            this.metrics.recordCall(
+                                    request.getModel(), entity.getBody(), System.nanoTime() - startNanos);
+                        }
+                        return entity;
+                    });
 
                     CompletionResponse completionResponse = completionEntity.getBody();
 
@@ -174,23 +336,6 @@ public class GigaChatModel implements ChatModel {
 
                     return chatResponse;
                 });
-
-        if (this.toolExecutionEligibilityPredicate.isToolExecutionRequired(prompt.getOptions(), response)) {
-            var toolExecutionResult = this.toolCallingManager.executeToolCalls(prompt, response);
-            if (toolExecutionResult.returnDirect()) {
-                // Return tool execution result directly to the client.
-                return ChatResponse.builder()
-                        .from(response)
-                        .generations(ToolExecutionResult.buildGenerations(toolExecutionResult))
-                        .build();
-            } else {
-                // Send the tool execution result back to the model.
-                return this.internalCall(
-                        new Prompt(toolExecutionResult.conversationHistory(), prompt.getOptions()), response);
-            }
-        }
-
-        return buildChatResponseWithCustomMetadata(prompt, response);
     }
 
     @Override
@@ -205,105 +350,140 @@ public class GigaChatModel implements ChatModel {
         return chatResponseFlux;
     }
 
+    /**
+     * Потоковый вариант {@link #internalCall}: раунды вызова инструментов идут друг за другом через
+     * {@code concatMap}, а не вкладываются друг в друга, следующий раунд публикуется по завершении выполнения
+     * инструментов текущего.
+     */
     public Flux<ChatResponse> internalStream(Prompt prompt, ChatResponse previousChatResponse) {
         return Flux.deferContextual(contextView -> {
-            CompletionRequest request = createRequest(prompt, true);
+            ToolCallingLoop loop = new ToolCallingLoop(
+                    prompt, true, contextView.getOrDefault(ObservationThreadLocalAccessor.KEY, null));
+            Sinks.Many<ToolCallingRound> rounds = Sinks.many().unicast().onBackpressureBuffer();
+            rounds.tryEmitNext(new ToolCallingRound(prompt, previousChatResponse));
+            return rounds.asFlux().concatMap(round -> streamRound(round, loop, rounds));
+        });
+    }
 
-            ChatModelObservationContext observationContext = ChatModelObservationContext.builder()
-                    .prompt(prompt)
-                    .provider(GigaChatApi.PROVIDER_NAME)
-                    .build();
+    private Flux<ChatResponse> streamRound(
+            ToolCallingRound round, ToolCallingLoop loop, Sinks.Many<ToolCallingRound> rounds) {
+        Prompt prompt = round.prompt();
+        CompletionRequest request = loop.request();
 
-            Observation observation = ChatModelObservationDocumentation.CHAT_MODEL_OPERATION
-                    .observation(
-                            this.observationConvention,
-                            DEFAULT_OBSERVATION_CONVENTION,
-                            () -> observationContext,
-                            this.observationRegistry)
-                    .parentObservation(contextView.getOrDefault(ObservationThreadLocalAccessor.KEY, null))
-                    .start();
-
-            Flux<CompletionResponse> response = this.retryTemplate.execute(
-                    ctx -> this.gigaChatApi.chatCompletionStream(request, buildHeaders(prompt.getOptions())));
-
-            Flux<ChatResponse> chatResponseFlux = response.switchMap(completionResponse -> {
-                        if (completionResponse == null) {
-                            log.warn("No chat completion returned for prompt: {}", prompt);
-                            return Flux.just(new ChatResponse(List.of()));
-                        }
-                        Usage currentChatResponseUsage = buildUsage(completionResponse.getUsage());
-                        Usage accumulatedUsage =
-                                UsageCalculator.getCumulativeUsage(currentChatResponseUsage, previousChatResponse);
-
-                        ChatResponse chatResponse = toChatResponse(completionResponse, accumulatedUsage, true);
-
-                        if (this.toolExecutionEligibilityPredicate.isToolExecutionRequired(
-                                prompt.getOptions(), chatResponse)) {
-                            var toolExecutionResult = this.toolCallingManager.executeToolCalls(prompt, chatResponse);
-                            if (toolExecutionResult.returnDirect()) {
-                                // Return tool execution result directly to the client.
-                                return Flux.just(ChatResponse.builder()
-                                        .from(chatResponse)
-                                        .generations(ToolExecutionResult.buildGenerations(toolExecutionResult))
-                                        .build());
-                            } else {
-                                // Send the tool execution result back to the model.
-                                return this.internalStream(
-                                        new Prompt(toolExecutionResult.conversationHistory(), prompt.getOptions()),
-                                        chatResponse);
-                            }
-                        }
+        ChatModelObservationContext observationContext = ChatModelObservationContext.builder()
+                .prompt(prompt)
+                .provider(GigaChatApi.PROVIDER_NAME)
+                .build();
+
+        Observation observation = ChatModelObservationDocumentation.CHAT_MODEL_OPERATION
+                .observation(
+                        this.observationConvention,
+                        DEFAULT_OBSERVATION_CONVENTION,
+                        () -> observationContext,
+                        this.observationRegistry)
+                .parentObservation(loop.parentObservation)
+                .start();
 
-                        return Flux.just(buildChatResponseWithCustomMetadata(prompt, chatResponse));
-                    })
-                    .doOnError(observation::error)
-                    .doFinally(s -> observation.stop())
-                    .contextWrite(ctx -> ctx.put(ObservationThreadLocalAccessor.KEY, observation));
+        // метрики собираются для каждой попытки отдельно, время до первого чанка не включает повторы
+        Flux<CompletionResponse> response = retryStream(this.metrics.instrumentStream(
+                request.getModel(), this.gigaChatApi.chatCompletionStream(request, buildHeaders(prompt.getOptions()))));
 
-            return new MessageAggregator().aggregate(chatResponseFlux, observationContext::setResponse);
+        AtomicBoolean nextRoundEmitted = new AtomicBoolean();
+        Flux<ChatResponse> chatResponseFlux = response.switchMap(completionResponse -> {
+                    if (completionResponse == null) {
+                        log.warn("No chat completion returned for prompt: {}", prompt);
+                        return Flux.just(new ChatResponse(List.of()));
+                    }
+                    Usage currentChatResponseUsage = buildUsage(completionResponse.getUsage());
+                    Usage accumulatedUsage =
+                            UsageCalculator.getCumulativeUsage(currentChatResponseUsage, round.previousResponse());
+
+                    ChatResponse chatResponse = toChatResponse(completionResponse, accumulatedUsage, true);
+
+                    if (this.toolExecutionEligibilityPredicate.isToolExecutionRequired(
+                            prompt.getOptions(), chatResponse)) {
+                        return Mono.fromRunnable(loop::startToolExecution)
+                                .then(executeToolCalls(prompt, chatResponse))
+                                .flatMapMany(toolExecutionResult -> {
+                                    loop.completeToolExecution();
+                                    if (toolExecutionResult.returnDirect()) {
+                                        // Return tool execution result directly to the client.
+                                        return Flux.just(ChatResponse.builder()
+                                                .from(chatResponse)
+                                                .generations(ToolExecutionResult.buildGenerations(toolExecutionResult))
+                                                .build());
+                                    }
+                                    // Send the tool execution result back to the model.
+                                    Prompt nextPrompt =
+                                            new Prompt(toolExecutionResult.conversationHistory(), prompt.getOptions());
+                                    loop.append(nextPrompt.getInstructions());
+                                    nextRoundEmitted.set(true);
+                                    rounds.tryEmitNext(new ToolCallingRound(nextPrompt, chatResponse));
+                                    return Flux.<ChatResponse>empty();
+                                });
+                    }
+
+                    return Flux.just(buildChatResponseWithCustomMetadata(prompt, chatResponse));
+                })
+                .doOnError(observation::error)
+                .doFinally(s -> observation.stop())
+                .contextWrite(ctx -> ctx.put(ObservationThreadLocalAccessor.KEY, observation));
+
+        return new MessageAggregator()
+                .aggregate(chatResponseFlux, observationContext::setResponse)
+                .doOnComplete(() -> {
+                    if (!nextRoundEmitted.get()) {
+                        rounds.tryEmitComplete();
+                    }
+                });
+    }
+
+    /**
+     * Повторяет потоковый запрос при сетевых ошибках и ошибках сервера, пока не получен первый чанк ответа.
+     * После начала генерации повтор приводил бы к дублированию уже отданных подписчику токенов.
+     */
+    private Flux<CompletionResponse> retryStream(Flux<CompletionResponse> response) {
+        return Flux.defer(() -> {
+            AtomicBoolean started = new AtomicBoolean();
+            return response.doOnNext(chunk -> started.set(true))
+                    .retryWhen(streamRetrySpec.modifyErrorFilter(filter -> filter.and(error -> !started.get())));
         });
     }
 
+    /**
+     * Выполняет инструменты на {@link #toolExecutionScheduler}, а не на потоке, получившем чанк ответа.
+     */
+    private Mono<ToolExecutionResult> executeToolCalls(Prompt prompt, ChatResponse chatResponse) {
+        return Mono.deferContextual(contextView -> {
+                    try {
+                        ToolCallReactiveContextHolder.setContext(contextView);
+                        return Mono.just(this.toolCallingManager.executeToolCalls(prompt, chatResponse));
+                    } finally {
+                        ToolCallReactiveContextHolder.clearContext();
+                    }
+                })
+                .subscribeOn(this.toolExecutionScheduler);
+    }
+
+    /**
+     * Ошибки потокового запроса, после которых имеет смысл повторить запрос:
+     * сетевые ошибки и ответы сервера с кодом 5xx.
+     */
+    public static boolean isTransientStreamError(Throwable error) {
+        if (error instanceof WebClientResponseException responseException) {
+            return responseException.getStatusCode().is5xxServerError();
+        }
+        return error instanceof WebClientRequestException || error instanceof TransientAiException;
+    }
+
     @SuppressWarnings("DataFlowIssue")
     public List<ModelDescription> models() {
         return gigaChatApi.models().getBody().getData();
     }
 
     Prompt buildRequestPrompt(Prompt prompt) {
-        // Process runtime options
-        GigaChatOptions runtimeOptions = null;
-        if (prompt.getOptions() != null) {
-            if (prompt.getOptions() instanceof ToolCallingChatOptions toolCallingChatOptions) {
-                runtimeOptions = ModelOptionsUtils.copyToTarget(
-                        toolCallingChatOptions, ToolCallingChatOptions.class, GigaChatOptions.class);
-            } else {
-                runtimeOptions =
-                        ModelOptionsUtils.copyToTarget(prompt.getOptions(), ChatOptions.class, GigaChatOptions.class);
-            }
-        }
-
         // Define request options by merging runtime options and default options
-        GigaChatOptions requestOptions =
-                ModelOptionsUtils.merge(runtimeOptions, this.defaultOptions, GigaChatOptions.class);
-
-        // Merge @JsonIgnore-annotated options explicitly since they are ignored by
-        // Jackson, used by ModelOptionsUtils.
-        if (runtimeOptions != null) {
-            requestOptions.setInternalToolExecutionEnabled(ModelOptionsUtils.mergeOption(
-                    runtimeOptions.getInternalToolExecutionEnabled(),
-                    this.defaultOptions.getInternalToolExecutionEnabled()));
-            requestOptions.setToolNames(ToolCallingChatOptions.mergeToolNames(
-                    runtimeOptions.getToolNames(), this.defaultOptions.getToolNames()));
-            requestOptions.setToolCallbacks(ToolCallingChatOptions.mergeToolCallbacks(
-                    runtimeOptions.getToolCallbacks(), this.defaultOptions.getToolCallbacks()));
-            requestOptions.setToolContext(ToolCallingChatOptions.mergeToolContext(
-                    runtimeOptions.getToolContext(), this.defaultOptions.getToolContext()));
-        } else {
-            requestOptions.setInternalToolExecutionEnabled(this.defaultOptions.getInternalToolExecutionEnabled());
-            requestOptions.setToolNames(this.defaultOptions.getToolNames());
-            requestOptions.setToolCallbacks(this.defaultOptions.getToolCallbacks());
-            requestOptions.setToolContext(this.defaultOptions.getToolContext());
-        }
+        GigaChatOptions requestOptions = this.optionsMerger.merge(prompt.getOptions());
 
         ToolCallingChatOptions.validateToolCallbacks(requestOptions.getToolCallbacks());
 
@@ -314,7 +494,26 @@ public class GigaChatModel implements ChatModel {
     }
 
     private CompletionRequest createRequest(Prompt prompt, boolean stream) {
-        List<CompletionRequest.Message> messages = prompt.getInstructions().stream()
+        List<CompletionRequest.Message> messages = toCompletionMessages(prompt.getInstructions());
+
+        makeSystemPromptMessageFirst(messages);
+
+        GigaChatOptions requestOptions = (GigaChatOptions) prompt.getOptions();
+        CompletionRequest request = GigaChatOptionsMerger.toRequest(requestOptions, messages, stream);
+
+        // Add the tool definitions to the request's tools parameter.
+        List<ToolDefinition> toolDefinitions = this.toolCallingManager.resolveToolDefinitions(requestOptions);
+
+        request.setFunctionCall(getFunctionCall(requestOptions, toolDefinitions));
+        // Add the enabled functions definitions to the request's tools parameter.
+        if (!CollectionUtils.isEmpty(toolDefinitions)) {
+            request.setFunctions(this.getFunctionDescriptions(toolDefinitions));
+        }
+        return request;
+    }
+
+    private List<CompletionRequest.Message> toCompletionMessages(List<Message> instructions) {
+        return instructions.stream()
                 .map(message -> {
                     if (message instanceof UserMessage userMessage) {
                         if (!CollectionUtils.isEmpty(userMessage.getMedia())) {
@@ -367,36 +566,28 @@ public class GigaChatModel implements ChatModel {
                 })
                 .flatMap(List::stream)
                 .collect(Collectors.toList());
-
-        makeSystemPromptMessageFirst(messages);
-
-        var request =
-                CompletionRequest.builder().messages(messages).stream(stream).build();
-
-        GigaChatOptions requestOptions = (GigaChatOptions) prompt.getOptions();
-        request = ModelOptionsUtils.merge(requestOptions, request, CompletionRequest.class);
-
-        // Add the tool definitions to the request's tools parameter.
-        List<ToolDefinition> toolDefinitions = this.toolCallingManager.resolveToolDefinitions(requestOptions);
-
-        request.setFunctionCall(getFunctionCall(requestOptions, toolDefinitions));
-        // Add the enabled functions definitions to the request's tools parameter.
-        if (!CollectionUtils.isEmpty(toolDefinitions)) {
-            request.setFunctions(this.getFunctionDescriptions(toolDefinitions));
-        }
-        return request;
     }
 
     /**
      * Загружает медиа файлы, если они переданы в UserMessage, и проставляет к ним id.
+     * Файлы всех сообщений загружаются параллельно, одинаковые по содержимому - один раз,
+     * а ранее загруженные берутся из кэша.
      * @param messages - исходные сообщения
      * @return - обновленные сообщения с проставленными id для media
      */
     private List<Message> uploadMedia(List<Message> messages) {
+        List<Media> mediaToUpload = messages.stream()
+                .filter(UserMessage.class::isInstance)
+                .map(message -> ((UserMessage) message).getMedia())
+                .filter(mediaList -> !CollectionUtils.isEmpty(mediaList))
+                .flatMap(List::stream)
+                .filter(media -> media.getId() == null)
+                .toList();
+        Map<Media, String> uploadedIds = uploadFiles(mediaToUpload);
         return messages.stream()
                 .map(message -> {
                     if (message instanceof UserMessage userMessage) {
-                        return buildUserMessageWithUploadedMedia(userMessage);
+                        return buildUserMessageWithUploadedMedia(userMessage, uploadedIds);
                     } else {
                         return message;
                     }
@@ -404,14 +595,16 @@ public class GigaChatModel implements ChatModel {
                 .toList();
     }
 
-    private UserMessage buildUserMessageWithUploadedMedia(UserMessage userMessage) {
+    private UserMessage buildUserMessageWithUploadedMedia(UserMessage userMessage, Map<Media, String> uploadedIds) {
         List<Media> mediaList = userMessage.getMedia();
 
         // Если нет медиа, то ничего не меняем
         if (CollectionUtils.isEmpty(mediaList)) {
             return userMessage;
         }
-        var mediaWithIds = mediaList.stream().map(this::uploadMediaAndSetId).toList();
+        var mediaWithIds = mediaList.stream()
+                .map(media -> withId(media, uploadedIds.get(media)))
+                .toList();
         return UserMessage.builder()
                 .text(userMessage.getText())
                 .metadata(userMessage.getMetadata())
@@ -419,15 +612,11 @@ public class GigaChatModel implements ChatModel {
                 .build();
     }
 
-    // Загрузка файла в GigaChat, если у media нет id.
-    private Media uploadMediaAndSetId(Media media) {
-        // если id указан - значит файл уже загружен и можно возвращать media как есть
-        if (media.getId() != null) {
+    // Если id указан - значит файл уже загружен и можно возвращать media как есть
+    private static Media withId(Media media, @Nullable String mediaId) {
+        if (media.getId() != null || mediaId == null) {
             return media;
         }
-        // иначе загружаем файл и получаем его id
-        String mediaId = gigaChatApi.uploadFile(media).getBody().id().toString();
-
         return Media.builder()
                 .id(mediaId)
                 .name(media.getName())
@@ -436,6 +625,66 @@ public class GigaChatModel implements ChatModel {
                 .build();
     }
 
+    // Загрузка файлов в GigaChat: возвращает id для каждого media (по ссылке)
+    private Map<Media, String> uploadFiles(List<Media> mediaList) {
+        Map<Media, String> ids = new IdentityHashMap<>();
+        if (mediaList.isEmpty()) {
+            return ids;
+        }
+        // Группируем одинаковые файлы, чтобы загрузить каждый один раз
+        Map<Object, List<Media>> groups = new LinkedHashMap<>();
+        for (Media media : mediaList) {
+            GigaChatMediaCache.Key key = mediaCache != null ? GigaChatMediaCache.keyOf(media) : null;
+            if (key == null) {
+                groups.put(new Object(), List.of(media));
+                continue;
+            }
+            List<Media> group = groups.get(key);
+            if (group != null) {
+                group.add(media);
+                continue;
+            }
+            String cachedId = mediaCache.get(key);
+            if (cachedId != null) {
+                ids.put(media, cachedId);
+            } else {
+                groups.put(key, new ArrayList<>(List.of(media)));
+            }
+        }
+
+        List<Map.Entry<Object, List<Media>>> uploads = new ArrayList<>(groups.entrySet());
+        List<String> uploadedIds = executeUploads(
+                uploads.stream().map(upload -> upload.getValue().get(0)).toList());
+        for (int i = 0; i < uploads.size(); i++) {
+            String mediaId = uploadedIds.get(i);
+            uploads.get(i).getValue().forEach(media -> ids.put(media, mediaId));
+            if (uploads.get(i).getKey() instanceof GigaChatMediaCache.Key key) {
+                mediaCache.put(key, mediaId);
+            }
+        }
+        return ids;
+    }
+
+    // Файлы загружаются потоково через WebClient, не более maxConcurrentMediaUploads одновременно
+    private List<String> executeUploads(List<Media> mediaList) {
+        // Блокировать non-blocking поток реактора нельзя - в этом случае загружаем последовательно через RestClient
+        if (Schedulers.isInNonBlockingThread()) {
+            return mediaList.stream().map(this::uploadFile).toList();
+        }
+        return Flux.fromIterable(mediaList)
+                .flatMapSequential(
+                        media -> gigaChatApi.uploadFileAsync(media).map(response -> response.id()
+                                .toString()),
+                        maxConcurrentMediaUploads)
+                .collectList()
+                .block();
+    }
+
+    @SuppressWarnings("DataFlowIssue")
+    private String uploadFile(Media media) {
+        return gigaChatApi.uploadFile(media).getBody().id().toString();
+    }
+
     private Object getFunctionCall(GigaChatOptions requestOptions, List<ToolDefinition> toolDefinitions) {
         var callMode = requestOptions.getFunctionCallMode();
 
@@ -465,29 +714,49 @@ public class GigaChatModel implements ChatModel {
 
     private List<CompletionRequest.FunctionDescription> getFunctionDescriptions(List<ToolDefinition> toolDefinitions) {
         return toolDefinitions.stream()
-                .map(toolDefinition -> {
-                    if (toolDefinition instanceof GigaToolDefinition gigaToolDefinition) {
-                        return new CompletionRequest.FunctionDescription(
-                                gigaToolDefinition.name(),
-                                gigaToolDefinition.description(),
-                                gigaToolDefinition.inputSchema(),
-                                gigaToolDefinition.fewShotExamples().stream()
-                                        .map(fewShotExample -> new CompletionRequest.FewShotExample(
-                                                fewShotExample.getRequest(), fewShotExample.getParams()))
-                                        .toList(),
-                                gigaToolDefinition.outputSchema());
-                    } else {
-                        return new CompletionRequest.FunctionDescription(
-                                toolDefinition.name(),
-                                toolDefinition.description(),
-                                toolDefinition.inputSchema(),
-                                null,
-                                null);
-                    }
-                })
+                .map(toolDefinition -> this.functionDescriptions.computeIfAbsent(
+                        new ToolDefinitionKey(toolDefinition), key -> toFunctionDescription(toolDefinition)))
                 .toList();
     }
 
+    /**
+     * Ключ кэша описаний функций, сравнивающий определения инструментов по ссылке.
+     */
+    private static final class ToolDefinitionKey {
+        private final ToolDefinition toolDefinition;
+
+        private ToolDefinitionKey(ToolDefinition toolDefinition) {
+            this.toolDefinition = toolDefinition;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof ToolDefinitionKey key && key.toolDefinition == this.toolDefinition;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this.toolDefinition);
+        }
+    }
+
+    private CompletionRequest.FunctionDescription toFunctionDescription(ToolDefinition toolDefinition) {
+        if (toolDefinition instanceof GigaToolDefinition gigaToolDefinition) {
+            return new CompletionRequest.FunctionDescription(
+                    gigaToolDefinition.name(),
+                    gigaToolDefinition.description(),
+                    gigaToolDefinition.inputSchema(),
+                    gigaToolDefinition.fewShotExamples().stream()
+                            .map(fewShotExample -> new CompletionRequest.FewShotExample(
+                                    fewShotExample.getRequest(), fewShotExample.getParams()))
+                            .toList(),
+                    gigaToolDefinition.outputSchema());
+        } else {
+            return new CompletionRequest.FunctionDescription(
+                    toolDefinition.name(), toolDefinition.description(), toolDefinition.inputSchema(), null, null);
+        }
+    }
+
     private ChatResponse toChatResponse(CompletionResponse completionResponse, Usage usage, boolean streaming) {
         List<Generation> generations = completionResponse.getChoices().stream()
                 .map(choice -> buildGeneration(completionResponse.getId(), choice, streaming))
@@ -530,8 +799,7 @@ public class GigaChatModel implements ChatModel {
     }
 
     private ChatResponse buildChatResponseWithCustomMetadata(Prompt prompt, ChatResponse originalResponse) {
-        // т.к. этот метод вызывается при обратном проходе из рекурсии internalCall/internalStream,
-        // то нужно заполнять метаданные только один раз при первом вызове
+        // метаданные заполняются только один раз, даже если ответ уже прошел через этот метод
         if (originalResponse.getMetadata().containsKey(INTERNAL_CONVERSATION_HISTORY)) {
             return originalResponse;
         }
@@ -650,6 +918,90 @@ public class GigaChatModel implements ChatModel {
                 .orElseGet(HttpHeaders::new);
     }
 
+    /**
+     * Раунд цикла вызова инструментов: промпт с историей диалога и ответ предыдущего раунда для подсчета токенов.
+     */
+    private record ToolCallingRound(Prompt prompt, @Nullable ChatResponse previousResponse) {}
+
+    /**
+     * Состояние цикла вызова инструментов одного запроса.
+     *
+     * <p>Опции запроса и описания функций вычисляются один раз, а сообщения истории переводятся в формат
+     * GigaChat по мере их добавления, поэтому стоимость раунда не зависит от длины уже накопленной истории.
+     * Ограничивает количество раундов ({@link GigaChatInternalProperties#getMaxToolCallingRounds()})
+     * и публикует длительность каждого раунда событием {@link #TOOL_CALLING_ROUND_EVENT}
+     * в родительское наблюдение, если оно есть.
+     */
+    private final class ToolCallingLoop {
+        @Nullable
+        private final Observation parentObservation;
+
+        private final CompletionRequest template;
+        private final List<CompletionRequest.Message> messages;
+        private int convertedMessages;
+        private int round;
+        private long roundStartNanos;
+        private long toolExecutionStartNanos;
+
+        ToolCallingLoop(Prompt prompt, boolean stream, @Nullable Observation parentObservation) {
+            this.parentObservation = parentObservation;
+            this.template = createRequest(prompt, stream);
+            this.messages = new ArrayList<>(this.template.getMessages());
+            this.convertedMessages = prompt.getInstructions().size();
+        }
+
+        /**
+         * Запрос текущего раунда с накопленной историей.
+         */
+        CompletionRequest request() {
+            this.roundStartNanos = System.nanoTime();
+            return this.template.toBuilder()
+                    .messages(List.copyOf(this.messages))
+                    .build();
+        }
+
+        /**
+         * Дополняет историю сообщениями, добавленными при выполнении инструментов.
+         */
+        void append(List<Message> history) {
+            // история была изменена, а не дополнена - переводим ее заново
+            boolean rebuilt = history.size() < this.convertedMessages;
+            if (rebuilt) {
+                this.messages.clear();
+                this.convertedMessages = 0;
+            }
+            List<CompletionRequest.Message> added =
+                    toCompletionMessages(history.subList(this.convertedMessages, history.size()));
+            this.messages.addAll(added);
+            this.convertedMessages = history.size();
+            if (rebuilt || added.stream().anyMatch(it -> it.getRole() == CompletionRequest.Role.system)) {
+                makeSystemPromptMessageFirst(this.messages);
+            }
+        }
+
+        void startToolExecution() {
+            int maxRounds = internalProperties.getMaxToolCallingRounds();
+            if (maxRounds > 0 && this.round >= maxRounds) {
+                throw new IllegalStateException("Max number of tool calling rounds (" + maxRounds + ") exceeded");
+            }
+            this.round++;
+            this.toolExecutionStartNanos = System.nanoTime();
+        }
+
+        void completeToolExecution() {
+            if (this.parentObservation == null) return;
+            long now = System.nanoTime();
+            this.parentObservation.event(Observation.Event.of(
+                    TOOL_CALLING_ROUND_EVENT,
+                    String.format(
+                            "tool calling round %d: model %d ms, tools %d ms",
+                            this.round,
+                            Duration.ofNanos(this.toolExecutionStartNanos - this.roundStartNanos)
+                                    .toMillis(),
+                            Duration.ofNanos(now - this.toolExecutionStartNanos).toMillis())));
+        }
+    }
+
     public static GigaChatModel.Builder builder() {
         return new GigaChatModel.Builder();
     }
@@ -673,6 +1025,17 @@ public class GigaChatModel implements ChatModel {
         private ToolExecutionEligibilityPredicate toolExecutionEligibilityPredicate =
                 new DefaultToolExecutionEligibilityPredicate();
 
+        @Nullable
+        private GigaChatMediaCache mediaCache;
+
+        private int maxConcurrentMediaUploads = DEFAULT_MAX_CONCURRENT_MEDIA_UPLOADS;
+
+        private RetryBackoffSpec streamRetrySpec = DEFAULT_STREAM_RETRY_SPEC;
+
+        private Scheduler toolExecutionScheduler = Schedulers.boundedElastic();
+
+        private MeterRegistry meterRegistry = Metrics.globalRegistry;
+
         private Builder() {}
 
         public GigaChatModel.Builder gigaChatApi(GigaChatApi gigaChatApi) {
@@ -711,6 +1074,44 @@ public class GigaChatModel implements ChatModel {
             return this;
         }
 
+        /**
+         * Кэш id загруженных файлов, по умолчанию {@code null} - кэширование отключено.
+         */
+        public GigaChatModel.Builder mediaCache(@Nullable GigaChatMediaCache mediaCache) {
+            this.mediaCache = mediaCache;
+            return this;
+        }
+
+        public GigaChatModel.Builder maxConcurrentMediaUploads(int maxConcurrentMediaUploads) {
+            this.maxConcurrentMediaUploads = maxConcurrentMediaUploads;
+            return this;
+        }
+
+        /**
+         * Повторы потокового запроса, {@link RetryTemplate} на потоковые запросы не влияет.
+         */
+        public GigaChatModel.Builder streamRetrySpec(RetryBackoffSpec streamRetrySpec) {
+            this.streamRetrySpec = streamRetrySpec;
+            return this;
+        }
+
+        /**
+         * Планировщик для выполнения инструментов при потоковой генерации, по умолчанию
+         * {@link Schedulers#boundedElastic()}.
+         */
+        public GigaChatModel.Builder toolExecutionScheduler(Scheduler toolExecutionScheduler) {
+            this.toolExecutionScheduler = toolExecutionScheduler;
+            return this;
+        }
+
+        /**
+         * Реестр метрик токенов и таймингов ответов, см. {@link GigaChatModelMetrics}.
+         */
+        public GigaChatModel.Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
         public GigaChatModel build() {
             return new GigaChatModel(
                     gigaChatApi,
@@ -719,7 +1120,12 @@ public class GigaChatModel implements ChatModel {
                     retryTemplate,
                     observationRegistry,
                     internalProperties,
-                    toolExecutionEligibilityPredicate);
+                    toolExecutionEligibilityPredicate,
+                    mediaCache,
+                    maxConcurrentMediaUploads,
+                    streamRetrySpec,
+                    toolExecutionScheduler,
+                    meterRegistry);
         }
     }
 }
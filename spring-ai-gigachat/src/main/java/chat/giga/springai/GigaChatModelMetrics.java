@@ -0,0 +1,212 @@
+package chat.giga.springai;
+
+import chat.giga.springai.api.chat.completion.CompletionResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.CollectionUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Метрики запросов chat completion с тегами {@value #MODEL_TAG} (модель из запроса) и
+ * {@value #FINISH_REASON_TAG} (причина завершения генерации):
+ * <ul>
+ *   <li>{@value #TIME_TO_FIRST_CHUNK} - время от отправки потокового запроса до первого чанка ответа</li>
+ *   <li>{@value #INTER_CHUNK_LATENCY} - интервалы между чанками потокового ответа, только с тегом
+ *       {@value #MODEL_TAG}</li>
+ *   <li>{@value #COMPLETION_TOKENS_RATE} - скорость генерации, токенов в секунду</li>
+ *   <li>{@value #TOKENS} - количество токенов с тегом {@value #TOKEN_TYPE_TAG}
+ *       ({@code prompt}/{@code completion}/{@code precached})</li>
+ *   <li>{@value #PROMPT_CACHE_HIT_RATIO} - доля токенов промпта, взятых из кэша
+ *       ({@code precached_prompt_tokens / prompt_tokens})</li>
+ * </ul>
+ *
+ * <p>Интервалы между чанками записываются сразу по получении чанка, остальные метрики потокового ответа
+ * публикуются по его завершении, когда известна причина завершения. Если ответ завершился без нее,
+ * тег принимает значение {@code error} при ошибке и {@code none} в остальных случаях.
+ */
+public final class GigaChatModelMetrics {
+
+    public static final String TIME_TO_FIRST_CHUNK = "gigachat.chat.stream.time.to.first.chunk";
+    public static final String INTER_CHUNK_LATENCY = "gigachat.chat.stream.inter.chunk.latency";
+    public static final String COMPLETION_TOKENS_RATE = "gigachat.chat.completion.tokens.rate";
+    public static final String TOKENS = "gigachat.chat.tokens";
+    public static final String PROMPT_CACHE_HIT_RATIO = "gigachat.chat.prompt.cache.hit.ratio";
+
+    public static final String MODEL_TAG = "model";
+    public static final String FINISH_REASON_TAG = "finish.reason";
+    public static final String TOKEN_TYPE_TAG = "token.type";
+
+    private static final String UNKNOWN = "none";
+    private static final String ERROR = "error";
+
+    private final Meter.MeterProvider<Timer> timeToFirstChunk;
+    private final Meter.MeterProvider<Timer> interChunkLatency;
+    private final Meter.MeterProvider<DistributionSummary> completionTokensRate;
+    private final Meter.MeterProvider<Counter> tokens;
+    private final Meter.MeterProvider<DistributionSummary> promptCacheHitRatio;
+
+    public GigaChatModelMetrics(MeterRegistry meterRegistry) {
+        Assert.notNull(meterRegistry, "meterRegistry must not be null");
+        this.timeToFirstChunk = Timer.builder(TIME_TO_FIRST_CHUNK)
+                .description("Time from sending a streaming chat completion request to the first chunk")
+                .publishPercentileHistogram()
+                .withRegistry(meterRegistry);
+        this.interChunkLatency = Timer.builder(INTER_CHUNK_LATENCY)
+                .description("Time between consecutive chunks of a streaming chat completion")
+                .publishPercentileHistogram()
+                .withRegistry(meterRegistry);
+        this.completionTokensRate = DistributionSummary.builder(COMPLETION_TOKENS_RATE)
+                .description("Completion tokens generated per second")
+                .baseUnit("tokens/s")
+                .withRegistry(meterRegistry);
+        this.tokens = Counter.builder(TOKENS)
+                .description("Number of tokens used by chat completions")
+                .baseUnit("tokens")
+                .withRegistry(meterRegistry);
+        this.promptCacheHitRatio = DistributionSummary.builder(PROMPT_CACHE_HIT_RATIO)
+                .description("Share of prompt tokens taken from the GigaChat cache")
+                .withRegistry(meterRegistry);
+    }
+
+    /**
+     * Публикует метрики ответа на непотоковый запрос.
+     *
+     * @param model модель из запроса
+     * @param response ответ
+     * @param durationNanos длительность успешной попытки запроса
+     */
+    void recordCall(@Nullable String model, CompletionResponse response, long durationNanos) {
+        recordUsage(tags(model, response, finishReason(response)), response.getUsage(), durationNanos);
+    }
+
+    /**
+     * Добавляет к потоковому ответу сбор метрик, отдельно для каждой подписки.
+     *
+     * @param model модель из запроса
+     * @param response чанки ответа
+     */
+    Flux<CompletionResponse> instrumentStream(@Nullable String model, Flux<CompletionResponse> response) {
+        return Flux.defer(() -> {
+            StreamRecorder recorder = new StreamRecorder(model);
+            return response.doOnNext(recorder::onChunk).doFinally(recorder::complete);
+        });
+    }
+
+    private void recordUsage(Tags tags, @Nullable CompletionResponse.Usage usage, long generationNanos) {
+        if (usage == null) {
+            return;
+        }
+        int promptTokens = valueOf(usage.getPromptTokens());
+        int completionTokens = valueOf(usage.getCompletionTokens());
+        int precachedTokens = valueOf(usage.getPrecachedPromptTokens());
+        tokens.withTags(tags.and(TOKEN_TYPE_TAG, "prompt")).increment(promptTokens);
+        tokens.withTags(tags.and(TOKEN_TYPE_TAG, "completion")).increment(completionTokens);
+        tokens.withTags(tags.and(TOKEN_TYPE_TAG, "precached")).increment(precachedTokens);
+        if (promptTokens > 0) {
+            promptCacheHitRatio.withTags(tags).record((double) precachedTokens / promptTokens);
+        }
+        if (completionTokens > 0 && generationNanos > 0) {
+            completionTokensRate
+                    .withTags(tags)
+                    .record(completionTokens / (generationNanos / (double) TimeUnit.SECONDS.toNanos(1)));
+        }
+    }
+
+    private static Tags tags(@Nullable String model, CompletionResponse response, @Nullable String finishReason) {
+        return Tags.of(
+                MODEL_TAG, modelTag(model, response), FINISH_REASON_TAG, finishReason != null ? finishReason : UNKNOWN);
+    }
+
+    private static String modelTag(@Nullable String model, CompletionResponse response) {
+        String modelTag = model != null ? model : response.getModel();
+        return modelTag != null ? modelTag : UNKNOWN;
+    }
+
+    @Nullable
+    private static String finishReason(CompletionResponse response) {
+        if (CollectionUtils.isEmpty(response.getChoices())) {
+            return null;
+        }
+        for (CompletionResponse.Choice choice : response.getChoices()) {
+            if (choice.getFinishReason() != null) {
+                return choice.getFinishReason();
+            }
+        }
+        return null;
+    }
+
+    private static int valueOf(@Nullable Integer value) {
+        return value != null ? value : 0;
+    }
+
+    /**
+     * Тайминги одного потокового ответа.
+     */
+    private final class StreamRecorder {
+        @Nullable
+        private final String model;
+
+        private final long startNanos = System.nanoTime();
+        private long firstChunkNanos;
+        private long lastChunkNanos;
+
+        @Nullable
+        private Timer interChunk;
+
+        @Nullable
+        private CompletionResponse lastResponse;
+
+        @Nullable
+        private String finishReason;
+
+        @Nullable
+        private CompletionResponse.Usage usage;
+
+        StreamRecorder(@Nullable String model) {
+            this.model = model;
+        }
+
+        void onChunk(CompletionResponse chunk) {
+            long now = System.nanoTime();
+            if (this.interChunk == null) {
+                this.firstChunkNanos = now;
+                this.interChunk = interChunkLatency.withTags(MODEL_TAG, modelTag(this.model, chunk));
+            } else {
+                this.interChunk.record(now - this.lastChunkNanos, TimeUnit.NANOSECONDS);
+            }
+            this.lastChunkNanos = now;
+            this.lastResponse = chunk;
+            String chunkFinishReason = finishReason(chunk);
+            if (chunkFinishReason != null) {
+                this.finishReason = chunkFinishReason;
+            }
+            if (chunk.getUsage() != null) {
+                this.usage = chunk.getUsage();
+            }
+        }
+
+        void complete(SignalType signal) {
+            if (this.lastResponse == null) {
+                return;
+            }
+            String reason = this.finishReason;
+            if (reason == null && signal == SignalType.ON_ERROR) {
+                reason = ERROR;
+            }
+            Tags tags = tags(this.model, this.lastResponse, reason);
+            long ttft = this.firstChunkNanos - this.startNanos;
+            timeToFirstChunk.withTags(tags).record(ttft, TimeUnit.NANOSECONDS);
+            long generationNanos = this.lastChunkNanos - this.firstChunkNanos;
+            recordUsage(
+                    tags, this.usage, generationNanos > 0 ? generationNanos : this.lastChunkNanos - this.startNanos);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package chat.giga.springai;
+
+import chat.giga.springai.api.chat.completion.CompletionRequest;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.model.ModelOptionsUtils;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Объединяет опции запроса с опциями по умолчанию и переносит их в {@link CompletionRequest}.
+ *
+ * <p>Результат тот же, что у {@link ModelOptionsUtils#copyToTarget} и {@link ModelOptionsUtils#merge},
+ * но поля копируются напрямую, без преобразования объектов в {@code Map} через Jackson и рефлексию.
+ * Опции по умолчанию фиксируются один раз при создании.
+ *
+ * <p>При добавлении нового параметра в {@link GigaChatOptions} или {@link CompletionRequest}
+ * его нужно добавить и сюда.
+ */
+public final class GigaChatOptionsMerger {
+
+    private final GigaChatOptions defaults;
+
+    public GigaChatOptionsMerger(GigaChatOptions defaultOptions) {
+        Assert.notNull(defaultOptions, "defaultOptions cannot be null");
+        this.defaults = defaultOptions.copy();
+        this.defaults.setHttpHeaders(copyOf(defaultOptions.getHttpHeaders()));
+    }
+
+    /**
+     * Объединяет опции запроса с опциями по умолчанию: заданные в запросе параметры имеют приоритет.
+     *
+     * @param runtimeOptions опции запроса, могут быть {@code null}
+     * @return новый экземпляр опций
+     */
+    public GigaChatOptions merge(@Nullable ChatOptions runtimeOptions) {
+        GigaChatOptions runtime = toGigaChatOptions(runtimeOptions);
+        GigaChatOptions merged = new GigaChatOptions();
+        if (runtime == null) {
+            copyApiOptions(this.defaults, merged);
+            merged.setHttpHeaders(copyOf(this.defaults.getHttpHeaders()));
+            merged.setInternalToolExecutionEnabled(this.defaults.getInternalToolExecutionEnabled());
+            merged.setToolNames(this.defaults.getToolNames());
+            merged.setToolCallbacks(this.defaults.getToolCallbacks());
+            merged.setToolContext(this.defaults.getToolContext());
+            return merged;
+        }
+
+        merged.setModel(ModelOptionsUtils.mergeOption(runtime.getModel(), this.defaults.getModel()));
+        merged.setTemperature(ModelOptionsUtils.mergeOption(runtime.getTemperature(), this.defaults.getTemperature()));
+        merged.setTopP(ModelOptionsUtils.mergeOption(runtime.getTopP(), this.defaults.getTopP()));
+        merged.setMaxTokens(ModelOptionsUtils.mergeOption(runtime.getMaxTokens(), this.defaults.getMaxTokens()));
+        merged.setRepetitionPenalty(
+                ModelOptionsUtils.mergeOption(runtime.getRepetitionPenalty(), this.defaults.getRepetitionPenalty()));
+        merged.setUpdateInterval(
+                ModelOptionsUtils.mergeOption(runtime.getUpdateInterval(), this.defaults.getUpdateInterval()));
+        merged.setFunctionCallMode(
+                ModelOptionsUtils.mergeOption(runtime.getFunctionCallMode(), this.defaults.getFunctionCallMode()));
+        merged.setFunctionCallParam(
+                ModelOptionsUtils.mergeOption(runtime.getFunctionCallParam(), this.defaults.getFunctionCallParam()));
+        merged.setProfanityCheck(
+                ModelOptionsUtils.mergeOption(runtime.getProfanityCheck(), this.defaults.getProfanityCheck()));
+        // как и при слиянии через ModelOptionsUtils, заголовки запроса (даже пустые) заменяют заголовки по умолчанию
+        merged.setHttpHeaders(
+                copyOf(runtime.getHttpHeaders() != null ? runtime.getHttpHeaders() : this.defaults.getHttpHeaders()));
+
+        merged.setInternalToolExecutionEnabled(ModelOptionsUtils.mergeOption(
+                runtime.getInternalToolExecutionEnabled(), this.defaults.getInternalToolExecutionEnabled()));
+        merged.setToolNames(
+                ToolCallingChatOptions.mergeToolNames(runtime.getToolNames(), this.defaults.getToolNames()));
+        merged.setToolCallbacks(ToolCallingChatOptions.mergeToolCallbacks(
+                runtime.getToolCallbacks(), this.defaults.getToolCallbacks()));
+        merged.setToolContext(
+                ToolCallingChatOptions.mergeToolContext(runtime.getToolContext(), this.defaults.getToolContext()));
+        return merged;
+    }
+
+    /**
+     * Создает запрос к API с параметрами из опций.
+     *
+     * @param options опции, полученные из {@link #merge(ChatOptions)}
+     * @param messages сообщения запроса
+     * @param stream потоковый ли запрос
+     */
+    public static CompletionRequest toRequest(
+            GigaChatOptions options, List<CompletionRequest.Message> messages, boolean stream) {
+        return CompletionRequest.builder().model(options.getModel()).messages(messages).stream(stream)
+                .temperature(options.getTemperature())
+                .topP(options.getTopP())
+                .maxTokens(options.getMaxTokens())
+                .repetitionPenalty(options.getRepetitionPenalty())
+                .updateInterval(options.getUpdateInterval())
+                .profanityCheck(options.getProfanityCheck())
+                .build();
+    }
+
+    /**
+     * Аналог {@code ModelOptionsUtils.copyToTarget(options, ToolCallingChatOptions.class, GigaChatOptions.class)}:
+     * опции GigaChat возвращаются как есть, у остальных копируются общие параметры и параметры инструментов.
+     */
+    @Nullable
+    private static GigaChatOptions toGigaChatOptions(@Nullable ChatOptions options) {
+        if (options == null || options instanceof GigaChatOptions) {
+            return (GigaChatOptions) options;
+        }
+        GigaChatOptions gigaChatOptions = new GigaChatOptions();
+        gigaChatOptions.setModel(options.getModel());
+        gigaChatOptions.setTemperature(options.getTemperature());
+        gigaChatOptions.setTopP(options.getTopP());
+        gigaChatOptions.setMaxTokens(options.getMaxTokens());
+        if (options instanceof ToolCallingChatOptions toolCallingChatOptions) {
+            gigaChatOptions.setInternalToolExecutionEnabled(toolCallingChatOptions.getInternalToolExecutionEnabled());
+            if (toolCallingChatOptions.getToolCallbacks() != null) {
+                gigaChatOptions.setToolCallbacks(toolCallingChatOptions.getToolCallbacks());
+            }
+            if (toolCallingChatOptions.getToolNames() != null) {
+                gigaChatOptions.setToolNames(toolCallingChatOptions.getToolNames());
+            }
+            gigaChatOptions.setToolContext(toolCallingChatOptions.getToolContext());
+        }
+        return gigaChatOptions;
+    }
+
+    private static void copyApiOptions(GigaChatOptions source, GigaChatOptions target) {
+        target.setModel(source.getModel());
+        target.setTemperature(source.getTemperature());
+        target.setTopP(source.getTopP());
+        target.setMaxTokens(source.getMaxTokens());
+        target.setRepetitionPenalty(source.getRepetitionPenalty());
+        target.setUpdateInterval(source.getUpdateInterval());
+        target.setFunctionCallMode(source.getFunctionCallMode());
+        target.setFunctionCallParam(source.getFunctionCallParam());
+        target.setProfanityCheck(source.getProfanityCheck());
+    }
+
+    private static Map<String, String> copyOf(@Nullable Map<String, String> headers) {
+        return headers != null ? new HashMap<>(headers) : new HashMap<>();
+    }
+}
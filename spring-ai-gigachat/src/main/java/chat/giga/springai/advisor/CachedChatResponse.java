@@ -0,0 +1,111 @@
+package chat.giga.springai.advisor;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatGenerationMetadata;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.lang.Nullable;
+import org.springframework.util.CollectionUtils;
+
+/**
+ * Ответ модели в кэше {@link GigaChatResponseCacheAdvisor} и {@link GigaChatSemanticCacheAdvisor}: текст и причина завершения каждого варианта ответа,
+ * id и модель. Usage не сохраняется - ответ из кэша не расходует токены.
+ *
+ * @param id id исходного ответа
+ * @param model модель, которая сформировала ответ
+ * @param generations варианты ответа
+ */
+public record CachedChatResponse(
+        @Nullable String id, @Nullable String model, List<CachedGeneration> generations) {
+
+    /**
+     * @param text текст ответа
+     * @param finishReason причина завершения генерации
+     */
+    public record CachedGeneration(String text, @Nullable String finishReason) {}
+
+    /**
+     * @return ответ для кэша или {@code null}, если ответ нельзя кэшировать: он пустой или содержит вызов
+     * инструмента
+     */
+    @Nullable
+    public static CachedChatResponse of(@Nullable ChatResponse chatResponse) {
+        if (chatResponse == null || CollectionUtils.isEmpty(chatResponse.getResults())) {
+            return null;
+        }
+        List<CachedGeneration> generations = new ArrayList<>();
+        for (Generation generation : chatResponse.getResults()) {
+            AssistantMessage output = generation.getOutput();
+            if (output == null || output.hasToolCalls() || output.getText() == null) {
+                return null;
+            }
+            generations.add(new CachedGeneration(
+                    output.getText(), generation.getMetadata().getFinishReason()));
+        }
+        ChatResponseMetadata metadata = chatResponse.getMetadata();
+        return new CachedChatResponse(metadata.getId(), metadata.getModel(), generations);
+    }
+
+    /**
+     * Восстанавливает ответ; в metadata ответа добавляется {@link GigaChatResponseCacheAdvisor#CACHED}.
+     */
+    public ChatResponse toChatResponse() {
+        List<Generation> results = new ArrayList<>();
+        for (CachedGeneration generation : this.generations) {
+            results.add(generation(generation.text(), generation.finishReason()));
+        }
+        return ChatResponse.builder().generations(results).metadata(metadata()).build();
+    }
+
+    /**
+     * Разбивает первый вариант ответа на чанки для отдачи в {@code stream}; причина завершения
+     * передается в последнем чанке.
+     *
+     * @param chunkSize размер чанка в символах
+     */
+    List<ChatResponse> toChunks(int chunkSize) {
+        CachedGeneration generation = this.generations.get(0);
+        String text = generation.text();
+        ChatResponseMetadata metadata = metadata();
+        List<ChatResponse> chunks = new ArrayList<>();
+        int start = 0;
+        do {
+            // граница чанка не должна разрезать суррогатную пару
+            int end = start;
+            for (int i = 0; i < chunkSize && end < text.length(); i++) {
+                end += Character.charCount(text.codePointAt(end));
+            }
+            boolean last = end == text.length();
+            chunks.add(ChatResponse.builder()
+                    .generations(
+                            List.of(generation(text.substring(start, end), last ? generation.finishReason() : null)))
+                    .metadata(metadata)
+                    .build());
+            start = end;
+        } while (start < text.length());
+        return chunks;
+    }
+
+    static Generation generation(String text, @Nullable String finishReason) {
+        ChatGenerationMetadata.Builder metadata = ChatGenerationMetadata.builder();
+        if (finishReason != null) {
+            metadata.finishReason(finishReason);
+        }
+        return new Generation(new AssistantMessage(text), metadata.build());
+    }
+
+    ChatResponseMetadata metadata() {
+        ChatResponseMetadata.Builder metadata =
+                ChatResponseMetadata.builder().keyValue(GigaChatResponseCacheAdvisor.CACHED, true);
+        if (this.id != null) {
+            metadata.id(this.id);
+        }
+        if (this.model != null) {
+            metadata.model(this.model);
+        }
+        return metadata.build();
+    }
+}
@@ -0,0 +1,205 @@
+package chat.giga.springai.advisor;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Хранилище ответов на диске, сохраняется между перезапусками приложения. Каждый ответ хранится
+ * в отдельном JSON-файле {@code <ключ>.json} в каталоге {@code directory}.
+ *
+ * <p>Размер ограничен: при переполнении удаляются файлы, которые дольше всего не читались. Порядок
+ * обращений хранится в памяти и восстанавливается при запуске по времени изменения файлов, в которое
+ * записывается время последнего чтения; каталог просматривается только при создании хранилища.
+ * Там же удаляются временные файлы старше минуты, оставшиеся от прерванной записи. Ошибки чтения и записи
+ * не прерывают запрос к модели: они логируются, а запись считается отсутствующей.
+ */
+@Slf4j
+public class FileResponseCacheStore implements GigaChatResponseCacheStore {
+
+    public static final int DEFAULT_MAX_SIZE = 10_000;
+
+    private static final String SUFFIX = ".json";
+    private static final String TMP_SUFFIX = ".tmp";
+    // более свежие временные файлы могут еще записываться другим экземпляром с тем же каталогом
+    private static final Duration STALE_TMP_AGE = Duration.ofMinutes(1);
+    private static final ObjectMapper OBJECT_MAPPER =
+            new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final Path directory;
+    private final int maxSize;
+    private final Clock clock;
+
+    /**
+     * Ключи записей на диске в порядке обращения, от давних к последним.
+     */
+    private final LinkedHashMap<String, Boolean> index = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long evictions;
+
+    public FileResponseCacheStore(Path directory) {
+        this(directory, DEFAULT_MAX_SIZE);
+    }
+
+    public FileResponseCacheStore(Path directory, int maxSize) {
+        this(directory, maxSize, Clock.systemUTC());
+    }
+
+    FileResponseCacheStore(Path directory, int maxSize, Clock clock) {
+        Assert.notNull(directory, "directory must not be null");
+        Assert.isTrue(maxSize > 0, "maxSize must be greater than 0");
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.clock = clock;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create response cache directory " + directory, e);
+        }
+        loadIndex();
+    }
+
+    @Nullable
+    @Override
+    public CachedChatResponse get(String key) {
+        Path file = file(key);
+        try {
+            FileEntry entry = OBJECT_MAPPER.readValue(file.toFile(), FileEntry.class);
+            if (entry.expiresAt() <= clock.millis()) {
+                remove(key, file);
+                return null;
+            }
+            synchronized (this) {
+                index.put(key, Boolean.TRUE);
+            }
+            // время чтения сохраняется на диске, чтобы восстановить порядок после перезапуска
+            Files.setLastModifiedTime(file, FileTime.fromMillis(clock.millis()));
+            return entry.response();
+        } catch (NoSuchFileException | FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            log.warn("Failed to read cached response {}: {}", file, e.getMessage());
+            remove(key, file);
+            return null;
+        }
+    }
+
+    @Override
+    public void put(String key, CachedChatResponse response, Duration ttl) {
+        Assert.notNull(key, "key must not be null");
+        Assert.notNull(response, "response must not be null");
+        Path file = file(key);
+        try {
+            // запись во временный файл и переименование, чтобы читатели не видели файл частично записанным
+            Path tmp = Files.createTempFile(directory, key, TMP_SUFFIX);
+            try {
+                OBJECT_MAPPER.writeValue(tmp.toFile(), new FileEntry(clock.millis() + ttl.toMillis(), response));
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            synchronized (this) {
+                index.put(key, Boolean.TRUE);
+                evict();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to write cached response {}: {}", file, e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized long evictionCount() {
+        return evictions;
+    }
+
+    /**
+     * Удаляет записи, к которым дольше всего не обращались, пока размер превышает {@link #maxSize}.
+     */
+    private void evict() {
+        Iterator<String> keys = index.keySet().iterator();
+        while (index.size() > maxSize && keys.hasNext()) {
+            String key = keys.next();
+            keys.remove();
+            if (delete(file(key))) {
+                evictions++;
+            }
+        }
+    }
+
+    private synchronized void remove(String key, Path file) {
+        index.remove(key);
+        delete(file);
+    }
+
+    /**
+     * Восстанавливает порядок обращений по времени изменения файлов и удаляет оставшиеся временные файлы.
+     */
+    private void loadIndex() {
+        List<Path> files;
+        try (Stream<Path> paths = Files.list(directory)) {
+            files = paths.filter(path -> {
+                        String name = path.getFileName().toString();
+                        if (name.endsWith(TMP_SUFFIX)) {
+                            if (lastModified(path).toMillis() < clock.millis() - STALE_TMP_AGE.toMillis()) {
+                                delete(path);
+                            }
+                            return false;
+                        }
+                        return name.endsWith(SUFFIX);
+                    })
+                    .collect(Collectors.toCollection(ArrayList::new));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list response cache directory " + directory, e);
+        }
+        files.sort(Comparator.comparing(FileResponseCacheStore::lastModified));
+        synchronized (this) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                index.put(name.substring(0, name.length() - SUFFIX.length()), Boolean.TRUE);
+            }
+            evict();
+        }
+    }
+
+    private Path file(String key) {
+        return directory.resolve(key + SUFFIX);
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static boolean delete(Path file) {
+        try {
+            return Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete cached response {}: {}", file, e.getMessage());
+            return false;
+        }
+    }
+
+    record FileEntry(long expiresAt, CachedChatResponse response) {}
+}
@@ -0,0 +1,463 @@
+package chat.giga.springai.advisor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.core.Ordered;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Advisor, который ограничивает частоту запросов и расход токенов отдельно для каждого ключа (тенанта).
+ *
+ * <p>Ключ берется из контекста запроса по {@link #TENANT_ID} (значение может быть строкой или
+ * {@link Supplier}), без ключа запрос относится к {@link #DEFAULT_TENANT}. Для каждого ключа действуют
+ * два token bucket из {@link Quota}: запросов в секунду и токенов в минуту. Перед запросом резервируется
+ * один запрос и оценка токенов промпта ({@link TokenCountEstimator}), после ответа дополнительно
+ * списываются фактически израсходованные токены сверх оценки.
+ *
+ * <p>Если квоты не хватает, запрос ждет ее пополнения не дольше {@code maxDelay}, иначе завершается
+ * {@link GigaChatRateLimitExceededException}. Метрики с тегом {@value #TENANT_TAG}:
+ * <ul>
+ *   <li>{@value #DELAY_TIMER} - время ожидания квоты</li>
+ *   <li>{@value #REJECTED_COUNTER} - отклоненные запросы с тегом {@value #LIMIT_TAG}
+ *       ({@code requests}/{@code tokens})</li>
+ * </ul>
+ *
+ * <p>Сами бакеты не используют блокировки: состояние каждого - одно значение, обновляемое через CAS. Бакеты тенантов,
+ * не использованных дольше {@code idleTimeout} и уже полностью пополненных, удаляются вместе с их метриками.
+ * Число тенантов ограничено {@code maxTenants}: при превышении вытесняются давно не использованные.
+ */
+public class GigaChatRateLimitAdvisor implements CallAdvisor, StreamAdvisor {
+    public static final String TENANT_ID = "tenant_id";
+    public static final String DEFAULT_TENANT = "default";
+
+    public static final String DELAY_TIMER = "gigachat.rate.limit.delay";
+    public static final String REJECTED_COUNTER = "gigachat.rate.limit.rejected";
+    public static final String TENANT_TAG = "tenant";
+    public static final String LIMIT_TAG = "limit";
+
+    private static final long TOKENS_PERIOD_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Quota defaultQuota;
+    private final Map<String, Quota> quotas;
+    private final Duration maxDelay;
+    private final TokenCountEstimator tokenCountEstimator;
+    private final int order;
+    private final LongSupplier nanoClock;
+    private final int maxTenants;
+    private final long idleTimeoutNanos;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, TenantBuckets> buckets = new LinkedHashMap<>(16, 0.75f, true);
+    private final Meter.MeterProvider<Timer> delayTimer;
+    private final Meter.MeterProvider<Counter> rejectedCounter;
+
+    private GigaChatRateLimitAdvisor(Builder builder) {
+        Assert.notNull(builder.defaultQuota, "defaultQuota cannot be null");
+        Assert.notNull(builder.maxDelay, "maxDelay cannot be null");
+        Assert.isTrue(!builder.maxDelay.isNegative(), "maxDelay must not be negative");
+        Assert.notNull(builder.tokenCountEstimator, "tokenCountEstimator cannot be null");
+        Assert.notNull(builder.meterRegistry, "meterRegistry cannot be null");
+        Assert.isTrue(builder.maxTenants > 0, "maxTenants must be greater than 0");
+        Assert.notNull(builder.idleTimeout, "idleTimeout cannot be null");
+        Assert.isTrue(!builder.idleTimeout.isNegative(), "idleTimeout must not be negative");
+        this.defaultQuota = builder.defaultQuota;
+        this.quotas = Map.copyOf(builder.quotas);
+        this.maxDelay = builder.maxDelay;
+        this.tokenCountEstimator = builder.tokenCountEstimator;
+        this.order = builder.order;
+        this.nanoClock = builder.nanoClock;
+        this.maxTenants = builder.maxTenants;
+        this.idleTimeoutNanos = builder.idleTimeout.toNanos();
+        this.meterRegistry = builder.meterRegistry;
+        this.delayTimer = Timer.builder(DELAY_TIMER)
+                .description("Time a chat request waited for the rate limit quota")
+                .withRegistry(builder.meterRegistry);
+        this.rejectedCounter = Counter.builder(REJECTED_COUNTER)
+                .description("Number of chat requests rejected by the rate limit")
+                .withRegistry(builder.meterRegistry);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest chatClientRequest, CallAdvisorChain callAdvisorChain) {
+        Reservation reservation = reserve(chatClientRequest);
+        if (reservation.delayNanos() > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(reservation.delayNanos());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                reservation.refund();
+                throw new GigaChatRateLimitExceededException(
+                        "Interrupted while waiting for the rate limit of tenant " + reservation.tenant(), ex);
+            }
+        }
+        ChatClientResponse response = callAdvisorChain.nextCall(chatClientRequest);
+        reservation.settle(totalTokens(response));
+        return response;
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(
+            ChatClientRequest chatClientRequest, StreamAdvisorChain streamAdvisorChain) {
+        return Flux.defer(() -> {
+            Reservation reservation = reserve(chatClientRequest);
+            AtomicLong totalTokens = new AtomicLong();
+            Flux<ChatClientResponse> response = streamAdvisorChain
+                    .nextStream(chatClientRequest)
+                    .doOnNext(chunk -> {
+                        long tokens = totalTokens(chunk);
+                        if (tokens > 0) {
+                            totalTokens.set(tokens);
+                        }
+                    })
+                    .doFinally(signal -> reservation.settle(totalTokens.get()));
+            if (reservation.delayNanos() > 0) {
+                return Mono.delay(Duration.ofNanos(reservation.delayNanos()))
+                        .doOnCancel(reservation::refund)
+                        .thenMany(response);
+            }
+            return response;
+        });
+    }
+
+    @Override
+    public String getName() {
+        return this.getClass().getSimpleName();
+    }
+
+    @Override
+    public int getOrder() {
+        return this.order;
+    }
+
+    private Reservation reserve(ChatClientRequest chatClientRequest) {
+        String tenant = tenantId(chatClientRequest.context());
+        long now = this.nanoClock.getAsLong();
+        TenantBuckets tenantBuckets = tenantBuckets(tenant, now);
+        long maxDelayNanos = this.maxDelay.toNanos();
+
+        long requestsDelay = 0;
+        if (tenantBuckets.requests() != null) {
+            requestsDelay = tenantBuckets.requests().reserve(1, now, maxDelayNanos);
+            if (requestsDelay == TokenBucket.REJECTED) {
+                throw rejected(tenant, "requests");
+            }
+        }
+        long estimatedTokens = 0;
+        long tokensDelay = 0;
+        if (tenantBuckets.tokens() != null) {
+            estimatedTokens = estimateTokens(chatClientRequest);
+            tokensDelay = tenantBuckets.tokens().reserve(estimatedTokens, now, maxDelayNanos);
+            if (tokensDelay == TokenBucket.REJECTED) {
+                if (tenantBuckets.requests() != null) {
+                    tenantBuckets.requests().refund(1);
+                }
+                throw rejected(tenant, "tokens");
+            }
+        }
+        long delay = Math.max(requestsDelay, tokensDelay);
+        this.delayTimer.withTags(TENANT_TAG, tenant).record(delay, TimeUnit.NANOSECONDS);
+        return new Reservation(tenant, tenantBuckets, estimatedTokens, delay);
+    }
+
+    private TenantBuckets tenantBuckets(String tenant, long now) {
+        synchronized (this.buckets) {
+            TenantBuckets tenantBuckets = this.buckets.computeIfAbsent(tenant, this::createBuckets);
+            tenantBuckets.lastAccess = now;
+            // в порядке доступа первыми идут давно не использованные тенанты
+            Iterator<Map.Entry<String, TenantBuckets>> iterator =
+                    this.buckets.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, TenantBuckets> eldest = iterator.next();
+                if (eldest.getValue() == tenantBuckets) {
+                    break;
+                }
+                if (this.buckets.size() <= this.maxTenants && !isIdle(eldest.getValue(), now)) {
+                    break;
+                }
+                iterator.remove();
+                removeMeters(eldest.getKey());
+            }
+            return tenantBuckets;
+        }
+    }
+
+    private boolean isIdle(TenantBuckets tenantBuckets, long now) {
+        return now - tenantBuckets.lastAccess >= this.idleTimeoutNanos
+                && (tenantBuckets.requests() == null || tenantBuckets.requests().isFull(now))
+                && (tenantBuckets.tokens() == null || tenantBuckets.tokens().isFull(now));
+    }
+
+    private void removeMeters(String tenant) {
+        this.meterRegistry.find(DELAY_TIMER).tag(TENANT_TAG, tenant).meters().forEach(this.meterRegistry::remove);
+        this.meterRegistry
+                .find(REJECTED_COUNTER)
+                .tag(TENANT_TAG, tenant)
+                .meters()
+                .forEach(this.meterRegistry::remove);
+    }
+
+    int tenantCount() {
+        synchronized (this.buckets) {
+            return this.buckets.size();
+        }
+    }
+
+    private GigaChatRateLimitExceededException rejected(String tenant, String limit) {
+        this.rejectedCounter.withTags(TENANT_TAG, tenant, LIMIT_TAG, limit).increment();
+        return new GigaChatRateLimitExceededException(
+                "Rate limit of %s exceeded for tenant %s".formatted(limit, tenant));
+    }
+
+    private TenantBuckets createBuckets(String tenant) {
+        Quota quota = this.quotas.getOrDefault(tenant, this.defaultQuota);
+        long now = this.nanoClock.getAsLong();
+        TokenBucket requests = null;
+        if (quota.requestsPerSecond() > 0) {
+            // дробная частота (например, 0.5 запроса в секунду) - один запрос за 1 / rps секунд
+            long capacity = (long) Math.max(1, Math.ceil(quota.requestsPerSecond()));
+            long period = (long) (capacity * TimeUnit.SECONDS.toNanos(1) / quota.requestsPerSecond());
+            requests = new TokenBucket(capacity, period, now);
+        }
+        TokenBucket tokens = null;
+        if (quota.tokensPerMinute() > 0) {
+            tokens = new TokenBucket(quota.tokensPerMinute(), TOKENS_PERIOD_NANOS, now);
+        }
+        return new TenantBuckets(requests, tokens);
+    }
+
+    private long estimateTokens(ChatClientRequest chatClientRequest) {
+        long tokens = 0;
+        for (Message message : chatClientRequest.prompt().getInstructions()) {
+            String text = message.getText();
+            if (text != null && !text.isEmpty()) {
+                tokens += this.tokenCountEstimator.estimate(text);
+            }
+        }
+        return tokens;
+    }
+
+    private static String tenantId(Map<String, Object> context) {
+        Object value = context.get(TENANT_ID);
+        if (value instanceof Supplier<?> supplier) {
+            value = supplier.get();
+        }
+        return value != null ? value.toString() : DEFAULT_TENANT;
+    }
+
+    private static long totalTokens(@Nullable ChatClientResponse response) {
+        if (response == null) {
+            return 0;
+        }
+        ChatResponse chatResponse = response.chatResponse();
+        if (chatResponse == null || chatResponse.getMetadata() == null) {
+            return 0;
+        }
+        Usage usage = chatResponse.getMetadata().getUsage();
+        return usage != null && usage.getTotalTokens() != null ? usage.getTotalTokens() : 0;
+    }
+
+    /**
+     * Квота ключа; {@code 0} - без ограничения.
+     *
+     * @param requestsPerSecond запросов в секунду
+     * @param tokensPerMinute токенов (промпт и ответ) в минуту
+     */
+    public record Quota(double requestsPerSecond, long tokensPerMinute) {
+        public Quota {
+            Assert.isTrue(requestsPerSecond >= 0, "requestsPerSecond must not be negative");
+            Assert.isTrue(tokensPerMinute >= 0, "tokensPerMinute must not be negative");
+        }
+    }
+
+    private static final class TenantBuckets {
+        @Nullable
+        private final TokenBucket requests;
+
+        @Nullable
+        private final TokenBucket tokens;
+
+        // время последнего запроса, под блокировкой buckets
+        private long lastAccess;
+
+        TenantBuckets(@Nullable TokenBucket requests, @Nullable TokenBucket tokens) {
+            this.requests = requests;
+            this.tokens = tokens;
+        }
+
+        @Nullable
+        TokenBucket requests() {
+            return this.requests;
+        }
+
+        @Nullable
+        TokenBucket tokens() {
+            return this.tokens;
+        }
+    }
+
+    private final class Reservation {
+        private final String tenant;
+        private final TenantBuckets buckets;
+        private final long estimatedTokens;
+        private final long delayNanos;
+        private boolean done;
+
+        Reservation(String tenant, TenantBuckets buckets, long estimatedTokens, long delayNanos) {
+            this.tenant = tenant;
+            this.buckets = buckets;
+            this.estimatedTokens = estimatedTokens;
+            this.delayNanos = delayNanos;
+        }
+
+        String tenant() {
+            return this.tenant;
+        }
+
+        long delayNanos() {
+            return this.delayNanos;
+        }
+
+        /**
+         * Списывает токены, израсходованные сверх оценки.
+         */
+        void settle(long totalTokens) {
+            if (this.done) {
+                return;
+            }
+            this.done = true;
+            if (this.buckets.tokens() != null && totalTokens > this.estimatedTokens) {
+                this.buckets.tokens().consume(totalTokens - this.estimatedTokens, nanoClock.getAsLong());
+            }
+        }
+
+        /**
+         * Возвращает квоту запроса, который так и не был отправлен.
+         */
+        void refund() {
+            if (this.done) {
+                return;
+            }
+            this.done = true;
+            if (this.buckets.requests() != null) {
+                this.buckets.requests().refund(1);
+            }
+            if (this.buckets.tokens() != null) {
+                this.buckets.tokens().refund(this.estimatedTokens);
+            }
+        }
+    }
+
+    public static class Builder {
+        private Quota defaultQuota = new Quota(0, 0);
+        private final Map<String, Quota> quotas = new HashMap<>();
+        private Duration maxDelay = Duration.ZERO;
+        private TokenCountEstimator tokenCountEstimator;
+        private MeterRegistry meterRegistry = Metrics.globalRegistry;
+        private int order = Ordered.HIGHEST_PRECEDENCE;
+        private LongSupplier nanoClock = System::nanoTime;
+        private int maxTenants = 10_000;
+        private Duration idleTimeout = Duration.ofMinutes(10);
+
+        private Builder() {}
+
+        /**
+         * Квота для ключей, у которых нет своей, по умолчанию без ограничений.
+         */
+        public Builder defaultQuota(Quota defaultQuota) {
+            this.defaultQuota = defaultQuota;
+            return this;
+        }
+
+        public Builder quota(String tenantId, Quota quota) {
+            Assert.hasText(tenantId, "tenantId must not be empty");
+            Assert.notNull(quota, "quota cannot be null");
+            this.quotas.put(tenantId, quota);
+            return this;
+        }
+
+        /**
+         * Сколько запрос может ждать пополнения квоты, по умолчанию не ждет и сразу отклоняется.
+         */
+        public Builder maxDelay(Duration maxDelay) {
+            this.maxDelay = maxDelay;
+            return this;
+        }
+
+        public Builder tokenCountEstimator(TokenCountEstimator tokenCountEstimator) {
+            this.tokenCountEstimator = tokenCountEstimator;
+            return this;
+        }
+
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        /**
+         * По умолчанию advisor выполняется первым, чтобы отклоненный запрос не доходил до остальных.
+         */
+        public Builder order(int order) {
+            this.order = order;
+            return this;
+        }
+
+        /**
+         * Максимум тенантов, для которых хранятся бакеты, по умолчанию 10 000. При превышении вытесняются давно
+         * не использованные, их квота начинается заново.
+         */
+        public Builder maxTenants(int maxTenants) {
+            this.maxTenants = maxTenants;
+            return this;
+        }
+
+        /**
+         * Через сколько после последнего запроса удаляются полностью пополненные бакеты тенанта и его метрики,
+         * по умолчанию 10 минут.
+         */
+        public Builder idleTimeout(Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+            return this;
+        }
+
+        Builder nanoClock(LongSupplier nanoClock) {
+            this.nanoClock = nanoClock;
+            return this;
+        }
+
+        public GigaChatRateLimitAdvisor build() {
+            if (this.tokenCountEstimator == null) {
+                this.tokenCountEstimator = new JTokkitTokenCountEstimator();
+            }
+            return new GigaChatRateLimitAdvisor(this);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package chat.giga.springai.advisor;
+
+import org.springframework.ai.retry.TransientAiException;
+
+/**
+ * Запрос отклонен {@link GigaChatRateLimitAdvisor}: квота ключа исчерпана и не пополнится
+ * за допустимое время ожидания.
+ */
+public class GigaChatRateLimitExceededException extends TransientAiException {
+
+    public GigaChatRateLimitExceededException(String message) {
+        super(message);
+    }
+
+    public GigaChatRateLimitExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,189 @@
+package chat.giga.springai.advisor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import java.time.Duration;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.core.Ordered;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+
+/**
+ * Advisor, который кэширует ответы модели: на повторный запрос с теми же сообщениями, опциями и
+ * инструментами ответ возвращается из {@link GigaChatResponseCacheStore} без обращения к GigaChat.
+ *
+ * <p>Ключ - SHA-256 от канонического JSON промпта. Не кэшируются запросы с {@code toolContext} и ответы
+ * с вызовом инструмента. Для {@code stream} ответ из кэша отдается чанками по {@code streamChunkSize}
+ * символов (первый вариант ответа), а в кэш попадает только полностью полученный поток. В metadata
+ * ответа из кэша есть ключ {@value #CACHED}.
+ *
+ * <p>Метрики: {@value #REQUESTS_COUNTER} с тегом {@code result} ({@code hit}/{@code miss}) и
+ * {@value #EVICTIONS_COUNTER} - записи, вытесненные из-за ограничения размера хранилища.
+ */
+public class GigaChatResponseCacheAdvisor implements CallAdvisor, StreamAdvisor {
+    public static final String CACHED = "cached";
+
+    public static final String REQUESTS_COUNTER = "gigachat.response.cache.requests";
+    public static final String EVICTIONS_COUNTER = "gigachat.response.cache.evictions";
+
+    private final GigaChatResponseCacheStore store;
+    private final Duration ttl;
+    private final int streamChunkSize;
+    private final int order;
+    private final Counter hits;
+    private final Counter misses;
+
+    private GigaChatResponseCacheAdvisor(Builder builder) {
+        Assert.notNull(builder.store, "store cannot be null");
+        Assert.notNull(builder.ttl, "ttl cannot be null");
+        Assert.isTrue(!builder.ttl.isNegative() && !builder.ttl.isZero(), "ttl must be positive");
+        Assert.isTrue(builder.streamChunkSize > 0, "streamChunkSize must be greater than 0");
+        Assert.notNull(builder.meterRegistry, "meterRegistry cannot be null");
+        this.store = builder.store;
+        this.ttl = builder.ttl;
+        this.streamChunkSize = builder.streamChunkSize;
+        this.order = builder.order;
+        this.hits = Counter.builder(REQUESTS_COUNTER)
+                .tag("result", "hit")
+                .description("Number of chat requests answered from the response cache")
+                .register(builder.meterRegistry);
+        this.misses = Counter.builder(REQUESTS_COUNTER)
+                .tag("result", "miss")
+                .description("Number of chat requests not found in the response cache")
+                .register(builder.meterRegistry);
+        FunctionCounter.builder(EVICTIONS_COUNTER, this.store, GigaChatResponseCacheStore::evictionCount)
+                .description("Number of responses evicted from the cache because of its size limit")
+                .register(builder.meterRegistry);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest chatClientRequest, CallAdvisorChain callAdvisorChain) {
+        String key = PromptKey.of(chatClientRequest.prompt());
+        if (key == null) {
+            return callAdvisorChain.nextCall(chatClientRequest);
+        }
+        CachedChatResponse cached = this.store.get(key);
+        if (cached != null) {
+            this.hits.increment();
+            return ChatClientResponse.builder()
+                    .chatResponse(cached.toChatResponse())
+                    .context(chatClientRequest.context())
+                    .build();
+        }
+        this.misses.increment();
+        ChatClientResponse response = callAdvisorChain.nextCall(chatClientRequest);
+        CachedChatResponse toCache = CachedChatResponse.of(response.chatResponse());
+        if (toCache != null) {
+            this.store.put(key, toCache, this.ttl);
+        }
+        return response;
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(
+            ChatClientRequest chatClientRequest, StreamAdvisorChain streamAdvisorChain) {
+        return Flux.defer(() -> {
+            String key = PromptKey.of(chatClientRequest.prompt());
+            if (key == null) {
+                return streamAdvisorChain.nextStream(chatClientRequest);
+            }
+            CachedChatResponse cached = this.store.get(key);
+            if (cached != null) {
+                this.hits.increment();
+                return Flux.fromIterable(cached.toChunks(this.streamChunkSize))
+                        .map(chunk -> ChatClientResponse.builder()
+                                .chatResponse(chunk)
+                                .context(chatClientRequest.context())
+                                .build());
+            }
+            this.misses.increment();
+            StreamResponseAggregator aggregate = new StreamResponseAggregator();
+            return streamAdvisorChain
+                    .nextStream(chatClientRequest)
+                    .doOnNext(aggregate::add)
+                    .doOnComplete(() -> {
+                        CachedChatResponse toCache = aggregate.toCachedResponse();
+                        if (toCache != null) {
+                            this.store.put(key, toCache, this.ttl);
+                        }
+                    });
+        });
+    }
+
+    @Override
+    public String getName() {
+        return this.getClass().getSimpleName();
+    }
+
+    @Override
+    public int getOrder() {
+        return this.order;
+    }
+
+    public static class Builder {
+        private GigaChatResponseCacheStore store;
+        private Duration ttl = Duration.ofHours(1);
+        private int streamChunkSize = 20;
+        private MeterRegistry meterRegistry = Metrics.globalRegistry;
+        private int order = Ordered.LOWEST_PRECEDENCE - 1100;
+
+        private Builder() {}
+
+        /**
+         * Хранилище ответов, по умолчанию {@link InMemoryResponseCacheStore} на
+         * {@value InMemoryResponseCacheStore#DEFAULT_MAX_SIZE} записей.
+         */
+        public Builder store(GigaChatResponseCacheStore store) {
+            this.store = store;
+            return this;
+        }
+
+        /**
+         * Время жизни ответа в кэше, по умолчанию 1 час.
+         */
+        public Builder ttl(Duration ttl) {
+            this.ttl = ttl;
+            return this;
+        }
+
+        /**
+         * Размер чанка (в символах) при отдаче ответа из кэша в {@code stream}, по умолчанию 20.
+         */
+        public Builder streamChunkSize(int streamChunkSize) {
+            this.streamChunkSize = streamChunkSize;
+            return this;
+        }
+
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        /**
+         * По умолчанию advisor выполняется перед {@link GigaChatSingleFlightAdvisor}, чтобы ответ из кэша
+         * возвращался без ожидания одинаковых запросов.
+         */
+        public Builder order(int order) {
+            this.order = order;
+            return this;
+        }
+
+        public GigaChatResponseCacheAdvisor build() {
+            if (this.store == null) {
+                this.store = new InMemoryResponseCacheStore();
+            }
+            return new GigaChatResponseCacheAdvisor(this);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package chat.giga.springai.advisor;
+
+import java.time.Duration;
+import org.springframework.lang.Nullable;
+
+/**
+ * Хранилище ответов для {@link GigaChatResponseCacheAdvisor}.
+ *
+ * @see InMemoryResponseCacheStore
+ * @see FileResponseCacheStore
+ */
+public interface GigaChatResponseCacheStore {
+
+    /**
+     * @param key ключ промпта
+     * @return ответ или {@code null}, если его нет или он устарел
+     */
+    @Nullable
+    CachedChatResponse get(String key);
+
+    /**
+     * @param key ключ промпта
+     * @param response ответ
+     * @param ttl время жизни записи
+     */
+    void put(String key, CachedChatResponse response, Duration ttl);
+
+    /**
+     * Количество записей, вытесненных из-за ограничения размера, для метрики
+     * {@value GigaChatResponseCacheAdvisor#EVICTIONS_COUNTER}.
+     */
+    default long evictionCount() {
+        return 0;
+    }
+}
@@ -0,0 +1,448 @@
+package chat.giga.springai.advisor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.core.Ordered;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Advisor, который возвращает сохраненный ответ на похожий по смыслу вопрос. Последнее сообщение пользователя
+ * векторизуется {@link EmbeddingModel} (например, {@code GigaChatEmbeddingModel}), и если в кэше есть вопрос
+ * с косинусной близостью не ниже {@code similarityThreshold}, его ответ возвращается без обращения к модели.
+ *
+ * <p>Похожие вопросы ищутся только среди запросов с тем же тенантом ({@link GigaChatRateLimitAdvisor#TENANT_ID}
+ * в контексте) и с тем же остальным промптом: системными сообщениями, историей диалога, опциями и инструментами.
+ * Для каждого такого пространства в памяти строится индекс HNSW, записи старше {@code ttl} удаляются, при
+ * превышении {@code maxEntries} вытесняются самые старые. Число пространств ограничено {@code maxNamespaces}:
+ * вытесняются давно не использованные, а также пространства без живых записей и не использованные дольше
+ * {@code ttl}.
+ *
+ * <p>Не кэшируются запросы с {@code toolContext} или вложениями, ответы с вызовом инструмента и прерванные
+ * потоки. Ошибка {@link EmbeddingModel} не прерывает запрос: он выполняется без кэша. В metadata ответа
+ * из кэша есть ключ {@link GigaChatResponseCacheAdvisor#CACHED}.
+ *
+ * <p>Метрики с тегом {@value #TENANT_TAG}: {@value #REQUESTS_COUNTER} с тегом {@code result}
+ * ({@code hit}/{@code miss}) и {@value #LOOKUP_TIMER} - время векторизации и поиска.
+ */
+@Slf4j
+public class GigaChatSemanticCacheAdvisor implements CallAdvisor, StreamAdvisor {
+    public static final String REQUESTS_COUNTER = "gigachat.semantic.cache.requests";
+    public static final String LOOKUP_TIMER = "gigachat.semantic.cache.lookup";
+    public static final String TENANT_TAG = "tenant";
+
+    private static final long SEED = 42;
+
+    private final EmbeddingModel embeddingModel;
+    private final double similarityThreshold;
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final int maxNamespaces;
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+    private final int streamChunkSize;
+    private final int order;
+    private final LongSupplier nanoClock;
+    private final Scheduler scheduler;
+    private final Map<String, Namespace> namespaces = new LinkedHashMap<>(16, 0.75f, true);
+    private final Meter.MeterProvider<Counter> requestsCounter;
+    private final Meter.MeterProvider<Timer> lookupTimer;
+
+    private GigaChatSemanticCacheAdvisor(Builder builder) {
+        Assert.notNull(builder.embeddingModel, "embeddingModel cannot be null");
+        Assert.isTrue(
+                builder.similarityThreshold > 0 && builder.similarityThreshold <= 1,
+                "similarityThreshold must be between 0 and 1");
+        Assert.notNull(builder.ttl, "ttl cannot be null");
+        Assert.isTrue(!builder.ttl.isNegative() && !builder.ttl.isZero(), "ttl must be positive");
+        Assert.isTrue(builder.maxEntries > 0, "maxEntries must be greater than 0");
+        Assert.isTrue(builder.maxNamespaces > 0, "maxNamespaces must be greater than 0");
+        Assert.isTrue(builder.m > 1, "m must be greater than 1");
+        Assert.isTrue(builder.efConstruction > 0, "efConstruction must be greater than 0");
+        Assert.isTrue(builder.efSearch > 0, "efSearch must be greater than 0");
+        Assert.isTrue(builder.streamChunkSize > 0, "streamChunkSize must be greater than 0");
+        Assert.notNull(builder.meterRegistry, "meterRegistry cannot be null");
+        this.embeddingModel = builder.embeddingModel;
+        this.similarityThreshold = builder.similarityThreshold;
+        this.ttlNanos = builder.ttl.toNanos();
+        this.maxEntries = builder.maxEntries;
+        this.maxNamespaces = builder.maxNamespaces;
+        this.m = builder.m;
+        this.efConstruction = builder.efConstruction;
+        this.efSearch = builder.efSearch;
+        this.streamChunkSize = builder.streamChunkSize;
+        this.order = builder.order;
+        this.nanoClock = builder.nanoClock;
+        this.scheduler = builder.scheduler;
+        this.requestsCounter = Counter.builder(REQUESTS_COUNTER)
+                .description("Number of chat requests looked up in the semantic cache")
+                .withRegistry(builder.meterRegistry);
+        this.lookupTimer = Timer.builder(LOOKUP_TIMER)
+                .description("Time to embed the question and search the semantic cache")
+                .withRegistry(builder.meterRegistry);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest chatClientRequest, CallAdvisorChain callAdvisorChain) {
+        Lookup lookup = lookup(chatClientRequest);
+        if (lookup == null) {
+            return callAdvisorChain.nextCall(chatClientRequest);
+        }
+        if (lookup.cached() != null) {
+            return ChatClientResponse.builder()
+                    .chatResponse(lookup.cached().toChatResponse())
+                    .context(chatClientRequest.context())
+                    .build();
+        }
+        ChatClientResponse response = callAdvisorChain.nextCall(chatClientRequest);
+        CachedChatResponse toCache = CachedChatResponse.of(response.chatResponse());
+        if (toCache != null) {
+            lookup.namespace().put(lookup.embedding(), toCache);
+        }
+        return response;
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(
+            ChatClientRequest chatClientRequest, StreamAdvisorChain streamAdvisorChain) {
+        // векторизация - блокирующий HTTP-запрос, он не должен выполняться в потоках реактора
+        return Mono.fromCallable(() -> Optional.ofNullable(lookup(chatClientRequest)))
+                .subscribeOn(this.scheduler)
+                .flatMapMany(optionalLookup -> {
+                    if (optionalLookup.isEmpty()) {
+                        return streamAdvisorChain.nextStream(chatClientRequest);
+                    }
+                    Lookup lookup = optionalLookup.get();
+                    if (lookup.cached() != null) {
+                        return Flux.fromIterable(lookup.cached().toChunks(this.streamChunkSize))
+                                .map(chunk -> ChatClientResponse.builder()
+                                        .chatResponse(chunk)
+                                        .context(chatClientRequest.context())
+                                        .build());
+                    }
+                    StreamResponseAggregator aggregate = new StreamResponseAggregator();
+                    return streamAdvisorChain
+                            .nextStream(chatClientRequest)
+                            .doOnNext(aggregate::add)
+                            .doOnComplete(() -> {
+                                CachedChatResponse toCache = aggregate.toCachedResponse();
+                                if (toCache != null) {
+                                    lookup.namespace().put(lookup.embedding(), toCache);
+                                }
+                            });
+                });
+    }
+
+    @Override
+    public String getName() {
+        return this.getClass().getSimpleName();
+    }
+
+    @Override
+    public int getOrder() {
+        return this.order;
+    }
+
+    /**
+     * @return результат поиска или {@code null}, если запрос нельзя кэшировать
+     */
+    @Nullable
+    private Lookup lookup(ChatClientRequest chatClientRequest) {
+        Prompt prompt = chatClientRequest.prompt();
+        List<Message> messages = prompt.getInstructions();
+        if (messages.isEmpty() || !(messages.get(messages.size() - 1) instanceof UserMessage question)) {
+            return null;
+        }
+        if (!StringUtils.hasText(question.getText()) || !CollectionUtils.isEmpty(question.getMedia())) {
+            return null;
+        }
+        // вопрос сравнивается по смыслу, остальной промпт - точно
+        String contextKey = PromptKey.of(new Prompt(messages.subList(0, messages.size() - 1), prompt.getOptions()));
+        if (contextKey == null) {
+            return null;
+        }
+        String tenant = tenantId(chatClientRequest.context());
+
+        long start = this.nanoClock.getAsLong();
+        float[] embedding;
+        try {
+            embedding = this.embeddingModel.embed(question.getText());
+        } catch (RuntimeException ex) {
+            log.warn("Semantic cache is skipped, failed to embed the question: {}", ex.getMessage());
+            return null;
+        }
+        Namespace namespace = namespace(tenant + ":" + contextKey, embedding.length);
+        if (namespace.dimensions() != embedding.length) {
+            return null;
+        }
+        CachedChatResponse cached = namespace.get(embedding);
+        this.lookupTimer.withTags(TENANT_TAG, tenant).record(this.nanoClock.getAsLong() - start, TimeUnit.NANOSECONDS);
+        this.requestsCounter
+                .withTags(TENANT_TAG, tenant, "result", cached != null ? "hit" : "miss")
+                .increment();
+        return new Lookup(namespace, embedding, cached);
+    }
+
+    private Namespace namespace(String key, int dimensions) {
+        long now = this.nanoClock.getAsLong();
+        synchronized (this.namespaces) {
+            Namespace namespace = this.namespaces.computeIfAbsent(key, k -> new Namespace(dimensions));
+            namespace.lastAccess = now;
+            // в порядке доступа первыми идут давно не использованные пространства
+            Iterator<Namespace> iterator = this.namespaces.values().iterator();
+            while (iterator.hasNext()) {
+                Namespace eldest = iterator.next();
+                if (eldest == namespace) {
+                    break;
+                }
+                if (this.namespaces.size() <= this.maxNamespaces
+                        && now - eldest.lastAccess < this.ttlNanos
+                        && !eldest.isDrained(now)) {
+                    break;
+                }
+                iterator.remove();
+            }
+            return namespace;
+        }
+    }
+
+    int namespaceCount() {
+        synchronized (this.namespaces) {
+            return this.namespaces.size();
+        }
+    }
+
+    private static String tenantId(Map<String, Object> context) {
+        Object value = context.get(GigaChatRateLimitAdvisor.TENANT_ID);
+        if (value instanceof Supplier<?> supplier) {
+            value = supplier.get();
+        }
+        return value != null ? value.toString() : GigaChatRateLimitAdvisor.DEFAULT_TENANT;
+    }
+
+    private record Lookup(
+            Namespace namespace,
+            float[] embedding,
+            @Nullable CachedChatResponse cached) {}
+
+    /**
+     * Кэш одного тенанта и контекста вопроса. Записи добавляются с одинаковым ttl, поэтому порядок
+     * добавления совпадает с порядком устаревания.
+     */
+    private final class Namespace {
+        private HnswIndex index;
+        private List<Entry> entries = new ArrayList<>();
+        private Deque<Integer> insertionOrder = new ArrayDeque<>();
+        private boolean filled;
+        // время последнего поиска, под блокировкой namespaces
+        private long lastAccess;
+
+        Namespace(int dimensions) {
+            this.index = new HnswIndex(dimensions, m, efConstruction, SEED);
+        }
+
+        synchronized int dimensions() {
+            return this.index.dimensions();
+        }
+
+        @Nullable
+        synchronized CachedChatResponse get(float[] embedding) {
+            expire(nanoClock.getAsLong());
+            List<HnswIndex.Candidate> found = this.index.search(embedding, 1, efSearch);
+            if (found.isEmpty() || found.get(0).similarity() < similarityThreshold) {
+                return null;
+            }
+            return this.entries.get(found.get(0).id()).response();
+        }
+
+        synchronized void put(float[] embedding, CachedChatResponse response) {
+            long now = nanoClock.getAsLong();
+            expire(now);
+            while (this.index.size() >= maxEntries) {
+                this.index.remove(this.insertionOrder.poll());
+            }
+            int id = this.index.add(embedding);
+            this.entries.add(new Entry(embedding, response, now + ttlNanos));
+            this.insertionOrder.add(id);
+            this.filled = true;
+            // удаленные узлы замедляют поиск, индекс перестраивается, когда их больше, чем живых
+            if (this.index.deletedCount() > this.index.size()) {
+                rebuild();
+            }
+        }
+
+        /**
+         * В пространство добавлялись ответы, но все они устарели.
+         */
+        synchronized boolean isDrained(long now) {
+            expire(now);
+            return this.filled && this.insertionOrder.isEmpty();
+        }
+
+        private void expire(long now) {
+            while (!this.insertionOrder.isEmpty()
+                    && this.entries.get(this.insertionOrder.peek()).expiresAt() - now <= 0) {
+                this.index.remove(this.insertionOrder.poll());
+            }
+        }
+
+        private void rebuild() {
+            HnswIndex rebuilt = new HnswIndex(this.index.dimensions(), m, efConstruction, SEED);
+            List<Entry> rebuiltEntries = new ArrayList<>(this.insertionOrder.size());
+            Deque<Integer> rebuiltOrder = new ArrayDeque<>(this.insertionOrder.size());
+            for (int id : this.insertionOrder) {
+                Entry entry = this.entries.get(id);
+                rebuiltOrder.add(rebuilt.add(entry.embedding()));
+                rebuiltEntries.add(entry);
+            }
+            this.index = rebuilt;
+            this.entries = rebuiltEntries;
+            this.insertionOrder = rebuiltOrder;
+        }
+    }
+
+    private record Entry(float[] embedding, CachedChatResponse response, long expiresAt) {}
+
+    public static class Builder {
+        private EmbeddingModel embeddingModel;
+        private double similarityThreshold = 0.95;
+        private Duration ttl = Duration.ofHours(1);
+        private int maxEntries = 10_000;
+        private int maxNamespaces = 1_000;
+        private int m = 16;
+        private int efConstruction = 100;
+        private int efSearch = 50;
+        private int streamChunkSize = 20;
+        private MeterRegistry meterRegistry = Metrics.globalRegistry;
+        private int order = Ordered.LOWEST_PRECEDENCE - 1050;
+        private LongSupplier nanoClock = System::nanoTime;
+        private Scheduler scheduler = Schedulers.boundedElastic();
+
+        private Builder() {}
+
+        public Builder embeddingModel(EmbeddingModel embeddingModel) {
+            this.embeddingModel = embeddingModel;
+            return this;
+        }
+
+        /**
+         * Минимальная косинусная близость вопросов, по умолчанию 0.95.
+         */
+        public Builder similarityThreshold(double similarityThreshold) {
+            this.similarityThreshold = similarityThreshold;
+            return this;
+        }
+
+        /**
+         * Время жизни ответа в кэше, по умолчанию 1 час.
+         */
+        public Builder ttl(Duration ttl) {
+            this.ttl = ttl;
+            return this;
+        }
+
+        /**
+         * Максимум записей для одного тенанта и контекста вопроса, по умолчанию 10 000.
+         */
+        public Builder maxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        /**
+         * Максимум пространств (пар тенанта и контекста вопроса) в памяти, по умолчанию 1 000. При превышении
+         * вытесняются давно не использованные.
+         */
+        public Builder maxNamespaces(int maxNamespaces) {
+            this.maxNamespaces = maxNamespaces;
+            return this;
+        }
+
+        /**
+         * Параметры HNSW: число связей узла (по умолчанию 16) и ширина поиска при добавлении (100) и
+         * при поиске (50).
+         */
+        public Builder hnsw(int m, int efConstruction, int efSearch) {
+            this.m = m;
+            this.efConstruction = efConstruction;
+            this.efSearch = efSearch;
+            return this;
+        }
+
+        /**
+         * Размер чанка (в символах) при отдаче ответа из кэша в {@code stream}, по умолчанию 20.
+         */
+        public Builder streamChunkSize(int streamChunkSize) {
+            this.streamChunkSize = streamChunkSize;
+            return this;
+        }
+
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        /**
+         * По умолчанию advisor выполняется после {@link GigaChatResponseCacheAdvisor}: точное совпадение
+         * проверяется без обращения к модели векторизации.
+         */
+        public Builder order(int order) {
+            this.order = order;
+            return this;
+        }
+
+        /**
+         * Планировщик для векторизации вопроса в {@code stream}, по умолчанию {@link Schedulers#boundedElastic()}.
+         */
+        public Builder scheduler(Scheduler scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        Builder nanoClock(LongSupplier nanoClock) {
+            this.nanoClock = nanoClock;
+            return this;
+        }
+
+        public GigaChatSemanticCacheAdvisor build() {
+            return new GigaChatSemanticCacheAdvisor(this);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package chat.giga.springai.advisor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.core.Ordered;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+
+/**
+ * Advisor, который объединяет одинаковые одновременные запросы: пока запрос выполняется, такие же запросы
+ * не отправляются в GigaChat, а получают его ответ. Для {@code stream} один поток ответа от GigaChat
+ * раздается всем подписчикам, подписавшиеся позже получают уже пришедшие чанки.
+ *
+ * <p>Запросы считаются одинаковыми, если совпадают сообщения (включая metadata и вложения), опции и
+ * набор инструментов. Запросы с непустым {@code toolContext} не объединяются: инструменты могут
+ * вернуть данные конкретного пользователя. Ответ каждому запросу возвращается с его собственным
+ * контекстом; ошибку общего запроса получают все ожидающие его.
+ *
+ * <p>Количество запросов, получивших чужой ответ, публикуется в метрике {@value #COALESCED_COUNTER}
+ * с тегом {@value #TYPE_TAG} ({@code call}/{@code stream}).
+ */
+public class GigaChatSingleFlightAdvisor implements CallAdvisor, StreamAdvisor {
+    public static final String COALESCED_COUNTER = "gigachat.request.coalesced";
+    public static final String TYPE_TAG = "type";
+
+    private final int order;
+    private final Map<String, CompletableFuture<ChatClientResponse>> calls = new ConcurrentHashMap<>();
+    private final Map<String, Flux<ChatClientResponse>> streams = new ConcurrentHashMap<>();
+    private final Meter.MeterProvider<Counter> coalescedCounter;
+
+    private GigaChatSingleFlightAdvisor(Builder builder) {
+        Assert.notNull(builder.meterRegistry, "meterRegistry cannot be null");
+        this.order = builder.order;
+        this.coalescedCounter = Counter.builder(COALESCED_COUNTER)
+                .description("Number of chat requests served by an identical in-flight request")
+                .withRegistry(builder.meterRegistry);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest chatClientRequest, CallAdvisorChain callAdvisorChain) {
+        String key = PromptKey.of(chatClientRequest.prompt());
+        if (key == null) {
+            return callAdvisorChain.nextCall(chatClientRequest);
+        }
+        CompletableFuture<ChatClientResponse> future = new CompletableFuture<>();
+        CompletableFuture<ChatClientResponse> inFlight = this.calls.putIfAbsent(key, future);
+        if (inFlight != null) {
+            this.coalescedCounter.withTags(TYPE_TAG, "call").increment();
+            return withContext(join(inFlight), chatClientRequest);
+        }
+        try {
+            ChatClientResponse response = callAdvisorChain.nextCall(chatClientRequest);
+            future.complete(response);
+            return response;
+        } catch (RuntimeException | Error ex) {
+            future.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            this.calls.remove(key, future);
+        }
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(
+            ChatClientRequest chatClientRequest, StreamAdvisorChain streamAdvisorChain) {
+        return Flux.defer(() -> {
+            String key = PromptKey.of(chatClientRequest.prompt());
+            if (key == null) {
+                return streamAdvisorChain.nextStream(chatClientRequest);
+            }
+            AtomicReference<Flux<ChatClientResponse>> created = new AtomicReference<>();
+            Flux<ChatClientResponse> shared = this.streams.computeIfAbsent(key, k -> {
+                // replay: подписчик, пришедший после первых чанков, получает ответ целиком;
+                // refCount: поток к GigaChat отменяется, когда от него отписались все
+                Flux<ChatClientResponse> flux = streamAdvisorChain
+                        .nextStream(chatClientRequest)
+                        .doFinally(signal -> this.streams.remove(k, created.get()))
+                        .replay()
+                        .refCount();
+                created.set(flux);
+                return flux;
+            });
+            if (shared == created.get()) {
+                return shared;
+            }
+            this.coalescedCounter.withTags(TYPE_TAG, "stream").increment();
+            return shared.map(chunk -> withContext(chunk, chatClientRequest));
+        });
+    }
+
+    @Override
+    public String getName() {
+        return this.getClass().getSimpleName();
+    }
+
+    @Override
+    public int getOrder() {
+        return this.order;
+    }
+
+    private static ChatClientResponse join(CompletableFuture<ChatClientResponse> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (ex.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw ex;
+        }
+    }
+
+    private static ChatClientResponse withContext(ChatClientResponse response, ChatClientRequest request) {
+        return ChatClientResponse.builder()
+                .chatResponse(response.chatResponse())
+                .context(request.context())
+                .build();
+    }
+
+    public static class Builder {
+        private MeterRegistry meterRegistry = Metrics.globalRegistry;
+        private int order = Ordered.LOWEST_PRECEDENCE - 1000;
+
+        private Builder() {}
+
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        /**
+         * По умолчанию advisor выполняется последним перед вызовом модели, чтобы сравнивать запросы
+         * после изменений, внесенных остальными advisor (история, RAG).
+         */
+        public Builder order(int order) {
+            this.order = order;
+            return this;
+        }
+
+        public GigaChatSingleFlightAdvisor build() {
+            return new GigaChatSingleFlightAdvisor(this);
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package chat.giga.springai.advisor;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import org.springframework.util.Assert;
+
+/**
+ * Приближенный поиск ближайших векторов по косинусной близости - граф HNSW (Hierarchical Navigable Small World).
+ *
+ * <p>Векторы нормализуются при добавлении, поэтому близость считается скалярным произведением. Удаление
+ * помечает узел: он остается в графе для навигации, но не попадает в результаты поиска. Когда помеченных
+ * узлов становится много, индекс следует перестроить (см. {@link #deletedCount()}).
+ *
+ * <p>Класс не потокобезопасен, синхронизация - на стороне вызывающего кода.
+ */
+final class HnswIndex {
+
+    private final int dimensions;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random;
+    private final List<Node> nodes = new ArrayList<>();
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private int deleted;
+
+    /**
+     * @param dimensions размерность векторов
+     * @param m число связей узла на верхних уровнях графа (на нулевом - {@code 2 * m})
+     * @param efConstruction ширина поиска соседей при добавлении
+     * @param seed seed генератора уровней узлов
+     */
+    HnswIndex(int dimensions, int m, int efConstruction, long seed) {
+        Assert.isTrue(dimensions > 0, "dimensions must be greater than 0");
+        Assert.isTrue(m > 1, "m must be greater than 1");
+        Assert.isTrue(efConstruction > 0, "efConstruction must be greater than 0");
+        this.dimensions = dimensions;
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(m);
+        this.random = new Random(seed);
+    }
+
+    int dimensions() {
+        return this.dimensions;
+    }
+
+    /**
+     * Число узлов, не помеченных удаленными.
+     */
+    int size() {
+        return this.nodes.size() - this.deleted;
+    }
+
+    int deletedCount() {
+        return this.deleted;
+    }
+
+    /**
+     * @return id добавленного узла, id выдаются последовательно с нуля
+     */
+    int add(float[] vector) {
+        Assert.isTrue(vector.length == this.dimensions, "vector must have " + this.dimensions + " dimensions");
+        int level = (int) (-Math.log(1 - this.random.nextDouble()) * this.levelMultiplier);
+        int id = this.nodes.size();
+        Node node = new Node(normalize(vector), level);
+        this.nodes.add(node);
+        if (this.entryPoint < 0) {
+            this.entryPoint = id;
+            this.maxLevel = level;
+            return id;
+        }
+
+        int current = this.entryPoint;
+        for (int l = this.maxLevel; l > level; l--) {
+            current = greedySearch(node.vector, current, l);
+        }
+        for (int l = Math.min(level, this.maxLevel); l >= 0; l--) {
+            PriorityQueue<Candidate> found = searchLayer(node.vector, current, this.efConstruction, l);
+            List<Candidate> closest = closest(found, this.m);
+            for (Candidate neighbor : closest) {
+                node.link(l, neighbor.id());
+                link(neighbor.id(), id, l);
+            }
+            current = closest.get(0).id();
+        }
+        if (level > this.maxLevel) {
+            this.entryPoint = id;
+            this.maxLevel = level;
+        }
+        return id;
+    }
+
+    void remove(int id) {
+        Node node = this.nodes.get(id);
+        if (!node.deleted) {
+            node.deleted = true;
+            this.deleted++;
+        }
+    }
+
+    /**
+     * Ищет до {@code k} ближайших не удаленных векторов.
+     *
+     * @param ef ширина поиска, больше - точнее и медленнее
+     * @return найденные узлы в порядке убывания близости
+     */
+    List<Candidate> search(float[] query, int k, int ef) {
+        Assert.isTrue(query.length == this.dimensions, "query must have " + this.dimensions + " dimensions");
+        if (this.entryPoint < 0) {
+            return List.of();
+        }
+        float[] normalized = normalize(query);
+        int current = this.entryPoint;
+        for (int l = this.maxLevel; l > 0; l--) {
+            current = greedySearch(normalized, current, l);
+        }
+        List<Candidate> result = new ArrayList<>(k);
+        for (Candidate candidate : closest(searchLayer(normalized, current, Math.max(ef, k), 0), Integer.MAX_VALUE)) {
+            if (!this.nodes.get(candidate.id()).deleted) {
+                result.add(candidate);
+                if (result.size() == k) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    private int greedySearch(float[] query, int start, int level) {
+        int current = start;
+        float best = similarity(query, this.nodes.get(current).vector);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            Node node = this.nodes.get(current);
+            for (int i = 0; i < node.counts[level]; i++) {
+                int neighbor = node.links[level][i];
+                float similarity = similarity(query, this.nodes.get(neighbor).vector);
+                if (similarity > best) {
+                    best = similarity;
+                    current = neighbor;
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * @return до {@code ef} найденных узлов, в вершине очереди - наименее близкий
+     */
+    private PriorityQueue<Candidate> searchLayer(float[] query, int start, int ef, int level) {
+        BitSet visited = new BitSet(this.nodes.size());
+        visited.set(start);
+        Candidate first = new Candidate(start, similarity(query, this.nodes.get(start).vector));
+        PriorityQueue<Candidate> candidates =
+                new PriorityQueue<>((a, b) -> Float.compare(b.similarity(), a.similarity()));
+        PriorityQueue<Candidate> found = new PriorityQueue<>((a, b) -> Float.compare(a.similarity(), b.similarity()));
+        candidates.add(first);
+        found.add(first);
+        while (!candidates.isEmpty()) {
+            Candidate candidate = candidates.poll();
+            if (found.size() >= ef && candidate.similarity() < found.peek().similarity()) {
+                break;
+            }
+            Node node = this.nodes.get(candidate.id());
+            for (int i = 0; i < node.counts[level]; i++) {
+                int neighbor = node.links[level][i];
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                float similarity = similarity(query, this.nodes.get(neighbor).vector);
+                if (found.size() < ef || similarity > found.peek().similarity()) {
+                    Candidate next = new Candidate(neighbor, similarity);
+                    candidates.add(next);
+                    found.add(next);
+                    if (found.size() > ef) {
+                        found.poll();
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Добавляет связь {@code from -> to}; если связей больше допустимого, остаются самые близкие.
+     */
+    private void link(int from, int to, int level) {
+        Node node = this.nodes.get(from);
+        int maxLinks = level == 0 ? this.maxM0 : this.m;
+        if (node.counts[level] < maxLinks) {
+            node.link(level, to);
+            return;
+        }
+        PriorityQueue<Candidate> neighbors =
+                new PriorityQueue<>((a, b) -> Float.compare(a.similarity(), b.similarity()));
+        neighbors.add(new Candidate(to, similarity(node.vector, this.nodes.get(to).vector)));
+        for (int i = 0; i < node.counts[level]; i++) {
+            int neighbor = node.links[level][i];
+            neighbors.add(new Candidate(neighbor, similarity(node.vector, this.nodes.get(neighbor).vector)));
+        }
+        // вытесняется наименее близкий сосед
+        neighbors.poll();
+        node.counts[level] = 0;
+        for (Candidate neighbor : neighbors) {
+            node.link(level, neighbor.id());
+        }
+    }
+
+    private static List<Candidate> closest(PriorityQueue<Candidate> found, int limit) {
+        List<Candidate> sorted = new ArrayList<>(found);
+        sorted.sort((a, b) -> Float.compare(b.similarity(), a.similarity()));
+        return sorted.size() > limit ? sorted.subList(0, limit) : sorted;
+    }
+
+    private static float similarity(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+        float[] normalized = new float[vector.length];
+        if (norm == 0) {
+            return normalized;
+        }
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+
+    /**
+     * @param id id узла
+     * @param similarity косинусная близость к запросу
+     */
+    record Candidate(int id, float similarity) {}
+
+    private final class Node {
+        private final float[] vector;
+        private final int[][] links;
+        private final int[] counts;
+        private boolean deleted;
+
+        Node(float[] vector, int level) {
+            this.vector = vector;
+            this.links = new int[level + 1][];
+            this.counts = new int[level + 1];
+            for (int l = 0; l <= level; l++) {
+                this.links[l] = new int[l == 0 ? maxM0 : m];
+            }
+        }
+
+        void link(int level, int to) {
+            this.links[level][this.counts[level]++] = to;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package chat.giga.springai.advisor;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Хранилище ответов в памяти. Размер ограничен, при переполнении вытесняются давно не используемые записи.
+ */
+public class InMemoryResponseCacheStore implements GigaChatResponseCacheStore {
+
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    private final int maxSize;
+    private final Clock clock;
+    private final Map<String, Entry> entries;
+    private long evictions;
+
+    public InMemoryResponseCacheStore() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public InMemoryResponseCacheStore(int maxSize) {
+        this(maxSize, Clock.systemUTC());
+    }
+
+    InMemoryResponseCacheStore(int maxSize, Clock clock) {
+        Assert.isTrue(maxSize > 0, "maxSize must be greater than 0");
+        this.maxSize = maxSize;
+        this.clock = clock;
+        // access-order LinkedHashMap дает LRU-вытеснение
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > InMemoryResponseCacheStore.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Nullable
+    @Override
+    public CachedChatResponse get(String key) {
+        long now = clock.millis();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt() <= now) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.response();
+        }
+    }
+
+    @Override
+    public void put(String key, CachedChatResponse response, Duration ttl) {
+        Assert.notNull(key, "key must not be null");
+        Assert.notNull(response, "response must not be null");
+        Entry entry = new Entry(response, clock.millis() + ttl.toMillis());
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    @Override
+    public long evictionCount() {
+        synchronized (entries) {
+            return evictions;
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private record Entry(CachedChatResponse response, long expiresAt) {}
+}
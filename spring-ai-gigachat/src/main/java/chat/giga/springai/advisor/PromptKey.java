@@ -0,0 +1,127 @@
+package chat.giga.springai.advisor;
+
+import chat.giga.springai.media.GigaChatMediaCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.content.Media;
+import org.springframework.ai.content.MediaContent;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.util.CollectionUtils;
+
+/**
+ * Ключ промпта для объединения и кэширования запросов - SHA-256 от канонического JSON: сообщения
+ * (текст, metadata, хэши вложений, вызовы инструментов и их результаты), опции и описания инструментов.
+ * Поля объектов и ключи словарей сериализуются в алфавитном порядке, поэтому ключ не зависит от порядка
+ * заполнения опций.
+ */
+@Slf4j
+final class PromptKey {
+
+    private static final ObjectMapper KEY_MAPPER = new ObjectMapper()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true)
+            .configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
+
+    private PromptKey() {}
+
+    /**
+     * @return ключ или {@code null}, если ответ на промпт нельзя переиспользовать: задан {@code toolContext}
+     * (инструменты могут вернуть данные конкретного пользователя), вложение нельзя прочитать повторно
+     * (например, {@link org.springframework.core.io.InputStreamResource}) или промпт не удалось сериализовать
+     */
+    @Nullable
+    static String of(Prompt prompt) {
+        ChatOptions options = prompt.getOptions();
+        Map<String, Object> canonical = new TreeMap<>();
+        if (options != null) {
+            if (options instanceof ToolCallingChatOptions toolOptions) {
+                if (!CollectionUtils.isEmpty(toolOptions.getToolContext())) {
+                    return null;
+                }
+                Map<String, Object> tools = new TreeMap<>();
+                for (String toolName : toolOptions.getToolNames()) {
+                    tools.put(toolName, toolName);
+                }
+                for (ToolCallback toolCallback : toolOptions.getToolCallbacks()) {
+                    ToolDefinition definition = toolCallback.getToolDefinition();
+                    tools.put(definition.name(), List.of(definition.description(), definition.inputSchema()));
+                }
+                canonical.put("tools", tools);
+            }
+            canonical.put("options", options);
+        }
+        try {
+            List<Object> messages = new ArrayList<>();
+            for (Message message : prompt.getInstructions()) {
+                Map<String, Object> canonicalMessage = canonicalMessage(message);
+                if (canonicalMessage == null) {
+                    return null;
+                }
+                messages.add(canonicalMessage);
+            }
+            canonical.put("messages", messages);
+            return sha256(KEY_MAPPER.writeValueAsBytes(canonical));
+        } catch (Exception ex) {
+            log.debug("Failed to compute the prompt key: {}", ex.getMessage());
+            return null;
+        }
+    }
+
+    @Nullable
+    private static Map<String, Object> canonicalMessage(Message message) {
+        Map<String, Object> canonical = new TreeMap<>();
+        canonical.put("type", message.getMessageType().getValue());
+        canonical.put("text", message.getText());
+        Map<String, String> metadata = new TreeMap<>();
+        message.getMetadata().forEach((name, value) -> metadata.put(name, String.valueOf(value)));
+        canonical.put("metadata", metadata);
+        if (message instanceof MediaContent mediaContent && !CollectionUtils.isEmpty(mediaContent.getMedia())) {
+            List<String> media = new ArrayList<>();
+            for (Media item : mediaContent.getMedia()) {
+                Object data = item.getData();
+                if (data instanceof byte[] || data instanceof Resource) {
+                    // содержимое хэшируется потоково, ресурс не читается в память целиком
+                    GigaChatMediaCache.Key key = GigaChatMediaCache.keyOf(item);
+                    if (key == null) {
+                        return null;
+                    }
+                    media.add(key.mimeType() + ":" + key.contentHash());
+                } else {
+                    media.add(item.getMimeType() + ":" + data);
+                }
+            }
+            canonical.put("media", media);
+        }
+        if (message instanceof AssistantMessage assistantMessage && assistantMessage.hasToolCalls()) {
+            canonical.put("toolCalls", assistantMessage.getToolCalls());
+        }
+        if (message instanceof ToolResponseMessage toolResponseMessage) {
+            canonical.put("toolResponses", toolResponseMessage.getResponses());
+        }
+        return canonical;
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+}
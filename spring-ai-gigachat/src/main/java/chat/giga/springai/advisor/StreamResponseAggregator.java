@@ -0,0 +1,69 @@
+package chat.giga.springai.advisor;
+
+import java.util.List;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.lang.Nullable;
+import org.springframework.util.StringUtils;
+
+/**
+ * Собирает текст потокового ответа для кэша. Сигналы потока приходят последовательно, поэтому
+ * синхронизация не нужна.
+ */
+final class StreamResponseAggregator {
+    private final StringBuilder text = new StringBuilder();
+    private String finishReason;
+    private String id;
+    private String model;
+    private boolean cacheable = true;
+
+    void add(ChatClientResponse chunk) {
+        ChatResponse chatResponse = chunk.chatResponse();
+        if (chatResponse == null) {
+            return;
+        }
+        if (chatResponse.getResults().size() > 1) {
+            this.cacheable = false;
+        }
+        for (Generation generation : chatResponse.getResults()) {
+            AssistantMessage output = generation.getOutput();
+            if (output == null) {
+                continue;
+            }
+            if (output.hasToolCalls()) {
+                this.cacheable = false;
+            }
+            if (output.getText() != null) {
+                this.text.append(output.getText());
+            }
+            if (StringUtils.hasText(generation.getMetadata().getFinishReason())) {
+                this.finishReason = generation.getMetadata().getFinishReason();
+            }
+        }
+        ChatResponseMetadata metadata = chatResponse.getMetadata();
+        if (StringUtils.hasText(metadata.getId())) {
+            this.id = metadata.getId();
+        }
+        if (StringUtils.hasText(metadata.getModel())) {
+            this.model = metadata.getModel();
+        }
+    }
+
+    /**
+     * @return ответ для кэша или {@code null}, если поток пустой, содержит вызов инструмента или
+     * несколько вариантов ответа
+     */
+    @Nullable
+    CachedChatResponse toCachedResponse() {
+        if (!this.cacheable || this.text.isEmpty()) {
+            return null;
+        }
+        return new CachedChatResponse(
+                this.id,
+                this.model,
+                List.of(new CachedChatResponse.CachedGeneration(this.text.toString(), this.finishReason)));
+    }
+}
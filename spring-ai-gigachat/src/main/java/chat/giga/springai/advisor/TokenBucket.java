@@ -0,0 +1,76 @@
+package chat.giga.springai.advisor;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Неблокирующий token bucket по алгоритму GCRA: состояние - одно время {@code tat}, к которому бакет
+ * опустеет, обновляется через CAS. Бакет вмещает {@code capacity} единиц и пополняется равномерно
+ * за {@code periodNanos}.
+ */
+final class TokenBucket {
+
+    /**
+     * Резервирование не удалось: ожидание превысило допустимое.
+     */
+    static final long REJECTED = -1;
+
+    private final long capacity;
+    private final double nanosPerUnit;
+    private final long burstNanos;
+    private final AtomicLong tat;
+
+    TokenBucket(long capacity, long periodNanos, long nowNanos) {
+        this.capacity = capacity;
+        this.nanosPerUnit = (double) periodNanos / capacity;
+        this.burstNanos = periodNanos;
+        this.tat = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Резервирует {@code units} единиц.
+     *
+     * @return через сколько наносекунд можно выполнить запрос ({@code 0} - сразу)
+     *     или {@link #REJECTED}, если ждать пришлось бы дольше {@code maxDelayNanos}
+     */
+    long reserve(long units, long nowNanos, long maxDelayNanos) {
+        // запрос больше емкости бакета иначе не прошел бы никогда
+        long cost = cost(Math.min(units, capacity));
+        while (true) {
+            long current = tat.get();
+            long next = Math.max(current, nowNanos) + cost;
+            long delay = next - burstNanos - nowNanos;
+            if (delay > maxDelayNanos) {
+                return REJECTED;
+            }
+            if (tat.compareAndSet(current, next)) {
+                return Math.max(0, delay);
+            }
+        }
+    }
+
+    /**
+     * Списывает {@code units} единиц без ожидания, например, фактически израсходованные токены сверх оценки.
+     */
+    void consume(long units, long nowNanos) {
+        long cost = cost(units);
+        tat.accumulateAndGet(cost, (current, c) -> Math.max(current, nowNanos) + c);
+    }
+
+    /**
+     * Возвращает ранее зарезервированные единицы.
+     */
+    void refund(long units) {
+        tat.addAndGet(-cost(Math.min(units, capacity)));
+    }
+
+    /**
+     * Бакет полностью пополнен и ничем не отличается от нового.
+     */
+    boolean isFull(long nowNanos) {
+        return tat.get() - nowNanos <= 0;
+    }
+
+    private long cost(long units) {
+        return (long) Math.ceil(units * nanosPerUnit);
+    }
+}
@@ -10,4 +10,72 @@ public class GigaChatInternalProperties {
     private boolean makeSystemPromptFirstMessageInMemory = true;
     private Duration connectTimeout = Duration.ofSeconds(15L);
     private Duration readTimeout;
+    /**
+     * Максимальное количество раундов вызова инструментов в одном запросе, {@code 0} - без ограничения.
+     */
+    private int maxToolCallingRounds;
+    /**
+     * Адаптивное ограничение количества одновременных запросов к GigaChat API.
+     */
+    private ConcurrencyLimit concurrencyLimit = new ConcurrencyLimit();
+    /**
+     * Хеджирование непотоковых запросов chat completion.
+     */
+    private Hedging hedging = new Hedging();
+
+    @Data
+    public static class ConcurrencyLimit {
+        /**
+         * Включает ограничение, по умолчанию выключено.
+         */
+        private boolean enabled;
+        /**
+         * Начальный лимит одновременных запросов к одному эндпоинту и модели.
+         */
+        private int initialLimit = 10;
+
+        private int minLimit = 1;
+        private int maxLimit = 100;
+        /**
+         * Во сколько раз уменьшается лимит при ответе 429/503 или таймауте.
+         */
+        private double backoffRatio = 0.9;
+        /**
+         * Максимальное количество запросов, ожидающих в очереди, {@code 0} - без очереди.
+         */
+        private int maxQueueSize = 100;
+        /**
+         * Максимальное время ожидания в очереди.
+         */
+        private Duration maxQueueWait = Duration.ofSeconds(60);
+    }
+
+    @Data
+    public static class Hedging {
+        /**
+         * Включает хеджирование, по умолчанию выключено.
+         */
+        private boolean enabled;
+        /**
+         * Перцентиль времени ответа, после которого отправляется повторный запрос.
+         */
+        private double percentile = 0.95;
+        /**
+         * Нижняя граница задержки перед повторным запросом.
+         */
+        private Duration minDelay = Duration.ofMillis(500);
+        /**
+         * Верхняя граница задержки; она же используется, пока статистики времени ответа недостаточно.
+         */
+        private Duration maxDelay = Duration.ofSeconds(30);
+        /**
+         * Доля дополнительных запросов, которую может создать хеджирование.
+         */
+        private double budget = 0.05;
+        /**
+         * Максимальное количество одновременно выполняемых повторных запросов; сверх него повторный
+         * запрос не отправляется.
+         */
+        private int maxConcurrentHedges = 16;
+    }
 }
@@ -86,6 +86,13 @@ public class GigaChatAuthProperties {
          */
         private String clientSecret;
 
+        /**
+         * Renew the token in the background before it needs refresh, so that requests never wait
+         * for the OAuth round trip.
+         */
+        @Builder.Default
+        private boolean proactiveRefresh = false;
+
         /**
          * Returns {@link #apiKey} if present.
          * Otherwise, build api key as base64-encoded '{@link #clientId}:{@link #clientSecret}' pair.
@@ -1,8 +1,17 @@
 package chat.giga.springai.api.auth.bearer;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
-import org.springframework.ai.model.ApiKey;
 import org.springframework.util.Assert;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
 /**
  * Thread-safe manager for GigaChat OAuth 2.0 bearer token authentication.
@@ -14,12 +23,24 @@ import org.springframework.util.Assert;
  *   <li>Only one thread performs token refresh at a time (others wait)</li>
  *   <li>Fast path (valid token) is lock-free using volatile read</li>
  *   <li>Compatible with both virtual threads (Project Loom) and platform threads</li>
+ *   <li>{@link #getValueAsync()} never blocks the subscriber thread: concurrent subscribers
+ *       share a single in-flight refresh executed on a separate scheduler</li>
  * </ul>
  *
  * @see GigaChatOAuthClient
  * @see GigaChatBearerToken
  */
-public class GigaChatBearerAuthApi implements ApiKey {
+public class GigaChatBearerAuthApi implements ReactiveApiKey {
+
+    /**
+     * Timer recording the latency of successful token requests.
+     */
+    public static final String TOKEN_REFRESH_TIMER = "gigachat.auth.token.refresh";
+
+    /**
+     * Counter of failed token requests.
+     */
+    public static final String TOKEN_REFRESH_FAILURES_COUNTER = "gigachat.auth.token.refresh.failures";
 
     /**
      * Lock for synchronizing token refresh operations.
@@ -39,6 +60,24 @@ public class GigaChatBearerAuthApi implements ApiKey {
      */
     private volatile GigaChatBearerToken token;
 
+    /**
+     * Token refresh currently in progress for reactive subscribers, or null if there is none.
+     * All concurrent {@link #getValueAsync()} subscribers share this single refresh.
+     */
+    private final AtomicReference<Mono<GigaChatBearerToken>> refreshInFlight = new AtomicReference<>();
+
+    /**
+     * Scheduler the blocking token request is offloaded to from {@link #getValueAsync()}.
+     */
+    private final Scheduler refreshScheduler;
+
+    /**
+     * Metrics of token requests.
+     */
+    private final Timer refreshTimer;
+
+    private final Counter refreshFailures;
+
     /**
      * Creates a new authentication API instance with GigaChatOAuthClient build by custom RestClient.Builder
      * and SSL configuration.
@@ -47,8 +86,43 @@ public class GigaChatBearerAuthApi implements ApiKey {
      * @throws IllegalArgumentException if apiProperties or builder is null
      */
     public GigaChatBearerAuthApi(final GigaChatOAuthClient gigaChatOAuthClient) {
+        this(gigaChatOAuthClient, Schedulers.boundedElastic());
+    }
+
+    /**
+     * Creates a new authentication API instance with a custom scheduler for reactive token refresh.
+     *
+     * @param gigaChatOAuthClient implementation for OAuth
+     * @param refreshScheduler scheduler the blocking token request is offloaded to from {@link #getValueAsync()}
+     * @throws IllegalArgumentException if refreshScheduler is null
+     */
+    public GigaChatBearerAuthApi(final GigaChatOAuthClient gigaChatOAuthClient, final Scheduler refreshScheduler) {
+        this(gigaChatOAuthClient, refreshScheduler, Metrics.globalRegistry);
+    }
+
+    /**
+     * Creates a new authentication API instance with a custom scheduler and meter registry.
+     *
+     * @param gigaChatOAuthClient implementation for OAuth
+     * @param refreshScheduler scheduler the blocking token request is offloaded to from {@link #getValueAsync()}
+     * @param meterRegistry registry for token refresh latency and failure metrics
+     * @throws IllegalArgumentException if refreshScheduler or meterRegistry is null
+     */
+    public GigaChatBearerAuthApi(
+            final GigaChatOAuthClient gigaChatOAuthClient,
+            final Scheduler refreshScheduler,
+            final MeterRegistry meterRegistry) {
+        Assert.notNull(refreshScheduler, "refreshScheduler must not be null");
+        Assert.notNull(meterRegistry, "meterRegistry must not be null");
         this.authClient = gigaChatOAuthClient;
+        this.refreshScheduler = refreshScheduler;
         this.reentrantTokenLock = new ReentrantLock();
+        this.refreshTimer = Timer.builder(TOKEN_REFRESH_TIMER)
+                .description("Latency of GigaChat OAuth token requests")
+                .register(meterRegistry);
+        this.refreshFailures = Counter.builder(TOKEN_REFRESH_FAILURES_COUNTER)
+                .description("Number of failed GigaChat OAuth token requests")
+                .register(meterRegistry);
     }
 
     /**
@@ -79,27 +153,105 @@ public class GigaChatBearerAuthApi implements ApiKey {
             return currentToken.accessToken();
         }
         // Slow path: token is missing or needs refresh
+        return refreshTokenIfNeeded().accessToken();
+    }
+
+    /**
+     * Returns a valid bearer access token without blocking the subscriber thread.
+     *
+     * <p>If the cached token is valid, it is emitted immediately. Otherwise a single refresh is
+     * started on the refresh scheduler and shared by all subscribers that arrive while it is in
+     * progress, so concurrent streaming requests never trigger more than one token request and
+     * never block a reactor event-loop thread.
+     *
+     * @return a {@link Mono} emitting a valid bearer token string
+     */
+    @Override
+    public Mono<String> getValueAsync() {
+        return Mono.defer(() -> {
+            GigaChatBearerToken currentToken = this.token;
+            if (currentToken != null && !currentToken.needsRefresh()) {
+                return Mono.just(currentToken.accessToken());
+            }
+            return sharedRefresh().map(GigaChatBearerToken::accessToken);
+        });
+    }
+
+    /**
+     * Returns the refresh already in progress or starts a new one.
+     */
+    private Mono<GigaChatBearerToken> sharedRefresh() {
+        while (true) {
+            Mono<GigaChatBearerToken> inFlight = refreshInFlight.get();
+            if (inFlight != null) {
+                return inFlight;
+            }
+            Sinks.One<GigaChatBearerToken> sink = Sinks.one();
+            Mono<GigaChatBearerToken> refresh = sink.asMono();
+            // Only the subscriber that wins the CAS starts the request, the others reuse its result
+            if (refreshInFlight.compareAndSet(null, refresh)) {
+                Mono.fromCallable(this::refreshTokenIfNeeded)
+                        .subscribeOn(refreshScheduler)
+                        .doFinally(signal -> refreshInFlight.compareAndSet(refresh, null))
+                        .subscribe(sink::tryEmitValue, sink::tryEmitError);
+                return refresh;
+            }
+        }
+    }
+
+    /**
+     * Refreshes the cached token under lock unless another thread has already done it.
+     *
+     * @return valid token
+     */
+    private GigaChatBearerToken refreshTokenIfNeeded() {
         reentrantTokenLock.lock();
         try {
             // Double-check: another thread might have refreshed while we waited for lock
-            currentToken = this.token;
+            GigaChatBearerToken currentToken = this.token;
             if (currentToken == null || currentToken.needsRefresh()) {
-                this.token = requestToken();
+                currentToken = requestToken();
+                this.token = currentToken;
             }
-            return this.token.accessToken();
+            return currentToken;
         } finally {
             reentrantTokenLock.unlock();
         }
     }
 
     /**
-     * Requests new token from API and validates response.
-     * Must be called under lock.
+     * Requests a new token regardless of the cached one and caches it.
+     *
+     * <p>Used by {@link GigaChatBearerTokenRefresher} to renew the token before its refresh time,
+     * so request threads keep using the previous token via the lock-free fast path meanwhile.
+     *
+     * @return new token
+     */
+    GigaChatBearerToken forceRefresh() {
+        GigaChatBearerToken newToken = requestToken();
+        this.token = newToken;
+        return newToken;
+    }
+
+    /**
+     * Requests new token from API, validates response and records metrics.
      *
      * @return validated token
      * @throws IllegalStateException if response is invalid
      */
     private GigaChatBearerToken requestToken() {
+        long start = System.nanoTime();
+        try {
+            GigaChatBearerToken newToken = doRequestToken();
+            refreshTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return newToken;
+        } catch (RuntimeException e) {
+            refreshFailures.increment();
+            throw e;
+        }
+    }
+
+    private GigaChatBearerToken doRequestToken() {
         var tokenResponse = authClient.requestToken();
         Assert.notNull(tokenResponse, "Failed to get access token, response is null");
 
@@ -0,0 +1,153 @@
+package chat.giga.springai.api.auth.bearer;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.Assert;
+
+/**
+ * Background refresher that renews the GigaChat bearer token before its refresh time.
+ *
+ * <p>Without it the first request after {@link GigaChatBearerToken#needsRefresh()} turns {@code true}
+ * pays the full OAuth round trip while other callers wait on the lock. With the refresher running,
+ * request threads only perform the lock-free volatile read in {@link GigaChatBearerAuthApi#getValue()}.
+ *
+ * <p><b>Scheduling:</b>
+ * <ul>
+ *   <li>The first token is requested immediately on {@link #start()}</li>
+ *   <li>Each next refresh is scheduled ahead of the token refresh time
+ *       (half of the remaining time, at most {@link #REFRESH_LEAD})</li>
+ *   <li>Failures are retried with exponential backoff, bounded by the max backoff.
+ *       If the refresher can't obtain a token in time, requests fall back to the synchronous refresh</li>
+ * </ul>
+ *
+ * <p>Runs on a single daemon thread (platform thread, since the library targets Java 17).
+ * Call {@link #close()} to stop it.
+ *
+ * @see GigaChatBearerAuthApi
+ */
+@Slf4j
+public class GigaChatBearerTokenRefresher implements AutoCloseable {
+
+    /**
+     * Maximum time before the token refresh time at which the proactive refresh happens.
+     */
+    static final Duration REFRESH_LEAD = Duration.ofMinutes(1);
+
+    public static final Duration DEFAULT_INITIAL_BACKOFF = Duration.ofSeconds(1);
+    public static final Duration DEFAULT_MAX_BACKOFF = Duration.ofMinutes(1);
+
+    private final GigaChatBearerAuthApi authApi;
+    private final ScheduledExecutorService executor;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    /**
+     * Creates a refresher running on its own daemon thread with default backoff settings.
+     *
+     * @param authApi token manager to refresh
+     */
+    public GigaChatBearerTokenRefresher(final GigaChatBearerAuthApi authApi) {
+        this(authApi, DEFAULT_INITIAL_BACKOFF, DEFAULT_MAX_BACKOFF);
+    }
+
+    /**
+     * Creates a refresher running on its own daemon thread.
+     *
+     * @param authApi token manager to refresh
+     * @param initialBackoff delay before the first retry after a failed refresh
+     * @param maxBackoff maximum delay between retries
+     */
+    public GigaChatBearerTokenRefresher(
+            final GigaChatBearerAuthApi authApi, final Duration initialBackoff, final Duration maxBackoff) {
+        this(
+                authApi,
+                Executors.newSingleThreadScheduledExecutor(GigaChatBearerTokenRefresher::newThread),
+                initialBackoff,
+                maxBackoff);
+    }
+
+    /**
+     * Creates a refresher running on the provided executor.
+     *
+     * @param authApi token manager to refresh
+     * @param executor executor the refresh is scheduled on, shut down by {@link #close()}
+     * @param initialBackoff delay before the first retry after a failed refresh
+     * @param maxBackoff maximum delay between retries
+     * @throws IllegalArgumentException if any argument is null or backoff is not positive
+     */
+    public GigaChatBearerTokenRefresher(
+            final GigaChatBearerAuthApi authApi,
+            final ScheduledExecutorService executor,
+            final Duration initialBackoff,
+            final Duration maxBackoff) {
+        Assert.notNull(authApi, "authApi must not be null");
+        Assert.notNull(executor, "executor must not be null");
+        Assert.notNull(initialBackoff, "initialBackoff must not be null");
+        Assert.notNull(maxBackoff, "maxBackoff must not be null");
+        Assert.isTrue(!initialBackoff.isNegative() && !initialBackoff.isZero(), "initialBackoff must be positive");
+        Assert.isTrue(maxBackoff.compareTo(initialBackoff) >= 0, "maxBackoff must not be less than initialBackoff");
+        this.authApi = authApi;
+        this.executor = executor;
+        this.initialBackoffMillis = initialBackoff.toMillis();
+        this.maxBackoffMillis = maxBackoff.toMillis();
+    }
+
+    /**
+     * Requests the first token in the background and keeps renewing it.
+     */
+    public void start() {
+        schedule(0);
+    }
+
+    /**
+     * Stops the background refresh. The last obtained token stays cached in {@link GigaChatBearerAuthApi}.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void refresh() {
+        try {
+            GigaChatBearerToken token = authApi.forceRefresh();
+            consecutiveFailures.set(0);
+            schedule(delayUntilRefresh(token, System.currentTimeMillis()));
+        } catch (Exception e) {
+            long backoff = backoff(consecutiveFailures.incrementAndGet());
+            log.warn("Failed to refresh GigaChat access token, retrying in {} ms", backoff, e);
+            schedule(backoff);
+        }
+    }
+
+    private void schedule(long delayMillis) {
+        if (!executor.isShutdown()) {
+            executor.schedule(this::refresh, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Calculates the delay of the next proactive refresh: half of the time left before
+     * the token refresh time, but no more than {@link #REFRESH_LEAD} ahead of it.
+     */
+    static long delayUntilRefresh(GigaChatBearerToken token, long now) {
+        long untilRefresh = Math.max(0, token.refreshTime() - now);
+        long lead = Math.min(untilRefresh / 2, REFRESH_LEAD.toMillis());
+        return untilRefresh - lead;
+    }
+
+    long backoff(int failures) {
+        long backoff = initialBackoffMillis << Math.min(failures - 1, 30);
+        return backoff <= 0 ? maxBackoffMillis : Math.min(backoff, maxBackoffMillis);
+    }
+
+    private static Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "gigachat-token-refresher");
+        thread.setDaemon(true);
+        return thread;
+    }
+}
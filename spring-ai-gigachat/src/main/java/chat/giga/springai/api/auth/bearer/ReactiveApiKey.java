@@ -0,0 +1,22 @@
+package chat.giga.springai.api.auth.bearer;
+
+import org.springframework.ai.model.ApiKey;
+import reactor.core.publisher.Mono;
+
+/**
+ * An {@link ApiKey} that can also supply its value without blocking the calling thread.
+ *
+ * <p>Used by reactive clients (e.g. WebClient filters) where a blocking {@link #getValue()}
+ * call would stall an event-loop thread.
+ *
+ * @see GigaChatBearerAuthApi
+ */
+public interface ReactiveApiKey extends ApiKey {
+
+    /**
+     * Returns the API key value asynchronously.
+     *
+     * @return a {@link Mono} emitting the current API key value
+     */
+    Mono<String> getValueAsync();
+}
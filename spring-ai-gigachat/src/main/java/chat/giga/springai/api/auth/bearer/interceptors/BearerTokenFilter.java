@@ -2,6 +2,7 @@ package chat.giga.springai.api.auth.bearer.interceptors;
 
 import static org.springframework.http.HttpHeaders.AUTHORIZATION;
 
+import chat.giga.springai.api.auth.bearer.ReactiveApiKey;
 import org.springframework.ai.model.ApiKey;
 import org.springframework.web.reactive.function.client.ClientRequest;
 import org.springframework.web.reactive.function.client.ClientResponse;
@@ -15,12 +16,14 @@ import reactor.core.publisher.Mono;
  *
  * <p>This filter intercepts outgoing HTTP requests and automatically injects a Bearer token
  * into the Authorization header. The token is obtained from the provided {@link ApiKey}
- * instance, which may implement token renewal logic.
+ * instance, which may implement token renewal logic. If the key is a {@link ReactiveApiKey},
+ * the token is obtained without blocking the event-loop thread.
  *
  * @param tokenRenewer the API key provider that supplies the Bearer token value
  *
  * @see ExchangeFilterFunction
  * @see ApiKey
+ * @see ReactiveApiKey
  */
 public record BearerTokenFilter(ApiKey tokenRenewer) implements ExchangeFilterFunction {
 
@@ -37,8 +40,15 @@ public record BearerTokenFilter(ApiKey tokenRenewer) implements ExchangeFilterFu
     @Override
     @SuppressWarnings("NullableProblems")
     public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
-        return next.exchange(ClientRequest.from(request)
-                .header(AUTHORIZATION, "Bearer " + tokenRenewer.getValue())
-                .build());
+        return token().flatMap(token -> next.exchange(ClientRequest.from(request)
+                .header(AUTHORIZATION, "Bearer " + token)
+                .build()));
+    }
+
+    private Mono<String> token() {
+        if (tokenRenewer instanceof ReactiveApiKey reactiveApiKey) {
+            return reactiveApiKey.getValueAsync();
+        }
+        return Mono.fromCallable(tokenRenewer::getValue);
     }
 }
@@ -6,6 +6,7 @@ import static chat.giga.springai.api.HttpClientUtils.buildSslFactory;
 import chat.giga.springai.api.GigaChatApiProperties;
 import chat.giga.springai.api.auth.bearer.GigaAuthToken;
 import chat.giga.springai.api.auth.bearer.GigaChatBearerAuthApi;
+import chat.giga.springai.api.auth.bearer.GigaChatBearerTokenRefresher;
 import chat.giga.springai.api.auth.bearer.GigaChatOAuthClient;
 import chat.giga.springai.api.auth.bearer.NoopGigaAuthToken;
 import chat.giga.springai.api.auth.bearer.SimpleGigaAuthToken;
@@ -13,22 +14,38 @@ import chat.giga.springai.api.auth.bearer.interceptors.BearerTokenFilter;
 import chat.giga.springai.api.auth.bearer.interceptors.BearerTokenInterceptor;
 import chat.giga.springai.api.chat.completion.CompletionRequest;
 import chat.giga.springai.api.chat.completion.CompletionResponse;
+import chat.giga.springai.api.chat.completion.CompletionStreamDecoder;
 import chat.giga.springai.api.chat.embedding.EmbeddingsRequest;
 import chat.giga.springai.api.chat.embedding.EmbeddingsResponse;
 import chat.giga.springai.api.chat.file.DeleteFileResponse;
 import chat.giga.springai.api.chat.file.UploadFileResponse;
 import chat.giga.springai.api.chat.models.ModelsResponse;
+import chat.giga.springai.api.hedging.GigaChatRequestHedger;
+import chat.giga.springai.api.limiter.ConcurrencyLimitFilter;
+import chat.giga.springai.api.limiter.ConcurrencyLimitInterceptor;
+import chat.giga.springai.api.limiter.GigaChatConcurrencyLimiter;
 import com.fasterxml.jackson.annotation.JsonValue;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Map;
 import java.util.function.Consumer;
-import java.util.function.Predicate;
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.TrustManagerFactory;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.content.Media;
 import org.springframework.ai.model.ChatModelDescription;
-import org.springframework.ai.model.ModelOptionsUtils;
 import org.springframework.ai.retry.RetryUtils;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -38,25 +55,47 @@ import org.springframework.http.client.reactive.JdkClientHttpConnector;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.MimeType;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.ResponseErrorHandler;
 import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+/**
+ * Клиент GigaChat API. При {@code proactive-refresh} держит фоновый поток обновления токена, а при хеджировании -
+ * потоки повторных запросов, поэтому экземпляр, созданный вне Spring-контекста, нужно закрыть через {@link #close()}. Для {@code @Bean} метод {@code close}
+ * вызывается контейнером автоматически.
+ */
 @Slf4j
-public class GigaChatApi {
+public class GigaChatApi implements AutoCloseable {
     public static final String DEFAULT_BASE_URL = "https://gigachat.devices.sberbank.ru/api/v1/";
     public static final String DEFAULT_COMPLETIONS_PATH = "/chat/completions";
     public static final String USER_AGENT_SPRING_AI_GIGACHAT = "Spring-AI-GigaChat";
     public static final String PROVIDER_NAME = "gigachat";
     public static final String X_REQUEST_ID = "x-request-id";
-    private static final Predicate<String> SSE_DONE_PREDICATE = "[DONE]"::equals;
 
     private final RestClient restClient;
     private final WebClient webClient;
     private final String baseUrl;
 
+    @Nullable
+    private final GigaChatRequestHedger hedger;
+
+    @Nullable
+    private final GigaChatBearerTokenRefresher tokenRefresher;
+
+    /**
+     * {@code false} для экземпляров, созданных через {@link #GigaChatApi(GigaChatApi)}: потоки принадлежат
+     * исходному экземпляру и закрываются им.
+     */
+    private final boolean ownsResources;
+
+    private final CompletionStreamDecoder completionStreamDecoder = new CompletionStreamDecoder();
+
     public GigaChatApi(GigaChatApiProperties properties) {
         this(properties, null, null);
     }
@@ -99,25 +138,60 @@ public class GigaChatApi {
             ResponseErrorHandler responseErrorHandler,
             @Nullable KeyManagerFactory kmf,
             @Nullable TrustManagerFactory tmf) {
+        this(
+                properties,
+                authToken,
+                restClientBuilder,
+                webClientBuilder,
+                responseErrorHandler,
+                kmf,
+                tmf,
+                Metrics.globalRegistry);
+    }
+
+    public GigaChatApi(
+            GigaChatApiProperties properties,
+            GigaAuthToken authToken,
+            RestClient.Builder restClientBuilder,
+            WebClient.Builder webClientBuilder,
+            ResponseErrorHandler responseErrorHandler,
+            @Nullable KeyManagerFactory kmf,
+            @Nullable TrustManagerFactory tmf,
+            MeterRegistry meterRegistry) {
         this.baseUrl = properties.getBaseUrl();
         var authProps = properties.getAuth();
         var internalProps = properties.getInternal();
 
+        GigaChatBearerTokenRefresher refresher = null;
         if (authProps.isBearerAuth()) {
             final GigaChatOAuthClient gigaChatOAuthClient =
                     new GigaChatOAuthClient(properties, restClientBuilder, null, tmf, authToken);
-            final GigaChatBearerAuthApi gigaChatBearerAuthApi = new GigaChatBearerAuthApi(gigaChatOAuthClient);
+            final GigaChatBearerAuthApi gigaChatBearerAuthApi =
+                    new GigaChatBearerAuthApi(gigaChatOAuthClient, Schedulers.boundedElastic(), meterRegistry);
+            if (authProps.getBearer().isProactiveRefresh()) {
+                refresher = new GigaChatBearerTokenRefresher(gigaChatBearerAuthApi);
+                refresher.start();
+            }
             restClientBuilder.requestInterceptor(new BearerTokenInterceptor(gigaChatBearerAuthApi));
             webClientBuilder.filter(new BearerTokenFilter(gigaChatBearerAuthApi));
         }
+        this.tokenRefresher = refresher;
+
+        var concurrencyLimit = internalProps.getConcurrencyLimit();
+        RestClient.Builder limitedRestClientBuilder = restClientBuilder.clone();
+        WebClient.Builder limitedWebClientBuilder = webClientBuilder.clone();
+        if (concurrencyLimit != null && concurrencyLimit.isEnabled()) {
+            var limiter = new GigaChatConcurrencyLimiter(concurrencyLimit, meterRegistry);
+            limitedRestClientBuilder.requestInterceptor(new ConcurrencyLimitInterceptor(limiter));
+            limitedWebClientBuilder.filter(new ConcurrencyLimitFilter(limiter));
+        }
 
         var clientHttpRequestFactory = new JdkClientHttpRequestFactory(
                 buildHttpClient(buildSslFactory(kmf, tmf, authProps.isUnsafeSsl()), internalProps.getConnectTimeout()));
         if (internalProps.getReadTimeout() != null) {
             clientHttpRequestFactory.setReadTimeout(internalProps.getReadTimeout());
         }
-        this.restClient = restClientBuilder
-                .clone()
+        this.restClient = limitedRestClientBuilder
                 .requestFactory(clientHttpRequestFactory)
                 .requestInterceptor(new GigachatLoggingInterceptor())
                 .defaultStatusHandler(responseErrorHandler)
@@ -129,11 +203,45 @@ public class GigaChatApi {
         if (internalProps.getReadTimeout() != null) {
             clientHttpConnector.setReadTimeout(internalProps.getReadTimeout());
         }
-        this.webClient = webClientBuilder
-                .clone()
+        this.webClient = limitedWebClientBuilder
                 .clientConnector(clientHttpConnector)
                 .baseUrl(properties.getBaseUrl())
                 .build();
+
+        var hedging = internalProps.getHedging();
+        this.hedger = hedging != null && hedging.isEnabled() ? new GigaChatRequestHedger(hedging, meterRegistry) : null;
+        this.ownsResources = true;
+    }
+
+    /**
+     * Для наследников, которые переопределяют выполнение запросов, например
+     * {@link chat.giga.springai.api.pool.GigaChatApiPool}: не переопределенные методы выполняются через {@code api}.
+     */
+    protected GigaChatApi(GigaChatApi api) {
+        Assert.notNull(api, "api can not be null");
+        this.restClient = api.restClient;
+        this.webClient = api.webClient;
+        this.baseUrl = api.baseUrl;
+        this.hedger = api.hedger;
+        // ресурсами владеет исходный экземпляр
+        this.tokenRefresher = null;
+        this.ownsResources = false;
+    }
+
+    /**
+     * Останавливает фоновое обновление токена и потоки хеджирования. Повторный вызов ничего не делает.
+     */
+    @Override
+    public void close() {
+        if (!this.ownsResources) {
+            return;
+        }
+        if (this.tokenRefresher != null) {
+            this.tokenRefresher.close();
+        }
+        if (this.hedger != null) {
+            this.hedger.close();
+        }
     }
 
     /**
@@ -167,9 +275,18 @@ public class GigaChatApi {
             final CompletionRequest chatRequest, @Nullable final HttpHeaders headers) {
         Assert.notNull(chatRequest, "The request body can not be null.");
         Assert.isTrue(!chatRequest.getStream(), "Request must set the stream property to false.");
+        if (this.hedger != null) {
+            return this.hedger.execute(chatRequest.getModel(), () -> completionEntity(chatRequest, headers));
+        }
+        return completionEntity(chatRequest, headers);
+    }
+
+    private ResponseEntity<CompletionResponse> completionEntity(
+            CompletionRequest chatRequest, @Nullable HttpHeaders headers) {
         return this.restClient
                 .post()
                 .uri(DEFAULT_COMPLETIONS_PATH)
+                .attributes(limitBy(DEFAULT_COMPLETIONS_PATH, chatRequest.getModel()))
                 .headers(applyHeaders(headers))
                 .body(chatRequest)
                 .retrieve()
@@ -187,19 +304,17 @@ public class GigaChatApi {
         return this.webClient
                 .post()
                 .uri(DEFAULT_COMPLETIONS_PATH)
+                .attributes(limitBy(DEFAULT_COMPLETIONS_PATH, chatRequest.getModel()))
                 .headers(applyHeaders(headers))
                 .body(Mono.just(chatRequest), CompletionRequest.class)
                 .exchangeToFlux(rs -> {
+                    if (rs.statusCode().isError()) {
+                        return rs.<CompletionResponse>createError().flux();
+                    }
                     String id = rs.headers().asHttpHeaders().getFirst(X_REQUEST_ID);
-                    return rs.bodyToFlux(String.class)
-                            .takeUntil(SSE_DONE_PREDICATE)
-                            .filter(SSE_DONE_PREDICATE.negate())
-                            .map(content -> {
-                                CompletionResponse completionResponse =
-                                        ModelOptionsUtils.jsonToObject(content, CompletionResponse.class);
-                                completionResponse.setId(id);
-                                return completionResponse;
-                            });
+                    return completionStreamDecoder
+                            .decode(rs.bodyToFlux(DataBuffer.class))
+                            .map(completionResponse -> completionResponse.setId(id));
                 });
     }
 
@@ -210,39 +325,119 @@ public class GigaChatApi {
         return this.restClient
                 .post()
                 .uri("/embeddings")
+                .attributes(limitBy("/embeddings", embeddingRequest.getModel()))
                 .header(HttpHeaders.USER_AGENT, USER_AGENT_SPRING_AI_GIGACHAT)
                 .body(embeddingRequest)
                 .retrieve()
                 .toEntity(EmbeddingsResponse.class);
     }
 
+    /**
+     * Неблокирующий вариант {@link #embeddings(EmbeddingsRequest)} через WebClient.
+     */
+    public Mono<EmbeddingsResponse> embeddingsAsync(final EmbeddingsRequest embeddingRequest) {
+        Assert.notNull(embeddingRequest, "The request body can not be null.");
+        Assert.notNull(embeddingRequest.getInput(), "The input can not be null.");
+        Assert.isTrue(!embeddingRequest.getInput().isEmpty(), "The input can not be empty.");
+        return this.webClient
+                .post()
+                .uri("/embeddings")
+                .attributes(limitBy("/embeddings", embeddingRequest.getModel()))
+                .header(HttpHeaders.USER_AGENT, USER_AGENT_SPRING_AI_GIGACHAT)
+                .bodyValue(embeddingRequest)
+                .retrieve()
+                .bodyToMono(EmbeddingsResponse.class);
+    }
+
+    /**
+     * Загружает файл через RestClient.
+     *
+     * <p>Media с данными в виде {@link Resource} передается без предварительного чтения в массив байт,
+     * однако перехватчики RestClient буферизуют тело запроса целиком. Для больших файлов используйте
+     * {@link #uploadFileAsync(Media)} и его перегрузки - они читают файл потоково.
+     */
     public ResponseEntity<UploadFileResponse> uploadFile(Media media) {
         Assert.notNull(media, "Media can not be null.");
         Assert.notNull(media.getData(), "Media data can not be null.");
 
-        MultipartBodyBuilder builder = new MultipartBodyBuilder();
+        return this.restClient
+                .post()
+                .uri("/files")
+                .attributes(limitBy("/files", null))
+                .header(HttpHeaders.USER_AGENT, USER_AGENT_SPRING_AI_GIGACHAT)
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .body(buildUploadFileBody(toResource(media), media.getMimeType(), media.getName()))
+                .retrieve()
+                .toEntity(UploadFileResponse.class);
+    }
+
+    /**
+     * Загружает файл через WebClient, не считывая его целиком в память.
+     */
+    public Mono<UploadFileResponse> uploadFileAsync(Media media) {
+        Assert.notNull(media, "Media can not be null.");
+        Assert.notNull(media.getData(), "Media data can not be null.");
+        return uploadFileAsync(toResource(media), media.getMimeType(), media.getName());
+    }
 
-        builder.part("file", media.getDataAsByteArray())
-                .contentType(MediaType.valueOf(media.getMimeType().toString()))
-                .header("Content-Disposition", "form-data; name=\"file\"; filename=\"" + media.getName() + "\"");
+    /**
+     * Загружает файл с диска. Файл читается через {@link java.nio.channels.AsynchronousFileChannel}
+     * блоками, поэтому потребление памяти не зависит от размера файла.
+     */
+    public Mono<UploadFileResponse> uploadFileAsync(Path path, MimeType mimeType) {
+        Assert.notNull(path, "Path can not be null.");
+        return uploadFileAsync(new FileSystemResource(path), mimeType, String.valueOf(path.getFileName()));
+    }
 
-        builder.part("purpose", "general", MediaType.TEXT_PLAIN)
-                .header("Content-Disposition", "form-data; name=\"purpose\"");
+    /**
+     * Загружает файл из потока, поток читается блоками и закрывается после отправки.
+     */
+    public Mono<UploadFileResponse> uploadFileAsync(InputStream inputStream, MimeType mimeType, String filename) {
+        Assert.notNull(inputStream, "InputStream can not be null.");
+        return uploadFileAsync(new InputStreamResource(inputStream), mimeType, filename);
+    }
 
-        return this.restClient
+    public Mono<UploadFileResponse> uploadFileAsync(Resource resource, MimeType mimeType, String filename) {
+        Assert.notNull(resource, "Resource can not be null.");
+        Assert.notNull(mimeType, "MimeType can not be null.");
+        return this.webClient
                 .post()
                 .uri("/files")
+                .attributes(limitBy("/files", null))
                 .header(HttpHeaders.USER_AGENT, USER_AGENT_SPRING_AI_GIGACHAT)
                 .contentType(MediaType.MULTIPART_FORM_DATA)
-                .body(builder.build())
+                .body(BodyInserters.fromMultipartData(buildUploadFileBody(resource, mimeType, filename)))
                 .retrieve()
-                .toEntity(UploadFileResponse.class);
+                .bodyToMono(UploadFileResponse.class);
+    }
+
+    private static MultiValueMap<String, HttpEntity<?>> buildUploadFileBody(
+            Resource resource, MimeType mimeType, String filename) {
+        MultipartBodyBuilder builder = new MultipartBodyBuilder();
+
+        builder.part("file", resource)
+                .contentType(MediaType.valueOf(mimeType.toString()))
+                .header("Content-Disposition", "form-data; name=\"file\"; filename=\"" + filename + "\"");
+
+        builder.part("purpose", "general", MediaType.TEXT_PLAIN)
+                .header("Content-Disposition", "form-data; name=\"purpose\"");
+
+        return builder.build();
+    }
+
+    // byte[] оборачивается без копирования, Resource передается как есть
+    private static Resource toResource(Media media) {
+        if (media.getData() instanceof Resource resource) {
+            return resource;
+        }
+        return new ByteArrayResource(media.getDataAsByteArray());
     }
 
     public ResponseEntity<DeleteFileResponse> deleteFile(String fileId) {
         return this.restClient
                 .post()
                 .uri("/files/{fileId}/delete", fileId)
+                .attributes(limitBy("/files/{fileId}/delete", null))
                 .header(HttpHeaders.USER_AGENT, USER_AGENT_SPRING_AI_GIGACHAT)
                 .retrieve()
                 .toEntity(DeleteFileResponse.class);
@@ -256,18 +451,93 @@ public class GigaChatApi {
         return this.restClient
                 .get()
                 .uri("/files/{fileId}/content", fileId)
+                .attributes(limitBy("/files/{fileId}/content", null))
                 .headers(applyHeaders(headers))
                 .retrieve()
                 .body(byte[].class);
     }
 
+    /**
+     * Скачивает файл через WebClient блоками {@link DataBuffer}, не собирая его в массив байт.
+     * Подписчик отвечает за освобождение буферов, см. {@link DataBufferUtils#release(DataBuffer)}.
+     */
+    public Flux<DataBuffer> downloadFileAsync(String fileId) {
+        return downloadFileAsync(fileId, null);
+    }
+
+    public Flux<DataBuffer> downloadFileAsync(String fileId, @Nullable HttpHeaders headers) {
+        Assert.hasText(fileId, "File id can not be empty.");
+        return this.webClient
+                .get()
+                .uri("/files/{fileId}/content", fileId)
+                .attributes(limitBy("/files/{fileId}/content", null))
+                .headers(applyHeaders(headers))
+                .retrieve()
+                .bodyToFlux(DataBuffer.class);
+    }
+
+    /**
+     * Скачивает файл в {@code target}. Запись идет через {@link java.nio.channels.AsynchronousFileChannel}
+     * по мере получения данных, существующий файл перезаписывается.
+     */
+    public Mono<Void> downloadFileToPathAsync(String fileId, Path target) {
+        return downloadFileToPathAsync(fileId, target, null);
+    }
+
+    public Mono<Void> downloadFileToPathAsync(String fileId, Path target, @Nullable HttpHeaders headers) {
+        Assert.notNull(target, "Path can not be null.");
+        return DataBufferUtils.write(downloadFileAsync(fileId, headers), target);
+    }
+
+    /**
+     * Скачивает файл в {@code target}, блокируя вызывающий поток до окончания записи.
+     */
+    public void downloadFileToPath(String fileId, Path target) {
+        downloadFileToPath(fileId, target, null);
+    }
+
+    public void downloadFileToPath(String fileId, Path target, @Nullable HttpHeaders headers) {
+        downloadFileToPathAsync(fileId, target, headers).block();
+    }
+
+    /**
+     * Скачивает файл в {@code outputStream}, блокируя вызывающий поток до окончания записи.
+     * Поток не закрывается.
+     */
+    public void downloadFileToStream(String fileId, OutputStream outputStream) {
+        downloadFileToStream(fileId, outputStream, null);
+    }
+
+    public void downloadFileToStream(String fileId, OutputStream outputStream, @Nullable HttpHeaders headers) {
+        Assert.notNull(outputStream, "OutputStream can not be null.");
+        DataBufferUtils.write(downloadFileAsync(fileId, headers), outputStream)
+                .doOnNext(DataBufferUtils::release)
+                .then()
+                .block();
+    }
+
     public String getFileUrl(String fileId) {
         String base = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
         return base + "/files/" + fileId + "/content";
     }
 
     public ResponseEntity<ModelsResponse> models() {
-        return this.restClient.get().uri("/models").retrieve().toEntity(ModelsResponse.class);
+        return this.restClient
+                .get()
+                .uri("/models")
+                .attributes(limitBy("/models", null))
+                .retrieve()
+                .toEntity(ModelsResponse.class);
+    }
+
+    // эндпоинт и модель, по которым GigaChatConcurrencyLimiter ограничивает одновременные запросы
+    private static Consumer<Map<String, Object>> limitBy(String endpoint, @Nullable String model) {
+        return attributes -> {
+            attributes.put(GigaChatConcurrencyLimiter.ENDPOINT_ATTRIBUTE, endpoint);
+            if (model != null) {
+                attributes.put(GigaChatConcurrencyLimiter.MODEL_ATTRIBUTE, model);
+            }
+        };
     }
 
     private Consumer<HttpHeaders> applyHeaders(@Nullable HttpHeaders headers) {
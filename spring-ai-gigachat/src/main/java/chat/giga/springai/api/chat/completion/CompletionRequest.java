@@ -14,7 +14,7 @@ import lombok.NoArgsConstructor;
  * На это завязана логика метода {@link org.springframework.ai.model.ModelOptionsUtils#merge}
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @AllArgsConstructor
 @NoArgsConstructor
 @JsonInclude(JsonInclude.Include.NON_NULL)
@@ -0,0 +1,149 @@
+package chat.giga.springai.api.chat.completion;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.springframework.ai.model.ModelOptionsUtils;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+
+/**
+ * Decodes the {@code text/event-stream} body of a streaming chat completion directly from
+ * {@link DataBuffer}s into {@link CompletionResponse} chunks.
+ *
+ * <p>Unlike {@code bodyToFlux(String.class)} followed by {@link ModelOptionsUtils#jsonToObject},
+ * no intermediate {@link String} is created per event: bytes are accumulated in a reusable
+ * per-subscription buffer, {@code data:} lines are located and compared with {@code [DONE]}
+ * at the byte level, and the JSON payload is parsed in place with a shared {@link ObjectReader}.
+ *
+ * <p>Only {@code data:} fields are taken into account, other SSE fields and comments are skipped.
+ * The stream completes on the {@code [DONE]} event or at the end of the body.
+ */
+public class CompletionStreamDecoder {
+
+    private static final byte[] DATA_FIELD = {'d', 'a', 't', 'a', ':'};
+    private static final byte[] DONE = {'[', 'D', 'O', 'N', 'E', ']'};
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    /**
+     * Marker emitted for the {@code [DONE]} event, never exposed to subscribers.
+     */
+    private static final CompletionResponse END_OF_STREAM = new CompletionResponse();
+
+    private final ObjectReader reader;
+
+    public CompletionStreamDecoder() {
+        this(ModelOptionsUtils.OBJECT_MAPPER);
+    }
+
+    public CompletionStreamDecoder(ObjectMapper objectMapper) {
+        Assert.notNull(objectMapper, "objectMapper must not be null");
+        this.reader = objectMapper.readerFor(CompletionResponse.class);
+    }
+
+    /**
+     * Decodes the SSE body into completion chunks. Consumed buffers are released.
+     *
+     * @param body raw response body
+     * @return chunks in the order they were received, up to the {@code [DONE]} event
+     */
+    public Flux<CompletionResponse> decode(Flux<DataBuffer> body) {
+        return Flux.defer(() -> {
+            LineBuffer lines = new LineBuffer();
+            return body.concatMapIterable(buffer -> {
+                        try {
+                            return lines.append(buffer);
+                        } finally {
+                            DataBufferUtils.release(buffer);
+                        }
+                    })
+                    .concatWith(Flux.defer(() -> Flux.fromIterable(lines.flush())))
+                    .takeWhile(chunk -> chunk != END_OF_STREAM)
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+        });
+    }
+
+    /**
+     * Accumulates the bytes of an incomplete line between buffers. Not thread-safe,
+     * one instance per subscription.
+     */
+    private class LineBuffer {
+        private byte[] bytes = new byte[INITIAL_BUFFER_SIZE];
+        private int length;
+
+        List<CompletionResponse> append(DataBuffer buffer) {
+            int count = buffer.readableByteCount();
+            int scanFrom = length;
+            ensureCapacity(length + count);
+            buffer.read(bytes, length, count);
+            length += count;
+
+            List<CompletionResponse> chunks = null;
+            int lineStart = 0;
+            for (int i = scanFrom; i < length; i++) {
+                if (bytes[i] == '\n') {
+                    CompletionResponse chunk = decodeLine(lineStart, i);
+                    if (chunk != null) {
+                        if (chunks == null) {
+                            chunks = new ArrayList<>(2);
+                        }
+                        chunks.add(chunk);
+                    }
+                    lineStart = i + 1;
+                }
+            }
+            if (lineStart > 0) {
+                System.arraycopy(bytes, lineStart, bytes, 0, length - lineStart);
+                length -= lineStart;
+            }
+            return chunks != null ? chunks : List.of();
+        }
+
+        List<CompletionResponse> flush() {
+            CompletionResponse chunk = length > 0 ? decodeLine(0, length) : null;
+            length = 0;
+            return chunk != null ? List.of(chunk) : List.of();
+        }
+
+        private CompletionResponse decodeLine(int start, int end) {
+            if (end > start && bytes[end - 1] == '\r') {
+                end--;
+            }
+            if (!startsWith(start, end, DATA_FIELD)) {
+                return null;
+            }
+            int valueStart = start + DATA_FIELD.length;
+            if (valueStart < end && bytes[valueStart] == ' ') {
+                valueStart++;
+            }
+            if (valueStart == end) {
+                return null;
+            }
+            if (end - valueStart == DONE.length && startsWith(valueStart, end, DONE)) {
+                return END_OF_STREAM;
+            }
+            try {
+                return reader.readValue(bytes, valueStart, end - valueStart);
+            } catch (IOException e) {
+                throw new DecodingException("Failed to decode completion chunk", e);
+            }
+        }
+
+        private boolean startsWith(int start, int end, byte[] prefix) {
+            return end - start >= prefix.length
+                    && Arrays.equals(bytes, start, start + prefix.length, prefix, 0, prefix.length);
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+            }
+        }
+    }
+}
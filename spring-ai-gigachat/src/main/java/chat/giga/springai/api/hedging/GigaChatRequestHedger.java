@@ -0,0 +1,381 @@
+package chat.giga.springai.api.hedging;
+
+import chat.giga.springai.api.GigaChatInternalProperties;
+import io.micrometer.context.ContextSnapshot;
+import io.micrometer.context.ContextSnapshotFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.slf4j.MDC;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.web.client.ResourceAccessException;
+
+/**
+ * Hedges blocking requests: if the request has not completed within a delay, a duplicate is sent and
+ * the first successful response wins.
+ *
+ * <p>Both the request and its duplicate run on pool threads with the caller context propagated through
+ * {@link ContextSnapshot} and the MDC, while the caller thread only waits for the first successful response and
+ * is never interrupted by the hedger. The losing attempt is abandoned by cancelling its future, which interrupts
+ * its pool thread only; the request therefore must respond to interruption. Duplicates are limited to
+ * {@code maxConcurrentHedges} threads; the request pool grows with the number of waiting callers.
+ *
+ * <p>The delay is the configured percentile of recent successful response times of the same model,
+ * bounded by {@code minDelay} and {@code maxDelay}; until enough responses are observed, {@code maxDelay}
+ * is used. Hedges are limited by a budget: every request earns {@code budget} of a hedge, so with the default
+ * {@code 0.05} hedging adds at most 5% of requests. A hedge is not sent while the pool is busy either.
+ *
+ * <p>Metrics tagged with {@code model}: {@value #SENT_COUNTER} - duplicates sent, {@value #WON_COUNTER} -
+ * duplicates that responded first, {@value #BUDGET_EXHAUSTED_COUNTER} - duplicates not sent because the
+ * budget was spent.
+ *
+ * <p>The hedger owns its threads and must be {@link #close() closed}, {@link chat.giga.springai.api.chat.GigaChatApi}
+ * does it on its own close.
+ */
+public class GigaChatRequestHedger implements AutoCloseable {
+
+    public static final String SENT_COUNTER = "gigachat.api.hedge.sent";
+    public static final String WON_COUNTER = "gigachat.api.hedge.won";
+    public static final String BUDGET_EXHAUSTED_COUNTER = "gigachat.api.hedge.budget.exhausted";
+
+    private static final String NONE = "none";
+    // at most 10 hedges in a row after a long period without hedging
+    private static final double MAX_CREDITS = 10;
+
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+    private final double budget;
+    private final ScheduledExecutorService timer;
+    private final ExecutorService requestExecutor;
+    private final ExecutorService executor;
+    private final ContextSnapshotFactory contextSnapshotFactory =
+            ContextSnapshotFactory.builder().build();
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+    private final Meter.MeterProvider<Counter> sent;
+    private final Meter.MeterProvider<Counter> won;
+    private final Meter.MeterProvider<Counter> budgetExhausted;
+    private double credits;
+
+    public GigaChatRequestHedger(GigaChatInternalProperties.Hedging properties, MeterRegistry meterRegistry) {
+        Assert.notNull(properties, "properties must not be null");
+        Assert.isTrue(
+                properties.getPercentile() > 0 && properties.getPercentile() < 1, "percentile must be between 0 and 1");
+        Assert.notNull(properties.getMinDelay(), "minDelay must not be null");
+        Assert.notNull(properties.getMaxDelay(), "maxDelay must not be null");
+        Assert.isTrue(
+                properties.getMaxDelay().compareTo(properties.getMinDelay()) >= 0,
+                "maxDelay must not be less than minDelay");
+        Assert.isTrue(properties.getBudget() >= 0, "budget must not be negative");
+        Assert.isTrue(properties.getMaxConcurrentHedges() > 0, "maxConcurrentHedges must be positive");
+        Assert.notNull(meterRegistry, "meterRegistry must not be null");
+        this.percentile = properties.getPercentile();
+        this.minDelayNanos = properties.getMinDelay().toNanos();
+        this.maxDelayNanos = properties.getMaxDelay().toNanos();
+        this.budget = properties.getBudget();
+        this.timer = createTimer();
+        this.requestExecutor = createExecutor("gigachat-hedging-request-", Integer.MAX_VALUE);
+        this.executor = createExecutor("gigachat-hedging-", properties.getMaxConcurrentHedges());
+        this.sent = Counter.builder(SENT_COUNTER)
+                .description("Number of hedged GigaChat API requests sent")
+                .withRegistry(meterRegistry);
+        this.won = Counter.builder(WON_COUNTER)
+                .description("Number of hedged GigaChat API requests that responded first")
+                .withRegistry(meterRegistry);
+        this.budgetExhausted = Counter.builder(BUDGET_EXHAUSTED_COUNTER)
+                .description("Number of GigaChat API requests not hedged because the budget was spent")
+                .withRegistry(meterRegistry);
+    }
+
+    /**
+     * Executes the request with hedging and returns the first successful response. If both attempts fail,
+     * the error that occurred first is thrown.
+     *
+     * @param model model of the request, response times are tracked per model
+     * @param request the request, called on pool threads with the caller context; must respond to interruption
+     */
+    public <T> T execute(@Nullable String model, Supplier<T> request) {
+        String modelTag = model != null ? model : NONE;
+        LatencyWindow window = latencies.computeIfAbsent(modelTag, key -> new LatencyWindow());
+        earnCredit();
+
+        HedgedCall<T> call = new HedgedCall<>(modelTag, request);
+        if (!call.startPrimary()) {
+            // hedger is closed - the request is executed without hedging
+            return request.get();
+        }
+        ScheduledFuture<?> hedgeTimer = null;
+        try {
+            hedgeTimer = timer.schedule(call::startHedge, window.delayNanos(), TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException ex) {
+            // hedger is closed concurrently - the request already sent is awaited without hedging
+        }
+        try {
+            return call.await(window);
+        } finally {
+            if (hedgeTimer != null) {
+                hedgeTimer.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Stops the hedging threads, attempts in flight are interrupted. Requests executed after closing
+     * run on the caller thread and are not hedged.
+     */
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        requestExecutor.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Current hedging delay for the model.
+     */
+    Duration delay(@Nullable String model) {
+        LatencyWindow window = latencies.get(model != null ? model : NONE);
+        return Duration.ofNanos(window != null ? window.delayNanos() : maxDelayNanos);
+    }
+
+    private synchronized void earnCredit() {
+        credits = Math.min(MAX_CREDITS, credits + budget);
+    }
+
+    private synchronized boolean spendCredit() {
+        if (credits >= 1) {
+            credits -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    private synchronized void refundCredit() {
+        credits = Math.min(MAX_CREDITS, credits + 1);
+    }
+
+    private Runnable withCallerContext(Runnable task) {
+        Runnable withSnapshot = contextSnapshotFactory.captureAll().wrap(task);
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        return () -> {
+            Map<String, String> previous = MDC.getCopyOfContextMap();
+            setMdc(mdc);
+            try {
+                withSnapshot.run();
+            } finally {
+                setMdc(previous);
+            }
+        };
+    }
+
+    private static void setMdc(@Nullable Map<String, String> mdc) {
+        if (mdc != null) {
+            MDC.setContextMap(mdc);
+        } else {
+            MDC.clear();
+        }
+    }
+
+    private static ScheduledExecutorService createTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, task -> {
+            Thread thread = new Thread(task, "gigachat-hedging-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // cancelled timers of requests answered in time must not pile up in the queue
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
+    private static ExecutorService createExecutor(String namePrefix, int maxThreads) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return new ThreadPoolExecutor(0, maxThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), task -> {
+            Thread thread = new Thread(task, namePrefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * State of a single hedged request shared by the caller thread, the timer and both attempts. The caller only
+     * waits for the outcome, the attempts are abandoned by cancelling their futures.
+     */
+    private final class HedgedCall<T> {
+        private final String modelTag;
+        private final Supplier<T> request;
+        // the caller context is captured up front, the attempts and the timer run on their own threads
+        private final Runnable primary;
+        private final Runnable hedge;
+
+        private boolean finished;
+        private int started;
+        private int failed;
+
+        @Nullable
+        private Future<?> primaryFuture;
+
+        @Nullable
+        private Future<?> hedgeFuture;
+
+        @Nullable
+        private Attempt<T> result;
+
+        private boolean hedgeWon;
+
+        @Nullable
+        private Throwable firstError;
+
+        private HedgedCall(String modelTag, Supplier<T> request) {
+            this.modelTag = modelTag;
+            this.request = request;
+            this.primary = withCallerContext(() -> runAttempt(false));
+            this.hedge = withCallerContext(() -> runAttempt(true));
+        }
+
+        synchronized boolean startPrimary() {
+            try {
+                primaryFuture = requestExecutor.submit(primary);
+            } catch (RejectedExecutionException ex) {
+                return false;
+            }
+            started++;
+            return true;
+        }
+
+        synchronized void startHedge() {
+            if (finished || result != null || failed > 0) {
+                return;
+            }
+            if (!spendCredit()) {
+                budgetExhausted.withTags("model", modelTag).increment();
+                return;
+            }
+            try {
+                hedgeFuture = executor.submit(hedge);
+            } catch (RejectedExecutionException ex) {
+                // all hedging threads are busy or the hedger is closed
+                refundCredit();
+                return;
+            }
+            started++;
+            sent.withTags("model", modelTag).increment();
+        }
+
+        private void runAttempt(boolean isHedge) {
+            long start = System.nanoTime();
+            try {
+                T value = request.get();
+                completed(isHedge, new Attempt<>(value, System.nanoTime() - start), null);
+            } catch (Throwable ex) {
+                completed(isHedge, null, ex);
+            }
+        }
+
+        private synchronized void completed(boolean isHedge, @Nullable Attempt<T> attempt, @Nullable Throwable error) {
+            if (finished || result != null) {
+                return;
+            }
+            if (attempt != null) {
+                result = attempt;
+                hedgeWon = isHedge;
+            } else {
+                if (firstError == null) {
+                    firstError = error;
+                }
+                failed++;
+            }
+            notifyAll();
+        }
+
+        synchronized T await(LatencyWindow window) {
+            try {
+                while (result == null && failed < started) {
+                    wait();
+                }
+                if (result == null) {
+                    throw rethrow(firstError);
+                }
+                window.record(result.durationNanos());
+                if (hedgeWon) {
+                    won.withTags("model", modelTag).increment();
+                }
+                return result.value();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new ResourceAccessException("Interrupted while waiting for a GigaChat API response");
+            } finally {
+                finished = true;
+                cancel(primaryFuture);
+                cancel(hedgeFuture);
+            }
+        }
+
+        private static void cancel(@Nullable Future<?> future) {
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+
+        private static RuntimeException rethrow(@Nullable Throwable error) {
+            if (error instanceof RuntimeException runtimeException) {
+                return runtimeException;
+            }
+            if (error instanceof Error err) {
+                throw err;
+            }
+            return new UndeclaredThrowableException(error);
+        }
+    }
+
+    private record Attempt<T>(T value, long durationNanos) {}
+
+    /**
+     * Last {@value #SIZE} response times; the percentile is recomputed every {@value #RECOMPUTE_INTERVAL}
+     * responses rather than on every request.
+     */
+    private final class LatencyWindow {
+        private static final int SIZE = 1000;
+        private static final int MIN_SAMPLES = 20;
+        private static final int RECOMPUTE_INTERVAL = 20;
+
+        private final long[] samples = new long[SIZE];
+        private int count;
+        private int next;
+        private int sinceRecompute;
+        private volatile long delayNanos = maxDelayNanos;
+
+        long delayNanos() {
+            return delayNanos;
+        }
+
+        synchronized void record(long durationNanos) {
+            samples[next] = durationNanos;
+            next = (next + 1) % SIZE;
+            count = Math.min(count + 1, SIZE);
+            if (++sinceRecompute >= RECOMPUTE_INTERVAL && count >= MIN_SAMPLES) {
+                sinceRecompute = 0;
+                long[] sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                long value = sorted[Math.min(count - 1, (int) Math.ceil(percentile * count) - 1)];
+                delayNanos = Math.max(minDelayNanos, Math.min(maxDelayNanos, value));
+            }
+        }
+    }
+}
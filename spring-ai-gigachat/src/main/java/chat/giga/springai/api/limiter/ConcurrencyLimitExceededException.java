@@ -0,0 +1,22 @@
+package chat.giga.springai.api.limiter;
+
+import org.springframework.ai.retry.NonTransientAiException;
+
+/**
+ * Thrown when a request to the GigaChat API is rejected by {@link GigaChatConcurrencyLimiter}
+ * before it is sent: the queue of waiting requests is full or the request has waited too long.
+ *
+ * <p>The exception is non-transient: the rejection is a local decision made under load, so retrying it
+ * right away through {@link org.springframework.ai.retry.RetryUtils#DEFAULT_RETRY_TEMPLATE} or the stream
+ * retry of the chat model would only add more waiting requests. Callers may retry it later on their own.
+ */
+public class ConcurrencyLimitExceededException extends NonTransientAiException {
+
+    public ConcurrencyLimitExceededException(String message) {
+        super(message);
+    }
+
+    public ConcurrencyLimitExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
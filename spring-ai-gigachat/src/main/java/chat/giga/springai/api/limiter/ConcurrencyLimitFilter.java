@@ -0,0 +1,53 @@
+package chat.giga.springai.api.limiter;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+/**
+ * An {@link ExchangeFilterFunction} that limits concurrent WebClient requests with
+ * {@link GigaChatConcurrencyLimiter}.
+ *
+ * <p>The permit is acquired without blocking and is held until the response body is fully consumed,
+ * so a streaming response occupies its slot for the whole generation. {@code 429} and {@code 503}
+ * responses release the permit immediately. Requests without the
+ * {@link GigaChatConcurrencyLimiter#ENDPOINT_ATTRIBUTE} attribute are not limited.
+ *
+ * @param limiter the concurrency limiter
+ *
+ * @see GigaChatConcurrencyLimiter
+ */
+public record ConcurrencyLimitFilter(GigaChatConcurrencyLimiter limiter) implements ExchangeFilterFunction {
+
+    @Override
+    @SuppressWarnings("NullableProblems")
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        if (!(request.attribute(GigaChatConcurrencyLimiter.ENDPOINT_ATTRIBUTE).orElse(null)
+                instanceof String endpoint)) {
+            return next.exchange(request);
+        }
+        String model = (String)
+                request.attribute(GigaChatConcurrencyLimiter.MODEL_ATTRIBUTE).orElse(null);
+        return limiter.acquireAsync(endpoint, model).flatMap(permit -> next.exchange(request)
+                .map(response -> releaseOnBodyCompletion(response, permit))
+                .doOnError(permit::release)
+                .doOnCancel(permit::release));
+    }
+
+    private static ClientResponse releaseOnBodyCompletion(
+            ClientResponse response, GigaChatConcurrencyLimiter.Permit permit) {
+        HttpStatusCode status = response.statusCode();
+        HttpHeaders headers = response.headers().asHttpHeaders();
+        if (status.value() == 429 || status.value() == 503) {
+            permit.release(status, headers);
+            return response;
+        }
+        return response.mutate()
+                .body(body -> body.doOnError(permit::release).doFinally(signal -> permit.release(status, headers)))
+                .build();
+    }
+}
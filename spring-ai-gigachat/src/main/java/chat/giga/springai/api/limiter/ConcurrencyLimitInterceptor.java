@@ -0,0 +1,41 @@
+package chat.giga.springai.api.limiter;
+
+import java.io.IOException;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * A {@link ClientHttpRequestInterceptor} that limits concurrent RestClient requests with
+ * {@link GigaChatConcurrencyLimiter}.
+ *
+ * <p>The permit is acquired before the request is executed, blocking the calling thread while the request
+ * waits in the queue, and is released as soon as the response status is received. Requests without
+ * the {@link GigaChatConcurrencyLimiter#ENDPOINT_ATTRIBUTE} attribute are not limited.
+ *
+ * @param limiter the concurrency limiter
+ *
+ * @see GigaChatConcurrencyLimiter
+ */
+public record ConcurrencyLimitInterceptor(GigaChatConcurrencyLimiter limiter) implements ClientHttpRequestInterceptor {
+
+    @Override
+    @SuppressWarnings("NullableProblems")
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        if (!(request.getAttributes().get(GigaChatConcurrencyLimiter.ENDPOINT_ATTRIBUTE) instanceof String endpoint)) {
+            return execution.execute(request, body);
+        }
+        String model = (String) request.getAttributes().get(GigaChatConcurrencyLimiter.MODEL_ATTRIBUTE);
+        GigaChatConcurrencyLimiter.Permit permit = limiter.acquire(endpoint, model);
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            permit.release(response.getStatusCode(), response.getHeaders());
+            return response;
+        } catch (IOException | RuntimeException ex) {
+            permit.release(ex);
+            throw ex;
+        }
+    }
+}
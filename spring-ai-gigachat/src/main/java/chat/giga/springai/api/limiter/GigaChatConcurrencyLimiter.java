@@ -0,0 +1,440 @@
+package chat.giga.springai.api.limiter;
+
+import chat.giga.springai.api.GigaChatInternalProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Client-side adaptive limit of concurrent requests to the GigaChat API.
+ *
+ * <p>Requests are partitioned by endpoint and model, taken from the {@link #ENDPOINT_ATTRIBUTE} and
+ * {@link #MODEL_ATTRIBUTE} request attributes; requests without the endpoint attribute are not limited.
+ * The limit of every partition is adjusted with the AIMD algorithm:
+ * <ul>
+ *   <li>a successful response increases the limit by one if at least half of it was in use</li>
+ *   <li>a {@code 429}/{@code 503} response or a timeout multiplies the limit by {@code backoffRatio}</li>
+ *   <li>a {@code Retry-After} header of such a response pauses the partition until the given time</li>
+ * </ul>
+ *
+ * <p>Requests over the limit wait in a bounded FIFO queue. When the queue is full or the wait exceeds
+ * {@code maxQueueWait}, the request fails with {@link ConcurrencyLimitExceededException} without
+ * reaching the server.
+ *
+ * <p>The limit, the number of in-flight requests and the queue size of every partition are published as
+ * {@value #LIMIT_GAUGE}, {@value #IN_FLIGHT_GAUGE} and {@value #QUEUE_SIZE_GAUGE} gauges tagged with
+ * {@code endpoint} and {@code model}. Rejected requests are counted in {@value #REJECTED_COUNTER}.
+ *
+ * @see ConcurrencyLimitInterceptor
+ * @see ConcurrencyLimitFilter
+ */
+@Slf4j
+public class GigaChatConcurrencyLimiter {
+
+    /**
+     * Request attribute with the endpoint (path template) the request is limited by.
+     */
+    public static final String ENDPOINT_ATTRIBUTE = GigaChatConcurrencyLimiter.class.getName() + ".endpoint";
+
+    /**
+     * Request attribute with the model the request is limited by.
+     */
+    public static final String MODEL_ATTRIBUTE = GigaChatConcurrencyLimiter.class.getName() + ".model";
+
+    public static final String LIMIT_GAUGE = "gigachat.api.concurrency.limit";
+    public static final String IN_FLIGHT_GAUGE = "gigachat.api.concurrency.in.flight";
+    public static final String QUEUE_SIZE_GAUGE = "gigachat.api.concurrency.queue.size";
+    public static final String REJECTED_COUNTER = "gigachat.api.concurrency.rejected";
+
+    private static final String NONE = "none";
+
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final int maxQueueSize;
+    private final Duration maxQueueWait;
+    private final MeterRegistry meterRegistry;
+    private final Scheduler scheduler;
+    private final LongSupplier nanoClock;
+    private final Map<PartitionKey, Partition> partitions = new ConcurrentHashMap<>();
+
+    public GigaChatConcurrencyLimiter(
+            GigaChatInternalProperties.ConcurrencyLimit properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, Schedulers.parallel(), System::nanoTime);
+    }
+
+    GigaChatConcurrencyLimiter(
+            GigaChatInternalProperties.ConcurrencyLimit properties,
+            MeterRegistry meterRegistry,
+            Scheduler scheduler,
+            LongSupplier nanoClock) {
+        Assert.notNull(properties, "properties must not be null");
+        Assert.isTrue(properties.getMinLimit() > 0, "minLimit must be greater than 0");
+        Assert.isTrue(properties.getMaxLimit() >= properties.getMinLimit(), "maxLimit must not be less than minLimit");
+        Assert.isTrue(
+                properties.getBackoffRatio() > 0 && properties.getBackoffRatio() < 1,
+                "backoffRatio must be between 0 and 1");
+        Assert.isTrue(properties.getMaxQueueSize() >= 0, "maxQueueSize must not be negative");
+        Assert.notNull(properties.getMaxQueueWait(), "maxQueueWait must not be null");
+        Assert.notNull(meterRegistry, "meterRegistry must not be null");
+        this.initialLimit =
+                Math.max(properties.getMinLimit(), Math.min(properties.getMaxLimit(), properties.getInitialLimit()));
+        this.minLimit = properties.getMinLimit();
+        this.maxLimit = properties.getMaxLimit();
+        this.backoffRatio = properties.getBackoffRatio();
+        this.maxQueueSize = properties.getMaxQueueSize();
+        this.maxQueueWait = properties.getMaxQueueWait();
+        this.meterRegistry = meterRegistry;
+        this.scheduler = scheduler;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Acquires a permit, blocking the calling thread while the request waits in the queue.
+     *
+     * @throws ConcurrencyLimitExceededException if the queue is full or the wait exceeds {@code maxQueueWait}
+     */
+    public Permit acquire(String endpoint, @Nullable String model) {
+        Partition partition = partition(endpoint, model);
+        CompletableFuture<Permit> permit = partition.acquire();
+        try {
+            return permit.get(maxQueueWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            partition.abandon(permit);
+            throw partition.rejected("timeout");
+        } catch (InterruptedException ex) {
+            partition.abandon(permit);
+            Thread.currentThread().interrupt();
+            throw new ConcurrencyLimitExceededException("Interrupted while waiting for a permit to " + endpoint, ex);
+        } catch (ExecutionException ex) {
+            throw (RuntimeException) ex.getCause();
+        }
+    }
+
+    /**
+     * Acquires a permit without blocking: the returned {@link Mono} completes when the request leaves the queue.
+     * Cancelling the subscription removes the request from the queue.
+     */
+    public Mono<Permit> acquireAsync(String endpoint, @Nullable String model) {
+        return Mono.defer(() -> {
+            Partition partition = partition(endpoint, model);
+            return Mono.<Permit>create(sink -> {
+                        CompletableFuture<Permit> permit = partition.acquire();
+                        permit.whenComplete((value, error) -> {
+                            if (error instanceof CancellationException) {
+                                return;
+                            }
+                            if (error != null) {
+                                sink.error(error instanceof ExecutionException ? error.getCause() : error);
+                            } else {
+                                sink.success(value);
+                            }
+                        });
+                        sink.onCancel(() -> partition.abandon(permit));
+                    })
+                    .timeout(maxQueueWait, Mono.error(() -> partition.rejected("timeout")), scheduler);
+        });
+    }
+
+    private Partition partition(String endpoint, @Nullable String model) {
+        Assert.hasText(endpoint, "endpoint must not be empty");
+        return partitions.computeIfAbsent(new PartitionKey(endpoint, model != null ? model : NONE), Partition::new);
+    }
+
+    /**
+     * Parses {@code Retry-After} in seconds or as an HTTP date.
+     */
+    @Nullable
+    static Duration retryAfter(HttpHeaders headers) {
+        String value = headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Long.parseLong(value.trim()));
+        } catch (NumberFormatException ex) {
+            try {
+                return Duration.between(
+                        ZonedDateTime.now(), ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME));
+            } catch (DateTimeParseException e) {
+                log.debug("Unable to parse Retry-After header: {}", value);
+                return null;
+            }
+        }
+    }
+
+    private static boolean isOverloaded(HttpStatusCode status) {
+        return status.value() == HttpStatus.TOO_MANY_REQUESTS.value()
+                || status.value() == HttpStatus.SERVICE_UNAVAILABLE.value();
+    }
+
+    private static boolean isTimeout(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SocketTimeoutException
+                    || cause instanceof HttpTimeoutException
+                    || cause instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record PartitionKey(String endpoint, String model) {}
+
+    /**
+     * Limit, in-flight requests and queue of one endpoint and model.
+     */
+    private final class Partition {
+        private final PartitionKey key;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ArrayDeque<CompletableFuture<Permit>> queue = new ArrayDeque<>();
+        private final Tags tags;
+        private volatile int limit = initialLimit;
+        private volatile int inFlight;
+        private long pausedUntilNanos;
+        private boolean resumeScheduled;
+
+        Partition(PartitionKey key) {
+            this.key = key;
+            this.tags = Tags.of("endpoint", key.endpoint(), "model", key.model());
+            Gauge.builder(LIMIT_GAUGE, this, partition -> partition.limit)
+                    .tags(tags)
+                    .description("Current limit of concurrent GigaChat API requests")
+                    .register(meterRegistry);
+            Gauge.builder(IN_FLIGHT_GAUGE, this, partition -> partition.inFlight)
+                    .tags(tags)
+                    .description("Number of in-flight GigaChat API requests")
+                    .register(meterRegistry);
+            Gauge.builder(QUEUE_SIZE_GAUGE, this, Partition::queueSize)
+                    .tags(tags)
+                    .description("Number of GigaChat API requests waiting for a permit")
+                    .register(meterRegistry);
+        }
+
+        CompletableFuture<Permit> acquire() {
+            lock.lock();
+            try {
+                if (queue.isEmpty() && inFlight < limit && !isPaused()) {
+                    return CompletableFuture.completedFuture(newPermit());
+                }
+                if (queue.size() >= maxQueueSize) {
+                    return CompletableFuture.failedFuture(rejected("queue_full"));
+                }
+                CompletableFuture<Permit> permit = new CompletableFuture<>();
+                queue.add(permit);
+                if (isPaused()) {
+                    scheduleResume();
+                }
+                return permit;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Removes a request that stopped waiting from the queue, or releases its permit if it was already granted.
+         */
+        void abandon(CompletableFuture<Permit> permit) {
+            if (permit.cancel(false)) {
+                lock.lock();
+                try {
+                    queue.remove(permit);
+                } finally {
+                    lock.unlock();
+                }
+            } else if (!permit.isCompletedExceptionally()) {
+                permit.join().release();
+            }
+        }
+
+        ConcurrencyLimitExceededException rejected(String reason) {
+            Counter.builder(REJECTED_COUNTER)
+                    .tags(tags.and("reason", reason))
+                    .description("Number of GigaChat API requests rejected by the concurrency limiter")
+                    .register(meterRegistry)
+                    .increment();
+            return new ConcurrencyLimitExceededException("Concurrency limit of %s for model %s exceeded (%s)"
+                    .formatted(key.endpoint(), key.model(), reason));
+        }
+
+        void release(Outcome outcome, @Nullable Duration retryAfter) {
+            List<CompletableFuture<Permit>> granted;
+            lock.lock();
+            try {
+                if (outcome == Outcome.SUCCESS && inFlight * 2 >= limit) {
+                    limit = Math.min(maxLimit, limit + 1);
+                } else if (outcome == Outcome.DROPPED) {
+                    limit = Math.max(minLimit, (int) (limit * backoffRatio));
+                    if (retryAfter != null && !retryAfter.isNegative() && !retryAfter.isZero()) {
+                        pause(retryAfter);
+                    }
+                }
+                inFlight--;
+                granted = grant();
+            } finally {
+                lock.unlock();
+            }
+            complete(granted);
+        }
+
+        private void resume() {
+            List<CompletableFuture<Permit>> granted;
+            lock.lock();
+            try {
+                resumeScheduled = false;
+                granted = grant();
+            } finally {
+                lock.unlock();
+            }
+            complete(granted);
+        }
+
+        /**
+         * Takes requests from the queue while there is room under the limit. Must be called under the lock,
+         * the futures are completed outside of it.
+         */
+        private List<CompletableFuture<Permit>> grant() {
+            if (queue.isEmpty()) {
+                return List.of();
+            }
+            if (isPaused()) {
+                scheduleResume();
+                return List.of();
+            }
+            List<CompletableFuture<Permit>> granted = new ArrayList<>();
+            while (!queue.isEmpty() && inFlight < limit) {
+                CompletableFuture<Permit> permit = queue.poll();
+                if (!permit.isDone()) {
+                    inFlight++;
+                    granted.add(permit);
+                }
+            }
+            return granted;
+        }
+
+        private void complete(List<CompletableFuture<Permit>> granted) {
+            for (CompletableFuture<Permit> future : granted) {
+                Permit permit = new Permit(this);
+                if (!future.complete(permit)) {
+                    // the request stopped waiting at the same moment
+                    permit.release();
+                }
+            }
+        }
+
+        private Permit newPermit() {
+            inFlight++;
+            return new Permit(this);
+        }
+
+        private void pause(Duration retryAfter) {
+            long until = nanoClock.getAsLong() + retryAfter.toNanos();
+            if (until - pausedUntilNanos > 0) {
+                pausedUntilNanos = until;
+            }
+            log.debug("Requests to {} for model {} are paused for {}", key.endpoint(), key.model(), retryAfter);
+        }
+
+        private boolean isPaused() {
+            return pausedUntilNanos - nanoClock.getAsLong() > 0;
+        }
+
+        private void scheduleResume() {
+            if (!resumeScheduled) {
+                resumeScheduled = true;
+                long delay = Math.max(0, pausedUntilNanos - nanoClock.getAsLong());
+                scheduler.schedule(this::resume, delay, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private int queueSize() {
+            lock.lock();
+            try {
+                return queue.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private enum Outcome {
+        SUCCESS,
+        DROPPED,
+        IGNORED
+    }
+
+    /**
+     * Permission to execute one request. Must be released exactly once when the request completes;
+     * repeated releases are ignored.
+     */
+    public static final class Permit {
+        private final Partition partition;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Partition partition) {
+            this.partition = partition;
+        }
+
+        /**
+         * Releases the permit with the response status: {@code 429} and {@code 503} decrease the limit
+         * and pause the partition for {@code Retry-After}, other statuses may increase it.
+         */
+        public void release(HttpStatusCode status, HttpHeaders headers) {
+            if (isOverloaded(status)) {
+                release(Outcome.DROPPED, retryAfter(headers));
+            } else {
+                release(Outcome.SUCCESS, null);
+            }
+        }
+
+        /**
+         * Releases the permit of a failed request: timeouts decrease the limit, other errors do not change it.
+         */
+        public void release(Throwable error) {
+            release(isTimeout(error) ? Outcome.DROPPED : Outcome.IGNORED, null);
+        }
+
+        /**
+         * Releases the permit without changing the limit, e.g. when the request was cancelled.
+         */
+        public void release() {
+            release(Outcome.IGNORED, null);
+        }
+
+        private void release(Outcome outcome, @Nullable Duration retryAfter) {
+            if (released.compareAndSet(false, true)) {
+                partition.release(outcome, retryAfter);
+            }
+        }
+    }
+}
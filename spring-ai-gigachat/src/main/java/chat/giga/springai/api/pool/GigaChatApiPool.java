@@ -0,0 +1,497 @@
+package chat.giga.springai.api.pool;
+
+import chat.giga.springai.api.GigaChatApiProperties;
+import chat.giga.springai.api.auth.bearer.NoopGigaAuthToken;
+import chat.giga.springai.api.auth.bearer.SimpleGigaAuthToken;
+import chat.giga.springai.api.chat.GigaChatApi;
+import chat.giga.springai.api.chat.completion.CompletionRequest;
+import chat.giga.springai.api.chat.completion.CompletionResponse;
+import chat.giga.springai.api.chat.embedding.EmbeddingsRequest;
+import chat.giga.springai.api.chat.embedding.EmbeddingsResponse;
+import chat.giga.springai.api.chat.file.DeleteFileResponse;
+import chat.giga.springai.api.chat.file.UploadFileResponse;
+import chat.giga.springai.api.chat.models.ModelsResponse;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.TrustManagerFactory;
+import org.springframework.ai.content.Media;
+import org.springframework.ai.retry.RetryUtils;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.MimeType;
+import org.springframework.web.client.ResponseErrorHandler;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link GigaChatApi} that spreads requests over several members, each with its own base URL and credentials
+ * (and therefore its own token cache and quota).
+ *
+ * <p>Every request is routed to a member chosen by {@link LoadBalancing} when it is executed (for reactive
+ * methods - on subscription, so a retried stream may go to another member). A member is ejected from
+ * routing after {@code failureThreshold} consecutive {@code 5xx}/{@code 429} responses or I/O errors, returns
+ * after {@code ejectionDuration} and gets its full share of traffic back gradually during {@code slowStart}.
+ * If all members are ejected, the one that returns first is used.
+ *
+ * <p>Files exist only in the account they were uploaded to, so the pool remembers which member uploaded
+ * or generated (an {@code <img src="...">} in a completion) a file. Downloads, deletions and completions
+ * with attachments are routed to that member.
+ *
+ * <p>Per-member metrics are tagged with {@value #MEMBER_TAG}: {@value #OUTSTANDING_GAUGE},
+ * {@value #AVAILABLE_GAUGE} ({@code 1} or {@code 0}) and {@value #EJECTIONS_COUNTER}.
+ */
+public class GigaChatApiPool extends GigaChatApi {
+
+    public static final String OUTSTANDING_GAUGE = "gigachat.api.pool.outstanding";
+    public static final String AVAILABLE_GAUGE = "gigachat.api.pool.available";
+    public static final String EJECTIONS_COUNTER = "gigachat.api.pool.ejections";
+    public static final String MEMBER_TAG = "member";
+
+    private static final Pattern IMG_ID_PATTERN = Pattern.compile("<img\\s+src=\"([a-fA-F0-9\\-]{36})\"");
+
+    /**
+     * How the pool chooses a member for a request.
+     */
+    public enum LoadBalancing {
+        /**
+         * The member with the fewest in-flight requests relative to its weight.
+         */
+        LEAST_OUTSTANDING,
+        /**
+         * Smooth weighted round robin: members get requests in proportion to their weights, interleaved.
+         */
+        WEIGHTED_ROUND_ROBIN
+    }
+
+    /**
+     * Pool member configuration.
+     *
+     * @param name name used in logs and metrics
+     * @param properties base URL and credentials of the member
+     * @param weight relative share of requests, must be positive
+     * @param kmf key managers for certificate authentication
+     * @param tmf trust managers
+     */
+    public record Member(
+            String name,
+            GigaChatApiProperties properties,
+            int weight,
+            @Nullable KeyManagerFactory kmf,
+            @Nullable TrustManagerFactory tmf) {
+        public Member {
+            Assert.hasText(name, "name must not be empty");
+            Assert.notNull(properties, "properties must not be null");
+            Assert.isTrue(weight > 0, "weight must be positive");
+        }
+
+        public Member(String name, GigaChatApiProperties properties, int weight) {
+            this(name, properties, weight, null, null);
+        }
+    }
+
+    private final List<PoolMember> members;
+    private final LoadBalancing loadBalancing;
+    private final LongSupplier nanoClock;
+    private final Map<String, PoolMember> fileOwners;
+
+    private GigaChatApiPool(Builder builder, List<PoolMember> members) {
+        super(members.get(0).api());
+        this.members = members;
+        this.loadBalancing = builder.loadBalancing;
+        this.nanoClock = builder.nanoClock;
+        int maxFiles = builder.maxTrackedFiles;
+        this.fileOwners = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PoolMember> eldest) {
+                return size() > maxFiles;
+            }
+        });
+        for (PoolMember member : members) {
+            Gauge.builder(OUTSTANDING_GAUGE, member, m -> m.outstanding().get())
+                    .tag(MEMBER_TAG, member.name())
+                    .description("Number of in-flight requests of a GigaChat API pool member")
+                    .register(builder.meterRegistry);
+            Gauge.builder(AVAILABLE_GAUGE, member, m -> m.isAvailable(nanoClock.getAsLong()) ? 1 : 0)
+                    .tag(MEMBER_TAG, member.name())
+                    .description("Whether a GigaChat API pool member receives requests")
+                    .register(builder.meterRegistry);
+            FunctionCounter.builder(EJECTIONS_COUNTER, member, PoolMember::ejections)
+                    .tag(MEMBER_TAG, member.name())
+                    .description("Number of times a GigaChat API pool member was ejected")
+                    .register(builder.meterRegistry);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Закрывает клиенты всех участников пула.
+     */
+    @Override
+    public void close() {
+        this.members.forEach(member -> member.api().close());
+    }
+
+    @Override
+    public ResponseEntity<CompletionResponse> chatCompletionEntity(
+            CompletionRequest chatRequest, @Nullable HttpHeaders headers) {
+        PoolMember member = selectFor(chatRequest);
+        ResponseEntity<CompletionResponse> response =
+                execute(member, api -> api.chatCompletionEntity(chatRequest, headers));
+        rememberGeneratedFiles(member, response.getBody());
+        return response;
+    }
+
+    @Override
+    public Flux<CompletionResponse> chatCompletionStream(CompletionRequest chatRequest, @Nullable HttpHeaders headers) {
+        return executeMany(() -> selectFor(chatRequest), api -> api.chatCompletionStream(chatRequest, headers));
+    }
+
+    @Override
+    public ResponseEntity<EmbeddingsResponse> embeddings(EmbeddingsRequest embeddingRequest) {
+        return execute(select(), api -> api.embeddings(embeddingRequest));
+    }
+
+    @Override
+    public Mono<EmbeddingsResponse> embeddingsAsync(EmbeddingsRequest embeddingRequest) {
+        return Mono.defer(() -> executeOne(select(), api -> api.embeddingsAsync(embeddingRequest)));
+    }
+
+    @Override
+    public ResponseEntity<UploadFileResponse> uploadFile(Media media) {
+        PoolMember member = select();
+        ResponseEntity<UploadFileResponse> response = execute(member, api -> api.uploadFile(media));
+        if (response.getBody() != null) {
+            rememberFile(member, String.valueOf(response.getBody().id()));
+        }
+        return response;
+    }
+
+    @Override
+    public Mono<UploadFileResponse> uploadFileAsync(Resource resource, MimeType mimeType, String filename) {
+        return Mono.defer(() -> {
+            PoolMember member = select();
+            return executeOne(member, api -> api.uploadFileAsync(resource, mimeType, filename))
+                    .doOnNext(response -> rememberFile(member, String.valueOf(response.id())));
+        });
+    }
+
+    @Override
+    public ResponseEntity<DeleteFileResponse> deleteFile(String fileId) {
+        ResponseEntity<DeleteFileResponse> response = execute(ownerOf(fileId), api -> api.deleteFile(fileId));
+        fileOwners.remove(fileId);
+        return response;
+    }
+
+    @Override
+    public byte[] downloadFile(String fileId, @Nullable HttpHeaders headers) {
+        return execute(ownerOf(fileId), api -> api.downloadFile(fileId, headers));
+    }
+
+    @Override
+    public Flux<DataBuffer> downloadFileAsync(String fileId, @Nullable HttpHeaders headers) {
+        return executeMany(() -> ownerOf(fileId), api -> api.downloadFileAsync(fileId, headers));
+    }
+
+    @Override
+    public String getFileUrl(String fileId) {
+        return ownerOf(fileId).api().getFileUrl(fileId);
+    }
+
+    @Override
+    public ResponseEntity<ModelsResponse> models() {
+        return execute(select(), GigaChatApi::models);
+    }
+
+    /**
+     * Chooses a member for a request that is not bound to a file.
+     */
+    PoolMember select() {
+        long now = nanoClock.getAsLong();
+        List<PoolMember> available = new ArrayList<>(members.size());
+        for (PoolMember member : members) {
+            if (member.isAvailable(now)) {
+                available.add(member);
+            }
+        }
+        if (available.isEmpty()) {
+            // все участники исключены - используем того, кто вернется первым
+            PoolMember first = members.get(0);
+            for (PoolMember member : members) {
+                if (member.ejectedUntilNanos() - first.ejectedUntilNanos() < 0) {
+                    first = member;
+                }
+            }
+            return first;
+        }
+        return switch (loadBalancing) {
+            case LEAST_OUTSTANDING -> leastOutstanding(available, now);
+            case WEIGHTED_ROUND_ROBIN -> weightedRoundRobin(available, now);
+        };
+    }
+
+    private static PoolMember leastOutstanding(List<PoolMember> available, long now) {
+        PoolMember best = null;
+        double bestScore = Double.MAX_VALUE;
+        for (PoolMember member : available) {
+            double score = (member.outstanding().get() + 1) / member.effectiveWeight(now);
+            if (score < bestScore) {
+                best = member;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    private synchronized PoolMember weightedRoundRobin(List<PoolMember> available, long now) {
+        PoolMember best = null;
+        double total = 0;
+        for (PoolMember member : available) {
+            double weight = member.effectiveWeight(now);
+            member.currentWeight += weight;
+            total += weight;
+            if (best == null || member.currentWeight > best.currentWeight) {
+                best = member;
+            }
+        }
+        best.currentWeight -= total;
+        return best;
+    }
+
+    private PoolMember selectFor(CompletionRequest chatRequest) {
+        if (chatRequest.getMessages() != null) {
+            for (CompletionRequest.Message message : chatRequest.getMessages()) {
+                if (!CollectionUtils.isEmpty(message.getAttachments())) {
+                    for (Object attachment : message.getAttachments()) {
+                        PoolMember owner = fileOwners.get(String.valueOf(attachment));
+                        if (owner != null) {
+                            return owner;
+                        }
+                    }
+                }
+            }
+        }
+        return select();
+    }
+
+    private PoolMember ownerOf(String fileId) {
+        PoolMember owner = fileOwners.get(fileId);
+        return owner != null ? owner : select();
+    }
+
+    private void rememberFile(PoolMember member, String fileId) {
+        fileOwners.put(fileId, member);
+    }
+
+    private void rememberGeneratedFiles(PoolMember member, @Nullable CompletionResponse response) {
+        if (response == null || response.getChoices() == null) {
+            return;
+        }
+        for (CompletionResponse.Choice choice : response.getChoices()) {
+            if (choice.getMessage() != null && choice.getMessage().getContent() != null) {
+                Matcher matcher = IMG_ID_PATTERN.matcher(choice.getMessage().getContent());
+                while (matcher.find()) {
+                    rememberFile(member, matcher.group(1));
+                }
+            }
+        }
+    }
+
+    private static <T> T execute(PoolMember member, Function<GigaChatApi, T> call) {
+        member.outstanding().incrementAndGet();
+        try {
+            return call.apply(member.api());
+        } finally {
+            member.outstanding().decrementAndGet();
+        }
+    }
+
+    private static <T> Mono<T> executeOne(PoolMember member, Function<GigaChatApi, Mono<T>> call) {
+        return Mono.defer(() -> {
+            member.outstanding().incrementAndGet();
+            return call.apply(member.api())
+                    .doFinally(signal -> member.outstanding().decrementAndGet());
+        });
+    }
+
+    private static <T> Flux<T> executeMany(Supplier<PoolMember> selector, Function<GigaChatApi, Flux<T>> call) {
+        return Flux.defer(() -> {
+            PoolMember member = selector.get();
+            member.outstanding().incrementAndGet();
+            return call.apply(member.api())
+                    .doFinally(signal -> member.outstanding().decrementAndGet());
+        });
+    }
+
+    public static class Builder {
+        private final List<Member> members = new ArrayList<>();
+        private LoadBalancing loadBalancing = LoadBalancing.LEAST_OUTSTANDING;
+        private int failureThreshold = 5;
+        private Duration ejectionDuration = Duration.ofSeconds(30);
+        private Duration slowStart = Duration.ofSeconds(30);
+        private int maxTrackedFiles = 10_000;
+        private RestClient.Builder restClientBuilder = RestClient.builder();
+        private WebClient.Builder webClientBuilder = WebClient.builder();
+        private ResponseErrorHandler responseErrorHandler = RetryUtils.DEFAULT_RESPONSE_ERROR_HANDLER;
+        private MeterRegistry meterRegistry = Metrics.globalRegistry;
+        private LongSupplier nanoClock = System::nanoTime;
+
+        private Builder() {}
+
+        public Builder member(Member member) {
+            Assert.notNull(member, "member must not be null");
+            this.members.add(member);
+            return this;
+        }
+
+        public Builder member(String name, GigaChatApiProperties properties) {
+            return member(new Member(name, properties, 1));
+        }
+
+        public Builder member(String name, GigaChatApiProperties properties, int weight) {
+            return member(new Member(name, properties, weight));
+        }
+
+        public Builder loadBalancing(LoadBalancing loadBalancing) {
+            this.loadBalancing = loadBalancing;
+            return this;
+        }
+
+        /**
+         * Consecutive {@code 5xx}/{@code 429} responses or I/O errors after which a member is ejected.
+         */
+        public Builder failureThreshold(int failureThreshold) {
+            this.failureThreshold = failureThreshold;
+            return this;
+        }
+
+        public Builder ejectionDuration(Duration ejectionDuration) {
+            this.ejectionDuration = ejectionDuration;
+            return this;
+        }
+
+        /**
+         * Time during which a returned member's weight grows back to full, {@link Duration#ZERO} to disable.
+         */
+        public Builder slowStart(Duration slowStart) {
+            this.slowStart = slowStart;
+            return this;
+        }
+
+        /**
+         * How many file ids the pool remembers to route file requests to the member that owns the file.
+         */
+        public Builder maxTrackedFiles(int maxTrackedFiles) {
+            this.maxTrackedFiles = maxTrackedFiles;
+            return this;
+        }
+
+        public Builder restClientBuilder(RestClient.Builder restClientBuilder) {
+            this.restClientBuilder = restClientBuilder;
+            return this;
+        }
+
+        public Builder webClientBuilder(WebClient.Builder webClientBuilder) {
+            this.webClientBuilder = webClientBuilder;
+            return this;
+        }
+
+        public Builder responseErrorHandler(ResponseErrorHandler responseErrorHandler) {
+            this.responseErrorHandler = responseErrorHandler;
+            return this;
+        }
+
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        Builder nanoClock(LongSupplier nanoClock) {
+            this.nanoClock = nanoClock;
+            return this;
+        }
+
+        public GigaChatApiPool build() {
+            Assert.notEmpty(members, "at least one member is required");
+            Assert.notNull(loadBalancing, "loadBalancing must not be null");
+            Assert.isTrue(failureThreshold > 0, "failureThreshold must be positive");
+            Assert.notNull(ejectionDuration, "ejectionDuration must not be null");
+            Assert.notNull(slowStart, "slowStart must not be null");
+            Assert.isTrue(maxTrackedFiles > 0, "maxTrackedFiles must be positive");
+            Assert.notNull(restClientBuilder, "restClientBuilder must not be null");
+            Assert.notNull(webClientBuilder, "webClientBuilder must not be null");
+            Assert.notNull(meterRegistry, "meterRegistry must not be null");
+            Assert.isTrue(
+                    members.stream().map(Member::name).distinct().count() == members.size(),
+                    "member names must be unique");
+            List<PoolMember> poolMembers = new ArrayList<>(members.size());
+            for (Member member : members) {
+                poolMembers.add(createMember(member));
+            }
+            return new GigaChatApiPool(this, List.copyOf(poolMembers));
+        }
+
+        private PoolMember createMember(Member member) {
+            PoolMember poolMember = new PoolMember(
+                    member.name(),
+                    member.weight(),
+                    failureThreshold,
+                    ejectionDuration.toNanos(),
+                    slowStart.toNanos(),
+                    nanoClock);
+            GigaChatApiProperties properties = member.properties();
+            RestClient.Builder memberRestClientBuilder = restClientBuilder
+                    .clone()
+                    .requestInterceptor((request, body, execution) -> {
+                        try {
+                            var response = execution.execute(request, body);
+                            poolMember.onResponse(response.getStatusCode());
+                            return response;
+                        } catch (IOException ex) {
+                            poolMember.onFailure();
+                            throw ex;
+                        }
+                    });
+            WebClient.Builder memberWebClientBuilder = webClientBuilder.clone().filter((request, next) -> next.exchange(
+                            request)
+                    .doOnNext(response -> poolMember.onResponse(response.statusCode()))
+                    .doOnError(ex -> poolMember.onFailure()));
+            poolMember.api(new GigaChatApi(
+                    properties,
+                    properties.getAuth().isBearerAuth()
+                            ? new SimpleGigaAuthToken(properties.getAuth().getApiKey())
+                            : new NoopGigaAuthToken(),
+                    memberRestClientBuilder,
+                    memberWebClientBuilder,
+                    responseErrorHandler,
+                    member.kmf(),
+                    member.tmf(),
+                    meterRegistry));
+            return poolMember;
+        }
+    }
+}
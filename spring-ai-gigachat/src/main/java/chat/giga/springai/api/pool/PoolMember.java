@@ -0,0 +1,121 @@
+package chat.giga.springai.api.pool;
+
+import chat.giga.springai.api.chat.GigaChatApi;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+
+/**
+ * State of one {@link GigaChatApiPool} member: outstanding requests and health.
+ *
+ * <p>A member is ejected for {@code ejectionDuration} after {@code failureThreshold} consecutive
+ * {@code 5xx}/{@code 429} responses or I/O errors. When it comes back, its weight grows linearly
+ * from 10% to 100% during {@code slowStart}, so traffic returns gradually.
+ */
+@Slf4j
+final class PoolMember {
+    private static final double MIN_SLOW_START_FACTOR = 0.1;
+
+    private final String name;
+    private final int weight;
+    private final int failureThreshold;
+    private final long ejectionNanos;
+    private final long slowStartNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    private GigaChatApi api;
+    private int consecutiveFailures;
+    private boolean ejected;
+    private long ejectedUntilNanos;
+    private int ejections;
+
+    // текущий вес для smooth weighted round robin, меняется под блокировкой пула
+    double currentWeight;
+
+    PoolMember(
+            String name,
+            int weight,
+            int failureThreshold,
+            long ejectionNanos,
+            long slowStartNanos,
+            LongSupplier nanoClock) {
+        this.name = name;
+        this.weight = weight;
+        this.failureThreshold = failureThreshold;
+        this.ejectionNanos = ejectionNanos;
+        this.slowStartNanos = slowStartNanos;
+        this.nanoClock = nanoClock;
+    }
+
+    String name() {
+        return name;
+    }
+
+    GigaChatApi api() {
+        return api;
+    }
+
+    void api(GigaChatApi api) {
+        this.api = api;
+    }
+
+    AtomicInteger outstanding() {
+        return outstanding;
+    }
+
+    synchronized int ejections() {
+        return ejections;
+    }
+
+    void onResponse(HttpStatusCode status) {
+        if (status.is5xxServerError() || status.value() == HttpStatus.TOO_MANY_REQUESTS.value()) {
+            onFailure();
+        } else {
+            onSuccess();
+        }
+    }
+
+    synchronized void onSuccess() {
+        consecutiveFailures = 0;
+    }
+
+    synchronized void onFailure() {
+        long now = nanoClock.getAsLong();
+        if (ejected && ejectedUntilNanos - now > 0) {
+            return;
+        }
+        if (++consecutiveFailures >= failureThreshold) {
+            consecutiveFailures = 0;
+            ejected = true;
+            ejectedUntilNanos = now + ejectionNanos;
+            ejections++;
+            log.warn("GigaChat API pool member {} is ejected for {} ms", name, ejectionNanos / 1_000_000);
+        }
+    }
+
+    synchronized boolean isAvailable(long now) {
+        return !ejected || ejectedUntilNanos - now <= 0;
+    }
+
+    synchronized long ejectedUntilNanos() {
+        return ejectedUntilNanos;
+    }
+
+    /**
+     * Weight, reduced during slow start after an ejection.
+     */
+    synchronized double effectiveWeight(long now) {
+        if (!ejected || slowStartNanos <= 0) {
+            return weight;
+        }
+        long sinceReturn = now - ejectedUntilNanos;
+        if (sinceReturn >= slowStartNanos) {
+            ejected = false;
+            return weight;
+        }
+        return weight * Math.max(MIN_SLOW_START_FACTOR, (double) Math.max(0, sinceReturn) / slowStartNanos);
+    }
+}
@@ -0,0 +1,178 @@
+package chat.giga.springai.embedding;
+
+import chat.giga.springai.api.chat.embedding.EmbeddingsModel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.ai.chat.metadata.EmptyUsage;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.embedding.EmbeddingResponseMetadata;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * Декоратор {@link EmbeddingModel}, который сохраняет векторы на диске и не запрашивает повторно векторы
+ * уже обработанных текстов, например при перестроении индекса по тем же документам.
+ *
+ * <p>Ключ - имя модели и SHA-256 текста. Для каждой модели векторы хранятся в отдельном
+ * {@code MappedEmbeddingStore} в каталоге {@code directory}: memory-mapped файл записей фиксированной длины и
+ * хэш-индекс вне heap, поэтому миллионы векторов не увеличивают heap, а при старте файлы только отображаются
+ * в память. Размерность берется из {@link EmbeddingsModel#getDimensions()}, для неизвестной модели - из
+ * заголовка существующего хранилища или первого полученного вектора. В делегат уходят только тексты, которых нет в кэше, с теми же опциями.
+ *
+ * <p>Обращения к кэшу публикуются в метрике {@value #CACHE_REQUESTS_COUNTER} с тегом {@code result}
+ * ({@code hit}/{@code miss}), по одному на текст.
+ */
+public class GigaChatCachingEmbeddingModel implements EmbeddingModel, Closeable {
+
+    public static final String CACHE_REQUESTS_COUNTER = "gigachat.embedding.cache.requests";
+
+    private final EmbeddingModel delegate;
+    private final Path directory;
+    private final String defaultModel;
+    private final Map<String, MappedEmbeddingStore> stores = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * @param delegate модель, к которой уходят тексты, отсутствующие в кэше
+     * @param directory каталог файлов кэша
+     * @param defaultModel имя модели делегата, если оно не задано в опциях запроса
+     */
+    public GigaChatCachingEmbeddingModel(EmbeddingModel delegate, Path directory, String defaultModel) {
+        this(delegate, directory, defaultModel, Metrics.globalRegistry);
+    }
+
+    public GigaChatCachingEmbeddingModel(
+            EmbeddingModel delegate, Path directory, String defaultModel, MeterRegistry meterRegistry) {
+        Assert.notNull(delegate, "delegate must not be null");
+        Assert.notNull(directory, "directory must not be null");
+        Assert.hasText(defaultModel, "defaultModel must not be empty");
+        Assert.notNull(meterRegistry, "meterRegistry must not be null");
+        this.delegate = delegate;
+        this.directory = directory;
+        this.defaultModel = defaultModel;
+        this.hits = Counter.builder(CACHE_REQUESTS_COUNTER)
+                .tag("result", "hit")
+                .description("Number of texts whose embeddings were found in the cache")
+                .register(meterRegistry);
+        this.misses = Counter.builder(CACHE_REQUESTS_COUNTER)
+                .tag("result", "miss")
+                .description("Number of texts whose embeddings were not found in the cache")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        String model = request.getOptions() != null
+                        && StringUtils.hasText(request.getOptions().getModel())
+                ? request.getOptions().getModel()
+                : this.defaultModel;
+        List<String> texts = request.getInstructions();
+        float[][] vectors = new float[texts.size()][];
+        byte[][] hashes = new byte[texts.size()][];
+        MappedEmbeddingStore store = this.stores.get(model);
+        if (store == null) {
+            Integer dimensions = knownDimensions(model);
+            if (dimensions == null) {
+                dimensions = MappedEmbeddingStore.storedDimensions(this.directory, fileName(model));
+            }
+            store = dimensions != null ? store(model, dimensions) : null;
+        }
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < texts.size(); i++) {
+            hashes[i] = sha256(texts.get(i));
+            vectors[i] = store != null ? store.get(hashes[i]) : null;
+            if (vectors[i] == null) {
+                missing.add(i);
+            }
+        }
+        this.hits.increment(texts.size() - missing.size());
+        this.misses.increment(missing.size());
+
+        EmbeddingResponseMetadata metadata = new EmbeddingResponseMetadata(model, new EmptyUsage());
+        if (!missing.isEmpty()) {
+            List<String> missingTexts = missing.stream().map(texts::get).toList();
+            EmbeddingResponse response = this.delegate.call(new EmbeddingRequest(missingTexts, request.getOptions()));
+            metadata = response.getMetadata();
+            for (Embedding embedding : response.getResults()) {
+                int i = missing.get(embedding.getIndex());
+                vectors[i] = embedding.getOutput();
+                if (store == null) {
+                    store = store(model, vectors[i].length);
+                }
+                store.put(hashes[i], vectors[i]);
+            }
+        }
+        List<Embedding> embeddings = new ArrayList<>(texts.size());
+        for (int i = 0; i < texts.size(); i++) {
+            Assert.state(vectors[i] != null, "No embedding returned for text with index " + i);
+            embeddings.add(new Embedding(vectors[i], i));
+        }
+        return new EmbeddingResponse(embeddings, metadata);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getFormattedContent());
+    }
+
+    @Override
+    public int dimensions() {
+        Integer dimensions = knownDimensions(this.defaultModel);
+        return dimensions != null ? dimensions : this.delegate.dimensions();
+    }
+
+    /**
+     * Сбрасывает отображенные файлы на диск и закрывает их.
+     */
+    @Override
+    public void close() throws IOException {
+        for (MappedEmbeddingStore store : this.stores.values()) {
+            store.close();
+        }
+        this.stores.clear();
+    }
+
+    private MappedEmbeddingStore store(String model, int dimensions) {
+        return this.stores.computeIfAbsent(
+                model, name -> MappedEmbeddingStore.open(this.directory, fileName(name), dimensions));
+    }
+
+    @Nullable
+    private static Integer knownDimensions(String model) {
+        return Arrays.stream(EmbeddingsModel.values())
+                .filter(value -> value.getName().equals(model))
+                .map(EmbeddingsModel::getDimensions)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static String fileName(String model) {
+        return model.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    private static byte[] sha256(String text) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package chat.giga.springai.embedding;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Хранилище векторов на memory-mapped файлах, данные лежат вне heap.
+ *
+ * <p>Файл {@code <name>.vec} - только дописываемые записи фиксированной длины: SHA-256 текста (32 байта) и
+ * {@code dimensions} значений {@code float}. Файл {@code <name>.idx} - заголовок (размерность, число
+ * записей, емкость таблицы) и хэш-таблица с открытой адресацией: слот хранит первые 8 байт SHA-256 и номер
+ * записи. При открытии файлы только отображаются в память, без чтения и разбора содержимого. При
+ * заполнении таблицы больше чем на {@value #MAX_LOAD_PERCENT}% она перестраивается в новом файле с
+ * удвоенной емкостью.
+ *
+ * <p>Записи попадают в page cache при вызове {@link #put}, на диск - при {@link #close()} или по решению
+ * ОС, поэтому переживают падение процесса, но не ОС. Запись, дописанная в {@code .vec} без слота в
+ * индексе, недоступна и просто занимает место.
+ */
+final class MappedEmbeddingStore implements Closeable {
+
+    static final int HASH_BYTES = 32;
+
+    private static final int MAGIC = 0x47434543;
+    private static final int VERSION = 1;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int DIMENSIONS_OFFSET = 8;
+    private static final int COUNT_OFFSET = 16;
+    private static final int CAPACITY_OFFSET = 24;
+    private static final int SIZE_OFFSET = 32;
+    private static final int HEADER_BYTES = 64;
+    private static final int SLOT_BYTES = 16;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAX_CAPACITY = 1 << 26;
+    private static final int MAX_LOAD_PERCENT = 70;
+    private static final long SEGMENT_BYTES = 1L << 30;
+    private static final long INITIAL_SEGMENT_RECORDS = 256;
+
+    private final Path dataPath;
+    private final Path indexPath;
+    private final int dimensions;
+    private final int recordBytes;
+    private final long recordsPerSegment;
+    private final FileChannel dataChannel;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long lastSegmentRecords;
+    private MappedByteBuffer index;
+    private int capacity;
+
+    private MappedEmbeddingStore(Path directory, String name, int dimensions) throws IOException {
+        Assert.isTrue(dimensions > 0, "dimensions must be greater than 0");
+        this.dataPath = directory.resolve(name + ".vec");
+        this.indexPath = directory.resolve(name + ".idx");
+        this.dimensions = dimensions;
+        this.recordBytes = HASH_BYTES + dimensions * Float.BYTES;
+        this.recordsPerSegment = Math.max(1, SEGMENT_BYTES / this.recordBytes);
+        Files.createDirectories(directory);
+        if (Files.exists(this.indexPath)) {
+            this.index = mapIndex(this.indexPath, Files.size(this.indexPath));
+            if (this.index.getInt(MAGIC_OFFSET) != MAGIC || this.index.getInt(VERSION_OFFSET) != VERSION) {
+                throw new IllegalStateException("Unsupported embedding cache index: " + this.indexPath);
+            }
+            if (this.index.getInt(DIMENSIONS_OFFSET) != dimensions) {
+                throw new IllegalStateException("Embedding cache " + this.indexPath + " has "
+                        + this.index.getInt(DIMENSIONS_OFFSET) + " dimensions, expected " + dimensions);
+            }
+            this.capacity = (int) this.index.getLong(CAPACITY_OFFSET);
+        } else {
+            this.capacity = INITIAL_CAPACITY;
+            this.index = createIndex(this.indexPath, this.capacity);
+        }
+        this.dataChannel = FileChannel.open(
+                this.dataPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long count = this.index.getLong(COUNT_OFFSET);
+        long fullSegments = count / this.recordsPerSegment;
+        for (long i = 0; i < fullSegments; i++) {
+            this.segments.add(mapSegment(i, this.recordsPerSegment));
+        }
+        this.lastSegmentRecords =
+                Math.min(this.recordsPerSegment, Math.max(INITIAL_SEGMENT_RECORDS, count % this.recordsPerSegment));
+        this.segments.add(mapSegment(fullSegments, this.lastSegmentRecords));
+    }
+
+    /**
+     * Открывает хранилище или создает пустое.
+     *
+     * @param name имя файлов хранилища в {@code directory}
+     * @throws IllegalStateException если существующее хранилище создано для другой размерности
+     */
+    static MappedEmbeddingStore open(Path directory, String name, int dimensions) {
+        try {
+            return new MappedEmbeddingStore(directory, name, dimensions);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open embedding cache " + directory.resolve(name), e);
+        }
+    }
+
+    /**
+     * @return размерность существующего хранилища или {@code null}, если его нет
+     */
+    @Nullable
+    static Integer storedDimensions(Path directory, String name) {
+        Path indexPath = directory.resolve(name + ".idx");
+        if (!Files.exists(indexPath)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            channel.read(header, 0);
+            return header.getInt(MAGIC_OFFSET) == MAGIC ? header.getInt(DIMENSIONS_OFFSET) : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read embedding cache " + indexPath, e);
+        }
+    }
+
+    int dimensions() {
+        return this.dimensions;
+    }
+
+    /**
+     * Число записей в индексе.
+     */
+    long size() {
+        this.lock.readLock().lock();
+        try {
+            return this.index.getLong(SIZE_OFFSET);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param hash SHA-256 текста
+     * @return вектор или {@code null}, если его нет в хранилище
+     */
+    @Nullable
+    float[] get(byte[] hash) {
+        Assert.isTrue(hash.length == HASH_BYTES, "hash must have " + HASH_BYTES + " bytes");
+        this.lock.readLock().lock();
+        try {
+            long record = find(hash);
+            return record < 0 ? null : readVector(record);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Дописывает вектор, если записи с таким хэшем еще нет.
+     */
+    void put(byte[] hash, float[] vector) {
+        Assert.isTrue(hash.length == HASH_BYTES, "hash must have " + HASH_BYTES + " bytes");
+        Assert.isTrue(vector.length == this.dimensions, "vector must have " + this.dimensions + " dimensions");
+        this.lock.writeLock().lock();
+        try {
+            if (find(hash) >= 0) {
+                return;
+            }
+            long record = this.index.getLong(COUNT_OFFSET);
+            writeRecord(record, hash, vector);
+            this.index.putLong(COUNT_OFFSET, record + 1);
+            insert(this.index, this.capacity, keyOf(hash), record);
+            long size = this.index.getLong(SIZE_OFFSET) + 1;
+            this.index.putLong(SIZE_OFFSET, size);
+            if (size * 100 > (long) this.capacity * MAX_LOAD_PERCENT) {
+                grow();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write embedding cache " + this.dataPath, e);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.lock.writeLock().lock();
+        try {
+            for (MappedByteBuffer segment : this.segments) {
+                segment.force();
+            }
+            this.index.force();
+            this.dataChannel.close();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private long find(byte[] hash) {
+        long key = keyOf(hash);
+        int mask = this.capacity - 1;
+        for (int slot = (int) key & mask; ; slot = (slot + 1) & mask) {
+            int offset = HEADER_BYTES + slot * SLOT_BYTES;
+            long record = this.index.getLong(offset + 8) - 1;
+            if (record < 0) {
+                return -1;
+            }
+            // первые 8 байт хэша могут совпасть, поэтому хэш сверяется целиком
+            if (this.index.getLong(offset) == key && hashEquals(record, hash)) {
+                return record;
+            }
+        }
+    }
+
+    private boolean hashEquals(long record, byte[] hash) {
+        MappedByteBuffer segment = segment(record);
+        int position = position(record);
+        for (int i = 0; i < HASH_BYTES; i++) {
+            if (segment.get(position + i) != hash[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private float[] readVector(long record) {
+        MappedByteBuffer segment = segment(record);
+        int position = position(record) + HASH_BYTES;
+        float[] vector = new float[this.dimensions];
+        for (int i = 0; i < this.dimensions; i++) {
+            vector[i] = segment.getFloat(position + i * Float.BYTES);
+        }
+        return vector;
+    }
+
+    private void writeRecord(long record, byte[] hash, float[] vector) throws IOException {
+        long segmentIndex = record / this.recordsPerSegment;
+        if (segmentIndex == this.segments.size()) {
+            this.lastSegmentRecords = Math.min(this.recordsPerSegment, INITIAL_SEGMENT_RECORDS);
+            this.segments.add(mapSegment(segmentIndex, this.lastSegmentRecords));
+        } else if (record % this.recordsPerSegment >= this.lastSegmentRecords) {
+            // последний сегмент отображается с запасом и расширяется вдвое по мере заполнения
+            this.lastSegmentRecords = Math.min(this.recordsPerSegment, this.lastSegmentRecords * 2);
+            this.segments.set((int) segmentIndex, mapSegment(segmentIndex, this.lastSegmentRecords));
+        }
+        MappedByteBuffer segment = segment(record);
+        int position = position(record);
+        segment.put(position, hash);
+        for (int i = 0; i < this.dimensions; i++) {
+            segment.putFloat(position + HASH_BYTES + i * Float.BYTES, vector[i]);
+        }
+    }
+
+    private void grow() throws IOException {
+        int newCapacity = this.capacity * 2;
+        if (newCapacity > MAX_CAPACITY) {
+            throw new IllegalStateException("Embedding cache " + this.indexPath + " is full");
+        }
+        Path tmp = this.indexPath.resolveSibling(this.indexPath.getFileName() + ".tmp");
+        MappedByteBuffer grown = createIndex(tmp, newCapacity);
+        for (int slot = 0; slot < this.capacity; slot++) {
+            int offset = HEADER_BYTES + slot * SLOT_BYTES;
+            long record = this.index.getLong(offset + 8) - 1;
+            if (record >= 0) {
+                insert(grown, newCapacity, this.index.getLong(offset), record);
+            }
+        }
+        grown.putLong(COUNT_OFFSET, this.index.getLong(COUNT_OFFSET));
+        grown.putLong(SIZE_OFFSET, this.index.getLong(SIZE_OFFSET));
+        grown.force();
+        Files.move(tmp, this.indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.index = grown;
+        this.capacity = newCapacity;
+    }
+
+    private MappedByteBuffer segment(long record) {
+        return this.segments.get((int) (record / this.recordsPerSegment));
+    }
+
+    private int position(long record) {
+        return (int) (record % this.recordsPerSegment) * this.recordBytes;
+    }
+
+    private MappedByteBuffer mapSegment(long segmentIndex, long records) throws IOException {
+        return this.dataChannel.map(
+                FileChannel.MapMode.READ_WRITE,
+                segmentIndex * this.recordsPerSegment * this.recordBytes,
+                records * this.recordBytes);
+    }
+
+    private MappedByteBuffer createIndex(Path path, int capacity) throws IOException {
+        Files.deleteIfExists(path);
+        MappedByteBuffer buffer = mapIndex(path, HEADER_BYTES + (long) capacity * SLOT_BYTES);
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+        buffer.putInt(VERSION_OFFSET, VERSION);
+        buffer.putInt(DIMENSIONS_OFFSET, this.dimensions);
+        buffer.putLong(CAPACITY_OFFSET, capacity);
+        return buffer;
+    }
+
+    private static MappedByteBuffer mapIndex(Path path, long size) throws IOException {
+        // отображение остается валидным после закрытия канала
+        try (FileChannel channel =
+                FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private static void insert(MappedByteBuffer index, int capacity, long key, long record) {
+        int mask = capacity - 1;
+        int slot = (int) key & mask;
+        while (index.getLong(HEADER_BYTES + slot * SLOT_BYTES + 8) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        int offset = HEADER_BYTES + slot * SLOT_BYTES;
+        index.putLong(offset, key);
+        // 0 - признак пустого слота, поэтому номер записи хранится со сдвигом на 1
+        index.putLong(offset + 8, record + 1);
+    }
+
+    private static long keyOf(byte[] hash) {
+        long key = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            key = (key << 8) | (hash[i] & 0xFF);
+        }
+        return key;
+    }
+}
@@ -4,10 +4,13 @@ import chat.giga.springai.api.chat.GigaChatApi;
 import chat.giga.springai.api.chat.completion.CompletionRequest;
 import chat.giga.springai.api.chat.completion.CompletionResponse;
 import io.micrometer.observation.ObservationRegistry;
+import java.io.OutputStream;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.BiFunction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import lombok.extern.slf4j.Slf4j;
@@ -57,6 +60,48 @@ public class GigaChatImageModel implements ImageModel {
 
     @Override
     public ImageResponse call(ImagePrompt prompt) {
+        return call(prompt, this::resolveImage);
+    }
+
+    /**
+     * Generates an image and streams its content to the given output stream instead of returning it as
+     * Base64, so the image is never fully materialized in memory. The stream is not closed.
+     *
+     * <p>The returned {@link Image} carries neither url nor b64 json, the file id is available via
+     * {@link GigaChatImageGenerationMetadata}. The response format of the prompt options is ignored.
+     *
+     * @param prompt image prompt
+     * @param outputStream sink the image content is written to
+     * @return response with the generation metadata
+     */
+    public ImageResponse call(ImagePrompt prompt, OutputStream outputStream) {
+        Assert.notNull(outputStream, "outputStream cannot be null");
+        return call(prompt, (fileId, effectivePrompt) -> {
+            gigaChatApi.downloadFileToStream(fileId, outputStream);
+            return new Image(null, null);
+        });
+    }
+
+    /**
+     * Generates an image and writes it to the given file instead of returning it as Base64.
+     * An existing file is overwritten.
+     *
+     * <p>The returned {@link Image} url points to the written file. The response format of the prompt
+     * options is ignored.
+     *
+     * @param prompt image prompt
+     * @param target file the image content is written to
+     * @return response with the file url and the generation metadata
+     */
+    public ImageResponse call(ImagePrompt prompt, Path target) {
+        Assert.notNull(target, "target cannot be null");
+        return call(prompt, (fileId, effectivePrompt) -> {
+            gigaChatApi.downloadFileToPath(fileId, target);
+            return new Image(target.toUri().toString(), null);
+        });
+    }
+
+    private ImageResponse call(ImagePrompt prompt, BiFunction<String, ImagePrompt, Image> imageResolver) {
         ImagePrompt effectivePrompt = normalizePrompt(prompt);
 
         ImageModelObservationContext observationContext = ImageModelObservationContext.builder()
@@ -72,10 +117,11 @@ public class GigaChatImageModel implements ImageModel {
                         DEFAULT_OBSERVATION_CONVENTION,
                         () -> observationContext,
                         this.observationRegistry)
-                .observe(() -> processRequest(effectivePrompt, request));
+                .observe(() -> processRequest(effectivePrompt, request, imageResolver));
     }
 
-    private ImageResponse processRequest(ImagePrompt prompt, CompletionRequest request) {
+    private ImageResponse processRequest(
+            ImagePrompt prompt, CompletionRequest request, BiFunction<String, ImagePrompt, Image> imageResolver) {
         CompletionResponse completion = executeCompletion(request);
 
         if (isEmptyCompletion(completion)) {
@@ -89,9 +135,16 @@ public class GigaChatImageModel implements ImageModel {
             return new ImageResponse(List.of());
         }
 
+        Image image = imageResolver.apply(fileId, prompt);
+        ImageGenerationMetadata metadata = new GigaChatImageGenerationMetadata(fileId);
+        ImageGeneration generation = new ImageGeneration(image, metadata);
+        return new ImageResponse(List.of(generation), new ImageResponseMetadata());
+    }
+
+    private Image resolveImage(String fileId, ImagePrompt prompt) {
         String responseFormat = prompt.getOptions().getResponseFormat();
         if (GigaChatImageOptions.RESPONSE_FORMAT_URL.equals(responseFormat)) {
-            return buildUrlImageResponse(fileId);
+            return new Image(gigaChatApi.getFileUrl(fileId), null);
         }
 
         byte[] imageBytes = gigaChatApi.downloadFile(fileId);
@@ -99,7 +152,7 @@ public class GigaChatImageModel implements ImageModel {
             throw new IllegalStateException("Failed to download image for fileId: " + fileId);
         }
 
-        return buildBase64ImageResponse(fileId, imageBytes);
+        return new Image(null, Base64.getEncoder().encodeToString(imageBytes));
     }
 
     private ImagePrompt normalizePrompt(ImagePrompt prompt) {
@@ -134,22 +187,6 @@ public class GigaChatImageModel implements ImageModel {
                 || completion.getChoices().isEmpty();
     }
 
-    private ImageResponse buildBase64ImageResponse(String fileId, byte[] imageBytes) {
-        String base64 = Base64.getEncoder().encodeToString(imageBytes);
-        Image image = new Image(null, base64);
-        ImageGenerationMetadata metadata = new GigaChatImageGenerationMetadata(fileId);
-        ImageGeneration generation = new ImageGeneration(image, metadata);
-        return new ImageResponse(List.of(generation), new ImageResponseMetadata());
-    }
-
-    private ImageResponse buildUrlImageResponse(String fileId) {
-        String url = gigaChatApi.getFileUrl(fileId);
-        Image image = new Image(url, null);
-        ImageGenerationMetadata metadata = new GigaChatImageGenerationMetadata(fileId);
-        ImageGeneration generation = new ImageGeneration(image, metadata);
-        return new ImageResponse(List.of(generation), new ImageResponseMetadata());
-    }
-
     private String extractFileId(CompletionResponse response) {
         String content = response.getChoices().get(0).getMessage().getContent();
         Matcher matcher = IMG_ID_PATTERN.matcher(content);
@@ -0,0 +1,166 @@
+package chat.giga.springai.media;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.ai.content.Media;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Кэш идентификаторов файлов, загруженных в GigaChat.
+ *
+ * <p>Ключом служит SHA-256 содержимого и MIME-тип {@link Media}, поэтому повторная отправка того же
+ * вложения (например, в многошаговом диалоге) не приводит к повторной загрузке файла.
+ * Размер кэша ограничен, при переполнении вытесняются давно не используемые записи,
+ * записи старше {@code ttl} считаются устаревшими.
+ *
+ * <p>Обращения к кэшу публикуются в метрике {@value #CACHE_REQUESTS_COUNTER} с тегом {@code result}
+ * ({@code hit}/{@code miss}), текущий размер - в {@value #CACHE_SIZE_GAUGE}.
+ */
+public class GigaChatMediaCache {
+
+    public static final int DEFAULT_MAX_SIZE = 1000;
+    public static final Duration DEFAULT_TTL = Duration.ofHours(1);
+
+    public static final String CACHE_REQUESTS_COUNTER = "gigachat.media.upload.cache.requests";
+    public static final String CACHE_SIZE_GAUGE = "gigachat.media.upload.cache.size";
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Clock clock;
+    private final Map<Key, Entry> entries;
+    private final Counter hits;
+    private final Counter misses;
+
+    public GigaChatMediaCache(int maxSize, Duration ttl, MeterRegistry meterRegistry) {
+        this(maxSize, ttl, meterRegistry, Clock.systemUTC());
+    }
+
+    GigaChatMediaCache(int maxSize, Duration ttl, MeterRegistry meterRegistry, Clock clock) {
+        Assert.isTrue(maxSize > 0, "maxSize must be greater than 0");
+        Assert.notNull(ttl, "ttl must not be null");
+        Assert.isTrue(!ttl.isNegative() && !ttl.isZero(), "ttl must be positive");
+        Assert.notNull(meterRegistry, "meterRegistry must not be null");
+        this.maxSize = maxSize;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+        // access-order LinkedHashMap дает LRU-вытеснение
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > GigaChatMediaCache.this.maxSize;
+            }
+        };
+        this.hits = Counter.builder(CACHE_REQUESTS_COUNTER)
+                .tag("result", "hit")
+                .description("Number of uploaded media lookups found in the cache")
+                .register(meterRegistry);
+        this.misses = Counter.builder(CACHE_REQUESTS_COUNTER)
+                .tag("result", "miss")
+                .description("Number of uploaded media lookups not found in the cache")
+                .register(meterRegistry);
+        Gauge.builder(CACHE_SIZE_GAUGE, this, GigaChatMediaCache::size)
+                .description("Number of uploaded media file ids in the cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Возвращает id ранее загруженного файла с таким же содержимым и MIME-типом.
+     *
+     * @param key ключ media, см. {@link #keyOf(Media)}
+     * @return id файла или {@code null}, если его нет в кэше или запись устарела
+     */
+    @Nullable
+    public String get(Key key) {
+        long now = clock.millis();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt() > now) {
+                hits.increment();
+                return entry.fileId();
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(Key key, String fileId) {
+        Assert.notNull(key, "key must not be null");
+        Assert.notNull(fileId, "fileId must not be null");
+        Entry entry = new Entry(fileId, clock.millis() + ttlMillis);
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Вычисляет ключ кэша для media. Содержимое {@link Resource} хэшируется потоково, без чтения в память целиком.
+     *
+     * @return ключ или {@code null}, если содержимое media не представлено байтами или ресурсом (например, URL),
+     *     ресурс нельзя прочитать повторно (например, {@link org.springframework.core.io.InputStreamResource}) -
+     *     иначе загрузка получит уже прочитанный поток - или его не удалось прочитать
+     */
+    @Nullable
+    public static Key keyOf(Media media) {
+        String contentHash;
+        if (media.getData() instanceof byte[] bytes) {
+            MessageDigest digest = sha256();
+            digest.update(bytes);
+            contentHash = HexFormat.of().formatHex(digest.digest());
+        } else if (media.getData() instanceof Resource resource && !resource.isOpen()) {
+            try (InputStream inputStream = resource.getInputStream()) {
+                contentHash = sha256(inputStream);
+            } catch (IOException e) {
+                return null;
+            }
+        } else {
+            return null;
+        }
+        return new Key(contentHash, String.valueOf(media.getMimeType()));
+    }
+
+    private static String sha256(InputStream inputStream) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    /**
+     * Ключ кэша: хэш содержимого и MIME-тип.
+     */
+    public record Key(String contentHash, String mimeType) {}
+
+    private record Entry(String fileId, long expiresAt) {}
+}
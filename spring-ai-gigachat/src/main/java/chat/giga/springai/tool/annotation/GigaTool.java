@@ -57,4 +57,10 @@ public @interface GigaTool {
      * Whether to generate 'return_parameters' in function description for request to GigaChat LLM.
      */
     boolean generateOutputSchema() default true;
+
+    /**
+     * Whether repeated calls with the same arguments return the same result without side effects.
+     * Results of idempotent tools may be cached by {@link chat.giga.springai.tool.execution.GigaToolCallingManager}.
+     */
+    boolean idempotent() default false;
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2023-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package chat.giga.springai.tool.definition;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Tool definitions of a class generated at build time by the {@code spring-ai-gigachat-tool-processor}
+ * annotation processor.
+ *
+ * <p>For a class {@code com.example.Outer.WeatherTools} the processor generates
+ * {@code com.example.Outer_WeatherTools_GigaToolDefinitions}. The class is looked up by name, so the library does
+ * not depend on the processor and classes compiled without it keep using runtime schema generation.
+ */
+public interface GeneratedGigaToolDefinitions {
+
+    /**
+     * Suffix of the generated class name.
+     */
+    String CLASS_NAME_SUFFIX = "_GigaToolDefinitions";
+
+    /**
+     * Generated tool methods keyed by {@link #signature(Method) method signature}.
+     */
+    Map<String, GeneratedGigaToolMethod> toolMethods();
+
+    /**
+     * Signature of the method in the form {@code name(param1Type,param2Type)}, where parameter types are
+     * canonical names of erased types.
+     */
+    static String signature(Method method) {
+        Assert.notNull(method, "method cannot be null");
+        return Arrays.stream(method.getParameterTypes())
+                .map(Class::getCanonicalName)
+                .collect(Collectors.joining(",", method.getName() + "(", ")"));
+    }
+
+    /**
+     * Name of the class generated for the given tool class.
+     */
+    static String generatedClassName(Class<?> toolClass) {
+        Assert.notNull(toolClass, "toolClass cannot be null");
+        String packageName = toolClass.getPackageName();
+        String className = ClassUtils.getShortName(toolClass).replace('.', '_');
+        return (packageName.isEmpty() ? "" : packageName + ".") + className + CLASS_NAME_SUFFIX;
+    }
+
+    /**
+     * Loads tool definitions generated for the given class.
+     *
+     * @return generated definitions or {@code null} if the class was compiled without the annotation processor
+     */
+    @Nullable
+    static GeneratedGigaToolDefinitions find(Class<?> toolClass) {
+        try {
+            Class<?> generatedClass = Class.forName(generatedClassName(toolClass), true, toolClass.getClassLoader());
+            if (!GeneratedGigaToolDefinitions.class.isAssignableFrom(generatedClass)) {
+                return null;
+            }
+            return (GeneratedGigaToolDefinitions)
+                    generatedClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2023-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package chat.giga.springai.tool.definition;
+
+import chat.giga.springai.tool.metadata.GigaToolMetadata;
+import chat.giga.springai.tool.support.GigaToolUtils;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.List;
+import java.util.stream.Stream;
+import org.springframework.ai.util.json.schema.JsonSchemaGenerator;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Definition of a {@link chat.giga.springai.tool.annotation.GigaTool @GigaTool} method generated at build time.
+ *
+ * @param name the tool name
+ * @param description the tool description
+ * @param inputSchema JSON schema of the method input or {@code null} if it has to be generated at runtime
+ * @param outputSchemaResolved whether {@code outputSchema} was resolved at build time
+ * @param outputSchema JSON schema of the method output, {@code null} if the output schema is not needed
+ * @param fewShotExamples tool calling examples
+ * @param returnDirect whether the tool result should be returned directly or passed back to the model
+ * @param idempotent whether the tool result may be cached and reused for calls with the same arguments
+ */
+public record GeneratedGigaToolMethod(
+        String name,
+        String description,
+        @Nullable String inputSchema,
+        boolean outputSchemaResolved,
+        @Nullable String outputSchema,
+        List<FewShotExample> fewShotExamples,
+        boolean returnDirect,
+        boolean idempotent) {
+
+    public GeneratedGigaToolMethod {
+        Assert.hasText(name, "name cannot be null or empty");
+        Assert.notNull(fewShotExamples, "fewShotExamples cannot be null");
+    }
+
+    /**
+     * Creates the tool definition, generating at runtime only the schemas that were not resolved at build time.
+     * The input schema generated at build time uses parameter names from the source code, so it is used only when
+     * the class was compiled with {@code -parameters}.
+     */
+    public GigaToolDefinition toToolDefinition(Method method) {
+        Assert.notNull(method, "method cannot be null");
+        return GigaToolDefinition.builder()
+                .name(name)
+                .description(description)
+                .inputSchema(
+                        inputSchema != null && parameterNamesPresent(method)
+                                ? inputSchema
+                                : JsonSchemaGenerator.generateForMethodInput(method))
+                .outputSchema(
+                        outputSchemaResolved ? outputSchema : GigaToolUtils.generateJsonSchemaForMethodOutput(method))
+                .fewShotExamples(fewShotExamples)
+                .build();
+    }
+
+    public GigaToolMetadata toToolMetadata() {
+        return new GigaToolMetadata(returnDirect, idempotent);
+    }
+
+    private static boolean parameterNamesPresent(Method method) {
+        return Stream.of(method.getParameters()).allMatch(Parameter::isNamePresent);
+    }
+}
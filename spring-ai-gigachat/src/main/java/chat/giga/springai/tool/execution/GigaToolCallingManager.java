@@ -0,0 +1,580 @@
+/*
+ * Copyright 2023-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package chat.giga.springai.tool.execution;
+
+import chat.giga.springai.tool.metadata.GigaToolMetadata;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.DefaultToolCallingManager;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.model.tool.internal.ToolCallReactiveContextHolder;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.execution.DefaultToolExecutionExceptionProcessor;
+import org.springframework.ai.tool.execution.ToolExecutionException;
+import org.springframework.ai.tool.execution.ToolExecutionExceptionProcessor;
+import org.springframework.ai.tool.observation.DefaultToolCallingObservationConvention;
+import org.springframework.ai.tool.observation.ToolCallingObservationContext;
+import org.springframework.ai.tool.observation.ToolCallingObservationConvention;
+import org.springframework.ai.tool.observation.ToolCallingObservationDocumentation;
+import org.springframework.ai.tool.resolution.DelegatingToolCallbackResolver;
+import org.springframework.ai.tool.resolution.ToolCallbackResolver;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+import reactor.util.context.ContextView;
+
+/**
+ * Implementation of {@link ToolCallingManager} for GigaChat LLM that runs tool calls on a separate executor
+ * with a timeout and caches results of idempotent tools.
+ *
+ * <p>Compared to {@link DefaultToolCallingManager}:
+ * <ul>
+ *   <li>Tool calls are executed on the provided {@link Executor}, at most {@code maxConcurrency} at a time
+ *       across all requests</li>
+ *   <li>The wait for a free slot is limited by {@code permitTimeout}, and the execution of each tool call,
+ *       counted from the moment it got a slot, by {@code toolTimeout}. A timed out call is interrupted and
+ *       reported to the model through the {@link ToolExecutionExceptionProcessor}, like any other tool failure.
+ *       A tool that ignores the interrupt keeps its slot until it actually returns</li>
+ *   <li>Results of tools marked as {@link GigaToolMetadata#idempotent() idempotent} are cached by
+ *       tool name and arguments. The cache is bypassed when the prompt carries a tool context,
+ *       since the result may depend on it</li>
+ * </ul>
+ *
+ * <p>GigaChat returns at most one {@code function_call} per assistant message, so with GigaChat models a turn
+ * carries a single tool call and nothing runs in parallel within it. Several tool calls of one response, e.g.
+ * from another {@link org.springframework.ai.chat.model.ChatModel}, are executed concurrently.
+ *
+ * <p>Tool definitions are resolved the same way as by {@link DefaultToolCallingManager}.
+ * The default executor uses daemon platform threads, since the library targets Java 17.
+ * On newer JDKs a virtual thread executor can be provided instead. {@link #close()} shuts down
+ * the default executor only, a provided executor is left to its owner.
+ */
+@Slf4j
+public class GigaToolCallingManager implements ToolCallingManager, AutoCloseable {
+
+    public static final int DEFAULT_MAX_CONCURRENCY = 8;
+    public static final Duration DEFAULT_TOOL_TIMEOUT = Duration.ofMinutes(1);
+    public static final Duration DEFAULT_PERMIT_TIMEOUT = Duration.ofSeconds(30);
+    public static final int DEFAULT_RESULT_CACHE_MAX_SIZE = 1000;
+    public static final Duration DEFAULT_RESULT_CACHE_TTL = Duration.ofMinutes(5);
+
+    private static final ToolCallingObservationConvention DEFAULT_OBSERVATION_CONVENTION =
+            new DefaultToolCallingObservationConvention();
+
+    private final ObservationRegistry observationRegistry;
+    private final ToolCallbackResolver toolCallbackResolver;
+    private final ToolExecutionExceptionProcessor toolExecutionExceptionProcessor;
+    private final ToolCallingManager toolDefinitionResolver;
+    private final Executor executor;
+    private final boolean ownsExecutor;
+    private final Semaphore permits;
+    private final long toolTimeoutNanos;
+    private final long permitTimeoutNanos;
+
+    @Nullable
+    private final ToolResultCache resultCache;
+
+    /**
+     * Conventions to use for generating observations.
+     */
+    @Setter
+    private ToolCallingObservationConvention observationConvention = DEFAULT_OBSERVATION_CONVENTION;
+
+    public GigaToolCallingManager(
+            ObservationRegistry observationRegistry,
+            ToolCallbackResolver toolCallbackResolver,
+            ToolExecutionExceptionProcessor toolExecutionExceptionProcessor,
+            Executor executor,
+            int maxConcurrency,
+            Duration toolTimeout,
+            Duration permitTimeout,
+            int resultCacheMaxSize,
+            Duration resultCacheTtl) {
+        this(
+                observationRegistry,
+                toolCallbackResolver,
+                toolExecutionExceptionProcessor,
+                executor,
+                false,
+                maxConcurrency,
+                toolTimeout,
+                permitTimeout,
+                resultCacheMaxSize,
+                resultCacheTtl);
+    }
+
+    private GigaToolCallingManager(
+            ObservationRegistry observationRegistry,
+            ToolCallbackResolver toolCallbackResolver,
+            ToolExecutionExceptionProcessor toolExecutionExceptionProcessor,
+            Executor executor,
+            boolean ownsExecutor,
+            int maxConcurrency,
+            Duration toolTimeout,
+            Duration permitTimeout,
+            int resultCacheMaxSize,
+            Duration resultCacheTtl) {
+        Assert.notNull(observationRegistry, "observationRegistry cannot be null");
+        Assert.notNull(toolCallbackResolver, "toolCallbackResolver cannot be null");
+        Assert.notNull(toolExecutionExceptionProcessor, "toolExecutionExceptionProcessor cannot be null");
+        Assert.notNull(executor, "executor cannot be null");
+        Assert.isTrue(maxConcurrency > 0, "maxConcurrency must be greater than 0");
+        Assert.notNull(toolTimeout, "toolTimeout cannot be null");
+        Assert.isTrue(!toolTimeout.isNegative() && !toolTimeout.isZero(), "toolTimeout must be positive");
+        Assert.notNull(permitTimeout, "permitTimeout cannot be null");
+        Assert.isTrue(!permitTimeout.isNegative(), "permitTimeout must not be negative");
+        Assert.isTrue(resultCacheMaxSize >= 0, "resultCacheMaxSize must not be negative");
+        Assert.notNull(resultCacheTtl, "resultCacheTtl cannot be null");
+        Assert.isTrue(!resultCacheTtl.isNegative(), "resultCacheTtl must not be negative");
+        this.observationRegistry = observationRegistry;
+        this.toolCallbackResolver = toolCallbackResolver;
+        this.toolExecutionExceptionProcessor = toolExecutionExceptionProcessor;
+        this.toolDefinitionResolver = new DefaultToolCallingManager(
+                observationRegistry, toolCallbackResolver, toolExecutionExceptionProcessor);
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.permits = new Semaphore(maxConcurrency);
+        this.toolTimeoutNanos = toolTimeout.toNanos();
+        this.permitTimeoutNanos = permitTimeout.toNanos();
+        this.resultCache = resultCacheMaxSize > 0 && !resultCacheTtl.isZero()
+                ? new ToolResultCache(resultCacheMaxSize, resultCacheTtl)
+                : null;
+    }
+
+    @Override
+    public List<ToolDefinition> resolveToolDefinitions(ToolCallingChatOptions chatOptions) {
+        return toolDefinitionResolver.resolveToolDefinitions(chatOptions);
+    }
+
+    @Override
+    public ToolExecutionResult executeToolCalls(Prompt prompt, ChatResponse chatResponse) {
+        Assert.notNull(prompt, "prompt cannot be null");
+        Assert.notNull(chatResponse, "chatResponse cannot be null");
+
+        AssistantMessage assistantMessage = chatResponse.getResults().stream()
+                .map(Generation::getOutput)
+                .filter(AssistantMessage::hasToolCalls)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No tool call requested by the chat model"));
+
+        List<ToolCallback> optionsToolCallbacks =
+                prompt.getOptions() instanceof ToolCallingChatOptions options ? options.getToolCallbacks() : List.of();
+        ToolContext toolContext = buildToolContext(prompt, assistantMessage);
+        boolean cacheAllowed = !(prompt.getOptions() instanceof ToolCallingChatOptions options)
+                || CollectionUtils.isEmpty(options.getToolContext());
+
+        // Все инструменты резолвятся до запуска, чтобы не выполнять часть вызовов при ошибке в имени
+        List<PendingToolCall> pendingCalls = new ArrayList<>();
+        for (AssistantMessage.ToolCall toolCall : assistantMessage.getToolCalls()) {
+            pendingCalls.add(new PendingToolCall(toolCall, resolveToolCallback(toolCall.name(), optionsToolCallbacks)));
+        }
+
+        Observation parentObservation = observationRegistry.getCurrentObservation();
+        ContextView reactiveContext = ToolCallReactiveContextHolder.getContext();
+        List<ToolResponseMessage.ToolResponse> toolResponses = new ArrayList<>(pendingCalls.size());
+        try {
+            for (PendingToolCall pendingCall : pendingCalls) {
+                submit(pendingCall, toolContext, cacheAllowed, parentObservation, reactiveContext);
+            }
+            for (PendingToolCall pendingCall : pendingCalls) {
+                toolResponses.add(new ToolResponseMessage.ToolResponse(
+                        pendingCall.toolCall.id(), pendingCall.toolCall.name(), await(pendingCall)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while executing tool calls", e);
+        } finally {
+            pendingCalls.stream()
+                    .map(pendingCall -> pendingCall.result)
+                    .filter(result -> result != null && !result.isDone())
+                    .forEach(result -> result.cancel(true));
+        }
+
+        boolean returnDirect = pendingCalls.stream()
+                .allMatch(pendingCall ->
+                        pendingCall.toolCallback.getToolMetadata().returnDirect());
+
+        List<Message> conversationHistory = new ArrayList<>(prompt.copy().getInstructions());
+        conversationHistory.add(assistantMessage);
+        conversationHistory.add(
+                ToolResponseMessage.builder().responses(toolResponses).build());
+
+        return ToolExecutionResult.builder()
+                .conversationHistory(conversationHistory)
+                .returnDirect(returnDirect)
+                .build();
+    }
+
+    private void submit(
+            PendingToolCall pendingCall,
+            ToolContext toolContext,
+            boolean cacheAllowed,
+            @Nullable Observation parentObservation,
+            @Nullable ContextView reactiveContext)
+            throws InterruptedException {
+        String toolName = pendingCall.toolCall.name();
+        String arguments =
+                StringUtils.hasText(pendingCall.toolCall.arguments()) ? pendingCall.toolCall.arguments() : "{}";
+        ToolResultCache.Key cacheKey = cacheAllowed && isCacheable(pendingCall.toolCallback)
+                ? new ToolResultCache.Key(toolName, arguments)
+                : null;
+        if (cacheKey != null) {
+            String cachedResult = resultCache.get(cacheKey);
+            if (cachedResult != null) {
+                log.debug("Using cached result of tool call: {}", toolName);
+                pendingCall.result = CompletableFuture.completedFuture(cachedResult);
+                return;
+            }
+        }
+
+        if (!permits.tryAcquire(permitTimeoutNanos, TimeUnit.NANOSECONDS)) {
+            pendingCall.result = CompletableFuture.completedFuture(timedOut(
+                    pendingCall.toolCallback.getToolDefinition(), "No free slot for tool call", permitTimeoutNanos));
+            return;
+        }
+        // таймаут выполнения отсчитывается с момента получения слота
+        pendingCall.deadline = System.nanoTime() + toolTimeoutNanos;
+        // слот освобождает тот, кто первым захватит флаг: задача - после фактического завершения инструмента,
+        // done() - если задачу отменили до запуска
+        AtomicBoolean permitClaimed = new AtomicBoolean();
+        FutureTask<String> task =
+                new FutureTask<>(() -> {
+                    if (!permitClaimed.compareAndSet(false, true)) {
+                        throw new CancellationException();
+                    }
+                    try {
+                        ToolCallReactiveContextHolder.setContext(reactiveContext);
+                        String result = call(pendingCall.toolCallback, arguments, toolContext, parentObservation);
+                        if (cacheKey != null) {
+                            resultCache.put(cacheKey, result);
+                        }
+                        return result;
+                    } finally {
+                        ToolCallReactiveContextHolder.clearContext();
+                        permits.release();
+                    }
+                }) {
+                    @Override
+                    protected void done() {
+                        if (permitClaimed.compareAndSet(false, true)) {
+                            permits.release();
+                        }
+                    }
+                };
+        pendingCall.result = task;
+        log.debug("Executing tool call: {}", toolName);
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.cancel(false);
+            throw e;
+        }
+    }
+
+    private String call(
+            ToolCallback toolCallback,
+            String arguments,
+            ToolContext toolContext,
+            @Nullable Observation parentObservation) {
+        ToolCallingObservationContext observationContext = ToolCallingObservationContext.builder()
+                .toolDefinition(toolCallback.getToolDefinition())
+                .toolMetadata(toolCallback.getToolMetadata())
+                .toolCallArguments(arguments)
+                .build();
+        return ToolCallingObservationDocumentation.TOOL_CALL
+                .observation(
+                        this.observationConvention,
+                        DEFAULT_OBSERVATION_CONVENTION,
+                        () -> observationContext,
+                        this.observationRegistry)
+                .parentObservation(parentObservation)
+                .observe(() -> {
+                    String result = toolCallback.call(arguments, toolContext);
+                    observationContext.setToolCallResult(result);
+                    return result;
+                });
+    }
+
+    private String await(PendingToolCall pendingCall) throws InterruptedException {
+        ToolDefinition toolDefinition = pendingCall.toolCallback.getToolDefinition();
+        try {
+            long timeout = pendingCall.deadline - System.nanoTime();
+            return pendingCall.result.get(Math.max(0, timeout), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            pendingCall.result.cancel(true);
+            return timedOut(toolDefinition, "Tool call timed out", toolTimeoutNanos);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ToolExecutionException toolExecutionException) {
+                return toolExecutionExceptionProcessor.process(toolExecutionException);
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Tool call " + toolDefinition.name() + " failed", e.getCause());
+        }
+    }
+
+    private String timedOut(ToolDefinition toolDefinition, String reason, long timeoutNanos) {
+        String message = reason + " after " + Duration.ofNanos(timeoutNanos).toMillis() + " ms";
+        log.warn("{}: {}", message, toolDefinition.name());
+        // unchecked cause - иначе DefaultToolExecutionExceptionProcessor пробрасывает исключение, а не отдает его
+        // модели
+        return toolExecutionExceptionProcessor.process(
+                new ToolExecutionException(toolDefinition, new IllegalStateException(message)));
+    }
+
+    private boolean isCacheable(ToolCallback toolCallback) {
+        return resultCache != null
+                && toolCallback.getToolMetadata() instanceof GigaToolMetadata metadata
+                && metadata.idempotent();
+    }
+
+    private ToolCallback resolveToolCallback(String toolName, List<ToolCallback> optionsToolCallbacks) {
+        return optionsToolCallbacks.stream()
+                .filter(toolCallback ->
+                        toolName.equals(toolCallback.getToolDefinition().name()))
+                .findFirst()
+                .or(() -> Optional.ofNullable(toolCallbackResolver.resolve(toolName)))
+                .orElseThrow(() -> new IllegalStateException("No ToolCallback found for tool name: " + toolName));
+    }
+
+    private static ToolContext buildToolContext(Prompt prompt, AssistantMessage assistantMessage) {
+        Map<String, Object> toolContextMap = new HashMap<>();
+        if (prompt.getOptions() instanceof ToolCallingChatOptions options && options.getToolContext() != null) {
+            toolContextMap.putAll(options.getToolContext());
+        }
+        List<Message> toolCallHistory = new ArrayList<>(prompt.copy().getInstructions());
+        toolCallHistory.add(assistantMessage);
+        toolContextMap.put(ToolContext.TOOL_CALL_HISTORY, toolCallHistory);
+        return new ToolContext(toolContextMap);
+    }
+
+    /**
+     * Shuts down the default executor. Tool calls already running are allowed to finish.
+     */
+    @Override
+    public void close() {
+        if (ownsExecutor && executor instanceof ExecutorService executorService) {
+            executorService.shutdown();
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Tool call of the current model turn and its execution state. Accessed by the calling thread only.
+     */
+    private static final class PendingToolCall {
+        private final AssistantMessage.ToolCall toolCall;
+        private final ToolCallback toolCallback;
+        private Future<String> result;
+        private long deadline;
+
+        private PendingToolCall(AssistantMessage.ToolCall toolCall, ToolCallback toolCallback) {
+            this.toolCall = toolCall;
+            this.toolCallback = toolCallback;
+        }
+    }
+
+    /**
+     * Size-bounded LRU cache of idempotent tool results with expiration.
+     */
+    private static final class ToolResultCache {
+        private final int maxSize;
+        private final long ttlNanos;
+        private final Map<Key, Entry> entries;
+
+        private ToolResultCache(int maxSize, Duration ttl) {
+            this.maxSize = maxSize;
+            this.ttlNanos = ttl.toNanos();
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                    return size() > ToolResultCache.this.maxSize;
+                }
+            };
+        }
+
+        @Nullable
+        private synchronized String get(Key key) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt - System.nanoTime() <= 0) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.result;
+        }
+
+        private synchronized void put(Key key, String result) {
+            entries.put(key, new Entry(result, System.nanoTime() + ttlNanos));
+        }
+
+        private record Key(String toolName, String arguments) {}
+
+        private record Entry(String result, long expiresAt) {}
+    }
+
+    public static class Builder {
+
+        private ObservationRegistry observationRegistry = ObservationRegistry.NOOP;
+
+        private ToolCallbackResolver toolCallbackResolver = new DelegatingToolCallbackResolver(List.of());
+
+        private ToolExecutionExceptionProcessor toolExecutionExceptionProcessor =
+                DefaultToolExecutionExceptionProcessor.builder().build();
+
+        private Executor executor;
+
+        private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+
+        private Duration toolTimeout = DEFAULT_TOOL_TIMEOUT;
+
+        private Duration permitTimeout = DEFAULT_PERMIT_TIMEOUT;
+
+        private int resultCacheMaxSize = DEFAULT_RESULT_CACHE_MAX_SIZE;
+
+        private Duration resultCacheTtl = DEFAULT_RESULT_CACHE_TTL;
+
+        private Builder() {}
+
+        public Builder observationRegistry(ObservationRegistry observationRegistry) {
+            this.observationRegistry = observationRegistry;
+            return this;
+        }
+
+        public Builder toolCallbackResolver(ToolCallbackResolver toolCallbackResolver) {
+            this.toolCallbackResolver = toolCallbackResolver;
+            return this;
+        }
+
+        public Builder toolExecutionExceptionProcessor(
+                ToolExecutionExceptionProcessor toolExecutionExceptionProcessor) {
+            this.toolExecutionExceptionProcessor = toolExecutionExceptionProcessor;
+            return this;
+        }
+
+        /**
+         * Executor the tool calls run on. Defaults to a cached pool of daemon threads,
+         * which is shut down by {@link GigaToolCallingManager#close()}.
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Max number of tool calls executed at the same time by this manager.
+         */
+        public Builder maxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        /**
+         * Max execution time of a tool call, counted from the moment it got a free slot.
+         */
+        public Builder toolTimeout(Duration toolTimeout) {
+            this.toolTimeout = toolTimeout;
+            return this;
+        }
+
+        /**
+         * Max time a tool call waits for a free slot when {@code maxConcurrency} calls are already running.
+         */
+        public Builder permitTimeout(Duration permitTimeout) {
+            this.permitTimeout = permitTimeout;
+            return this;
+        }
+
+        /**
+         * Max number of cached results of idempotent tools, {@code 0} disables caching.
+         */
+        public Builder resultCacheMaxSize(int resultCacheMaxSize) {
+            this.resultCacheMaxSize = resultCacheMaxSize;
+            return this;
+        }
+
+        public Builder resultCacheTtl(Duration resultCacheTtl) {
+            this.resultCacheTtl = resultCacheTtl;
+            return this;
+        }
+
+        public GigaToolCallingManager build() {
+            return new GigaToolCallingManager(
+                    observationRegistry,
+                    toolCallbackResolver,
+                    toolExecutionExceptionProcessor,
+                    executor != null ? executor : defaultExecutor(),
+                    executor == null,
+                    maxConcurrency,
+                    toolTimeout,
+                    permitTimeout,
+                    resultCacheMaxSize,
+                    resultCacheTtl);
+        }
+
+        private static ExecutorService defaultExecutor() {
+            AtomicInteger threadNumber = new AtomicInteger();
+            ThreadFactory threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, "gigachat-tool-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            return Executors.newCachedThreadPool(threadFactory);
+        }
+    }
+}
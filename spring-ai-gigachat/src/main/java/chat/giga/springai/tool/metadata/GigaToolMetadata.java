@@ -0,0 +1,66 @@
+/*
+ * Copyright 2023-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package chat.giga.springai.tool.metadata;
+
+import chat.giga.springai.tool.annotation.GigaTool;
+import java.lang.reflect.Method;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.util.Assert;
+
+/**
+ * Implementation of {@link ToolMetadata} for GigaChat LLM.
+ *
+ * @param returnDirect whether the tool result should be returned directly or passed back to the model
+ * @param idempotent whether the tool result may be cached and reused for calls with the same arguments
+ */
+public record GigaToolMetadata(boolean returnDirect, boolean idempotent) implements ToolMetadata {
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static GigaToolMetadata from(Method method) {
+        Assert.notNull(method, "method cannot be null");
+        GigaTool gigaTool = AnnotatedElementUtils.findMergedAnnotation(method, GigaTool.class);
+        return new GigaToolMetadata(
+                ToolMetadata.from(method).returnDirect(), gigaTool != null && gigaTool.idempotent());
+    }
+
+    public static class Builder {
+
+        private boolean returnDirect = false;
+
+        private boolean idempotent = false;
+
+        private Builder() {}
+
+        public Builder returnDirect(boolean returnDirect) {
+            this.returnDirect = returnDirect;
+            return this;
+        }
+
+        public Builder idempotent(boolean idempotent) {
+            this.idempotent = idempotent;
+            return this;
+        }
+
+        public GigaToolMetadata build() {
+            return new GigaToolMetadata(returnDirect, idempotent);
+        }
+    }
+}
@@ -16,10 +16,14 @@
 
 package chat.giga.springai.tool.method;
 
+import chat.giga.springai.tool.definition.GeneratedGigaToolDefinitions;
+import chat.giga.springai.tool.definition.GeneratedGigaToolMethod;
 import chat.giga.springai.tool.definition.GigaToolDefinition;
+import chat.giga.springai.tool.metadata.GigaToolMetadata;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -29,13 +33,17 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.tool.ToolCallback;
 import org.springframework.ai.tool.ToolCallbackProvider;
 import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.execution.ToolCallResultConverter;
 import org.springframework.ai.tool.metadata.ToolMetadata;
 import org.springframework.ai.tool.method.MethodToolCallback;
 import org.springframework.ai.tool.support.ToolUtils;
 import org.springframework.aop.support.AopUtils;
 import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
 import org.springframework.util.ReflectionUtils;
 
 /**
@@ -46,23 +54,28 @@ import org.springframework.util.ReflectionUtils;
 @Slf4j
 public class GigaMethodToolCallbackProvider implements ToolCallbackProvider {
 
+    /**
+     * Tool methods of a class with their definitions. Reflection and JSON schema generation
+     * happen once per class and are shared between providers.
+     */
+    private static final Map<Class<?>, List<ToolMethod>> TOOL_METHODS_CACHE = new ConcurrentReferenceHashMap<>();
+
     private final List<Object> toolObjects;
 
+    private final ToolCallback[] toolCallbacks;
+
     private GigaMethodToolCallbackProvider(List<Object> toolObjects) {
         Assert.notNull(toolObjects, "toolObjects cannot be null");
         Assert.noNullElements(toolObjects, "toolObjects cannot contain null elements");
         assertToolAnnotatedMethodsPresent(toolObjects);
         this.toolObjects = toolObjects;
-        validateToolCallbacks(getToolCallbacks());
+        this.toolCallbacks = createToolCallbacks();
+        validateToolCallbacks(this.toolCallbacks);
     }
 
     private void assertToolAnnotatedMethodsPresent(List<Object> toolObjects) {
         for (Object toolObject : toolObjects) {
-            List<Method> toolMethods = Stream.of(getDeclaredMethods(toolObject))
-                    .filter(this::isToolAnnotatedMethod)
-                    .toList();
-
-            if (toolMethods.isEmpty()) {
+            if (getToolMethods(toolObject).isEmpty()) {
                 throw new IllegalStateException(
                         "No @GigaTool/@Tool annotated methods found in " + toolObject + "."
                                 + "Did you mean to pass a ToolCallback or ToolCallbackProvider? If so, you have to use .toolCallbacks() instead of .tools()");
@@ -72,28 +85,56 @@ public class GigaMethodToolCallbackProvider implements ToolCallbackProvider {
 
     @Override
     public ToolCallback[] getToolCallbacks() {
-        var toolCallbacks = toolObjects.stream()
-                .map(toolObject -> Stream.of(getDeclaredMethods(toolObject))
-                        .filter(this::isToolAnnotatedMethod)
-                        .map(toolMethod -> MethodToolCallback.builder()
-                                .toolDefinition(GigaToolDefinition.from(toolMethod))
-                                .toolMetadata(ToolMetadata.from(toolMethod))
-                                .toolMethod(toolMethod)
+        return this.toolCallbacks.clone();
+    }
+
+    private ToolCallback[] createToolCallbacks() {
+        return toolObjects.stream()
+                .flatMap(
+                        toolObject -> getToolMethods(toolObject).stream().map(toolMethod -> MethodToolCallback.builder()
+                                .toolDefinition(toolMethod.toolDefinition())
+                                .toolMetadata(toolMethod.toolMetadata())
+                                .toolMethod(toolMethod.method())
                                 .toolObject(toolObject)
-                                .toolCallResultConverter(ToolUtils.getToolCallResultConverter(toolMethod))
-                                .build())
-                        .toArray(ToolCallback[]::new))
-                .flatMap(Stream::of)
+                                .toolCallResultConverter(toolMethod.toolCallResultConverter())
+                                .build()))
                 .toArray(ToolCallback[]::new);
+    }
 
-        validateToolCallbacks(toolCallbacks);
+    private List<ToolMethod> getToolMethods(Object toolObject) {
+        Class<?> toolClass =
+                AopUtils.isAopProxy(toolObject) ? AopUtils.getTargetClass(toolObject) : toolObject.getClass();
+        return TOOL_METHODS_CACHE.computeIfAbsent(toolClass, this::findToolMethods);
+    }
 
-        return toolCallbacks;
+    private List<ToolMethod> findToolMethods(Class<?> toolClass) {
+        GeneratedGigaToolDefinitions generatedDefinitions = GeneratedGigaToolDefinitions.find(toolClass);
+        Map<String, GeneratedGigaToolMethod> generatedMethods =
+                generatedDefinitions != null ? generatedDefinitions.toolMethods() : Map.of();
+        return Stream.of(ReflectionUtils.getDeclaredMethods(toolClass))
+                .filter(this::isToolAnnotatedMethod)
+                .map(toolMethod -> createToolMethod(
+                        toolMethod, generatedMethods.get(GeneratedGigaToolDefinitions.signature(toolMethod))))
+                .toList();
     }
 
-    private Method[] getDeclaredMethods(Object toolObject) {
-        return ReflectionUtils.getDeclaredMethods(
-                AopUtils.isAopProxy(toolObject) ? AopUtils.getTargetClass(toolObject) : toolObject.getClass());
+    /**
+     * Uses the definition generated at build time if present, otherwise builds the definition from annotations
+     * and generates JSON schemas at runtime.
+     */
+    private ToolMethod createToolMethod(Method toolMethod, @Nullable GeneratedGigaToolMethod generatedMethod) {
+        if (generatedMethod == null) {
+            return new ToolMethod(
+                    toolMethod,
+                    GigaToolDefinition.from(toolMethod),
+                    GigaToolMetadata.from(toolMethod),
+                    ToolUtils.getToolCallResultConverter(toolMethod));
+        }
+        return new ToolMethod(
+                toolMethod,
+                generatedMethod.toToolDefinition(toolMethod),
+                generatedMethod.toToolMetadata(),
+                ToolUtils.getToolCallResultConverter(toolMethod));
     }
 
     private boolean isToolAnnotatedMethod(Method method) {
@@ -128,6 +169,12 @@ public class GigaMethodToolCallbackProvider implements ToolCallbackProvider {
         }
     }
 
+    private record ToolMethod(
+            Method method,
+            ToolDefinition toolDefinition,
+            ToolMetadata toolMetadata,
+            ToolCallResultConverter toolCallResultConverter) {}
+
     public static Builder builder() {
         return new Builder();
     }
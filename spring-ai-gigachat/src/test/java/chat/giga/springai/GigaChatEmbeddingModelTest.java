@@ -1,14 +1,41 @@
 package chat.giga.springai;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 
 import chat.giga.springai.api.chat.GigaChatApi;
 import chat.giga.springai.api.chat.embedding.EmbeddingsModel;
+import chat.giga.springai.api.chat.embedding.EmbeddingsRequest;
+import chat.giga.springai.api.chat.embedding.EmbeddingsResponse;
+import io.micrometer.observation.Observation;
 import io.micrometer.observation.ObservationRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.springframework.ai.content.MediaContent;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.embedding.observation.EmbeddingModelObservationContext;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.http.ResponseEntity;
 import org.springframework.retry.support.RetryTemplate;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+import reactor.util.retry.Retry;
 
 class GigaChatEmbeddingModelTest {
     GigaChatApi gigaChatApi = Mockito.mock(GigaChatApi.class);
@@ -27,4 +54,306 @@ class GigaChatEmbeddingModelTest {
         assertEquals(1024, embeddingModel.dimensions());
         Mockito.verify(gigaChatApi, Mockito.never()).embeddings(any());
     }
+
+    @Test
+    void dimensionsFromOptionsWithoutRemoteCall() {
+        GigaChatEmbeddingModel customModel = new GigaChatEmbeddingModel(
+                gigaChatApi,
+                GigaChatEmbeddingOptions.builder()
+                        .withModel("CustomEmbeddings")
+                        .withDimensions(768)
+                        .build(),
+                retryTemplate,
+                ObservationRegistry.NOOP);
+
+        assertEquals(768, customModel.dimensions());
+        Mockito.verify(gigaChatApi, Mockito.never()).embeddings(any());
+    }
+
+    @Test
+    void dimensionsLearnedFromEmbeddingResponse() {
+        mockEmbeddingsEchoingInput();
+        GigaChatEmbeddingModel customModel = new GigaChatEmbeddingModel(
+                gigaChatApi,
+                GigaChatEmbeddingOptions.builder().withModel("CustomEmbeddings").build(),
+                retryTemplate,
+                ObservationRegistry.NOOP);
+
+        customModel.call(new EmbeddingRequest(
+                List.of("1", "2"), EmbeddingOptions.builder().build()));
+
+        assertEquals(1, customModel.dimensions());
+        Mockito.verify(gigaChatApi, Mockito.times(1)).embeddings(any());
+    }
+
+    @Test
+    void callSplitsInstructionsIntoBatchesAndKeepsOrder() {
+        mockEmbeddingsEchoingInput();
+        GigaChatEmbeddingModel batchingModel = GigaChatEmbeddingModel.builder()
+                .gigaChatApi(gigaChatApi)
+                .defaultOptions(options)
+                .retryTemplate(retryTemplate)
+                .maxBatchSize(3)
+                .maxConcurrentBatches(4)
+                .build();
+        List<String> texts = IntStream.range(0, 10).mapToObj(String::valueOf).toList();
+
+        EmbeddingResponse response = batchingModel.call(
+                new EmbeddingRequest(texts, EmbeddingOptions.builder().build()));
+
+        ArgumentCaptor<EmbeddingsRequest> captor = ArgumentCaptor.forClass(EmbeddingsRequest.class);
+        Mockito.verify(gigaChatApi, Mockito.times(4)).embeddings(captor.capture());
+        captor.getAllValues().forEach(rq -> assertEquals(options.getModel(), rq.getModel()));
+        assertEquals(10, response.getResults().size());
+        for (int i = 0; i < texts.size(); i++) {
+            assertEquals(i, response.getResults().get(i).getIndex());
+            assertArrayEquals(new float[] {i}, response.getResults().get(i).getOutput());
+        }
+        // использование токенов суммируется по всем пачкам
+        assertEquals(10, response.getMetadata().getUsage().getPromptTokens());
+    }
+
+    @Test
+    void callSplitsInstructionsByTokenLimit() {
+        GigaChatEmbeddingModel batchingModel = GigaChatEmbeddingModel.builder()
+                .gigaChatApi(gigaChatApi)
+                .defaultOptions(options)
+                .retryTemplate(retryTemplate)
+                .maxBatchTokens(2)
+                .tokenCountEstimator(new FixedTokenCountEstimator())
+                .build();
+
+        List<List<String>> batches = batchingModel.batch(List.of("1", "2", "3", "4", "5"));
+
+        assertEquals(List.of(List.of("1", "2"), List.of("3", "4"), List.of("5")), batches);
+    }
+
+    @Test
+    void embedDocumentsExecutesBatchesAndKeepsDocumentsOrder() {
+        mockEmbeddingsEchoingInput();
+        List<Document> documents = IntStream.range(0, 7)
+                .mapToObj(i -> new Document(String.valueOf(i)))
+                .toList();
+
+        List<float[]> embeddings =
+                embeddingModel.embed(documents, EmbeddingOptions.builder().build(), docs -> {
+                    List<List<Document>> batches = new ArrayList<>();
+                    for (int i = 0; i < docs.size(); i += 2) {
+                        batches.add(docs.subList(i, Math.min(i + 2, docs.size())));
+                    }
+                    return batches;
+                });
+
+        Mockito.verify(gigaChatApi, Mockito.times(4)).embeddings(any());
+        assertEquals(7, embeddings.size());
+        for (int i = 0; i < documents.size(); i++) {
+            assertArrayEquals(new float[] {i}, embeddings.get(i));
+        }
+    }
+
+    @Test
+    void embedDocumentsDoesNotExceedMaxConcurrentBatches() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        Mockito.when(gigaChatApi.embeddings(any())).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            inFlight.decrementAndGet();
+            return ResponseEntity.ok(echo(invocation.getArgument(0)));
+        });
+        GigaChatEmbeddingModel batchingModel = GigaChatEmbeddingModel.builder()
+                .gigaChatApi(gigaChatApi)
+                .defaultOptions(options)
+                .retryTemplate(retryTemplate)
+                .maxBatchSize(2)
+                .maxConcurrentBatches(2)
+                .build();
+        List<Document> documents = IntStream.range(0, 16)
+                .mapToObj(i -> new Document(String.valueOf(i)))
+                .toList();
+
+        List<float[]> embeddings = batchingModel.embed(
+                documents,
+                EmbeddingOptions.builder().build(),
+                docs -> List.of(docs.subList(0, 8), docs.subList(8, 16)));
+
+        Mockito.verify(gigaChatApi, Mockito.times(8)).embeddings(any());
+        assertTrue(maxInFlight.get() <= 2, "concurrent requests: " + maxInFlight.get());
+        for (int i = 0; i < documents.size(); i++) {
+            assertArrayEquals(new float[] {i}, embeddings.get(i));
+        }
+    }
+
+    @Test
+    void callOnNonBlockingThreadSendsBatchesSequentially() {
+        mockEmbeddingsEchoingInput();
+        GigaChatEmbeddingModel batchingModel = GigaChatEmbeddingModel.builder()
+                .gigaChatApi(gigaChatApi)
+                .defaultOptions(options)
+                .maxBatchSize(2)
+                .build();
+        List<String> texts = IntStream.range(0, 5).mapToObj(String::valueOf).toList();
+
+        EmbeddingResponse response = Mono.fromCallable(() -> batchingModel.call(
+                        new EmbeddingRequest(texts, EmbeddingOptions.builder().build())))
+                .subscribeOn(Schedulers.parallel())
+                .block();
+
+        Mockito.verify(gigaChatApi, Mockito.times(3)).embeddings(any());
+        assertEquals(5, response.getResults().size());
+        for (int i = 0; i < texts.size(); i++) {
+            assertArrayEquals(new float[] {i}, response.getResults().get(i).getOutput());
+        }
+    }
+
+    @Test
+    void callPropagatesObservationToBatchThreads() {
+        ObservationRegistry observationRegistry = ObservationRegistry.create();
+        observationRegistry.observationConfig().observationHandler(context -> true);
+        List<Observation> parents = Collections.synchronizedList(new ArrayList<>());
+        Mockito.when(gigaChatApi.embeddings(any())).thenAnswer(invocation -> {
+            parents.add(observationRegistry.getCurrentObservation());
+            return ResponseEntity.ok(echo(invocation.getArgument(0)));
+        });
+        GigaChatEmbeddingModel batchingModel = GigaChatEmbeddingModel.builder()
+                .gigaChatApi(gigaChatApi)
+                .defaultOptions(options)
+                .observationRegistry(observationRegistry)
+                .maxBatchSize(2)
+                .build();
+
+        batchingModel.call(new EmbeddingRequest(
+                List.of("0", "1", "2", "3"), EmbeddingOptions.builder().build()));
+
+        assertEquals(2, parents.size());
+        parents.forEach(parent -> assertInstanceOf(EmbeddingModelObservationContext.class, parent.getContext()));
+    }
+
+    @Test
+    void callAsyncSplitsInstructionsIntoBatchesAndRetries() {
+        AtomicInteger attempts = new AtomicInteger();
+        Mockito.when(gigaChatApi.embeddingsAsync(any()))
+                .thenAnswer(invocation -> Mono.defer(() -> {
+                    if (attempts.getAndIncrement() == 0) {
+                        return Mono.error(
+                                WebClientResponseException.create(503, "Service Unavailable", null, null, null));
+                    }
+                    return Mono.just(echo(invocation.getArgument(0)));
+                }));
+        GigaChatEmbeddingModel batchingModel = GigaChatEmbeddingModel.builder()
+                .gigaChatApi(gigaChatApi)
+                .defaultOptions(options)
+                .maxBatchSize(3)
+                .asyncRetrySpec(Retry.backoff(1, Duration.ofMillis(1)).filter(GigaChatModel::isTransientStreamError))
+                .build();
+        List<String> texts = IntStream.range(0, 7).mapToObj(String::valueOf).toList();
+
+        EmbeddingResponse response = batchingModel
+                .callAsync(
+                        new EmbeddingRequest(texts, EmbeddingOptions.builder().build()))
+                .block();
+
+        Mockito.verify(gigaChatApi, Mockito.times(3)).embeddingsAsync(any());
+        Mockito.verify(gigaChatApi, Mockito.never()).embeddings(any());
+        assertEquals(4, attempts.get());
+        assertEquals(7, response.getResults().size());
+        for (int i = 0; i < texts.size(); i++) {
+            assertEquals(i, response.getResults().get(i).getIndex());
+            assertArrayEquals(new float[] {i}, response.getResults().get(i).getOutput());
+        }
+    }
+
+    @Test
+    void embedDocumentFluxKeepsOrderAndBoundsDemand() {
+        Mockito.when(gigaChatApi.embeddingsAsync(any()))
+                .thenAnswer(invocation -> Mono.just(echo(invocation.getArgument(0))));
+        GigaChatEmbeddingModel batchingModel = GigaChatEmbeddingModel.builder()
+                .gigaChatApi(gigaChatApi)
+                .defaultOptions(options)
+                .maxBatchSize(2)
+                .maxConcurrentBatches(2)
+                .build();
+        AtomicInteger produced = new AtomicInteger();
+        Flux<Document> documents = Flux.range(0, 10_000)
+                .map(i -> new Document(String.valueOf(i)))
+                .doOnNext(document -> produced.incrementAndGet());
+
+        StepVerifier.create(
+                        batchingModel.embed(
+                                documents, EmbeddingOptions.builder().build()),
+                        3)
+                .assertNext(embedded -> assertArrayEquals(new float[] {0}, embedded.embedding()))
+                .assertNext(embedded -> assertEquals("1", embedded.document().getText()))
+                .assertNext(embedded -> assertArrayEquals(new float[] {2}, embedded.embedding()))
+                .thenCancel()
+                .verify();
+
+        assertTrue(produced.get() < 100, "documents requested from the source: " + produced.get());
+    }
+
+    @Test
+    void embedDocumentFluxSendsEachBatchOnceWithinConcurrencyLimit() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        Mockito.when(gigaChatApi.embeddingsAsync(any())).thenAnswer(invocation -> Mono.defer(() -> {
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    return Mono.just(echo(invocation.getArgument(0)));
+                })
+                .delayElement(Duration.ofMillis(20))
+                .doOnSuccess(response -> inFlight.decrementAndGet()));
+        GigaChatEmbeddingModel batchingModel = GigaChatEmbeddingModel.builder()
+                .gigaChatApi(gigaChatApi)
+                .defaultOptions(options)
+                .maxBatchSize(3)
+                .maxConcurrentBatches(2)
+                .build();
+        Flux<Document> documents = Flux.range(0, 7).map(i -> new Document(String.valueOf(i)));
+
+        List<GigaChatEmbeddingModel.EmbeddedDocument> embedded = batchingModel
+                .embed(documents, EmbeddingOptions.builder().build())
+                .collectList()
+                .block();
+
+        Mockito.verify(gigaChatApi, Mockito.times(3)).embeddingsAsync(any());
+        assertTrue(maxInFlight.get() <= 2, "concurrent requests: " + maxInFlight.get());
+        assertEquals(7, embedded.size());
+        for (int i = 0; i < embedded.size(); i++) {
+            assertArrayEquals(new float[] {i}, embedded.get(i).embedding());
+        }
+    }
+
+    // Возвращает в качестве эмбеддинга число из входного текста, индексы перемешаны в обратном порядке
+    private void mockEmbeddingsEchoingInput() {
+        Mockito.when(gigaChatApi.embeddings(any()))
+                .thenAnswer(invocation -> ResponseEntity.ok(echo(invocation.getArgument(0))));
+    }
+
+    private static EmbeddingsResponse echo(EmbeddingsRequest request) {
+        List<EmbeddingsResponse.EmbeddingData> data = new ArrayList<>();
+        for (int i = request.getInput().size() - 1; i >= 0; i--) {
+            data.add(EmbeddingsResponse.EmbeddingData.builder()
+                    .index(i)
+                    .embedding(new float[] {Float.parseFloat(request.getInput().get(i))})
+                    .usage(new EmbeddingsResponse.GigaChatEmbeddingsUsage(1))
+                    .build());
+        }
+        return EmbeddingsResponse.builder().model(request.getModel()).data(data).build();
+    }
+
+    private static class FixedTokenCountEstimator implements TokenCountEstimator {
+        @Override
+        public int estimate(String text) {
+            return 1;
+        }
+
+        @Override
+        public int estimate(MediaContent content) {
+            return 1;
+        }
+
+        @Override
+        public int estimate(Iterable<MediaContent> messages) {
+            return 1;
+        }
+    }
 }
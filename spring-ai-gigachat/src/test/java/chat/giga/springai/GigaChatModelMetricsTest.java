@@ -0,0 +1,125 @@
+package chat.giga.springai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import chat.giga.springai.api.chat.completion.CompletionResponse;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+class GigaChatModelMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final GigaChatModelMetrics metrics = new GigaChatModelMetrics(meterRegistry);
+
+    @Test
+    void recordCallPublishesTokensAndCacheHitRatio() {
+        metrics.recordCall("GigaChat-2", response("stop", usage(100, 20, 25)), 2_000_000_000L);
+
+        assertEquals(100, tokens("GigaChat-2", "stop", "prompt"));
+        assertEquals(20, tokens("GigaChat-2", "stop", "completion"));
+        assertEquals(25, tokens("GigaChat-2", "stop", "precached"));
+        DistributionSummary cacheHitRatio = meterRegistry
+                .get(GigaChatModelMetrics.PROMPT_CACHE_HIT_RATIO)
+                .tags(GigaChatModelMetrics.MODEL_TAG, "GigaChat-2", GigaChatModelMetrics.FINISH_REASON_TAG, "stop")
+                .summary();
+        assertEquals(0.25, cacheHitRatio.totalAmount(), 1e-9);
+        DistributionSummary tokensRate = meterRegistry
+                .get(GigaChatModelMetrics.COMPLETION_TOKENS_RATE)
+                .tags(GigaChatModelMetrics.MODEL_TAG, "GigaChat-2")
+                .summary();
+        assertEquals(10, tokensRate.totalAmount(), 1e-9);
+    }
+
+    @Test
+    void recordCallUsesResponseModelIfRequestModelIsNotSet() {
+        CompletionResponse response = response("length", usage(10, 5, 0)).setModel("GigaChat-2-Max:2.0");
+
+        metrics.recordCall(null, response, 1_000_000L);
+
+        assertEquals(5, tokens("GigaChat-2-Max:2.0", "length", "completion"));
+    }
+
+    @Test
+    void instrumentStreamPublishesChunkTimingsWithFinishReason() {
+        Flux<CompletionResponse> chunks = Flux.just(
+                response(null, null), response(null, null), response("stop", null), response(null, usage(30, 3, 0)));
+
+        StepVerifier.create(metrics.instrumentStream("GigaChat-2", chunks))
+                .expectNextCount(4)
+                .verifyComplete();
+
+        Timer timeToFirstChunk = meterRegistry
+                .get(GigaChatModelMetrics.TIME_TO_FIRST_CHUNK)
+                .tags(GigaChatModelMetrics.MODEL_TAG, "GigaChat-2", GigaChatModelMetrics.FINISH_REASON_TAG, "stop")
+                .timer();
+        assertEquals(1, timeToFirstChunk.count());
+        Timer interChunkLatency = meterRegistry
+                .get(GigaChatModelMetrics.INTER_CHUNK_LATENCY)
+                .tags(GigaChatModelMetrics.MODEL_TAG, "GigaChat-2")
+                .timer();
+        assertEquals(3, interChunkLatency.count());
+        assertEquals(3, tokens("GigaChat-2", "stop", "completion"));
+        assertEquals(0, tokens("GigaChat-2", "stop", "precached"));
+    }
+
+    @Test
+    void instrumentStreamTagsFailedStreamWithError() {
+        Flux<CompletionResponse> chunks =
+                Flux.concat(Flux.just(response(null, null)), Flux.error(new IllegalStateException("broken")));
+
+        StepVerifier.create(metrics.instrumentStream("GigaChat-2", chunks))
+                .expectNextCount(1)
+                .verifyError(IllegalStateException.class);
+
+        assertEquals(
+                1,
+                meterRegistry
+                        .get(GigaChatModelMetrics.TIME_TO_FIRST_CHUNK)
+                        .tags(GigaChatModelMetrics.FINISH_REASON_TAG, "error")
+                        .timer()
+                        .count());
+    }
+
+    @Test
+    void instrumentStreamSkipsStreamWithoutChunks() {
+        StepVerifier.create(metrics.instrumentStream("GigaChat-2", Flux.empty()))
+                .verifyComplete();
+
+        assertNull(meterRegistry.find(GigaChatModelMetrics.TIME_TO_FIRST_CHUNK).timer());
+        assertTrue(meterRegistry.find(GigaChatModelMetrics.TOKENS).counters().isEmpty());
+    }
+
+    private double tokens(String model, String finishReason, String tokenType) {
+        return meterRegistry
+                .get(GigaChatModelMetrics.TOKENS)
+                .tags(
+                        GigaChatModelMetrics.MODEL_TAG,
+                        model,
+                        GigaChatModelMetrics.FINISH_REASON_TAG,
+                        finishReason,
+                        GigaChatModelMetrics.TOKEN_TYPE_TAG,
+                        tokenType)
+                .counter()
+                .count();
+    }
+
+    private static CompletionResponse response(String finishReason, CompletionResponse.Usage usage) {
+        CompletionResponse.Choice choice = new CompletionResponse.Choice().setFinishReason(finishReason);
+        return new CompletionResponse().setChoices(List.of(choice)).setUsage(usage);
+    }
+
+    private static CompletionResponse.Usage usage(int promptTokens, int completionTokens, int precachedTokens) {
+        return new CompletionResponse.Usage()
+                .setPromptTokens(promptTokens)
+                .setCompletionTokens(completionTokens)
+                .setTotalTokens(promptTokens + completionTokens)
+                .setPrecachedPromptTokens(precachedTokens);
+    }
+}
@@ -7,6 +7,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
@@ -19,14 +20,30 @@ import chat.giga.springai.api.GigaChatInternalProperties;
 import chat.giga.springai.api.chat.GigaChatApi;
 import chat.giga.springai.api.chat.completion.CompletionRequest;
 import chat.giga.springai.api.chat.completion.CompletionResponse;
+import chat.giga.springai.api.chat.file.UploadFileResponse;
 import chat.giga.springai.api.chat.param.FunctionCallParam;
+import chat.giga.springai.api.limiter.ConcurrencyLimitExceededException;
+import chat.giga.springai.media.GigaChatMediaCache;
 import chat.giga.springai.tool.GigaTools;
 import chat.giga.springai.tool.annotation.GigaTool;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -42,6 +59,7 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.ToolResponseMessage;
 import org.springframework.ai.chat.messages.UserMessage;
@@ -49,12 +67,26 @@ import org.springframework.ai.chat.metadata.ChatResponseMetadata;
 import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.content.Media;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
+import org.springframework.retry.support.RetryTemplate;
 import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 import reactor.test.StepVerifier;
+import reactor.util.retry.RetryBackoffSpec;
 
 @ExtendWith(MockitoExtension.class)
 public class GigaChatModelTest {
@@ -111,6 +143,25 @@ public class GigaChatModelTest {
         assertEquals(functionCallParam, requestFunctionCallParam);
     }
 
+    @Test
+    @DisplayName("Тест проверяет, что описания функций строятся один раз для одних и тех же инструментов")
+    void testGigaChatOptions_reusesFunctionDescriptions() {
+        var options = GigaChatOptions.builder()
+                .toolCallbacks(GigaTools.from(new TestTool()))
+                .build();
+        when(gigaChatApi.chatCompletionEntity(any(), any()))
+                .thenReturn(new ResponseEntity<>(response, HttpStatusCode.valueOf(200)));
+
+        gigaChatModel.call(new Prompt("Hello", options));
+        gigaChatModel.call(new Prompt("Hello again", options));
+
+        ArgumentCaptor<CompletionRequest> requestCaptor = ArgumentCaptor.forClass(CompletionRequest.class);
+        verify(gigaChatApi, times(2)).chatCompletionEntity(requestCaptor.capture(), any());
+        assertSame(
+                requestCaptor.getAllValues().get(0).getFunctions().get(0),
+                requestCaptor.getAllValues().get(1).getFunctions().get(0));
+    }
+
     @Test
     void testGigaChatOptions_withFunctionsStateIdAndFinishReasonStop() {
         var functionCallback = GigaTools.from(new TestTool());
@@ -374,6 +425,483 @@ public class GigaChatModelTest {
         assertThat(exception.getMessage(), containsStringIgnoringCase("System prompt message must be the only one"));
     }
 
+    @Test
+    @DisplayName("Тест проверяет, что одинаковые файлы загружаются один раз, а повторные берутся из кэша")
+    void testBuildRequestPrompt_uploadsSameMediaOnceAndCachesFileId() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        GigaChatModel model = GigaChatModel.builder()
+                .gigaChatApi(gigaChatApi)
+                .internalProperties(gigaChatInternalProperties)
+                .mediaCache(new GigaChatMediaCache(10, Duration.ofMinutes(1), meterRegistry))
+                .build();
+        when(gigaChatApi.uploadFileAsync(any(Media.class)))
+                .thenAnswer(invocation -> Mono.just(
+                        new UploadFileResponse(null, null, null, UUID.randomUUID(), "file", "general", "private")));
+
+        Prompt prompt = new Prompt(List.of(
+                userMessageWithMedia("Что на картинке?", "image-1", "image-2"),
+                userMessageWithMedia("А здесь?", "image-1", "image-3")));
+
+        List<String> firstIds = uploadedMediaIds(model.buildRequestPrompt(prompt));
+        List<String> secondIds = uploadedMediaIds(model.buildRequestPrompt(prompt));
+
+        verify(gigaChatApi, times(3)).uploadFileAsync(any(Media.class));
+        assertEquals(4, firstIds.size());
+        assertEquals(firstIds.get(0), firstIds.get(2));
+        assertEquals(firstIds, secondIds);
+        assertEquals(
+                4.0,
+                meterRegistry
+                        .counter(GigaChatMediaCache.CACHE_REQUESTS_COUNTER, "result", "hit")
+                        .count());
+    }
+
+    @Test
+    @DisplayName("Тест проверяет, что поток InputStreamResource не читается до загрузки при включенном кэше")
+    void testBuildRequestPrompt_uploadsInputStreamMediaWithCacheEnabled() {
+        GigaChatModel model = GigaChatModel.builder()
+                .gigaChatApi(gigaChatApi)
+                .internalProperties(gigaChatInternalProperties)
+                .mediaCache(new GigaChatMediaCache(10, Duration.ofMinutes(1), new SimpleMeterRegistry()))
+                .build();
+        when(gigaChatApi.uploadFileAsync(any(Media.class))).thenAnswer(invocation -> {
+            Resource resource =
+                    (Resource) invocation.getArgument(0, Media.class).getData();
+            try (InputStream inputStream = resource.getInputStream()) {
+                assertEquals("image", new String(inputStream.readAllBytes()));
+            }
+            return Mono.just(new UploadFileResponse(null, null, null, UUID.randomUUID(), "file", "general", "private"));
+        });
+        Media media = Media.builder()
+                .data((Object) new InputStreamResource(new ByteArrayInputStream("image".getBytes())))
+                .mimeType(MimeTypeUtils.IMAGE_PNG)
+                .build();
+
+        List<String> ids = uploadedMediaIds(model.buildRequestPrompt(new Prompt(
+                UserMessage.builder().text("Что на картинке?").media(media).build())));
+
+        verify(gigaChatApi, times(1)).uploadFileAsync(any(Media.class));
+        assertEquals(1, ids.size());
+    }
+
+    private static UserMessage userMessageWithMedia(String text, String... contents) {
+        return UserMessage.builder()
+                .text(text)
+                .media(Stream.of(contents)
+                        .map(content -> Media.builder()
+                                .data(content.getBytes())
+                                .mimeType(MimeTypeUtils.IMAGE_PNG)
+                                .build())
+                        .toList())
+                .build();
+    }
+
+    private static List<String> uploadedMediaIds(Prompt prompt) {
+        return prompt.getInstructions().stream()
+                .filter(UserMessage.class::isInstance)
+                .flatMap(message -> ((UserMessage) message).getMedia().stream())
+                .map(Media::getId)
+                .toList();
+    }
+
+    @Test
+    @DisplayName("Тест проверяет повтор потокового запроса при ошибке соединения до получения первого чанка")
+    void testStream_retriesTransientErrorBeforeFirstChunk() {
+        GigaChatModel model = GigaChatModel.builder()
+                .gigaChatApi(gigaChatApi)
+                .internalProperties(gigaChatInternalProperties)
+                .streamRetrySpec(fastStreamRetry())
+                .build();
+        AtomicInteger subscriptions = new AtomicInteger();
+        when(gigaChatApi.chatCompletionStream(any(), any())).thenReturn(Flux.defer(() -> {
+            if (subscriptions.incrementAndGet() == 1) {
+                return Flux.error(new WebClientRequestException(
+                        new ConnectException("Connection refused"),
+                        HttpMethod.POST,
+                        URI.create("http://localhost/chat/completions"),
+                        new HttpHeaders()));
+            }
+            return Flux.just(streamChunk("Привет", CompletionResponse.FinishReason.STOP));
+        }));
+
+        StepVerifier.create(model.stream(new Prompt("Hello")))
+                .assertNext(chatResponse -> assertEquals(
+                        "Привет", chatResponse.getResult().getOutput().getText()))
+                .verifyComplete();
+        assertEquals(2, subscriptions.get());
+    }
+
+    @Test
+    @DisplayName("Тест проверяет, что потоковый запрос не повторяется после получения первого чанка")
+    void testStream_doesNotRetryAfterFirstChunk() {
+        GigaChatModel model = GigaChatModel.builder()
+                .gigaChatApi(gigaChatApi)
+                .internalProperties(gigaChatInternalProperties)
+                .streamRetrySpec(fastStreamRetry())
+                .build();
+        AtomicInteger subscriptions = new AtomicInteger();
+        when(gigaChatApi.chatCompletionStream(any(), any()))
+                .thenReturn(Flux.defer(() -> {
+                            subscriptions.incrementAndGet();
+                            return Flux.just(streamChunk("Привет", null));
+                        })
+                        .concatWith(Flux.error(WebClientResponseException.create(
+                                HttpStatus.SERVICE_UNAVAILABLE.value(), "Service Unavailable", null, null, null))));
+
+        StepVerifier.create(model.stream(new Prompt("Hello")))
+                .expectNextCount(1)
+                .expectError(WebClientResponseException.class)
+                .verify();
+        assertEquals(1, subscriptions.get());
+    }
+
+    @Test
+    @DisplayName("Тест проверяет выполнение инструментов потоковой генерации на выделенном планировщике")
+    void testStream_executesToolsOnToolExecutionScheduler() {
+        Scheduler toolScheduler = Schedulers.newSingle("gigachat-test-tools");
+        try {
+            GigaChatModel model = GigaChatModel.builder()
+                    .gigaChatApi(gigaChatApi)
+                    .internalProperties(gigaChatInternalProperties)
+                    .toolExecutionScheduler(toolScheduler)
+                    .build();
+            ThreadRecordingTool tool = new ThreadRecordingTool();
+            var functionCallResponse = new CompletionResponse()
+                    .setModel(GigaChatApi.ChatModel.GIGA_CHAT_2.getName())
+                    .setChoices(List.of(new CompletionResponse.Choice()
+                            .setIndex(0)
+                            .setFinishReason(CompletionResponse.FinishReason.FUNCTION_CALL)
+                            .setDelta(new CompletionResponse.MessagesRes()
+                                    .setRole(CompletionResponse.Role.assistant)
+                                    .setContent("")
+                                    .setFunctionCall(new CompletionResponse.FunctionCall("currentThread", "{}")))));
+            when(gigaChatApi.chatCompletionStream(any(), any()))
+                    .thenReturn(
+                            Flux.just(functionCallResponse),
+                            Flux.just(streamChunk("Готово", CompletionResponse.FinishReason.STOP)));
+
+            var prompt = new Prompt(
+                    "Hello",
+                    GigaChatOptions.builder()
+                            .toolCallbacks(GigaTools.from(tool))
+                            .build());
+
+            StepVerifier.create(model.stream(prompt))
+                    .assertNext(chatResponse -> assertEquals(
+                            "Готово", chatResponse.getResult().getOutput().getText()))
+                    .verifyComplete();
+            assertThat(tool.threadName, containsStringIgnoringCase("gigachat-test-tools"));
+        } finally {
+            toolScheduler.dispose();
+        }
+    }
+
+    @Test
+    @DisplayName("Тест проверяет цикл из нескольких раундов вызова инструментов и события раундов")
+    void testCall_multipleToolCallingRounds() {
+        when(gigaChatApi.chatCompletionEntity(any(), any()))
+                .thenReturn(
+                        ResponseEntity.ok(functionCallResponse("testMethod", false)),
+                        ResponseEntity.ok(functionCallResponse("testMethod", false)),
+                        ResponseEntity.ok(new CompletionResponse()
+                                .setChoices(List.of(new CompletionResponse.Choice()
+                                        .setIndex(0)
+                                        .setFinishReason(CompletionResponse.FinishReason.STOP)
+                                        .setMessage(new CompletionResponse.MessagesRes()
+                                                .setRole(CompletionResponse.Role.assistant)
+                                                .setContent("Готово"))))));
+        List<Observation.Event> events = new CopyOnWriteArrayList<>();
+        ObservationRegistry observationRegistry = ObservationRegistry.create();
+        observationRegistry.observationConfig().observationHandler(new ObservationHandler<>() {
+            @Override
+            public void onEvent(Observation.Event event, Observation.Context context) {
+                events.add(event);
+            }
+
+            @Override
+            public boolean supportsContext(Observation.Context context) {
+                return true;
+            }
+        });
+        GigaChatModel model = GigaChatModel.builder()
+                .gigaChatApi(gigaChatApi)
+                .internalProperties(gigaChatInternalProperties)
+                .observationRegistry(observationRegistry)
+                .build();
+        var prompt = new Prompt(
+                "Hello",
+                GigaChatOptions.builder()
+                        .toolCallbacks(GigaTools.from(new TestTool()))
+                        .build());
+
+        ChatResponse chatResponse =
+                Observation.createNotStarted("test", observationRegistry).observe(() -> model.call(prompt));
+
+        assertEquals("Готово", chatResponse.getResult().getOutput().getText());
+        ArgumentCaptor<CompletionRequest> requestCaptor = ArgumentCaptor.forClass(CompletionRequest.class);
+        verify(gigaChatApi, times(3)).chatCompletionEntity(requestCaptor.capture(), any());
+        List<CompletionRequest> requests = requestCaptor.getAllValues();
+        assertEquals(1, requests.get(0).getMessages().size());
+        assertEquals(3, requests.get(1).getMessages().size());
+        assertEquals(5, requests.get(2).getMessages().size());
+        // история последнего запроса дополняется, а не переводится заново
+        assertEquals(
+                requests.get(1).getMessages(), requests.get(2).getMessages().subList(0, 3));
+        assertEquals(
+                CompletionRequest.Role.function,
+                requests.get(2).getMessages().get(4).getRole());
+        assertEquals(1, requests.get(2).getFunctions().size());
+        assertEquals(
+                List.of(GigaChatModel.TOOL_CALLING_ROUND_EVENT, GigaChatModel.TOOL_CALLING_ROUND_EVENT),
+                events.stream().map(Observation.Event::getName).toList());
+        assertThat(events.get(1).getContextualName(), containsStringIgnoringCase("round 2"));
+        assertEquals(4, ((List<?>) chatResponse.getMetadata().get(GigaChatModel.INTERNAL_CONVERSATION_HISTORY)).size());
+    }
+
+    @Test
+    @DisplayName("Тест проверяет, что отказ ограничителя конкурентности не повторяется")
+    void testCall_concurrencyLimitRejectionIsNotRetried() {
+        when(gigaChatApi.chatCompletionEntity(any(), any()))
+                .thenThrow(new ConcurrencyLimitExceededException("Concurrency limit exceeded"));
+        GigaChatModel model = GigaChatModel.builder()
+                .gigaChatApi(gigaChatApi)
+                .internalProperties(gigaChatInternalProperties)
+                .build();
+
+        assertThrows(ConcurrencyLimitExceededException.class, () -> model.call(new Prompt("Hello")));
+        verify(gigaChatApi, times(1)).chatCompletionEntity(any(), any());
+    }
+
+    @Test
+    @DisplayName("Тест проверяет, что отказ ограничителя конкурентности не повторяется при потоковой генерации")
+    void testStream_concurrencyLimitRejectionIsNotRetried() {
+        AtomicInteger subscriptions = new AtomicInteger();
+        when(gigaChatApi.chatCompletionStream(any(), any())).thenReturn(Flux.defer(() -> {
+            subscriptions.incrementAndGet();
+            return Flux.error(new ConcurrencyLimitExceededException("Concurrency limit exceeded"));
+        }));
+        GigaChatModel model = GigaChatModel.builder()
+                .gigaChatApi(gigaChatApi)
+                .internalProperties(gigaChatInternalProperties)
+                .streamRetrySpec(fastStreamRetry())
+                .build();
+
+        StepVerifier.create(model.stream(new Prompt("Hello")))
+                .expectError(ConcurrencyLimitExceededException.class)
+                .verify();
+        assertEquals(1, subscriptions.get());
+    }
+
+    @Test
+    @DisplayName("Тест проверяет, что метрики непотокового запроса учитывают только успешную попытку")
+    void testCall_metricsTimeOnlySuccessfulAttempt() {
+        when(gigaChatApi.chatCompletionEntity(any(), any()))
+                .thenThrow(new TransientAiException("Service Unavailable"))
+                .thenReturn(ResponseEntity.ok(new CompletionResponse()
+                        .setChoices(List.of(new CompletionResponse.Choice()
+                                .setIndex(0)
+                                .setFinishReason(CompletionResponse.FinishReason.STOP)
+                                .setMessage(new CompletionResponse.MessagesRes()
+                                        .setRole(CompletionResponse.Role.assistant)
+                                        .setContent("Готово"))))
+                        .setUsage(new CompletionResponse.Usage()
+                                .setPromptTokens(10)
+                                .setCompletionTokens(10)
+                                .setTotalTokens(20))));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        GigaChatModel model = GigaChatModel.builder()
+                .gigaChatApi(gigaChatApi)
+                .internalProperties(gigaChatInternalProperties)
+                .retryTemplate(RetryTemplate.builder()
+                        .maxAttempts(2)
+                        .fixedBackoff(500)
+                        .retryOn(TransientAiException.class)
+                        .build())
+                .meterRegistry(meterRegistry)
+                .build();
+
+        model.call(new Prompt("Hello"));
+
+        DistributionSummary tokensRate =
+                meterRegistry.get(GigaChatModelMetrics.COMPLETION_TOKENS_RATE).summary();
+        assertEquals(1, tokensRate.count());
+        // с паузой между попытками скорость была бы меньше 20 токенов в секунду
+        assertTrue(tokensRate.totalAmount() > 100, "rate " + tokensRate.totalAmount());
+    }
+
+    @Test
+    @DisplayName("Тест проверяет дополнение истории, когда в раунде несколько результатов инструментов")
+    void testCall_toolRoundWithSeveralToolResponses() {
+        when(gigaChatApi.chatCompletionEntity(any(), any()))
+                .thenReturn(
+                        ResponseEntity.ok(functionCallResponse("testMethod", false)),
+                        ResponseEntity.ok(functionCallResponse("testMethod", false)),
+                        ResponseEntity.ok(new CompletionResponse()
+                                .setChoices(List.of(new CompletionResponse.Choice()
+                                        .setIndex(0)
+                                        .setFinishReason(CompletionResponse.FinishReason.STOP)
+                                        .setMessage(new CompletionResponse.MessagesRes()
+                                                .setRole(CompletionResponse.Role.assistant)
+                                                .setContent("Готово"))))));
+        ToolCallingManager toolCallingManager = Mockito.mock(ToolCallingManager.class);
+        when(toolCallingManager.executeToolCalls(any(), any())).thenAnswer(invocation -> {
+            Prompt toolPrompt = invocation.getArgument(0);
+            ChatResponse toolCallResponse = invocation.getArgument(1);
+            List<Message> history = new ArrayList<>(toolPrompt.getInstructions());
+            history.add(toolCallResponse.getResult().getOutput());
+            history.add(ToolResponseMessage.builder()
+                    .responses(List.of(
+                            new ToolResponseMessage.ToolResponse("1", "testMethod", "first"),
+                            new ToolResponseMessage.ToolResponse("2", "testMethod", "second")))
+                    .build());
+            return ToolExecutionResult.builder().conversationHistory(history).build();
+        });
+        GigaChatModel model = GigaChatModel.builder()
+                .gigaChatApi(gigaChatApi)
+                .internalProperties(gigaChatInternalProperties)
+                .toolCallingManager(toolCallingManager)
+                .build();
+        var prompt = new Prompt(
+                List.of(new SystemMessage("Ты - полезный ассистент"), new UserMessage("Hello")),
+                GigaChatOptions.builder().build());
+
+        ChatResponse chatResponse = model.call(prompt);
+
+        assertEquals("Готово", chatResponse.getResult().getOutput().getText());
+        ArgumentCaptor<CompletionRequest> requestCaptor = ArgumentCaptor.forClass(CompletionRequest.class);
+        verify(gigaChatApi, times(3)).chatCompletionEntity(requestCaptor.capture(), any());
+        List<CompletionRequest> requests = requestCaptor.getAllValues();
+        assertEquals(
+                List.of(2, 5, 8),
+                requests.stream().map(it -> it.getMessages().size()).toList());
+        assertEquals(
+                requests.get(1).getMessages(), requests.get(2).getMessages().subList(0, 5));
+        assertEquals(
+                List.of(
+                        CompletionRequest.Role.system,
+                        CompletionRequest.Role.user,
+                        CompletionRequest.Role.assistant,
+                        CompletionRequest.Role.function,
+                        CompletionRequest.Role.function,
+                        CompletionRequest.Role.assistant,
+                        CompletionRequest.Role.function,
+                        CompletionRequest.Role.function),
+                requests.get(2).getMessages().stream()
+                        .map(CompletionRequest.Message::getRole)
+                        .toList());
+    }
+
+    @Test
+    @DisplayName("Тест проверяет ограничение количества раундов вызова инструментов")
+    void testCall_maxToolCallingRoundsExceeded() {
+        when(gigaChatInternalProperties.getMaxToolCallingRounds()).thenReturn(2);
+        when(gigaChatApi.chatCompletionEntity(any(), any()))
+                .thenAnswer(invocation -> ResponseEntity.ok(functionCallResponse("testMethod", false)));
+        var spyTestTool = Mockito.spy(new TestTool());
+        var prompt = new Prompt(
+                "Hello",
+                GigaChatOptions.builder()
+                        .toolCallbacks(GigaTools.from(spyTestTool))
+                        .build());
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> gigaChatModel.call(prompt));
+
+        assertThat(exception.getMessage(), containsStringIgnoringCase("(2)"));
+        verify(gigaChatApi, times(3)).chatCompletionEntity(any(), any());
+        verify(spyTestTool, times(2)).testMethod();
+    }
+
+    @Test
+    @DisplayName("Тест проверяет потоковую генерацию с несколькими раундами вызова инструментов")
+    void testStream_multipleToolCallingRounds() {
+        when(gigaChatApi.chatCompletionStream(any(), any()))
+                .thenReturn(
+                        Flux.just(functionCallResponse("testMethod", true)),
+                        Flux.just(functionCallResponse("testMethod", true)),
+                        Flux.just(streamChunk("Гот", null), streamChunk("ово", CompletionResponse.FinishReason.STOP)));
+        var spyTestTool = Mockito.spy(new TestTool());
+        var prompt = new Prompt(
+                "Hello",
+                GigaChatOptions.builder()
+                        .toolCallbacks(GigaTools.from(spyTestTool))
+                        .build());
+
+        StepVerifier.create(gigaChatModel.stream(prompt))
+                .assertNext(chatResponse ->
+                        assertEquals("Гот", chatResponse.getResult().getOutput().getText()))
+                .assertNext(chatResponse ->
+                        assertEquals("ово", chatResponse.getResult().getOutput().getText()))
+                .verifyComplete();
+
+        ArgumentCaptor<CompletionRequest> requestCaptor = ArgumentCaptor.forClass(CompletionRequest.class);
+        verify(gigaChatApi, times(3)).chatCompletionStream(requestCaptor.capture(), any());
+        assertEquals(
+                List.of(1, 3, 5),
+                requestCaptor.getAllValues().stream()
+                        .map(it -> it.getMessages().size())
+                        .toList());
+        verify(spyTestTool, times(2)).testMethod();
+    }
+
+    @Test
+    @DisplayName("Тест проверяет ограничение количества раундов вызова инструментов при потоковой генерации")
+    void testStream_maxToolCallingRoundsExceeded() {
+        when(gigaChatInternalProperties.getMaxToolCallingRounds()).thenReturn(1);
+        when(gigaChatApi.chatCompletionStream(any(), any()))
+                .thenAnswer(invocation -> Flux.just(functionCallResponse("testMethod", true)));
+        var prompt = new Prompt(
+                "Hello",
+                GigaChatOptions.builder()
+                        .toolCallbacks(GigaTools.from(new TestTool()))
+                        .build());
+
+        StepVerifier.create(gigaChatModel.stream(prompt))
+                .expectError(IllegalStateException.class)
+                .verify();
+        verify(gigaChatApi, times(2)).chatCompletionStream(any(), any());
+    }
+
+    private static CompletionResponse functionCallResponse(String functionName, boolean streaming) {
+        var message = new CompletionResponse.MessagesRes()
+                .setRole(CompletionResponse.Role.assistant)
+                .setContent("")
+                .setFunctionsStateId(UUID.randomUUID().toString())
+                .setFunctionCall(new CompletionResponse.FunctionCall(functionName, "{}"));
+        var choice = new CompletionResponse.Choice()
+                .setIndex(0)
+                .setFinishReason(CompletionResponse.FinishReason.FUNCTION_CALL);
+        return new CompletionResponse()
+                .setModel(GigaChatApi.ChatModel.GIGA_CHAT_2.getName())
+                .setChoices(List.of(streaming ? choice.setDelta(message) : choice.setMessage(message)));
+    }
+
+    private static RetryBackoffSpec fastStreamRetry() {
+        return GigaChatModel.DEFAULT_STREAM_RETRY_SPEC
+                .minBackoff(Duration.ofMillis(1))
+                .maxBackoff(Duration.ofMillis(1));
+    }
+
+    private static CompletionResponse streamChunk(String content, String finishReason) {
+        return new CompletionResponse()
+                .setModel(GigaChatApi.ChatModel.GIGA_CHAT_2.getName())
+                .setChoices(List.of(new CompletionResponse.Choice()
+                        .setIndex(0)
+                        .setFinishReason(finishReason)
+                        .setDelta(new CompletionResponse.MessagesRes()
+                                .setRole(CompletionResponse.Role.assistant)
+                                .setContent(content))));
+    }
+
+    private static class ThreadRecordingTool {
+        private volatile String threadName;
+
+        @GigaTool
+        public String currentThread() {
+            threadName = Thread.currentThread().getName();
+            return threadName;
+        }
+    }
+
     private static class TestTool {
         @GigaTool
         public String testMethod() {
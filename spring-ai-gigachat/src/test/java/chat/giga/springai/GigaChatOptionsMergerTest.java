@@ -0,0 +1,138 @@
+package chat.giga.springai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+import chat.giga.springai.api.chat.completion.CompletionRequest;
+import chat.giga.springai.api.chat.param.FunctionCallParam;
+import chat.giga.springai.tool.GigaTools;
+import chat.giga.springai.tool.annotation.GigaTool;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.model.ModelOptionsUtils;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+
+class GigaChatOptionsMergerTest {
+
+    private static final GigaChatOptions DEFAULT_OPTIONS = GigaChatOptions.builder()
+            .model("GigaChat-2")
+            .temperature(0.5)
+            .maxTokens(100)
+            .repetitionPenalty(1.1)
+            .functionCallMode(GigaChatOptions.FunctionCallMode.AUTO)
+            .profanityCheck(true)
+            .httpHeaders(Map.of("X-Default", "1"))
+            .toolNames("defaultTool")
+            .toolCallbacks(GigaTools.from(new TestTool()))
+            .toolContext(Map.of("tenant", "default"))
+            .build();
+
+    private final GigaChatOptionsMerger merger = new GigaChatOptionsMerger(DEFAULT_OPTIONS);
+
+    static Stream<ChatOptions> runtimeOptions() {
+        return Stream.of(
+                null,
+                GigaChatOptions.builder()
+                        .model("GigaChat-2-Max")
+                        .topP(0.1)
+                        .updateInterval(0.2)
+                        .functionCallMode(GigaChatOptions.FunctionCallMode.CUSTOM_FUNCTION)
+                        .functionCallParam(
+                                FunctionCallParam.builder().name("testMethod").build())
+                        .internalToolExecutionEnabled(false)
+                        .toolNames("runtimeTool")
+                        .toolContext(Map.of("user", "runtime"))
+                        .build(),
+                GigaChatOptions.builder().temperature(0.9).build(),
+                ToolCallingChatOptions.builder()
+                        .model("GigaChat-2-Pro")
+                        .temperature(0.1)
+                        .maxTokens(10)
+                        .toolNames("runtimeTool")
+                        .toolContext(Map.of("user", "runtime"))
+                        .build(),
+                ChatOptions.builder().model("GigaChat-2-Pro").topP(0.3).build());
+    }
+
+    @ParameterizedTest
+    @MethodSource("runtimeOptions")
+    void mergeMatchesModelOptionsUtils(ChatOptions runtimeOptions) {
+        GigaChatOptions expected = reflectiveMerge(runtimeOptions, DEFAULT_OPTIONS);
+        GigaChatOptions actual = merger.merge(runtimeOptions);
+
+        // параметры API сравниваем по JSON, т.к. ModelOptionsUtils копирует вложенные объекты
+        assertEquals(ModelOptionsUtils.toJsonString(expected), ModelOptionsUtils.toJsonString(actual));
+        assertEquals(expected.getInternalToolExecutionEnabled(), actual.getInternalToolExecutionEnabled());
+        assertEquals(expected.getToolNames(), actual.getToolNames());
+        assertEquals(expected.getToolCallbacks(), actual.getToolCallbacks());
+        assertEquals(expected.getToolContext(), actual.getToolContext());
+    }
+
+    @ParameterizedTest
+    @MethodSource("runtimeOptions")
+    void toRequestMatchesModelOptionsUtils(ChatOptions runtimeOptions) {
+        GigaChatOptions options = merger.merge(runtimeOptions);
+        List<CompletionRequest.Message> messages =
+                List.of(new CompletionRequest.Message(CompletionRequest.Role.user, "Привет"));
+
+        CompletionRequest expected = ModelOptionsUtils.merge(
+                options,
+                CompletionRequest.builder().messages(messages).stream(true).build(),
+                CompletionRequest.class);
+
+        assertEquals(expected, GigaChatOptionsMerger.toRequest(options, messages, true));
+    }
+
+    @Test
+    void mergeDoesNotShareHttpHeadersWithDefaults() {
+        GigaChatOptions merged = merger.merge(null);
+
+        merged.getHttpHeaders().put("X-Request", "2");
+
+        assertNotSame(DEFAULT_OPTIONS.getHttpHeaders(), merged.getHttpHeaders());
+        assertEquals(Map.of("X-Default", "1"), merger.merge(null).getHttpHeaders());
+    }
+
+    /**
+     * Прежнее слияние опций через {@link ModelOptionsUtils}.
+     */
+    private static GigaChatOptions reflectiveMerge(ChatOptions options, GigaChatOptions defaultOptions) {
+        GigaChatOptions runtimeOptions = null;
+        if (options instanceof ToolCallingChatOptions toolCallingChatOptions) {
+            runtimeOptions = ModelOptionsUtils.copyToTarget(
+                    toolCallingChatOptions, ToolCallingChatOptions.class, GigaChatOptions.class);
+        } else if (options != null) {
+            runtimeOptions = ModelOptionsUtils.copyToTarget(options, ChatOptions.class, GigaChatOptions.class);
+        }
+        GigaChatOptions requestOptions = ModelOptionsUtils.merge(runtimeOptions, defaultOptions, GigaChatOptions.class);
+        if (runtimeOptions != null) {
+            requestOptions.setInternalToolExecutionEnabled(ModelOptionsUtils.mergeOption(
+                    runtimeOptions.getInternalToolExecutionEnabled(),
+                    defaultOptions.getInternalToolExecutionEnabled()));
+            requestOptions.setToolNames(ToolCallingChatOptions.mergeToolNames(
+                    runtimeOptions.getToolNames(), defaultOptions.getToolNames()));
+            requestOptions.setToolCallbacks(ToolCallingChatOptions.mergeToolCallbacks(
+                    runtimeOptions.getToolCallbacks(), defaultOptions.getToolCallbacks()));
+            requestOptions.setToolContext(ToolCallingChatOptions.mergeToolContext(
+                    runtimeOptions.getToolContext(), defaultOptions.getToolContext()));
+        } else {
+            requestOptions.setInternalToolExecutionEnabled(defaultOptions.getInternalToolExecutionEnabled());
+            requestOptions.setToolNames(defaultOptions.getToolNames());
+            requestOptions.setToolCallbacks(defaultOptions.getToolCallbacks());
+            requestOptions.setToolContext(defaultOptions.getToolContext());
+        }
+        return requestOptions;
+    }
+
+    private static class TestTool {
+        @GigaTool
+        public String testMethod() {
+            return "test";
+        }
+    }
+}
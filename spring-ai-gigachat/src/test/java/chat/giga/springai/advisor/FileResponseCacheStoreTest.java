@@ -0,0 +1,119 @@
+package chat.giga.springai.advisor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileResponseCacheStoreTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    @DisplayName("Ответ доступен новому экземпляру хранилища в том же каталоге")
+    void testGet_survivesRestart() {
+        CachedChatResponse response = new CachedChatResponse(
+                "id", "GigaChat-2", List.of(new CachedChatResponse.CachedGeneration("Ответ", "stop")));
+        new FileResponseCacheStore(directory).put("a", response, Duration.ofMinutes(1));
+
+        assertEquals(response, new FileResponseCacheStore(directory).get("a"));
+        assertNull(new FileResponseCacheStore(directory).get("b"));
+    }
+
+    @Test
+    @DisplayName("Устаревший ответ не возвращается и удаляется с диска")
+    void testGet_expired() {
+        Instant now = Instant.parse("2025-01-01T00:00:00Z");
+        new FileResponseCacheStore(directory, 10, Clock.fixed(now, ZoneOffset.UTC))
+                .put("a", response("A"), Duration.ofMinutes(1));
+        FileResponseCacheStore later =
+                new FileResponseCacheStore(directory, 10, Clock.fixed(now.plusSeconds(61), ZoneOffset.UTC));
+
+        assertNull(later.get("a"));
+        assertFalse(Files.exists(directory.resolve("a.json")));
+    }
+
+    @Test
+    @DisplayName("При переполнении удаляются давно не читавшиеся файлы")
+    void testPut_evictsLeastRecentlyRead() throws IOException {
+        FileResponseCacheStore store = new FileResponseCacheStore(directory, 2);
+        store.put("a", response("A"), Duration.ofMinutes(1));
+        store.put("b", response("B"), Duration.ofMinutes(1));
+        Files.setLastModifiedTime(directory.resolve("a.json"), FileTime.fromMillis(1000));
+        Files.setLastModifiedTime(directory.resolve("b.json"), FileTime.fromMillis(2000));
+
+        store.put("c", response("C"), Duration.ofMinutes(1));
+
+        assertNull(store.get("a"));
+        assertNotNull(store.get("b"));
+        assertNotNull(store.get("c"));
+        assertEquals(1, store.evictionCount());
+    }
+
+    @Test
+    @DisplayName("Порядок обращений восстанавливается после перезапуска по времени изменения файлов")
+    void testPut_evictsLeastRecentlyReadAfterRestart() throws IOException {
+        FileResponseCacheStore store = new FileResponseCacheStore(directory, 2);
+        store.put("a", response("A"), Duration.ofMinutes(1));
+        store.put("b", response("B"), Duration.ofMinutes(1));
+        Files.setLastModifiedTime(directory.resolve("a.json"), FileTime.fromMillis(2000));
+        Files.setLastModifiedTime(directory.resolve("b.json"), FileTime.fromMillis(1000));
+        FileResponseCacheStore restarted = new FileResponseCacheStore(directory, 2);
+
+        restarted.put("c", response("C"), Duration.ofMinutes(1));
+
+        assertFalse(Files.exists(directory.resolve("b.json")));
+        assertNotNull(restarted.get("a"));
+        assertNotNull(restarted.get("c"));
+        assertEquals(1, restarted.evictionCount());
+    }
+
+    @Test
+    @DisplayName("Удаление поврежденной записи освобождает место в хранилище")
+    void testGet_corruptedEntryIsRemovedFromSize() throws IOException {
+        FileResponseCacheStore store = new FileResponseCacheStore(directory, 2);
+        store.put("a", response("A"), Duration.ofMinutes(1));
+        store.put("b", response("B"), Duration.ofMinutes(1));
+        Files.writeString(directory.resolve("a.json"), "not json");
+
+        assertNull(store.get("a"));
+        store.put("c", response("C"), Duration.ofMinutes(1));
+
+        assertEquals(0, store.evictionCount());
+        assertNotNull(store.get("b"));
+        assertNotNull(store.get("c"));
+    }
+
+    @Test
+    @DisplayName("Временные файлы прерванной записи удаляются при запуске")
+    void testInit_removesStaleTempFiles() throws IOException {
+        Path stale = Files.writeString(directory.resolve("a123.tmp"), "{");
+        Files.setLastModifiedTime(stale, FileTime.fromMillis(1000));
+        Path fresh = Files.writeString(directory.resolve("b123.tmp"), "{");
+
+        new FileResponseCacheStore(directory);
+
+        assertFalse(Files.exists(stale));
+        assertTrue(Files.exists(fresh));
+    }
+
+    private static CachedChatResponse response(String text) {
+        return new CachedChatResponse(
+                "id", "GigaChat-2", List.of(new CachedChatResponse.CachedGeneration(text, "stop")));
+    }
+}
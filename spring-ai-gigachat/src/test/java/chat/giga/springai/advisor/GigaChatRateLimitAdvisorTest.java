@@ -0,0 +1,215 @@
+package chat.giga.springai.advisor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class GigaChatRateLimitAdvisorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong clock = new AtomicLong();
+
+    @Mock
+    private CallAdvisorChain chain;
+
+    @Mock
+    private StreamAdvisorChain streamChain;
+
+    @Test
+    @DisplayName("Запросы сверх квоты в секунду отклоняются до ее пополнения")
+    void testAdviseCall_requestsPerSecond() {
+        GigaChatRateLimitAdvisor advisor = advisor(new GigaChatRateLimitAdvisor.Quota(2, 0), Duration.ZERO);
+        ChatClientResponse response = response(0);
+        when(chain.nextCall(any())).thenReturn(response);
+
+        assertSame(response, advisor.adviseCall(request("tenant-1"), chain));
+        advisor.adviseCall(request("tenant-1"), chain);
+        assertThrows(GigaChatRateLimitExceededException.class, () -> advisor.adviseCall(request("tenant-1"), chain));
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        advisor.adviseCall(request("tenant-1"), chain);
+
+        verify(chain, times(3)).nextCall(any());
+        assertEquals(1, rejected("tenant-1", "requests"));
+    }
+
+    @Test
+    @DisplayName("Квоты разных тенантов не зависят друг от друга")
+    void testAdviseCall_tenantsAreIndependent() {
+        GigaChatRateLimitAdvisor advisor = GigaChatRateLimitAdvisor.builder()
+                .defaultQuota(new GigaChatRateLimitAdvisor.Quota(1, 0))
+                .quota("vip", new GigaChatRateLimitAdvisor.Quota(10, 0))
+                .meterRegistry(meterRegistry)
+                .nanoClock(clock::get)
+                .build();
+        when(chain.nextCall(any())).thenReturn(response(0));
+
+        advisor.adviseCall(request("tenant-1"), chain);
+        assertThrows(GigaChatRateLimitExceededException.class, () -> advisor.adviseCall(request("tenant-1"), chain));
+        advisor.adviseCall(request("tenant-2"), chain);
+        advisor.adviseCall(request(null), chain);
+        for (int i = 0; i < 10; i++) {
+            advisor.adviseCall(request("vip"), chain);
+        }
+
+        verify(chain, times(13)).nextCall(any());
+    }
+
+    @Test
+    @DisplayName("Фактически израсходованные токены списываются с квоты после ответа")
+    void testAdviseCall_tokensPerMinute() {
+        GigaChatRateLimitAdvisor advisor = advisor(new GigaChatRateLimitAdvisor.Quota(0, 1000), Duration.ZERO);
+        when(chain.nextCall(any())).thenReturn(response(1000));
+
+        advisor.adviseCall(request("tenant-1"), chain);
+        assertThrows(GigaChatRateLimitExceededException.class, () -> advisor.adviseCall(request("tenant-1"), chain));
+        assertEquals(1, rejected("tenant-1", "tokens"));
+
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        advisor.adviseCall(request("tenant-1"), chain);
+        verify(chain, times(2)).nextCall(any());
+    }
+
+    @Test
+    @DisplayName("Потоковый запрос ждет пополнения квоты не дольше maxDelay")
+    void testAdviseStream_delayedUntilQuotaRefills() {
+        GigaChatRateLimitAdvisor advisor = advisor(new GigaChatRateLimitAdvisor.Quota(1, 0), Duration.ofSeconds(5));
+        when(streamChain.nextStream(any())).thenReturn(Flux.just(response(0)));
+
+        StepVerifier.create(advisor.adviseStream(request("tenant-1"), streamChain))
+                .expectNextCount(1)
+                .verifyComplete();
+        StepVerifier.withVirtualTime(() -> advisor.adviseStream(request("tenant-1"), streamChain))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(900))
+                .thenAwait(Duration.ofMillis(100))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertEquals(
+                1000,
+                meterRegistry
+                        .get(GigaChatRateLimitAdvisor.DELAY_TIMER)
+                        .tag(GigaChatRateLimitAdvisor.TENANT_TAG, "tenant-1")
+                        .timer()
+                        .max(TimeUnit.MILLISECONDS),
+                1);
+    }
+
+    @Test
+    @DisplayName("Потоковый запрос сверх квоты завершается ошибкой без обращения к модели")
+    void testAdviseStream_rejected() {
+        GigaChatRateLimitAdvisor advisor = advisor(new GigaChatRateLimitAdvisor.Quota(1, 0), Duration.ZERO);
+        when(streamChain.nextStream(any())).thenReturn(Flux.just(response(0)));
+
+        StepVerifier.create(advisor.adviseStream(request("tenant-1"), streamChain))
+                .expectNextCount(1)
+                .verifyComplete();
+        StepVerifier.create(advisor.adviseStream(request("tenant-1"), streamChain))
+                .verifyError(GigaChatRateLimitExceededException.class);
+
+        verify(streamChain, times(1)).nextStream(any());
+    }
+
+    @Test
+    @DisplayName("Бакеты давно не использованных тенантов удаляются вместе с метриками")
+    void testAdviseCall_idleTenantsAreEvicted() {
+        GigaChatRateLimitAdvisor advisor = GigaChatRateLimitAdvisor.builder()
+                .defaultQuota(new GigaChatRateLimitAdvisor.Quota(1, 0))
+                .maxTenants(2)
+                .idleTimeout(Duration.ofMinutes(10))
+                .meterRegistry(meterRegistry)
+                .nanoClock(clock::get)
+                .build();
+        when(chain.nextCall(any())).thenReturn(response(0));
+
+        advisor.adviseCall(request("tenant-1"), chain);
+        assertThrows(GigaChatRateLimitExceededException.class, () -> advisor.adviseCall(request("tenant-1"), chain));
+        advisor.adviseCall(request("tenant-2"), chain);
+        advisor.adviseCall(request("tenant-3"), chain);
+
+        // tenant-1 вытеснен по числу тенантов, его квота начинается заново
+        assertEquals(2, advisor.tenantCount());
+        assertNull(meterRegistry
+                .find(GigaChatRateLimitAdvisor.REJECTED_COUNTER)
+                .tag(GigaChatRateLimitAdvisor.TENANT_TAG, "tenant-1")
+                .counter());
+        advisor.adviseCall(request("tenant-1"), chain);
+
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(10));
+        advisor.adviseCall(request("tenant-4"), chain);
+
+        assertEquals(1, advisor.tenantCount());
+        assertNull(meterRegistry
+                .find(GigaChatRateLimitAdvisor.DELAY_TIMER)
+                .tag(GigaChatRateLimitAdvisor.TENANT_TAG, "tenant-3")
+                .timer());
+        verify(chain, times(5)).nextCall(any());
+    }
+
+    private GigaChatRateLimitAdvisor advisor(GigaChatRateLimitAdvisor.Quota quota, Duration maxDelay) {
+        return GigaChatRateLimitAdvisor.builder()
+                .defaultQuota(quota)
+                .maxDelay(maxDelay)
+                .meterRegistry(meterRegistry)
+                .nanoClock(clock::get)
+                .build();
+    }
+
+    private double rejected(String tenant, String limit) {
+        return meterRegistry
+                .get(GigaChatRateLimitAdvisor.REJECTED_COUNTER)
+                .tags(GigaChatRateLimitAdvisor.TENANT_TAG, tenant, GigaChatRateLimitAdvisor.LIMIT_TAG, limit)
+                .counter()
+                .count();
+    }
+
+    private static ChatClientRequest request(String tenant) {
+        ChatClientRequest.Builder builder = ChatClientRequest.builder()
+                .prompt(Prompt.builder().messages(new UserMessage("Привет")).build());
+        if (tenant != null) {
+            builder.context(GigaChatRateLimitAdvisor.TENANT_ID, tenant);
+        }
+        return builder.build();
+    }
+
+    private static ChatClientResponse response(int totalTokens) {
+        ChatResponse chatResponse = ChatResponse.builder()
+                .generations(List.of(new Generation(new AssistantMessage("Ответ"))))
+                .metadata(ChatResponseMetadata.builder()
+                        .usage(new DefaultUsage(0, totalTokens))
+                        .build())
+                .build();
+        return ChatClientResponse.builder().chatResponse(chatResponse).build();
+    }
+}
@@ -0,0 +1,185 @@
+package chat.giga.springai.advisor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.ChatGenerationMetadata;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class GigaChatResponseCacheAdvisorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final GigaChatResponseCacheAdvisor advisor = GigaChatResponseCacheAdvisor.builder()
+            .streamChunkSize(4)
+            .meterRegistry(meterRegistry)
+            .build();
+
+    @Mock
+    private CallAdvisorChain chain;
+
+    @Mock
+    private StreamAdvisorChain streamChain;
+
+    @Test
+    @DisplayName("Повторный запрос возвращается из кэша без обращения к модели")
+    void testAdviseCall_cacheHit() {
+        when(chain.nextCall(any())).thenReturn(response("Ответ", "stop"));
+
+        advisor.adviseCall(request("Привет"), chain);
+        ChatClientResponse cached = advisor.adviseCall(request("Привет"), chain);
+        advisor.adviseCall(request("Пока"), chain);
+
+        verify(chain, times(2)).nextCall(any());
+        ChatResponse chatResponse = cached.chatResponse();
+        assertEquals("Ответ", chatResponse.getResult().getOutput().getText());
+        assertEquals("stop", chatResponse.getResult().getMetadata().getFinishReason());
+        assertEquals("GigaChat-2", chatResponse.getMetadata().getModel());
+        assertEquals(true, chatResponse.getMetadata().get(GigaChatResponseCacheAdvisor.CACHED));
+        assertEquals(1, requests("hit"));
+        assertEquals(2, requests("miss"));
+    }
+
+    @Test
+    @DisplayName("Запрос с ресурсом во вложении кэшируется по содержимому, с одноразовым потоком - не кэшируется")
+    void testAdviseCall_resourceMedia() {
+        when(chain.nextCall(any())).thenReturn(response("Кот", "stop"));
+        InputStreamResource stream =
+                new InputStreamResource(new ByteArrayInputStream("картинка".getBytes(StandardCharsets.UTF_8)));
+
+        advisor.adviseCall(resourceRequest(new ByteArrayResource("картинка".getBytes(StandardCharsets.UTF_8))), chain);
+        ChatClientResponse cached = advisor.adviseCall(
+                resourceRequest(new ByteArrayResource("картинка".getBytes(StandardCharsets.UTF_8))), chain);
+        advisor.adviseCall(resourceRequest(stream), chain);
+        advisor.adviseCall(resourceRequest(stream), chain);
+
+        assertEquals(true, cached.chatResponse().getMetadata().get(GigaChatResponseCacheAdvisor.CACHED));
+        verify(chain, times(3)).nextCall(any());
+        assertEquals(1, requests("hit"));
+        assertEquals(1, requests("miss"));
+    }
+
+    @Test
+    @DisplayName("Ответ с вызовом инструмента не кэшируется")
+    void testAdviseCall_toolCallIsNotCached() {
+        AssistantMessage toolCall = AssistantMessage.builder()
+                .content("")
+                .toolCalls(List.of(new AssistantMessage.ToolCall("1", "function", "weather", "{}")))
+                .build();
+        when(chain.nextCall(any()))
+                .thenReturn(ChatClientResponse.builder()
+                        .chatResponse(new ChatResponse(List.of(new Generation(toolCall))))
+                        .build());
+
+        advisor.adviseCall(request("Привет"), chain);
+        advisor.adviseCall(request("Привет"), chain);
+
+        verify(chain, times(2)).nextCall(any());
+    }
+
+    @Test
+    @DisplayName("Потоковый ответ кэшируется целиком и отдается из кэша чанками")
+    void testAdviseStream_cacheHitIsChunked() {
+        when(streamChain.nextStream(any()))
+                .thenReturn(Flux.just(response("Прив", null), response("ет, мир", null), response("!", "stop")));
+
+        StepVerifier.create(advisor.adviseStream(request("Привет"), streamChain))
+                .expectNextCount(3)
+                .verifyComplete();
+        StepVerifier.create(advisor.adviseStream(request("Привет"), streamChain)
+                        .map(chunk -> chunk.chatResponse().getResult()))
+                .assertNext(generation -> {
+                    assertEquals("Прив", generation.getOutput().getText());
+                    assertNull(generation.getMetadata().getFinishReason());
+                })
+                .assertNext(generation ->
+                        assertEquals("ет, ", generation.getOutput().getText()))
+                .assertNext(generation -> {
+                    assertEquals("мир!", generation.getOutput().getText());
+                    assertEquals("stop", generation.getMetadata().getFinishReason());
+                })
+                .verifyComplete();
+
+        verify(streamChain, times(1)).nextStream(any());
+        assertEquals(1, requests("hit"));
+    }
+
+    @Test
+    @DisplayName("Прерванный потоковый ответ не кэшируется")
+    void testAdviseStream_errorIsNotCached() {
+        when(streamChain.nextStream(any()))
+                .thenReturn(
+                        Flux.concat(Flux.just(response("Прив", null)), Flux.error(new IllegalStateException("обрыв"))));
+
+        StepVerifier.create(advisor.adviseStream(request("Привет"), streamChain))
+                .expectNextCount(1)
+                .verifyError(IllegalStateException.class);
+        StepVerifier.create(advisor.adviseStream(request("Привет"), streamChain))
+                .expectNextCount(1)
+                .verifyError(IllegalStateException.class);
+
+        verify(streamChain, times(2)).nextStream(any());
+    }
+
+    private double requests(String result) {
+        return meterRegistry
+                .get(GigaChatResponseCacheAdvisor.REQUESTS_COUNTER)
+                .tag("result", result)
+                .counter()
+                .count();
+    }
+
+    private static ChatClientRequest request(String text) {
+        return ChatClientRequest.builder()
+                .prompt(Prompt.builder().messages(new UserMessage(text)).build())
+                .build();
+    }
+
+    private static ChatClientRequest resourceRequest(Resource resource) {
+        return ChatClientRequest.builder()
+                .prompt(PromptKeyTest.mediaPrompt(resource))
+                .build();
+    }
+
+    private static ChatClientResponse response(String text, String finishReason) {
+        ChatGenerationMetadata.Builder generationMetadata = ChatGenerationMetadata.builder();
+        if (finishReason != null) {
+            generationMetadata.finishReason(finishReason);
+        }
+        ChatResponse chatResponse = ChatResponse.builder()
+                .generations(List.of(new Generation(new AssistantMessage(text), generationMetadata.build())))
+                .metadata(ChatResponseMetadata.builder()
+                        .id("id-1")
+                        .model("GigaChat-2")
+                        .build())
+                .build();
+        return ChatClientResponse.builder().chatResponse(chatResponse).build();
+    }
+}
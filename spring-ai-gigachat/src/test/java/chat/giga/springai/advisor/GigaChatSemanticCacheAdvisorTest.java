@@ -0,0 +1,254 @@
+package chat.giga.springai.advisor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class GigaChatSemanticCacheAdvisorTest {
+
+    // похожие вопросы - близкие векторы
+    private static final Map<String, float[]> EMBEDDINGS = Map.of(
+            "Как сбросить пароль?", new float[] {1, 0, 0},
+            "Как поменять пароль?", new float[] {0.99f, 0.1f, 0},
+            "Какая сегодня погода?", new float[] {0, 1, 0});
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong clock = new AtomicLong();
+
+    @Mock
+    private EmbeddingModel embeddingModel;
+
+    @Mock
+    private CallAdvisorChain chain;
+
+    @Mock
+    private StreamAdvisorChain streamChain;
+
+    private GigaChatSemanticCacheAdvisor advisor;
+
+    @BeforeEach
+    void setUp() {
+        advisor = GigaChatSemanticCacheAdvisor.builder()
+                .embeddingModel(embeddingModel)
+                .similarityThreshold(0.95)
+                .ttl(Duration.ofMinutes(10))
+                .streamChunkSize(5)
+                .meterRegistry(meterRegistry)
+                .scheduler(Schedulers.immediate())
+                .nanoClock(clock::get)
+                .build();
+    }
+
+    @Test
+    @DisplayName("На похожий вопрос возвращается сохраненный ответ, на другой - ответ модели")
+    void testAdviseCall_similarQuestionHit() {
+        stubEmbeddings();
+        when(chain.nextCall(any())).thenReturn(response("Откройте настройки"), response("Солнечно"));
+
+        advisor.adviseCall(request("Как сбросить пароль?", "tenant-1"), chain);
+        ChatClientResponse cached = advisor.adviseCall(request("Как поменять пароль?", "tenant-1"), chain);
+        ChatClientResponse other = advisor.adviseCall(request("Какая сегодня погода?", "tenant-1"), chain);
+
+        assertEquals("Откройте настройки", text(cached));
+        assertEquals(true, cached.chatResponse().getMetadata().get(GigaChatResponseCacheAdvisor.CACHED));
+        assertEquals("Солнечно", text(other));
+        verify(chain, times(2)).nextCall(any());
+        assertEquals(1, requests("tenant-1", "hit"));
+        assertEquals(2, requests("tenant-1", "miss"));
+        assertEquals(
+                3,
+                meterRegistry
+                        .get(GigaChatSemanticCacheAdvisor.LOOKUP_TIMER)
+                        .tag(GigaChatSemanticCacheAdvisor.TENANT_TAG, "tenant-1")
+                        .timer()
+                        .count());
+    }
+
+    @Test
+    @DisplayName("Ответы не переиспользуются между тенантами и при другом системном промпте")
+    void testAdviseCall_namespaces() {
+        stubEmbeddings();
+        when(chain.nextCall(any())).thenReturn(response("Ответ"));
+
+        advisor.adviseCall(request("Как сбросить пароль?", "tenant-1"), chain);
+        advisor.adviseCall(request("Как сбросить пароль?", "tenant-2"), chain);
+        advisor.adviseCall(
+                ChatClientRequest.builder()
+                        .prompt(Prompt.builder()
+                                .messages(new SystemMessage("Отвечай кратко"), new UserMessage("Как сбросить пароль?"))
+                                .build())
+                        .context(GigaChatRateLimitAdvisor.TENANT_ID, "tenant-1")
+                        .build(),
+                chain);
+
+        verify(chain, times(3)).nextCall(any());
+    }
+
+    @Test
+    @DisplayName("Устаревший ответ не возвращается")
+    void testAdviseCall_ttl() {
+        stubEmbeddings();
+        when(chain.nextCall(any())).thenReturn(response("Ответ"));
+
+        advisor.adviseCall(request("Как сбросить пароль?", null), chain);
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(10));
+        advisor.adviseCall(request("Как сбросить пароль?", null), chain);
+
+        verify(chain, times(2)).nextCall(any());
+        assertEquals(2, requests(GigaChatRateLimitAdvisor.DEFAULT_TENANT, "miss"));
+    }
+
+    @Test
+    @DisplayName("Давно не использованные и устаревшие пространства удаляются")
+    void testAdviseCall_namespacesAreBounded() {
+        stubEmbeddings();
+        when(chain.nextCall(any())).thenReturn(response("Ответ"));
+        advisor = GigaChatSemanticCacheAdvisor.builder()
+                .embeddingModel(embeddingModel)
+                .ttl(Duration.ofMinutes(10))
+                .maxNamespaces(2)
+                .meterRegistry(meterRegistry)
+                .nanoClock(clock::get)
+                .build();
+
+        advisor.adviseCall(request("Как сбросить пароль?", "tenant-1"), chain);
+        advisor.adviseCall(request("Как сбросить пароль?", "tenant-2"), chain);
+        advisor.adviseCall(request("Как сбросить пароль?", "tenant-3"), chain);
+        assertEquals(2, advisor.namespaceCount());
+        // пространство tenant-1 вытеснено
+        advisor.adviseCall(request("Как сбросить пароль?", "tenant-1"), chain);
+        assertEquals(2, requests("tenant-1", "miss"));
+
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(10));
+        advisor.adviseCall(request("Какая сегодня погода?", "tenant-4"), chain);
+
+        assertEquals(1, advisor.namespaceCount());
+    }
+
+    @Test
+    @DisplayName("Ошибка модели векторизации не прерывает запрос")
+    void testAdviseCall_embeddingFailure() {
+        when(embeddingModel.embed(anyString())).thenThrow(new IllegalStateException("недоступна"));
+        when(chain.nextCall(any())).thenReturn(response("Ответ"));
+
+        assertEquals("Ответ", text(advisor.adviseCall(request("Как сбросить пароль?", null), chain)));
+    }
+
+    @Test
+    @DisplayName("Потоковый ответ сохраняется и отдается на похожий вопрос чанками")
+    void testAdviseStream_similarQuestionHit() {
+        stubEmbeddings();
+        when(streamChain.nextStream(any())).thenReturn(Flux.just(response("Откройте "), response("настройки")));
+
+        StepVerifier.create(advisor.adviseStream(request("Как сбросить пароль?", null), streamChain))
+                .expectNextCount(2)
+                .verifyComplete();
+        StepVerifier.create(advisor.adviseStream(request("Как поменять пароль?", null), streamChain)
+                        .map(GigaChatSemanticCacheAdvisorTest::text))
+                .expectNext("Откро", "йте н", "астро", "йки")
+                .verifyComplete();
+
+        verify(streamChain, times(1)).nextStream(any());
+    }
+
+    @Test
+    @DisplayName("Ресурс во вложении истории учитывается по содержимому, с одноразовым потоком запрос не кэшируется")
+    void testAdvise_resourceMediaInHistory() {
+        stubEmbeddings();
+        when(chain.nextCall(any())).thenReturn(response("Ответ"));
+        when(streamChain.nextStream(any())).thenReturn(Flux.just(response("Ответ")));
+        InputStreamResource stream =
+                new InputStreamResource(new ByteArrayInputStream("картинка".getBytes(StandardCharsets.UTF_8)));
+
+        advisor.adviseCall(historyRequest(new ByteArrayResource("картинка".getBytes(StandardCharsets.UTF_8))), chain);
+        advisor.adviseCall(historyRequest(new ByteArrayResource("картинка".getBytes(StandardCharsets.UTF_8))), chain);
+        assertEquals("Ответ", text(advisor.adviseCall(historyRequest(stream), chain)));
+        StepVerifier.create(advisor.adviseStream(historyRequest(stream), streamChain))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verify(chain, times(2)).nextCall(any());
+        verify(streamChain, times(1)).nextStream(any());
+        assertEquals(1, requests(GigaChatRateLimitAdvisor.DEFAULT_TENANT, "hit"));
+        assertEquals(1, requests(GigaChatRateLimitAdvisor.DEFAULT_TENANT, "miss"));
+    }
+
+    private static ChatClientRequest historyRequest(Resource resource) {
+        List<Message> messages =
+                new ArrayList<>(PromptKeyTest.mediaPrompt(resource).getInstructions());
+        messages.add(new AssistantMessage("Кот"));
+        messages.add(new UserMessage("Как сбросить пароль?"));
+        return ChatClientRequest.builder()
+                .prompt(Prompt.builder().messages(messages).build())
+                .build();
+    }
+
+    private void stubEmbeddings() {
+        when(embeddingModel.embed(anyString())).thenAnswer(invocation -> EMBEDDINGS.get(invocation.getArgument(0)));
+    }
+
+    private double requests(String tenant, String result) {
+        return meterRegistry
+                .get(GigaChatSemanticCacheAdvisor.REQUESTS_COUNTER)
+                .tags(GigaChatSemanticCacheAdvisor.TENANT_TAG, tenant, "result", result)
+                .counter()
+                .count();
+    }
+
+    private static String text(ChatClientResponse response) {
+        return response.chatResponse().getResult().getOutput().getText();
+    }
+
+    private static ChatClientRequest request(String text, String tenant) {
+        ChatClientRequest.Builder builder = ChatClientRequest.builder()
+                .prompt(Prompt.builder().messages(new UserMessage(text)).build());
+        if (tenant != null) {
+            builder.context(GigaChatRateLimitAdvisor.TENANT_ID, tenant);
+        }
+        return builder.build();
+    }
+
+    private static ChatClientResponse response(String text) {
+        return ChatClientResponse.builder()
+                .chatResponse(new ChatResponse(List.of(new Generation(new AssistantMessage(text)))))
+                .build();
+    }
+}
@@ -0,0 +1,198 @@
+package chat.giga.springai.advisor;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.core.io.InputStreamResource;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+@ExtendWith(MockitoExtension.class)
+class GigaChatSingleFlightAdvisorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final GigaChatSingleFlightAdvisor advisor =
+            GigaChatSingleFlightAdvisor.builder().meterRegistry(meterRegistry).build();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @Mock
+    private CallAdvisorChain chain;
+
+    @Mock
+    private StreamAdvisorChain streamChain;
+
+    @Test
+    @DisplayName("Одинаковый запрос во время выполнения первого получает его ответ")
+    void testAdviseCall_identicalRequestsShareResponse() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ChatClientResponse response = response("Ответ");
+        when(chain.nextCall(any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return response;
+        });
+
+        CompletableFuture<ChatClientResponse> leader =
+                CompletableFuture.supplyAsync(() -> advisor.adviseCall(request("Привет", "user-1"), chain), executor);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<ChatClientResponse> follower =
+                CompletableFuture.supplyAsync(() -> advisor.adviseCall(request("Привет", "user-2"), chain), executor);
+        awaitCoalesced(1);
+        release.countDown();
+
+        assertSame(response, leader.get(5, TimeUnit.SECONDS));
+        ChatClientResponse followerResponse = follower.get(5, TimeUnit.SECONDS);
+        assertSame(response.chatResponse(), followerResponse.chatResponse());
+        assertEquals("user-2", followerResponse.context().get("user"));
+        verify(chain, times(1)).nextCall(any());
+    }
+
+    @Test
+    @DisplayName("Ошибка общего запроса передается всем ожидающим, следующий запрос выполняется заново")
+    void testAdviseCall_errorIsShared() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(chain.nextCall(any()))
+                .thenAnswer(invocation -> {
+                    started.countDown();
+                    release.await();
+                    throw new TransientAiException("503");
+                })
+                .thenReturn(response("Ответ"));
+
+        CompletableFuture<ChatClientResponse> leader =
+                CompletableFuture.supplyAsync(() -> advisor.adviseCall(request("Привет", "user-1"), chain), executor);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<ChatClientResponse> follower =
+                CompletableFuture.supplyAsync(() -> advisor.adviseCall(request("Привет", "user-2"), chain), executor);
+        awaitCoalesced(1);
+        release.countDown();
+
+        Exception leaderError = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+        Exception followerError = assertThrows(Exception.class, () -> follower.get(5, TimeUnit.SECONDS));
+        assertTrue(leaderError.getCause() instanceof TransientAiException);
+        assertTrue(followerError.getCause() instanceof TransientAiException);
+
+        advisor.adviseCall(request("Привет", "user-3"), chain);
+        verify(chain, times(2)).nextCall(any());
+    }
+
+    @Test
+    @DisplayName("Один поток ответа раздается всем подписчикам, подписавшийся позже получает его целиком")
+    void testAdviseStream_identicalRequestsShareStream() {
+        Sinks.Many<ChatClientResponse> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        when(streamChain.nextStream(any())).thenReturn(upstream.asFlux());
+
+        List<String> leader = new ArrayList<>();
+        List<String> follower = new ArrayList<>();
+        advisor.adviseStream(request("Привет", "user-1"), streamChain)
+                .map(GigaChatSingleFlightAdvisorTest::text)
+                .subscribe(leader::add);
+        upstream.tryEmitNext(response("При"));
+        advisor.adviseStream(request("Привет", "user-2"), streamChain)
+                .map(chunk -> chunk.context().get("user") + ":" + text(chunk))
+                .subscribe(follower::add);
+        upstream.tryEmitNext(response("вет"));
+        upstream.tryEmitComplete();
+
+        assertEquals(List.of("При", "вет"), leader);
+        assertEquals(List.of("user-2:При", "user-2:вет"), follower);
+        verify(streamChain, times(1)).nextStream(any());
+        assertEquals(
+                1,
+                meterRegistry
+                        .get(GigaChatSingleFlightAdvisor.COALESCED_COUNTER)
+                        .tag(GigaChatSingleFlightAdvisor.TYPE_TAG, "stream")
+                        .counter()
+                        .count());
+    }
+
+    @Test
+    @DisplayName("Запрос с одноразовым ресурсом во вложении выполняется без объединения")
+    void testAdvise_resourceMediaIsNotCoalesced() {
+        InputStreamResource resource =
+                new InputStreamResource(new ByteArrayInputStream("картинка".getBytes(StandardCharsets.UTF_8)));
+        ChatClientRequest request = ChatClientRequest.builder()
+                .prompt(PromptKeyTest.mediaPrompt(resource))
+                .build();
+        ChatClientResponse response = response("Кот");
+        when(chain.nextCall(request)).thenReturn(response);
+        when(streamChain.nextStream(request)).thenReturn(Flux.just(response));
+
+        assertSame(response, advisor.adviseCall(request, chain));
+        assertEquals(
+                List.of(response),
+                advisor.adviseStream(request, streamChain).collectList().block());
+        assertDoesNotThrow(resource::getInputStream);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private void awaitCoalesced(int expected) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            var counter = meterRegistry
+                    .find(GigaChatSingleFlightAdvisor.COALESCED_COUNTER)
+                    .counter();
+            if (counter != null && counter.count() >= expected) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static String text(ChatClientResponse response) {
+        return response.chatResponse().getResult().getOutput().getText();
+    }
+
+    private static ChatClientRequest request(String text, String user) {
+        return ChatClientRequest.builder()
+                .prompt(Prompt.builder().messages(new UserMessage(text)).build())
+                .context("user", user)
+                .build();
+    }
+
+    private static ChatClientResponse response(String text) {
+        ChatResponse chatResponse = ChatResponse.builder()
+                .generations(List.of(new Generation(new AssistantMessage(text))))
+                .build();
+        return ChatClientResponse.builder().chatResponse(chatResponse).build();
+    }
+}
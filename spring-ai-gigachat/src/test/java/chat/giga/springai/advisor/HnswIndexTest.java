@@ -0,0 +1,101 @@
+package chat.giga.springai.advisor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class HnswIndexTest {
+
+    private static final int DIMENSIONS = 32;
+
+    @Test
+    void nearestNeighborIsFoundWithHighRecall() {
+        Random random = new Random(1);
+        HnswIndex index = new HnswIndex(DIMENSIONS, 8, 64, 1);
+        float[][] vectors = new float[2000][];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = randomVector(random);
+            assertEquals(i, index.add(vectors[i]));
+        }
+
+        int matches = 0;
+        for (int q = 0; q < 100; q++) {
+            float[] query = randomVector(random);
+            List<HnswIndex.Candidate> found = index.search(query, 1, 64);
+            if (found.get(0).id() == bruteForceNearest(vectors, query)) {
+                matches++;
+            }
+        }
+
+        assertTrue(matches >= 90, "recall@1 = " + matches + "%");
+    }
+
+    @Test
+    void similarityIsCosine() {
+        HnswIndex index = new HnswIndex(2, 4, 16, 1);
+        index.add(new float[] {1, 0});
+        index.add(new float[] {0, 5});
+
+        List<HnswIndex.Candidate> found = index.search(new float[] {3, 3}, 2, 16);
+
+        assertEquals(2, found.size());
+        assertEquals(Math.sqrt(0.5), found.get(0).similarity(), 1e-6);
+        assertEquals(Math.sqrt(0.5), found.get(1).similarity(), 1e-6);
+        assertEquals(1, index.search(new float[] {0, 1}, 1, 16).get(0).id());
+    }
+
+    @Test
+    void removedNodeIsNotReturned() {
+        Random random = new Random(2);
+        HnswIndex index = new HnswIndex(DIMENSIONS, 8, 64, 1);
+        float[] target = randomVector(random);
+        int targetId = index.add(target);
+        for (int i = 0; i < 200; i++) {
+            index.add(randomVector(random));
+        }
+
+        assertEquals(targetId, index.search(target, 1, 32).get(0).id());
+        index.remove(targetId);
+
+        assertNotEquals(targetId, index.search(target, 1, 32).get(0).id());
+        assertEquals(200, index.size());
+        assertEquals(1, index.deletedCount());
+    }
+
+    private static int bruteForceNearest(float[][] vectors, float[] query) {
+        int best = -1;
+        double bestSimilarity = -2;
+        for (int i = 0; i < vectors.length; i++) {
+            double similarity = cosine(vectors[i], query);
+            if (similarity > bestSimilarity) {
+                bestSimilarity = similarity;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return dot / Math.sqrt(normA * normB);
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,68 @@
+package chat.giga.springai.advisor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class InMemoryResponseCacheStoreTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final InMemoryResponseCacheStore store = new InMemoryResponseCacheStore(2, new TestClock());
+
+    @Test
+    void entryExpiresAfterTtl() {
+        store.put("a", response("A"), Duration.ofSeconds(10));
+
+        now.addAndGet(9_999);
+        assertEquals(response("A"), store.get("a"));
+
+        now.addAndGet(1);
+        assertNull(store.get("a"));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        store.put("a", response("A"), Duration.ofSeconds(10));
+        store.put("b", response("B"), Duration.ofSeconds(10));
+        assertNotNull(store.get("a"));
+
+        store.put("c", response("C"), Duration.ofSeconds(10));
+
+        assertNotNull(store.get("a"));
+        assertNull(store.get("b"));
+        assertNotNull(store.get("c"));
+        assertEquals(1, store.evictionCount());
+    }
+
+    private static CachedChatResponse response(String text) {
+        return new CachedChatResponse(
+                "id", "GigaChat-2", List.of(new CachedChatResponse.CachedGeneration(text, "stop")));
+    }
+
+    private class TestClock extends Clock {
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(now.get());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package chat.giga.springai.advisor;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import chat.giga.springai.GigaChatOptions;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.content.Media;
+import org.springframework.ai.tool.function.FunctionToolCallback;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.MimeTypeUtils;
+
+class PromptKeyTest {
+
+    @Test
+    @DisplayName("Ключ зависит от сообщений и опций")
+    void testOf_messagesAndOptions() {
+        String key = PromptKey.of(prompt("Привет", GigaChatOptions.builder().model("GigaChat-2")));
+
+        assertNotNull(key);
+        assertEquals(
+                key, PromptKey.of(prompt("Привет", GigaChatOptions.builder().model("GigaChat-2"))));
+        assertNotEquals(
+                key, PromptKey.of(prompt("Привет", GigaChatOptions.builder().model("GigaChat-2-Max"))));
+        assertNotEquals(
+                key, PromptKey.of(prompt("Пока", GigaChatOptions.builder().model("GigaChat-2"))));
+    }
+
+    @Test
+    @DisplayName("Ключ зависит от описания инструментов")
+    void testOf_toolDefinitions() {
+        String key =
+                PromptKey.of(prompt("Привет", GigaChatOptions.builder().toolCallbacks(weatherTool("Погода в городе"))));
+
+        assertEquals(
+                key,
+                PromptKey.of(
+                        prompt("Привет", GigaChatOptions.builder().toolCallbacks(weatherTool("Погода в городе")))));
+        assertNotEquals(
+                key,
+                PromptKey.of(prompt("Привет", GigaChatOptions.builder().toolCallbacks(weatherTool("Прогноз погоды")))));
+    }
+
+    @Test
+    @DisplayName("Для запросов с toolContext ключ не вычисляется")
+    void testOf_toolContext() {
+        assertNull(PromptKey.of(
+                prompt("Привет", GigaChatOptions.builder().model("GigaChat-2").toolContext(Map.of("userId", "1")))));
+    }
+
+    @Test
+    @DisplayName("Вложения-ресурсы хэшируются по содержимому, одноразовый поток не читается")
+    void testOf_resourceMedia() {
+        String key = PromptKey.of(mediaPrompt(new ByteArrayResource("картинка".getBytes(StandardCharsets.UTF_8))));
+        InputStreamResource stream =
+                new InputStreamResource(new ByteArrayInputStream("картинка".getBytes(StandardCharsets.UTF_8)));
+
+        assertNotNull(key);
+        assertEquals(
+                key, PromptKey.of(mediaPrompt(new ByteArrayResource("картинка".getBytes(StandardCharsets.UTF_8)))));
+        assertNotEquals(
+                key, PromptKey.of(mediaPrompt(new ByteArrayResource("другая".getBytes(StandardCharsets.UTF_8)))));
+        assertNull(PromptKey.of(mediaPrompt(stream)));
+        assertDoesNotThrow(stream::getInputStream);
+    }
+
+    static Prompt mediaPrompt(Resource resource) {
+        return new Prompt(UserMessage.builder()
+                .text("Что на картинке?")
+                .media(Media.builder()
+                        .mimeType(MimeTypeUtils.IMAGE_PNG)
+                        .data((Object) resource)
+                        .build())
+                .build());
+    }
+
+    private static Prompt prompt(String text, GigaChatOptions.Builder options) {
+        return new Prompt(new UserMessage(text), options.build());
+    }
+
+    private static FunctionToolCallback<String, String> weatherTool(String description) {
+        return FunctionToolCallback.builder("weather", (String city) -> "Солнечно")
+                .description(description)
+                .inputType(String.class)
+                .build();
+    }
+}
@@ -18,6 +18,8 @@ import chat.giga.springai.api.auth.GigaChatAuthProperties;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.client.WireMock;
+import java.util.List;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import lombok.SneakyThrows;
 import org.junit.jupiter.api.BeforeEach;
@@ -42,6 +44,8 @@ import org.springframework.web.client.RestClient;
 import org.wiremock.spring.ConfigureWireMock;
 import org.wiremock.spring.EnableWireMock;
 import org.wiremock.spring.InjectWireMock;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
 
 @EnableWireMock({@ConfigureWireMock(name = "auth-api")})
 @ExtendWith(SpringExtension.class)
@@ -134,6 +138,51 @@ public abstract class GigaChatBearerAuthApiTest {
         verify(postRequestedFor(urlEqualTo("/api/v2/oauth")));
     }
 
+    @Test
+    void testGetValueAsync_CachedToken() {
+        // Arrange
+        long expiresAt = System.currentTimeMillis() + 3600_000;
+        setToken(new GigaChatBearerToken("cached-token", expiresAt));
+
+        // Act & Assert
+        StepVerifier.create(authApi.getValueAsync()).expectNext("cached-token").verifyComplete();
+        verify(exactly(0), postRequestedFor(urlEqualTo("/api/v2/oauth")));
+    }
+
+    @Test
+    @DisplayName("Конкурентные подписчики используют один общий запрос на обновление токена")
+    void testGetValueAsync_ConcurrentSubscribersShareSingleRefresh() {
+        // Arrange
+        long expiresAt = System.currentTimeMillis() + 3600_000;
+        mockServer.stubFor(post("/api/v2/oauth")
+                .willReturn(
+                        jsonResponse(new GigaChatOAuthClient.GigaChatAccessTokenResponse("async-token", expiresAt), 200)
+                                .withFixedDelay(300)));
+
+        // Act
+        List<String> tokens = Flux.merge(IntStream.range(0, 10)
+                        .mapToObj(i -> authApi.getValueAsync())
+                        .toList())
+                .collectList()
+                .block();
+
+        // Assert
+        assertEquals(10, tokens.size());
+        tokens.forEach(token -> assertEquals("async-token", token));
+        verify(exactly(1), postRequestedFor(urlEqualTo("/api/v2/oauth")));
+    }
+
+    @Test
+    void testGetValueAsync_InvalidResponse_ExpectError() {
+        // Arrange
+        createStubForTokenRequest(null);
+
+        // Act & Assert
+        StepVerifier.create(authApi.getValueAsync())
+                .expectError(IllegalArgumentException.class)
+                .verify();
+    }
+
     public static Stream<Arguments> invalidTokenProvider() {
         return Stream.of(
                 Arguments.of(new GigaChatOAuthClient.GigaChatAccessTokenResponse(null, System.currentTimeMillis())),
@@ -0,0 +1,96 @@
+package chat.giga.springai.api.auth.bearer;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.core.scheduler.Schedulers;
+
+class GigaChatBearerTokenRefresherTest {
+
+    private static final long ONE_HOUR_MS = 3600_000L;
+
+    GigaChatOAuthClient authClient = Mockito.mock(GigaChatOAuthClient.class);
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    GigaChatBearerAuthApi authApi = new GigaChatBearerAuthApi(authClient, Schedulers.boundedElastic(), meterRegistry);
+    GigaChatBearerTokenRefresher refresher =
+            new GigaChatBearerTokenRefresher(authApi, Duration.ofMillis(10), Duration.ofMillis(40));
+
+    @AfterEach
+    void tearDown() {
+        refresher.close();
+    }
+
+    @Test
+    void startRequestsTokenInBackground() {
+        Mockito.when(authClient.requestToken()).thenReturn(tokenResponse("background-token"));
+
+        refresher.start();
+
+        await().atMost(Duration.ofSeconds(5))
+                .untilAsserted(() -> assertEquals(
+                        1,
+                        meterRegistry
+                                .timer(GigaChatBearerAuthApi.TOKEN_REFRESH_TIMER)
+                                .count()));
+        assertEquals("background-token", authApi.getValue());
+        Mockito.verify(authClient, Mockito.times(1)).requestToken();
+    }
+
+    @Test
+    void failedRefreshIsRetriedWithBackoff() {
+        Mockito.when(authClient.requestToken())
+                .thenThrow(new IllegalStateException("first"))
+                .thenThrow(new IllegalStateException("second"))
+                .thenReturn(tokenResponse("retried-token"));
+
+        refresher.start();
+
+        await().atMost(Duration.ofSeconds(5))
+                .untilAsserted(() -> assertEquals(
+                        1,
+                        meterRegistry
+                                .timer(GigaChatBearerAuthApi.TOKEN_REFRESH_TIMER)
+                                .count()));
+        assertEquals(
+                2,
+                meterRegistry
+                        .counter(GigaChatBearerAuthApi.TOKEN_REFRESH_FAILURES_COUNTER)
+                        .count());
+        assertEquals("retried-token", authApi.getValue());
+        Mockito.verify(authClient, Mockito.times(3)).requestToken();
+    }
+
+    @Test
+    void nextRefreshIsScheduledAheadOfRefreshTime() {
+        long now = System.currentTimeMillis();
+        GigaChatBearerToken token = new GigaChatBearerToken("token", now + ONE_HOUR_MS);
+        long untilRefresh = token.refreshTime() - now;
+
+        assertEquals(
+                untilRefresh - GigaChatBearerTokenRefresher.REFRESH_LEAD.toMillis(),
+                GigaChatBearerTokenRefresher.delayUntilRefresh(token, now));
+
+        GigaChatBearerToken shortToken = new GigaChatBearerToken("token", now + 10_000);
+        assertEquals(
+                (shortToken.refreshTime() - now) - (shortToken.refreshTime() - now) / 2,
+                GigaChatBearerTokenRefresher.delayUntilRefresh(shortToken, now));
+    }
+
+    @Test
+    void backoffGrowsExponentiallyUpToMax() {
+        assertEquals(10, refresher.backoff(1));
+        assertEquals(20, refresher.backoff(2));
+        assertEquals(40, refresher.backoff(3));
+        assertEquals(40, refresher.backoff(10));
+        assertEquals(40, refresher.backoff(100));
+    }
+
+    private static GigaChatOAuthClient.GigaChatAccessTokenResponse tokenResponse(String token) {
+        return new GigaChatOAuthClient.GigaChatAccessTokenResponse(token, System.currentTimeMillis() + ONE_HOUR_MS);
+    }
+}
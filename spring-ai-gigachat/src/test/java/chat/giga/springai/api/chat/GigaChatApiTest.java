@@ -1,26 +1,64 @@
 package chat.giga.springai.api.chat;
 
+import static com.github.tomakehurst.wiremock.client.WireMock.aMultipart;
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalToJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.never;
 
+import chat.giga.springai.GigaChatModel;
 import chat.giga.springai.api.GigaChatApiProperties;
 import chat.giga.springai.api.auth.GigaChatAuthProperties;
+import chat.giga.springai.api.auth.bearer.GigaChatBearerAuthApi;
 import chat.giga.springai.api.auth.bearer.NoopGigaAuthToken;
 import chat.giga.springai.api.auth.bearer.SimpleGigaAuthToken;
 import chat.giga.springai.api.auth.bearer.interceptors.BearerTokenFilter;
 import chat.giga.springai.api.auth.bearer.interceptors.BearerTokenInterceptor;
+import chat.giga.springai.api.chat.completion.CompletionRequest;
+import chat.giga.springai.api.chat.embedding.EmbeddingsRequest;
+import chat.giga.springai.api.limiter.GigaChatConcurrencyLimiter;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mockito;
+import org.springframework.ai.retry.NonTransientAiException;
 import org.springframework.ai.retry.RetryUtils;
 import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.client.ClientHttpRequestInterceptor;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.test.StepVerifier;
 
 public class GigaChatApiTest {
 
@@ -94,4 +132,235 @@ public class GigaChatApiTest {
             return not(hasItem(instanceOf(BearerTokenFilter.class))).matches(list);
         }));
     }
+
+    @Test
+    @DisplayName("Тест проверяет потоковую загрузку файла с диска через WebClient")
+    void uploadFileAsync_fromPath(@TempDir Path tempDir) throws IOException {
+        WireMockServer server =
+                new WireMockServer(WireMockConfiguration.options().dynamicPort().http2PlainDisabled(true));
+        server.start();
+        try {
+            String fileId = UUID.randomUUID().toString();
+            server.stubFor(post("/files")
+                    .withMultipartRequestBody(aMultipart()
+                            .withName("file")
+                            .withHeader("Content-Disposition", containing("filename=\"doc.pdf\""))
+                            .withBody(equalTo("pdf-content")))
+                    .withMultipartRequestBody(aMultipart().withName("purpose").withBody(equalTo("general")))
+                    .willReturn(okJson("{\"id\":\"" + fileId + "\",\"object\":\"file\"}")));
+            Path file = Files.writeString(tempDir.resolve("doc.pdf"), "pdf-content");
+            GigaChatApi gigaChatApi = new GigaChatApi(GigaChatApiProperties.builder()
+                    .baseUrl(server.baseUrl())
+                    .auth(GigaChatAuthProperties.builder().build())
+                    .build());
+
+            StepVerifier.create(gigaChatApi.uploadFileAsync(file, MediaType.APPLICATION_PDF))
+                    .assertNext(response -> assertEquals(fileId, response.id().toString()))
+                    .verifyComplete();
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Тест проверяет неблокирующий запрос эмбеддингов через WebClient")
+    void embeddingsAsync() {
+        WireMockServer server =
+                new WireMockServer(WireMockConfiguration.options().dynamicPort().http2PlainDisabled(true));
+        server.start();
+        try {
+            server.stubFor(post("/embeddings")
+                    .withRequestBody(equalToJson("{\"model\":\"Embeddings\",\"input\":[\"text\"]}"))
+                    .willReturn(okJson("{\"object\":\"list\",\"model\":\"Embeddings\","
+                            + "\"data\":[{\"object\":\"embedding\",\"index\":0,\"embedding\":[0.5,1.5]}]}")));
+            GigaChatApi gigaChatApi = new GigaChatApi(GigaChatApiProperties.builder()
+                    .baseUrl(server.baseUrl())
+                    .auth(GigaChatAuthProperties.builder().build())
+                    .build());
+
+            StepVerifier.create(gigaChatApi.embeddingsAsync(new EmbeddingsRequest("Embeddings", List.of("text"))))
+                    .assertNext(response -> assertArrayEquals(
+                            new float[] {0.5f, 1.5f}, response.getData().get(0).getEmbedding()))
+                    .verifyComplete();
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Тест проверяет, что ответ 503 на потоковый запрос завершает поток ошибкой")
+    void chatCompletionStream_serverErrorIsSignalled() {
+        WireMockServer server =
+                new WireMockServer(WireMockConfiguration.options().dynamicPort().http2PlainDisabled(true));
+        server.start();
+        try {
+            server.stubFor(post("/chat/completions")
+                    .willReturn(aResponse()
+                            .withStatus(503)
+                            .withHeader("Content-Type", "application/json")
+                            .withBody("{\"status\":503,\"message\":\"Service Unavailable\"}")));
+            GigaChatApi gigaChatApi = new GigaChatApi(GigaChatApiProperties.builder()
+                    .baseUrl(server.baseUrl())
+                    .auth(GigaChatAuthProperties.builder().build())
+                    .build());
+            CompletionRequest request = CompletionRequest.builder().model("GigaChat").stream(true)
+                    .messages(List.of(new CompletionRequest.Message(CompletionRequest.Role.user, "Привет")))
+                    .build();
+
+            StepVerifier.create(gigaChatApi.chatCompletionStream(request))
+                    .expectErrorSatisfies(error -> {
+                        WebClientResponseException responseException =
+                                assertInstanceOf(WebClientResponseException.class, error);
+                        assertEquals(503, responseException.getStatusCode().value());
+                        assertTrue(GigaChatModel.isTransientStreamError(error));
+                    })
+                    .verify();
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Тест проверяет потоковое скачивание файла в OutputStream и на диск")
+    void downloadFile_toOutputStreamAndPath(@TempDir Path tempDir) throws IOException {
+        WireMockServer server =
+                new WireMockServer(WireMockConfiguration.options().dynamicPort().http2PlainDisabled(true));
+        server.start();
+        try {
+            String fileId = UUID.randomUUID().toString();
+            byte[] content = new byte[64 * 1024];
+            new Random(42).nextBytes(content);
+            server.stubFor(get("/files/" + fileId + "/content")
+                    .willReturn(
+                            aResponse().withHeader("Content-Type", "image/jpeg").withBody(content)));
+            GigaChatApi gigaChatApi = new GigaChatApi(GigaChatApiProperties.builder()
+                    .baseUrl(server.baseUrl())
+                    .auth(GigaChatAuthProperties.builder().build())
+                    .build());
+
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            gigaChatApi.downloadFileToStream(fileId, outputStream);
+            assertArrayEquals(content, outputStream.toByteArray());
+
+            Path target = tempDir.resolve("image.jpg");
+            gigaChatApi.downloadFileToPath(fileId, target);
+            assertArrayEquals(content, Files.readAllBytes(target));
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.add("X-Session-ID", "session");
+            gigaChatApi.downloadFileToStream(fileId, new ByteArrayOutputStream(), headers);
+            server.verify(
+                    1,
+                    getRequestedFor(urlEqualTo("/files/" + fileId + "/content"))
+                            .withHeader("X-Session-ID", equalTo("session")));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Тест проверяет адаптивное ограничение одновременных запросов для RestClient и WebClient")
+    void concurrencyLimit_appliedToRestClientAndWebClient() {
+        WireMockServer server =
+                new WireMockServer(WireMockConfiguration.options().dynamicPort().http2PlainDisabled(true));
+        server.start();
+        try {
+            String fileId = UUID.randomUUID().toString();
+            server.stubFor(get("/models").willReturn(aResponse().withStatus(429)));
+            server.stubFor(get("/files/" + fileId + "/content")
+                    .willReturn(
+                            aResponse().withHeader("Content-Type", "image/jpeg").withBody(new byte[] {1, 2, 3})));
+            GigaChatApiProperties properties = GigaChatApiProperties.builder()
+                    .baseUrl(server.baseUrl())
+                    .auth(GigaChatAuthProperties.builder().build())
+                    .build();
+            properties.getInternal().getConcurrencyLimit().setEnabled(true);
+            SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+            GigaChatApi gigaChatApi = new GigaChatApi(
+                    properties,
+                    new NoopGigaAuthToken(),
+                    RestClient.builder(),
+                    WebClient.builder(),
+                    RetryUtils.DEFAULT_RESPONSE_ERROR_HANDLER,
+                    null,
+                    null,
+                    meterRegistry);
+
+            assertThrows(NonTransientAiException.class, gigaChatApi::models);
+            assertEquals(
+                    9,
+                    meterRegistry
+                            .get(GigaChatConcurrencyLimiter.LIMIT_GAUGE)
+                            .tag("endpoint", "/models")
+                            .gauge()
+                            .value());
+
+            assertArrayEquals(new byte[] {1, 2, 3}, gigaChatApi.downloadFile(fileId));
+            StepVerifier.create(gigaChatApi.downloadFileAsync(fileId))
+                    .expectNextCount(1)
+                    .verifyComplete();
+            assertEquals(
+                    0,
+                    meterRegistry
+                            .get(GigaChatConcurrencyLimiter.IN_FLIGHT_GAUGE)
+                            .tag("endpoint", "/files/{fileId}/content")
+                            .gauge()
+                            .value());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Тест проверяет, что close() останавливает фоновое обновление токена")
+    void close_stopsProactiveTokenRefresh() throws InterruptedException {
+        WireMockServer server =
+                new WireMockServer(WireMockConfiguration.options().dynamicPort().http2PlainDisabled(true));
+        server.start();
+        try {
+            server.stubFor(post("/api/v2/oauth")
+                    .willReturn(okJson("{\"access_token\":\"token\",\"expires_at\":"
+                            + (System.currentTimeMillis() + 3_600_000) + "}")));
+            GigaChatApiProperties properties = GigaChatApiProperties.builder()
+                    .baseUrl(server.baseUrl())
+                    .auth(GigaChatAuthProperties.builder()
+                            .bearer(GigaChatAuthProperties.Bearer.builder()
+                                    .url(server.baseUrl() + "/api/v2/oauth")
+                                    .apiKey("apiKey")
+                                    .proactiveRefresh(true)
+                                    .build())
+                            .build())
+                    .build();
+            SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+            GigaChatApi gigaChatApi = new GigaChatApi(
+                    properties,
+                    new SimpleGigaAuthToken("apiKey"),
+                    RestClient.builder(),
+                    WebClient.builder(),
+                    RetryUtils.DEFAULT_RESPONSE_ERROR_HANDLER,
+                    null,
+                    null,
+                    meterRegistry);
+            Timer refreshTimer =
+                    meterRegistry.get(GigaChatBearerAuthApi.TOKEN_REFRESH_TIMER).timer();
+            for (int i = 0; i < 100 && refreshTimer.count() == 0; i++) {
+                Thread.sleep(50);
+            }
+            assertEquals(1, refreshTimer.count());
+
+            gigaChatApi.close();
+
+            for (int i = 0; i < 100 && refresherThreadAlive(); i++) {
+                Thread.sleep(50);
+            }
+            assertFalse(refresherThreadAlive());
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static boolean refresherThreadAlive() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> thread.getName().equals("gigachat-token-refresher") && thread.isAlive());
+    }
 }
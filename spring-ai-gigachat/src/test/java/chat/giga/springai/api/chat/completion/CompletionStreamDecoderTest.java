@@ -0,0 +1,75 @@
+package chat.giga.springai.api.chat.completion;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+class CompletionStreamDecoderTest {
+
+    private static final String CHUNK_1 =
+            "{\"choices\":[{\"delta\":{\"role\":\"assistant\",\"content\":\"Привет\"},\"index\":0}],\"model\":\"GigaChat\"}";
+    private static final String CHUNK_2 =
+            "{\"choices\":[{\"delta\":{\"content\":\"!\"},\"index\":0,\"finish_reason\":\"stop\"}],\"model\":\"GigaChat\"}";
+
+    private final CompletionStreamDecoder decoder = new CompletionStreamDecoder();
+
+    @Test
+    void decodesEventsUntilDone() {
+        Flux<DataBuffer> body = buffers("data: " + CHUNK_1 + "\n\n" + "data: " + CHUNK_2 + "\n\n" + "data: [DONE]\n\n"
+                + "data: " + CHUNK_1 + "\n\n");
+
+        StepVerifier.create(decoder.decode(body))
+                .assertNext(chunk -> assertContent(chunk, "Привет", null))
+                .assertNext(chunk -> assertContent(chunk, "!", "stop"))
+                .verifyComplete();
+    }
+
+    @Test
+    void decodesEventsSplitAcrossBuffers() {
+        String sse = "data: " + CHUNK_1 + "\r\n\r\n" + "data:" + CHUNK_2 + "\r\n\r\n" + "data: [DONE]\r\n\r\n";
+        byte[] bytes = sse.getBytes(StandardCharsets.UTF_8);
+
+        // Разбиваем по 7 байт, чтобы разрезать и строки, и многобайтовые символы
+        Flux<DataBuffer> body = Flux.range(0, (bytes.length + 6) / 7)
+                .map(i -> DefaultDataBufferFactory.sharedInstance.wrap(
+                        Arrays.copyOfRange(bytes, i * 7, Math.min(bytes.length, i * 7 + 7))));
+
+        StepVerifier.create(decoder.decode(body))
+                .assertNext(chunk -> assertContent(chunk, "Привет", null))
+                .assertNext(chunk -> assertContent(chunk, "!", "stop"))
+                .verifyComplete();
+    }
+
+    @Test
+    void skipsCommentsAndOtherFieldsAndDecodesLastLineWithoutNewline() {
+        Flux<DataBuffer> body = buffers(": keep-alive\n" + "event: message\n" + "id: 1\n" + "data: " + CHUNK_2);
+
+        StepVerifier.create(decoder.decode(body))
+                .assertNext(chunk -> assertContent(chunk, "!", "stop"))
+                .verifyComplete();
+    }
+
+    @Test
+    void failsOnInvalidJson() {
+        StepVerifier.create(decoder.decode(buffers("data: {not-a-json}\n\n")))
+                .expectError(DecodingException.class)
+                .verify();
+    }
+
+    private static Flux<DataBuffer> buffers(String content) {
+        return Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static void assertContent(CompletionResponse chunk, String content, String finishReason) {
+        CompletionResponse.Choice choice = chunk.getChoices().get(0);
+        assertEquals(content, choice.getDelta().getContent());
+        assertEquals(finishReason, choice.getFinishReason());
+    }
+}
@@ -0,0 +1,287 @@
+package chat.giga.springai.api.hedging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import chat.giga.springai.api.GigaChatInternalProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.web.client.ResourceAccessException;
+
+class GigaChatRequestHedgerTest {
+
+    private static final String MODEL = "GigaChat-2";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<GigaChatRequestHedger> hedgers = new ArrayList<>();
+
+    @AfterEach
+    void closeHedgers() {
+        hedgers.forEach(GigaChatRequestHedger::close);
+    }
+
+    @Test
+    void slowRequestIsHedgedAndLoserIsCancelled() throws InterruptedException {
+        GigaChatRequestHedger hedger = hedger(1.0);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch primaryCancelled = new CountDownLatch(1);
+
+        String result = hedger.execute(MODEL, () -> {
+            if (calls.incrementAndGet() == 1) {
+                try {
+                    Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                } catch (InterruptedException ex) {
+                    primaryCancelled.countDown();
+                }
+                return "primary";
+            }
+            return "hedge";
+        });
+
+        assertEquals("hedge", result);
+        assertTrue(primaryCancelled.await(5, TimeUnit.SECONDS));
+        assertEquals(1, counter(GigaChatRequestHedger.SENT_COUNTER));
+        assertEquals(1, counter(GigaChatRequestHedger.WON_COUNTER));
+    }
+
+    @Test
+    void attemptsRunOnPoolThreadsWithCallerMdc() {
+        GigaChatRequestHedger hedger = hedger(1.0);
+        AtomicInteger calls = new AtomicInteger();
+        List<String> threads = new CopyOnWriteArrayList<>();
+        List<String> requestIds = new CopyOnWriteArrayList<>();
+        MDC.put("requestId", "42");
+        try {
+            hedger.execute(MODEL, () -> {
+                threads.add(Thread.currentThread().getName());
+                requestIds.add(MDC.get("requestId"));
+                if (calls.incrementAndGet() == 1) {
+                    sleep(TimeUnit.MINUTES.toMillis(1));
+                }
+                return "ok";
+            });
+        } finally {
+            MDC.remove("requestId");
+        }
+
+        assertTrue(threads.get(0).startsWith("gigachat-hedging-request-"), threads.get(0));
+        assertTrue(threads.get(1).startsWith("gigachat-hedging-"), threads.get(1));
+        assertEquals(List.of("42", "42"), requestIds);
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    void callerIsNotInterruptedWhenHedgeWins() throws InterruptedException {
+        GigaChatRequestHedger hedger = hedger(1.0);
+        AtomicInteger calls = new AtomicInteger();
+        Thread caller = Thread.currentThread();
+        List<Thread> interrupted = new CopyOnWriteArrayList<>();
+        CountDownLatch primaryCancelled = new CountDownLatch(1);
+
+        String result = hedger.execute(MODEL, () -> {
+            if (calls.incrementAndGet() == 1) {
+                try {
+                    Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                } catch (InterruptedException ex) {
+                    interrupted.add(Thread.currentThread());
+                    primaryCancelled.countDown();
+                }
+                return "primary";
+            }
+            return "hedge";
+        });
+
+        assertEquals("hedge", result);
+        assertTrue(primaryCancelled.await(5, TimeUnit.SECONDS));
+        assertFalse(interrupted.contains(caller));
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    void interruptedCallerCancelsAttempts() throws InterruptedException {
+        GigaChatRequestHedger hedger = hedger(1.0);
+        CountDownLatch requestStarted = new CountDownLatch(1);
+        CountDownLatch requestCancelled = new CountDownLatch(1);
+        AtomicReference<Throwable> callerError = new AtomicReference<>();
+        AtomicBoolean callerInterrupted = new AtomicBoolean();
+
+        Thread caller = new Thread(() -> {
+            try {
+                hedger.execute(MODEL, () -> {
+                    requestStarted.countDown();
+                    try {
+                        Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                    } catch (InterruptedException ex) {
+                        requestCancelled.countDown();
+                    }
+                    return "ok";
+                });
+            } catch (RuntimeException ex) {
+                callerError.set(ex);
+            }
+            callerInterrupted.set(Thread.currentThread().isInterrupted());
+        });
+        caller.start();
+        assertTrue(requestStarted.await(5, TimeUnit.SECONDS));
+        caller.interrupt();
+        caller.join(TimeUnit.SECONDS.toMillis(5));
+
+        assertInstanceOf(ResourceAccessException.class, callerError.get());
+        assertTrue(callerInterrupted.get());
+        assertTrue(requestCancelled.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void closeStopsHedgingThreads() throws InterruptedException {
+        GigaChatRequestHedger hedger = hedger(1.0);
+        hedger.execute(MODEL, () -> {
+            sleep(200);
+            return "ok";
+        });
+
+        hedger.close();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (hedgingThreadAlive() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(hedgingThreadAlive());
+        assertEquals("after close", hedger.execute(MODEL, () -> "after close"));
+    }
+
+    @Test
+    void fastRequestIsNotHedged() {
+        GigaChatRequestHedger hedger = hedger(1.0);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals("primary", hedger.execute(MODEL, () -> {
+            calls.incrementAndGet();
+            return "primary";
+        }));
+
+        assertEquals(1, calls.get());
+        assertNull(meterRegistry.find(GigaChatRequestHedger.SENT_COUNTER).counter());
+    }
+
+    @Test
+    void hedgeIsNotSentWhenBudgetIsExhausted() {
+        GigaChatRequestHedger hedger = hedger(0.5);
+        AtomicInteger calls = new AtomicInteger();
+
+        // бюджета одного запроса хватает только на половину повторного
+        assertEquals("slow", hedger.execute(MODEL, () -> {
+            calls.incrementAndGet();
+            sleep(200);
+            return "slow";
+        }));
+
+        assertEquals(1, calls.get());
+        assertEquals(1, counter(GigaChatRequestHedger.BUDGET_EXHAUSTED_COUNTER));
+    }
+
+    @Test
+    void errorOfPrimaryIsIgnoredIfHedgeSucceeds() {
+        GigaChatRequestHedger hedger = hedger(1.0);
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = hedger.execute(MODEL, () -> {
+            if (calls.incrementAndGet() == 1) {
+                sleep(300);
+                throw new IllegalStateException("primary failed");
+            }
+            sleep(500);
+            return "hedge";
+        });
+
+        assertEquals("hedge", result);
+    }
+
+    @Test
+    void firstErrorIsThrownWhenAllAttemptsFail() {
+        GigaChatRequestHedger hedger = hedger(1.0);
+        AtomicInteger calls = new AtomicInteger();
+
+        IllegalStateException exception = assertThrows(
+                IllegalStateException.class,
+                () -> hedger.execute(MODEL, () -> {
+                    int call = calls.incrementAndGet();
+                    sleep(call == 1 ? 200 : 50);
+                    throw new IllegalStateException("attempt " + call);
+                }));
+
+        // повторный запрос завершается с ошибкой раньше основного
+        assertEquals("attempt 2", exception.getMessage());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void delayFollowsPercentileOfResponseTimes() {
+        GigaChatInternalProperties.Hedging properties = properties(1.0);
+        properties.setMinDelay(Duration.ofMillis(1));
+        properties.setMaxDelay(Duration.ofSeconds(10));
+        properties.setPercentile(0.5);
+        GigaChatRequestHedger hedger = new GigaChatRequestHedger(properties, meterRegistry);
+        hedgers.add(hedger);
+        assertEquals(Duration.ofSeconds(10), hedger.delay(MODEL));
+
+        for (int i = 0; i < 20; i++) {
+            hedger.execute(MODEL, () -> {
+                sleep(20);
+                return "ok";
+            });
+        }
+
+        Duration delay = hedger.delay(MODEL);
+        assertTrue(delay.toMillis() >= 20 && delay.toMillis() < 1000, delay.toString());
+        assertEquals(Duration.ofSeconds(10), hedger.delay("GigaChat-2-Max"));
+    }
+
+    private GigaChatRequestHedger hedger(double budget) {
+        GigaChatRequestHedger hedger = new GigaChatRequestHedger(properties(budget), meterRegistry);
+        hedgers.add(hedger);
+        return hedger;
+    }
+
+    private static GigaChatInternalProperties.Hedging properties(double budget) {
+        GigaChatInternalProperties.Hedging properties = new GigaChatInternalProperties.Hedging();
+        properties.setEnabled(true);
+        properties.setBudget(budget);
+        properties.setMinDelay(Duration.ofMillis(100));
+        properties.setMaxDelay(Duration.ofMillis(100));
+        return properties;
+    }
+
+    private double counter(String name) {
+        Counter counter = meterRegistry.get(name).tag("model", MODEL).counter();
+        return counter.count();
+    }
+
+    private static boolean hedgingThreadAlive() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> thread.getName().startsWith("gigachat-hedging"));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
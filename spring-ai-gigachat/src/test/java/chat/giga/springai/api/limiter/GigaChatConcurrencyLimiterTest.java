@@ -0,0 +1,202 @@
+package chat.giga.springai.api.limiter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import chat.giga.springai.api.GigaChatInternalProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import reactor.core.Disposable;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+class GigaChatConcurrencyLimiterTest {
+
+    private static final String ENDPOINT = "/chat/completions";
+    private static final String MODEL = "GigaChat-2";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+    private final List<Disposable> subscriptions = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        subscriptions.forEach(Disposable::dispose);
+        scheduler.dispose();
+    }
+
+    @Test
+    void successfulResponsesIncreaseLimitUpToMax() {
+        GigaChatConcurrencyLimiter limiter = limiter(properties(2, 3, 0));
+
+        for (int i = 0; i < 5; i++) {
+            GigaChatConcurrencyLimiter.Permit first = limiter.acquire(ENDPOINT, MODEL);
+            GigaChatConcurrencyLimiter.Permit second = limiter.acquire(ENDPOINT, MODEL);
+            first.release(HttpStatus.OK, new HttpHeaders());
+            second.release(HttpStatus.OK, new HttpHeaders());
+        }
+
+        assertEquals(3, gauge(GigaChatConcurrencyLimiter.LIMIT_GAUGE));
+        assertEquals(0, gauge(GigaChatConcurrencyLimiter.IN_FLIGHT_GAUGE));
+    }
+
+    @Test
+    void overloadAndTimeoutDecreaseLimitDownToMin() {
+        GigaChatConcurrencyLimiter limiter = limiter(properties(4, 10, 0));
+
+        limiter.acquire(ENDPOINT, MODEL).release(HttpStatus.TOO_MANY_REQUESTS, new HttpHeaders());
+        assertEquals(3, gauge(GigaChatConcurrencyLimiter.LIMIT_GAUGE));
+        limiter.acquire(ENDPOINT, MODEL).release(new HttpTimeoutException("timeout"));
+        assertEquals(2, gauge(GigaChatConcurrencyLimiter.LIMIT_GAUGE));
+        limiter.acquire(ENDPOINT, MODEL).release(new IllegalStateException("other error"));
+        assertEquals(2, gauge(GigaChatConcurrencyLimiter.LIMIT_GAUGE));
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire(ENDPOINT, MODEL).release(HttpStatus.SERVICE_UNAVAILABLE, new HttpHeaders());
+        }
+        assertEquals(1, gauge(GigaChatConcurrencyLimiter.LIMIT_GAUGE));
+    }
+
+    @Test
+    void releaseIsIdempotent() {
+        GigaChatConcurrencyLimiter limiter = limiter(properties(1, 1, 0));
+
+        GigaChatConcurrencyLimiter.Permit permit = limiter.acquire(ENDPOINT, MODEL);
+        permit.release();
+        permit.release(HttpStatus.TOO_MANY_REQUESTS, new HttpHeaders());
+
+        assertEquals(1, gauge(GigaChatConcurrencyLimiter.LIMIT_GAUGE));
+        assertEquals(0, gauge(GigaChatConcurrencyLimiter.IN_FLIGHT_GAUGE));
+    }
+
+    @Test
+    void requestsOverLimitWaitInFifoOrder() {
+        GigaChatConcurrencyLimiter limiter = limiter(properties(1, 1, 2));
+        GigaChatConcurrencyLimiter.Permit first = limiter.acquire(ENDPOINT, MODEL);
+
+        List<String> granted = new ArrayList<>();
+        AtomicReference<GigaChatConcurrencyLimiter.Permit> second = new AtomicReference<>();
+        subscribe(limiter, permit -> {
+            granted.add("second");
+            second.set(permit);
+        });
+        subscribe(limiter, permit -> granted.add("third"));
+        assertEquals(2, gauge(GigaChatConcurrencyLimiter.QUEUE_SIZE_GAUGE));
+
+        first.release(HttpStatus.OK, new HttpHeaders());
+        assertEquals(List.of("second"), granted);
+        second.get().release(HttpStatus.OK, new HttpHeaders());
+        assertEquals(List.of("second", "third"), granted);
+        assertEquals(0, gauge(GigaChatConcurrencyLimiter.QUEUE_SIZE_GAUGE));
+    }
+
+    @Test
+    void fullQueueRejectsRequestWithNonTransientException() {
+        GigaChatConcurrencyLimiter limiter = limiter(properties(1, 1, 1));
+        limiter.acquire(ENDPOINT, MODEL);
+        subscribe(limiter, permit -> {});
+
+        NonTransientAiException exception =
+                assertThrows(ConcurrencyLimitExceededException.class, () -> limiter.acquire(ENDPOINT, MODEL));
+
+        assertTrue(exception.getMessage().contains("queue_full"));
+        assertEquals(
+                1,
+                meterRegistry
+                        .get(GigaChatConcurrencyLimiter.REJECTED_COUNTER)
+                        .tag("reason", "queue_full")
+                        .counter()
+                        .count());
+    }
+
+    @Test
+    void queuedRequestIsRejectedAfterMaxQueueWait() {
+        GigaChatConcurrencyLimiter limiter = limiter(properties(1, 1, 1));
+        limiter.acquire(ENDPOINT, MODEL);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        subscriptions.add(limiter.acquireAsync(ENDPOINT, MODEL).subscribe(permit -> {}, error::set));
+
+        scheduler.advanceTimeBy(Duration.ofSeconds(61));
+
+        assertTrue(error.get() instanceof ConcurrencyLimitExceededException);
+        assertEquals(0, gauge(GigaChatConcurrencyLimiter.QUEUE_SIZE_GAUGE));
+    }
+
+    @Test
+    void retryAfterPausesPartitionUntilGivenTime() {
+        GigaChatConcurrencyLimiter limiter = limiter(properties(2, 2, 1));
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "5");
+        limiter.acquire(ENDPOINT, MODEL).release(HttpStatus.TOO_MANY_REQUESTS, headers);
+
+        AtomicReference<GigaChatConcurrencyLimiter.Permit> granted = new AtomicReference<>();
+        subscribe(limiter, granted::set);
+        scheduler.advanceTimeBy(Duration.ofSeconds(4));
+        assertNull(granted.get());
+
+        scheduler.advanceTimeBy(Duration.ofSeconds(1));
+        assertNotNull(granted.get());
+    }
+
+    @Test
+    void partitionsAreIndependent() {
+        GigaChatConcurrencyLimiter limiter = limiter(properties(1, 1, 0));
+        limiter.acquire(ENDPOINT, MODEL);
+
+        assertNotNull(limiter.acquire(ENDPOINT, "GigaChat-2-Max"));
+        assertNotNull(limiter.acquire("/embeddings", null));
+        assertThrows(ConcurrencyLimitExceededException.class, () -> limiter.acquire(ENDPOINT, MODEL));
+    }
+
+    @Test
+    void parsesRetryAfterInSecondsAndHttpDate() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "120");
+        assertEquals(Duration.ofMinutes(2), GigaChatConcurrencyLimiter.retryAfter(headers));
+
+        headers.set(HttpHeaders.RETRY_AFTER, "Wed, 21 Oct 2015 07:28:00 GMT");
+        assertTrue(GigaChatConcurrencyLimiter.retryAfter(headers).isNegative());
+
+        headers.set(HttpHeaders.RETRY_AFTER, "soon");
+        assertNull(GigaChatConcurrencyLimiter.retryAfter(headers));
+    }
+
+    private void subscribe(GigaChatConcurrencyLimiter limiter, Consumer<GigaChatConcurrencyLimiter.Permit> onPermit) {
+        subscriptions.add(limiter.acquireAsync(ENDPOINT, MODEL).subscribe(onPermit));
+    }
+
+    private GigaChatConcurrencyLimiter limiter(GigaChatInternalProperties.ConcurrencyLimit properties) {
+        return new GigaChatConcurrencyLimiter(
+                properties, meterRegistry, scheduler, () -> scheduler.now(TimeUnit.NANOSECONDS));
+    }
+
+    private static GigaChatInternalProperties.ConcurrencyLimit properties(
+            int initialLimit, int maxLimit, int maxQueueSize) {
+        GigaChatInternalProperties.ConcurrencyLimit properties = new GigaChatInternalProperties.ConcurrencyLimit();
+        properties.setEnabled(true);
+        properties.setInitialLimit(initialLimit);
+        properties.setMaxLimit(maxLimit);
+        properties.setMaxQueueSize(maxQueueSize);
+        return properties;
+    }
+
+    private double gauge(String name) {
+        return meterRegistry
+                .get(name)
+                .tags("endpoint", ENDPOINT, "model", MODEL)
+                .gauge()
+                .value();
+    }
+}
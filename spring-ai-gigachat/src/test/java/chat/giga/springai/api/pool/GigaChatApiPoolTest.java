@@ -0,0 +1,195 @@
+package chat.giga.springai.api.pool;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import chat.giga.springai.api.GigaChatApiProperties;
+import chat.giga.springai.api.auth.GigaChatAuthProperties;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.content.Media;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.util.MimeTypeUtils;
+
+class GigaChatApiPoolTest {
+
+    private static final String MODELS = "{\"object\":\"list\",\"data\":[]}";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong clock = new AtomicLong();
+    private WireMockServer first;
+    private WireMockServer second;
+
+    @BeforeEach
+    void setUp() {
+        first = new WireMockServer(WireMockConfiguration.options().dynamicPort().http2PlainDisabled(true));
+        second =
+                new WireMockServer(WireMockConfiguration.options().dynamicPort().http2PlainDisabled(true));
+        first.start();
+        second.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        first.stop();
+        second.stop();
+    }
+
+    @Test
+    @DisplayName("Weighted round robin распределяет запросы пропорционально весам")
+    void weightedRoundRobin_distributesByWeight() {
+        first.stubFor(get("/models").willReturn(okJson(MODELS)));
+        second.stubFor(get("/models").willReturn(okJson(MODELS)));
+        GigaChatApiPool pool = builder()
+                .member("first", properties(first), 2)
+                .member("second", properties(second), 1)
+                .loadBalancing(GigaChatApiPool.LoadBalancing.WEIGHTED_ROUND_ROBIN)
+                .build();
+
+        for (int i = 0; i < 6; i++) {
+            pool.models();
+        }
+
+        first.verify(4, getRequestedFor(urlEqualTo("/models")));
+        second.verify(2, getRequestedFor(urlEqualTo("/models")));
+    }
+
+    @Test
+    @DisplayName("Участник исключается после серии ошибок и возвращается постепенно")
+    void failingMember_isEjectedAndReturnsGradually() {
+        first.stubFor(get("/models").willReturn(aResponse().withStatus(503)));
+        second.stubFor(get("/models").willReturn(okJson(MODELS)));
+        GigaChatApiPool pool = builder()
+                .member("first", properties(first))
+                .member("second", properties(second))
+                .loadBalancing(GigaChatApiPool.LoadBalancing.WEIGHTED_ROUND_ROBIN)
+                .failureThreshold(2)
+                .ejectionDuration(Duration.ofSeconds(10))
+                .slowStart(Duration.ofSeconds(10))
+                .build();
+
+        for (int i = 0; i < 4; i++) {
+            callIgnoringErrors(pool);
+        }
+        first.verify(2, getRequestedFor(urlEqualTo("/models")));
+        assertEquals(0, gauge(GigaChatApiPool.AVAILABLE_GAUGE, "first"));
+        assertEquals(
+                1,
+                meterRegistry
+                        .get(GigaChatApiPool.EJECTIONS_COUNTER)
+                        .tag(GigaChatApiPool.MEMBER_TAG, "first")
+                        .functionCounter()
+                        .count());
+
+        for (int i = 0; i < 5; i++) {
+            pool.models();
+        }
+        first.verify(2, getRequestedFor(urlEqualTo("/models")));
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertEquals(1, gauge(GigaChatApiPool.AVAILABLE_GAUGE, "first"));
+        first.resetAll();
+        first.stubFor(get("/models").willReturn(okJson(MODELS)));
+        for (int i = 0; i < 11; i++) {
+            pool.models();
+        }
+        // в начале slow start вес вернувшегося участника - 10% от полного
+        assertTrue(first.findAll(getRequestedFor(urlEqualTo("/models"))).size() <= 1);
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        first.resetRequests();
+        for (int i = 0; i < 10; i++) {
+            pool.models();
+        }
+        first.verify(5, getRequestedFor(urlEqualTo("/models")));
+    }
+
+    @Test
+    @DisplayName("Least outstanding выбирает участника с наименьшим числом запросов в работе")
+    void leastOutstanding_prefersIdleMember() {
+        GigaChatApiPool pool = builder()
+                .member("first", properties(first))
+                .member("second", properties(second))
+                .build();
+
+        PoolMember busy = pool.select();
+        busy.outstanding().incrementAndGet();
+
+        PoolMember idle = pool.select();
+        assertEquals(busy.name().equals("first") ? "second" : "first", idle.name());
+        idle.outstanding().incrementAndGet();
+        idle.outstanding().incrementAndGet();
+        assertSame(busy, pool.select());
+    }
+
+    @Test
+    @DisplayName("Файл скачивается через участника, который его загрузил")
+    void downloadFile_routedToUploadingMember() {
+        String fileId = UUID.randomUUID().toString();
+        byte[] content = {1, 2, 3};
+        for (WireMockServer server : new WireMockServer[] {first, second}) {
+            server.stubFor(post("/files").willReturn(okJson("{\"id\":\"" + fileId + "\",\"object\":\"file\"}")));
+            server.stubFor(get("/files/" + fileId + "/content")
+                    .willReturn(
+                            aResponse().withHeader("Content-Type", "image/png").withBody(content)));
+        }
+        GigaChatApiPool pool = builder()
+                .member("first", properties(first))
+                .member("second", properties(second))
+                .loadBalancing(GigaChatApiPool.LoadBalancing.WEIGHTED_ROUND_ROBIN)
+                .build();
+
+        pool.uploadFile(new Media(MimeTypeUtils.IMAGE_PNG, new ByteArrayResource(content)));
+        for (int i = 0; i < 3; i++) {
+            assertArrayEquals(content, pool.downloadFile(fileId));
+        }
+
+        first.verify(3, getRequestedFor(urlEqualTo("/files/" + fileId + "/content")));
+        second.verify(0, getRequestedFor(urlEqualTo("/files/" + fileId + "/content")));
+        assertEquals(first.baseUrl() + "/files/" + fileId + "/content", pool.getFileUrl(fileId));
+    }
+
+    private GigaChatApiPool.Builder builder() {
+        return GigaChatApiPool.builder().meterRegistry(meterRegistry).nanoClock(clock::get);
+    }
+
+    private static void callIgnoringErrors(GigaChatApiPool pool) {
+        try {
+            pool.models();
+        } catch (RuntimeException ignored) {
+            // 503 от первого участника
+        }
+    }
+
+    private double gauge(String name, String member) {
+        return meterRegistry
+                .get(name)
+                .tag(GigaChatApiPool.MEMBER_TAG, member)
+                .gauge()
+                .value();
+    }
+
+    private static GigaChatApiProperties properties(WireMockServer server) {
+        return GigaChatApiProperties.builder()
+                .baseUrl(server.baseUrl())
+                .auth(GigaChatAuthProperties.builder().build())
+                .build();
+    }
+}
@@ -0,0 +1,122 @@
+package chat.giga.springai.embedding;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import chat.giga.springai.GigaChatEmbeddingOptions;
+import chat.giga.springai.api.chat.embedding.EmbeddingsModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+@ExtendWith(MockitoExtension.class)
+class GigaChatCachingEmbeddingModelTest {
+
+    private static final String MODEL = EmbeddingsModel.EMBEDDINGS.getName();
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private EmbeddingModel delegate;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("В делегат уходят только тексты, которых нет в кэше")
+    void testCall_onlyMissesAreEmbedded() throws Exception {
+        when(delegate.call(any())).thenAnswer(invocation -> embed(invocation.getArgument(0)));
+
+        try (GigaChatCachingEmbeddingModel model = cachingModel()) {
+            model.call(new EmbeddingRequest(List.of("a", "b"), null));
+            EmbeddingResponse response = model.call(new EmbeddingRequest(List.of("b", "c", "a"), null));
+
+            assertEquals(3, response.getResults().size());
+            assertArrayEquals(vector("b"), response.getResults().get(0).getOutput());
+            assertArrayEquals(vector("c"), response.getResults().get(1).getOutput());
+            assertArrayEquals(vector("a"), response.getResults().get(2).getOutput());
+            assertEquals(2, response.getResults().get(2).getIndex());
+        }
+
+        ArgumentCaptor<EmbeddingRequest> captor = ArgumentCaptor.forClass(EmbeddingRequest.class);
+        verify(delegate, times(2)).call(captor.capture());
+        assertEquals(List.of("c"), captor.getAllValues().get(1).getInstructions());
+        assertEquals(2, requests("hit"));
+        assertEquals(3, requests("miss"));
+    }
+
+    @Test
+    @DisplayName("После перезапуска векторы берутся из файлов без обращения к делегату")
+    void testCall_reopen() throws Exception {
+        when(delegate.call(any())).thenAnswer(invocation -> embed(invocation.getArgument(0)));
+        try (GigaChatCachingEmbeddingModel model = cachingModel()) {
+            model.call(new EmbeddingRequest(List.of("a", "b"), null));
+        }
+
+        try (GigaChatCachingEmbeddingModel model = cachingModel()) {
+            assertArrayEquals(vector("b"), model.embed("b"));
+        }
+        verify(delegate, times(1)).call(any());
+    }
+
+    @Test
+    @DisplayName("Векторы разных моделей кэшируются отдельно")
+    void testCall_modelFromOptions() throws Exception {
+        when(delegate.call(any())).thenAnswer(invocation -> embed(invocation.getArgument(0)));
+        GigaChatEmbeddingOptions options = GigaChatEmbeddingOptions.builder()
+                .withModel(EmbeddingsModel.EMBEDDINGS_2.getName())
+                .build();
+
+        try (GigaChatCachingEmbeddingModel model = cachingModel()) {
+            model.call(new EmbeddingRequest(List.of("a"), null));
+            model.call(new EmbeddingRequest(List.of("a"), options));
+            model.call(new EmbeddingRequest(List.of("a"), options));
+        }
+
+        verify(delegate, times(2)).call(any());
+        verify(delegate, never()).dimensions();
+    }
+
+    private GigaChatCachingEmbeddingModel cachingModel() {
+        return new GigaChatCachingEmbeddingModel(delegate, directory, MODEL, meterRegistry);
+    }
+
+    private double requests(String result) {
+        return meterRegistry
+                .get(GigaChatCachingEmbeddingModel.CACHE_REQUESTS_COUNTER)
+                .tag("result", result)
+                .counter()
+                .count();
+    }
+
+    private static EmbeddingResponse embed(EmbeddingRequest request) {
+        List<Embedding> embeddings = new ArrayList<>();
+        for (int i = 0; i < request.getInstructions().size(); i++) {
+            embeddings.add(new Embedding(vector(request.getInstructions().get(i)), i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    private static float[] vector(String text) {
+        float[] vector = new float[EmbeddingsModel.EMBEDDINGS.getDimensions()];
+        vector[text.charAt(0) % vector.length] = 1;
+        return vector;
+    }
+}
@@ -0,0 +1,88 @@
+package chat.giga.springai.embedding;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedEmbeddingStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Векторы доступны после переоткрытия хранилища")
+    void testReopen() throws Exception {
+        try (MappedEmbeddingStore store = MappedEmbeddingStore.open(directory, "model", 3)) {
+            store.put(hash(1), new float[] {1, 2, 3});
+            store.put(hash(2), new float[] {4, 5, 6});
+            store.put(hash(1), new float[] {7, 8, 9});
+        }
+
+        try (MappedEmbeddingStore store = MappedEmbeddingStore.open(directory, "model", 3)) {
+            assertEquals(2, store.size());
+            assertArrayEquals(new float[] {1, 2, 3}, store.get(hash(1)));
+            assertArrayEquals(new float[] {4, 5, 6}, store.get(hash(2)));
+            assertNull(store.get(hash(3)));
+        }
+        assertEquals(3, MappedEmbeddingStore.storedDimensions(directory, "model"));
+    }
+
+    @Test
+    @DisplayName("Индекс и файл данных расширяются по мере заполнения")
+    void testGrow() throws Exception {
+        int count = 5000;
+        try (MappedEmbeddingStore store = MappedEmbeddingStore.open(directory, "model", 4)) {
+            for (int i = 0; i < count; i++) {
+                store.put(hash(i), new float[] {i, i + 1, i + 2, i + 3});
+            }
+        }
+
+        try (MappedEmbeddingStore store = MappedEmbeddingStore.open(directory, "model", 4)) {
+            assertEquals(count, store.size());
+            for (int i = 0; i < count; i++) {
+                assertArrayEquals(new float[] {i, i + 1, i + 2, i + 3}, store.get(hash(i)));
+            }
+            store.put(hash(count), new float[] {1, 1, 1, 1});
+            assertArrayEquals(new float[] {1, 1, 1, 1}, store.get(hash(count)));
+        }
+    }
+
+    @Test
+    @DisplayName("Хранилище другой размерности не открывается")
+    void testDimensionsMismatch() throws Exception {
+        MappedEmbeddingStore.open(directory, "model", 3).close();
+
+        assertThrows(IllegalStateException.class, () -> MappedEmbeddingStore.open(directory, "model", 4));
+    }
+
+    @Test
+    @DisplayName("Хэши с одинаковыми первыми 8 байтами различаются")
+    void testPrefixCollision() throws Exception {
+        try (MappedEmbeddingStore store = MappedEmbeddingStore.open(directory, "model", 1)) {
+            store.put(hash(7, 1), new float[] {1});
+            store.put(hash(7, 2), new float[] {2});
+
+            assertArrayEquals(new float[] {1}, store.get(hash(7, 1)));
+            assertArrayEquals(new float[] {2}, store.get(hash(7, 2)));
+            assertNull(store.get(hash(7, 3)));
+        }
+    }
+
+    private static byte[] hash(int value) {
+        return hash(value * 0x9E3779B97F4A7C15L, value);
+    }
+
+    private static byte[] hash(long prefix, int value) {
+        return ByteBuffer.allocate(MappedEmbeddingStore.HASH_BYTES)
+                .putLong(0, prefix)
+                .putInt(28, value)
+                .array();
+    }
+}
@@ -10,6 +10,8 @@ import chat.giga.springai.api.chat.GigaChatApi;
 import chat.giga.springai.api.chat.completion.CompletionRequest;
 import chat.giga.springai.api.chat.completion.CompletionResponse;
 import io.micrometer.observation.ObservationRegistry;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
 import java.util.Base64;
 import java.util.List;
 import org.junit.jupiter.api.Test;
@@ -203,6 +205,41 @@ class GigaChatImageModelTest {
         Mockito.verify(gigaChatApi, Mockito.times(1)).downloadFile("11111111-2222-3333-4444-555555555555");
     }
 
+    @Test
+    void testImageGenerationStreamedToOutputStream() {
+        Mockito.when(gigaChatApi.chatCompletionEntity(any())).thenReturn(ResponseEntity.ok(createCompletionResponse()));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        ImageResponse response = imageModel.call(new ImagePrompt("Draw a cat"), outputStream);
+
+        var gen = response.getResult();
+        assertNotNull(gen);
+        assertNull(gen.getOutput().getUrl());
+        assertNull(gen.getOutput().getB64Json());
+        assertEquals(
+                "11111111-2222-3333-4444-555555555555",
+                ((GigaChatImageGenerationMetadata) gen.getMetadata()).getFileId());
+
+        Mockito.verify(gigaChatApi).downloadFileToStream("11111111-2222-3333-4444-555555555555", outputStream);
+        Mockito.verify(gigaChatApi, Mockito.never()).downloadFile(any());
+    }
+
+    @Test
+    void testImageGenerationWrittenToFile() {
+        Mockito.when(gigaChatApi.chatCompletionEntity(any())).thenReturn(ResponseEntity.ok(createCompletionResponse()));
+        Path target = Path.of("build", "cat.jpg");
+
+        ImageResponse response = imageModel.call(new ImagePrompt("Draw a cat"), target);
+
+        var gen = response.getResult();
+        assertNotNull(gen);
+        assertEquals(target.toUri().toString(), gen.getOutput().getUrl());
+        assertNull(gen.getOutput().getB64Json());
+
+        Mockito.verify(gigaChatApi).downloadFileToPath("11111111-2222-3333-4444-555555555555", target);
+        Mockito.verify(gigaChatApi, Mockito.never()).downloadFile(any());
+    }
+
     private CompletionResponse createCompletionResponse() {
         CompletionResponse.MessagesRes message = new CompletionResponse.MessagesRes();
         message.setRole(CompletionResponse.Role.assistant);
@@ -0,0 +1,131 @@
+package chat.giga.springai.media;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.content.Media;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+class GigaChatMediaCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final GigaChatMediaCache cache =
+            new GigaChatMediaCache(2, Duration.ofSeconds(10), meterRegistry, new TestClock());
+
+    @Test
+    void keyDependsOnContentAndMimeType() {
+        Media png = media("image", MimeTypeUtils.IMAGE_PNG);
+        Media samePngAsResource = Media.builder()
+                .data(new ByteArrayResource("image".getBytes()))
+                .mimeType(MimeTypeUtils.IMAGE_PNG)
+                .build();
+
+        assertEquals(GigaChatMediaCache.keyOf(png), GigaChatMediaCache.keyOf(samePngAsResource));
+        assertNotEquals(
+                GigaChatMediaCache.keyOf(png), GigaChatMediaCache.keyOf(media("image", MimeTypeUtils.IMAGE_JPEG)));
+        assertNotEquals(
+                GigaChatMediaCache.keyOf(png), GigaChatMediaCache.keyOf(media("other", MimeTypeUtils.IMAGE_PNG)));
+        assertNull(GigaChatMediaCache.keyOf(Media.builder()
+                .data("https://example.com/image.png")
+                .mimeType(MimeTypeUtils.IMAGE_PNG)
+                .build()));
+    }
+
+    @Test
+    void keyIsNotComputedForOneShotResource() {
+        Media streamed = Media.builder()
+                .data((Object) new InputStreamResource(new ByteArrayInputStream("image".getBytes())))
+                .mimeType(MimeTypeUtils.IMAGE_PNG)
+                .build();
+
+        assertNull(GigaChatMediaCache.keyOf(streamed));
+    }
+
+    @Test
+    void entryExpiresAfterTtl() {
+        GigaChatMediaCache.Key key = GigaChatMediaCache.keyOf(media("image", MimeTypeUtils.IMAGE_PNG));
+        cache.put(key, "file-id");
+
+        now.addAndGet(9_999);
+        assertEquals("file-id", cache.get(key));
+
+        now.addAndGet(1);
+        assertNull(cache.get(key));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        GigaChatMediaCache.Key first = GigaChatMediaCache.keyOf(media("1", MimeTypeUtils.IMAGE_PNG));
+        GigaChatMediaCache.Key second = GigaChatMediaCache.keyOf(media("2", MimeTypeUtils.IMAGE_PNG));
+        GigaChatMediaCache.Key third = GigaChatMediaCache.keyOf(media("3", MimeTypeUtils.IMAGE_PNG));
+        cache.put(first, "1");
+        cache.put(second, "2");
+        cache.get(first);
+
+        cache.put(third, "3");
+
+        assertEquals(2, cache.size());
+        assertEquals("1", cache.get(first));
+        assertNull(cache.get(second));
+        assertEquals("3", cache.get(third));
+    }
+
+    @Test
+    void hitsAndMissesAreCounted() {
+        GigaChatMediaCache.Key key = GigaChatMediaCache.keyOf(media("image", MimeTypeUtils.IMAGE_PNG));
+        cache.get(key);
+        cache.put(key, "file-id");
+        cache.get(key);
+        cache.get(key);
+
+        assertEquals(
+                2.0,
+                meterRegistry
+                        .counter(GigaChatMediaCache.CACHE_REQUESTS_COUNTER, "result", "hit")
+                        .count());
+        assertEquals(
+                1.0,
+                meterRegistry
+                        .counter(GigaChatMediaCache.CACHE_REQUESTS_COUNTER, "result", "miss")
+                        .count());
+        assertEquals(
+                1.0,
+                meterRegistry.get(GigaChatMediaCache.CACHE_SIZE_GAUGE).gauge().value());
+    }
+
+    private static Media media(String content, MimeType mimeType) {
+        return Media.builder().data(content.getBytes()).mimeType(mimeType).build();
+    }
+
+    private class TestClock extends Clock {
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(now.get());
+        }
+    }
+}
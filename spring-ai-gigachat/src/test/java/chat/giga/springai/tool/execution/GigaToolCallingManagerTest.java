@@ -0,0 +1,268 @@
+package chat.giga.springai.tool.execution;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import chat.giga.springai.GigaChatOptions;
+import chat.giga.springai.tool.GigaTools;
+import chat.giga.springai.tool.annotation.GigaTool;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+
+class GigaToolCallingManagerTest {
+
+    private final TestTools tools = new TestTools();
+
+    private final Prompt prompt = new Prompt(
+            List.of(new UserMessage("Какая погода?")),
+            GigaChatOptions.builder().toolCallbacks(GigaTools.from(tools)).build());
+
+    @Test
+    @DisplayName("Независимые вызовы инструментов одного ответа модели выполняются параллельно")
+    void executeToolCalls_runsToolCallsConcurrently() {
+        GigaToolCallingManager manager =
+                GigaToolCallingManager.builder().maxConcurrency(2).build();
+
+        ToolExecutionResult result = manager.executeToolCalls(
+                prompt, toolCallsResponse(toolCall("1", "weather", "{}"), toolCall("2", "rates", "")));
+
+        List<ToolResponseMessage.ToolResponse> responses = toolResponses(result);
+        assertEquals(2, responses.size());
+        assertEquals("1", responses.get(0).id());
+        assertEquals("\"Москва: +20\"", responses.get(0).responseData());
+        assertEquals("2", responses.get(1).id());
+        assertEquals("\"USD: 80\"", responses.get(1).responseData());
+        assertFalse(result.returnDirect());
+        assertEquals(3, result.conversationHistory().size());
+    }
+
+    @Test
+    @DisplayName("Зависший инструмент прерывается по таймауту, ошибка передается модели")
+    void executeToolCalls_timesOutSlowTool() {
+        GigaToolCallingManager manager = GigaToolCallingManager.builder()
+                .toolTimeout(Duration.ofMillis(200))
+                .build();
+
+        ToolExecutionResult result = manager.executeToolCalls(prompt, toolCallsResponse(toolCall("1", "slow", "")));
+
+        assertThat(toolResponses(result).get(0).responseData(), containsString("timed out"));
+    }
+
+    @Test
+    @DisplayName("Результаты идемпотентных инструментов кэшируются по имени и аргументам")
+    void executeToolCalls_cachesIdempotentToolResults() {
+        GigaToolCallingManager manager = GigaToolCallingManager.builder().build();
+        ChatResponse response =
+                toolCallsResponse(toolCall("1", "cachedLookup", "{\"key\":\"a\"}"), toolCall("2", "counter", "{}"));
+
+        manager.executeToolCalls(prompt, response);
+        manager.executeToolCalls(prompt, response);
+        manager.executeToolCalls(prompt, toolCallsResponse(toolCall("3", "cachedLookup", "{\"key\":\"b\"}")));
+
+        assertEquals(2, tools.lookups.get());
+        assertEquals(2, tools.counter.get());
+    }
+
+    @Test
+    @DisplayName("Ожидание свободного слота ограничено отдельным таймаутом")
+    void executeToolCalls_timesOutWaitingForPermit() {
+        GigaToolCallingManager manager = GigaToolCallingManager.builder()
+                .maxConcurrency(1)
+                .toolTimeout(Duration.ofMillis(200))
+                .permitTimeout(Duration.ofMillis(100))
+                .build();
+
+        long start = System.nanoTime();
+        ToolExecutionResult result = manager.executeToolCalls(
+                prompt, toolCallsResponse(toolCall("1", "slow", ""), toolCall("2", "slow", "")));
+
+        assertThat(toolResponses(result).get(0).responseData(), containsString("timed out"));
+        assertThat(toolResponses(result).get(1).responseData(), containsString("No free slot"));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(5)) < 0);
+    }
+
+    @Test
+    @DisplayName("Таймаут выполнения отсчитывается после получения свободного слота")
+    void executeToolCalls_toolTimeoutStartsAfterPermit() {
+        GigaToolCallingManager manager = GigaToolCallingManager.builder()
+                .maxConcurrency(1)
+                .toolTimeout(Duration.ofMillis(1000))
+                .permitTimeout(Duration.ofSeconds(5))
+                .build();
+
+        ToolExecutionResult result = manager.executeToolCalls(
+                prompt, toolCallsResponse(toolCall("1", "pause", ""), toolCall("2", "pause", "")));
+
+        assertEquals("\"paused\"", toolResponses(result).get(0).responseData());
+        assertEquals("\"paused\"", toolResponses(result).get(1).responseData());
+    }
+
+    @Test
+    @DisplayName("Инструмент, не реагирующий на прерывание, занимает слот до фактического завершения")
+    void executeToolCalls_hungToolKeepsPermit() {
+        GigaToolCallingManager manager = GigaToolCallingManager.builder()
+                .maxConcurrency(1)
+                .toolTimeout(Duration.ofMillis(100))
+                .permitTimeout(Duration.ofMillis(500))
+                .build();
+
+        ToolExecutionResult hung = manager.executeToolCalls(prompt, toolCallsResponse(toolCall("1", "stubborn", "")));
+        ToolExecutionResult rejected =
+                manager.executeToolCalls(prompt, toolCallsResponse(toolCall("2", "counter", "{}")));
+        tools.stubbornRelease.countDown();
+        ToolExecutionResult executed =
+                manager.executeToolCalls(prompt, toolCallsResponse(toolCall("3", "counter", "{}")));
+
+        assertThat(toolResponses(hung).get(0).responseData(), containsString("timed out"));
+        assertThat(toolResponses(rejected).get(0).responseData(), containsString("No free slot"));
+        assertEquals("1", toolResponses(executed).get(0).responseData());
+        assertEquals(1, tools.counter.get());
+    }
+
+    @Test
+    @DisplayName("Результаты не кэшируются, если в запросе передан контекст инструментов")
+    void executeToolCalls_bypassesCacheWithToolContext() {
+        GigaToolCallingManager manager = GigaToolCallingManager.builder().build();
+        Prompt promptWithContext = new Prompt(
+                List.of(new UserMessage("Какая погода?")),
+                GigaChatOptions.builder()
+                        .toolCallbacks(GigaTools.from(tools))
+                        .toolContext(Map.of("userId", "1"))
+                        .build());
+        ChatResponse response = toolCallsResponse(toolCall("1", "cachedLookup", "{\"key\":\"a\"}"));
+
+        manager.executeToolCalls(promptWithContext, response);
+        manager.executeToolCalls(promptWithContext, response);
+
+        assertEquals(2, tools.lookups.get());
+    }
+
+    @Test
+    @DisplayName("close() останавливает пул потоков по умолчанию")
+    void close_shutsDownDefaultExecutor() {
+        GigaToolCallingManager manager = GigaToolCallingManager.builder().build();
+        manager.executeToolCalls(prompt, toolCallsResponse(toolCall("1", "counter", "{}")));
+
+        manager.close();
+
+        assertThrows(
+                RejectedExecutionException.class,
+                () -> manager.executeToolCalls(prompt, toolCallsResponse(toolCall("2", "counter", "{}"))));
+        assertEquals(1, tools.counter.get());
+    }
+
+    @Test
+    void executeToolCalls_failsOnUnknownTool() {
+        GigaToolCallingManager manager = GigaToolCallingManager.builder().build();
+
+        assertThrows(
+                IllegalStateException.class,
+                () -> manager.executeToolCalls(prompt, toolCallsResponse(toolCall("1", "unknown", "{}"))));
+        assertEquals(0, tools.counter.get());
+    }
+
+    private static List<ToolResponseMessage.ToolResponse> toolResponses(ToolExecutionResult result) {
+        return assertInstanceOf(
+                        ToolResponseMessage.class,
+                        result.conversationHistory()
+                                .get(result.conversationHistory().size() - 1))
+                .getResponses();
+    }
+
+    private static AssistantMessage.ToolCall toolCall(String id, String name, String arguments) {
+        return new AssistantMessage.ToolCall(id, "function", name, arguments);
+    }
+
+    private static ChatResponse toolCallsResponse(AssistantMessage.ToolCall... toolCalls) {
+        AssistantMessage assistantMessage = AssistantMessage.builder()
+                .content("")
+                .toolCalls(List.of(toolCalls))
+                .build();
+        return new ChatResponse(List.of(new Generation(assistantMessage)));
+    }
+
+    static class TestTools {
+        private final CountDownLatch concurrentCalls = new CountDownLatch(2);
+        private final AtomicInteger lookups = new AtomicInteger();
+        private final AtomicInteger counter = new AtomicInteger();
+        private final CountDownLatch stubbornRelease = new CountDownLatch(1);
+
+        @GigaTool(description = "Погода в городе")
+        public String weather() throws InterruptedException {
+            awaitOtherCall();
+            return "Москва: +20";
+        }
+
+        @GigaTool(description = "Курс валют")
+        public String rates() throws InterruptedException {
+            awaitOtherCall();
+            return "USD: 80";
+        }
+
+        @GigaTool(description = "Долгий инструмент")
+        public String slow() throws InterruptedException {
+            Thread.sleep(10_000);
+            return "done";
+        }
+
+        @GigaTool(description = "Короткая пауза")
+        public String pause() throws InterruptedException {
+            Thread.sleep(700);
+            return "paused";
+        }
+
+        // Не реагирует на прерывание и завершается только по сигналу теста
+        @GigaTool(description = "Зависающий инструмент")
+        public String stubborn() {
+            boolean interrupted = false;
+            while (stubbornRelease.getCount() > 0) {
+                try {
+                    stubbornRelease.await();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return "done";
+        }
+
+        @GigaTool(description = "Справочник", idempotent = true)
+        public int cachedLookup() {
+            return lookups.incrementAndGet();
+        }
+
+        @GigaTool(description = "Счетчик")
+        public int counter() {
+            return counter.incrementAndGet();
+        }
+
+        // Оба вызова завершаются, только если выполняются одновременно
+        private void awaitOtherCall() throws InterruptedException {
+            concurrentCalls.countDown();
+            if (!concurrentCalls.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Tool calls were not executed concurrently");
+            }
+        }
+    }
+}
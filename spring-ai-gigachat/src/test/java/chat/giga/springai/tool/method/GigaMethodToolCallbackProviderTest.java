@@ -2,11 +2,15 @@ package chat.giga.springai.tool.method;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import chat.giga.springai.tool.annotation.GigaTool;
+import chat.giga.springai.tool.definition.GigaToolDefinition;
 import chat.giga.springai.tool.function.GigaFunctionToolCallback;
+import chat.giga.springai.tool.metadata.GigaToolMetadata;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.ai.tool.ToolCallback;
@@ -26,6 +30,19 @@ public class GigaMethodToolCallbackProviderTest {
         assertTrue(toolCallbacks[0].getToolMetadata().returnDirect());
     }
 
+    @Test
+    @DisplayName("Признак idempotent из @GigaTool передается в метаданные инструмента")
+    public void testGetToolCallbacks_withIdempotentGigaTool() {
+        ToolCallback[] toolCallbacks = GigaMethodToolCallbackProvider.builder()
+                .toolObjects(new TestIdempotentGigaTool())
+                .build()
+                .getToolCallbacks();
+
+        assertEquals(1, toolCallbacks.length);
+        assertTrue(((GigaToolMetadata) toolCallbacks[0].getToolMetadata()).idempotent());
+        assertFalse(toolCallbacks[0].getToolMetadata().returnDirect());
+    }
+
     @Test
     @DisplayName("Если метод имеет аннотации @Tool и @GigaTool, то у @Tool приоритет выше")
     public void testGetToolCallbacks_withToolAndGigaTool() {
@@ -51,6 +68,52 @@ public class GigaMethodToolCallbackProviderTest {
                 .build());
     }
 
+    @Test
+    @DisplayName("Определения инструментов одного класса строятся один раз и переиспользуются")
+    public void testGetToolCallbacks_reusesToolDefinitionsOfSameClass() {
+        TestGigaToolOnly firstToolObject = new TestGigaToolOnly();
+        TestGigaToolOnly secondToolObject = new TestGigaToolOnly();
+
+        ToolCallback firstToolCallback = GigaMethodToolCallbackProvider.builder()
+                .toolObjects(firstToolObject)
+                .build()
+                .getToolCallbacks()[0];
+        ToolCallback secondToolCallback = GigaMethodToolCallbackProvider.builder()
+                .toolObjects(secondToolObject)
+                .build()
+                .getToolCallbacks()[0];
+
+        assertSame(firstToolCallback.getToolDefinition(), secondToolCallback.getToolDefinition());
+        assertSame(firstToolCallback.getToolMetadata(), secondToolCallback.getToolMetadata());
+        assertNotSame(firstToolCallback, secondToolCallback);
+    }
+
+    @Test
+    @DisplayName("Определения, сгенерированные при сборке, используются вместо генерации в runtime")
+    public void testGetToolCallbacks_usesGeneratedToolDefinitions() {
+        ToolCallback[] toolCallbacks = GigaMethodToolCallbackProvider.builder()
+                .toolObjects(new TestGeneratedTool())
+                .build()
+                .getToolCallbacks();
+
+        assertEquals(2, toolCallbacks.length);
+        ToolCallback generated = toolCallbacks[0].getToolDefinition().name().equals("generatedTool")
+                ? toolCallbacks[0]
+                : toolCallbacks[1];
+        ToolCallback runtime = generated == toolCallbacks[0] ? toolCallbacks[1] : toolCallbacks[0];
+
+        GigaToolDefinition generatedDefinition = (GigaToolDefinition) generated.getToolDefinition();
+        assertEquals("Сгенерировано при сборке", generatedDefinition.description());
+        assertEquals(
+                GigaMethodToolCallbackProviderTest_TestGeneratedTool_GigaToolDefinitions.INPUT_SCHEMA,
+                generatedDefinition.inputSchema());
+        assertEquals(1, generatedDefinition.fewShotExamples().size());
+        assertTrue(((GigaToolMetadata) generated.getToolMetadata()).idempotent());
+        // метода нет в сгенерированном классе - определение строится в runtime
+        assertEquals("runtimeTool", runtime.getToolDefinition().name());
+        assertEquals("Runtime", runtime.getToolDefinition().description());
+    }
+
     private static class TestGigaToolOnly {
         @GigaTool(name = "testTool", returnDirect = true)
         public String testMethod() {
@@ -65,4 +128,23 @@ public class GigaMethodToolCallbackProviderTest {
             return "test";
         }
     }
+
+    private static class TestIdempotentGigaTool {
+        @GigaTool(name = "idempotentTool", idempotent = true)
+        public String testMethod() {
+            return "test";
+        }
+    }
+
+    static class TestGeneratedTool {
+        @GigaTool(name = "generatedTool", description = "Runtime")
+        public String generatedMethod() {
+            return "test";
+        }
+
+        @GigaTool(name = "runtimeTool", description = "Runtime")
+        public String runtimeMethod() {
+            return "test";
+        }
+    }
 }
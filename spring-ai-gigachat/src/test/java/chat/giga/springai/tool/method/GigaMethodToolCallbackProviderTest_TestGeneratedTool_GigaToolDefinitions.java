@@ -0,0 +1,38 @@
+package chat.giga.springai.tool.method;
+
+import chat.giga.springai.tool.definition.FewShotExample;
+import chat.giga.springai.tool.definition.GeneratedGigaToolDefinitions;
+import chat.giga.springai.tool.definition.GeneratedGigaToolMethod;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Класс в том виде, в котором его генерирует spring-ai-gigachat-tool-processor
+ * для {@link GigaMethodToolCallbackProviderTest.TestGeneratedTool}.
+ */
+public final class GigaMethodToolCallbackProviderTest_TestGeneratedTool_GigaToolDefinitions
+        implements GeneratedGigaToolDefinitions {
+
+    static final String INPUT_SCHEMA =
+            "{\"$schema\":\"https://json-schema.org/draft/2020-12/schema\",\"type\":\"object\",\"properties\":{},\"required\":[],\"additionalProperties\":false}";
+
+    private static final Map<String, GeneratedGigaToolMethod> TOOL_METHODS = Map.ofEntries(Map.entry(
+            "generatedMethod()",
+            new GeneratedGigaToolMethod(
+                    "generatedTool",
+                    "Сгенерировано при сборке",
+                    INPUT_SCHEMA,
+                    true,
+                    null,
+                    List.of(FewShotExample.builder()
+                            .request("Вызови инструмент")
+                            .paramsSchema("{}")
+                            .build()),
+                    false,
+                    true)));
+
+    @Override
+    public Map<String, GeneratedGigaToolMethod> toolMethods() {
+        return TOOL_METHODS;
+    }
+}